@@ -12,9 +12,14 @@ import java.io.IOException;
 @SpringBootApplication
 public class SearouterApplication {
 
+	/**
+	 * The grid graph file that is imported on startup and on reloads (file system or resources folder).
+	 */
+	public static final String GRID_FILE = "exported_grid.fmi";
+
 	public static void main(String[] args) {
 		try {
-			Grid.importFmiFile("exported_grid.fmi");
+			Grid.importFmiFile(GRID_FILE);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
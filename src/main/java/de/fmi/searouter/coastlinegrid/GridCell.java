@@ -11,6 +11,8 @@ import java.util.Set;
  */
 public abstract class GridCell implements Serializable {
 
+    private static final long serialVersionUID = -7236077043030243724L;
+
     /**
      * From which direction the cell was created. Relevant for {@link #initCenterPoint}.
      */
@@ -57,6 +59,22 @@ public abstract class GridCell implements Serializable {
      */
     public abstract boolean isPointInWater(float lat, float lon);
 
+    /**
+     * Check if a great circle segment crosses one of the coastline edges of this cell. Only the parts of the cell
+     * which overlap the given bounding box of the segment are checked.
+     * @param startLat The latitude of the start point of the segment
+     * @param startLon The longitude of the start point of the segment
+     * @param destLat The latitude of the end point of the segment
+     * @param destLon The longitude of the end point of the segment
+     * @param minLat The southern border of the bounding box
+     * @param maxLat The northern border of the bounding box
+     * @param minLon The western border of the bounding box
+     * @param maxLon The eastern border of the bounding box
+     * @return true if the segment crosses a coastline edge, else false
+     */
+    public abstract boolean isCrossedBySegment(float startLat, float startLon, float destLat, float destLon,
+                                               double minLat, double maxLat, double minLon, double maxLon);
+
     /**
      * @return All edge ids that are contained in this {@link GridCell}.
      */
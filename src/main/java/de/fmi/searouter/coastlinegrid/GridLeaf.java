@@ -14,6 +14,8 @@ import java.util.stream.Collectors;
  */
 public class GridLeaf extends GridCell {
 
+    private static final long serialVersionUID = 737196759113415989L;
+
     /**
      * Contains all IDs of edges contained in this {@link GridLeaf}
      */
@@ -117,6 +119,20 @@ public class GridLeaf extends GridCell {
         return pointInWater;
     }
 
+    @Override
+    public boolean isCrossedBySegment(float startLat, float startLon, float destLat, float destLon,
+                                      double minLat, double maxLat, double minLon, double maxLon) {
+        for (int i = 0; i < edgeCount; i++) {
+            int idx = edgeIds[i];
+            if (IntersectionHelper.arcsIntersect(startLat, startLon, destLat, destLon,
+                    CoastlineWays.getStartLatByEdgeIdx(idx), CoastlineWays.getStartLonByEdgeIdx(idx),
+                    CoastlineWays.getDestLatByEdgeIdx(idx), CoastlineWays.getDestLonByEdgeIdx(idx))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public Set<Integer> getAllContainedEdgeIDs() {
         return Arrays.stream(edgeIds).boxed().collect(Collectors.toSet());
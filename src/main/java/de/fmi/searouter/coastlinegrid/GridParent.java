@@ -13,6 +13,8 @@ import java.util.Set;
  */
 public class GridParent extends GridCell {
 
+    private static final long serialVersionUID = 5515766186832983449L;
+
     // Boundaries of the cell
     private final double southernLatitude;
     private final double northernLatitude;
@@ -317,6 +319,30 @@ public class GridParent extends GridCell {
         return lowerLevelCells[latIdx][lonIdx].isPointInWater(lat, lon);
     }
 
+    @Override
+    public boolean isCrossedBySegment(float startLat, float startLon, float destLat, float destLon,
+                                      double minLat, double maxLat, double minLon, double maxLon) {
+        double[] latBorders = {southernLatitude, innerLatBorders[0], innerLatBorders[1], northernLatitude};
+        double[] lonBorders = {westernLongitude, innerLonBorders[0], innerLonBorders[1], easternLongitude};
+
+        // Only check the lower level cells overlapping the bounding box
+        for (int latIdx = 0; latIdx < 3; latIdx++) {
+            if (latBorders[latIdx + 1] < minLat || latBorders[latIdx] > maxLat) {
+                continue;
+            }
+            for (int lonIdx = 0; lonIdx < 3; lonIdx++) {
+                if (lonBorders[lonIdx + 1] < minLon || lonBorders[lonIdx] > maxLon) {
+                    continue;
+                }
+                if (lowerLevelCells[latIdx][lonIdx].isCrossedBySegment(startLat, startLon, destLat, destLon,
+                        minLat, maxLat, minLon, maxLon)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     @Override
     public Set<Integer> getAllContainedEdgeIDs() {
         Set<Integer> fullList = new HashSet<>();
@@ -15,6 +15,9 @@ import java.util.Set;
  * with a pre-computed center point of each GridCell for which the water/land status is already pre-computed.
  */
 public final class PointInWaterChecker implements Serializable{
+
+    private static final long serialVersionUID = 2513616633314405527L;
+
     //information on the initial point given to calculate the grid used to determine if a point is on land or in water.
     private static final double INITIAL_POINT_LAT = -83.0;
     private static final double INITIAL_POINT_LON = -170.0;
@@ -38,7 +41,7 @@ public final class PointInWaterChecker implements Serializable{
     /**
      * The name of the serialization file which is created for storing the PointInWaterCheckers information.
      */
-    private static final String POINT_IN_WATER_CHECKER_SERIALIZATION_FILE_NAME = "coastlineChecker.ser";
+    public static final String POINT_IN_WATER_CHECKER_SERIALIZATION_FILE_NAME = "coastlineChecker.ser";
 
     /**
      * Initializes this {@link PointInWaterChecker} singleton.
@@ -304,4 +307,64 @@ public final class PointInWaterChecker implements Serializable{
         return topLevelGrid[latIdx][lonIdx].isPointInWater(lat, lon);
     }
 
+    /**
+     * Check whether the great circle segment between two points is completely in water. This is the case if
+     * the start point is in water and the segment does not cross any coastline edge. Segments crossing the
+     * date line are not supported and always reported as not in water.
+     *
+     * @param startLat The latitude of the start point of the segment
+     * @param startLon The longitude of the start point of the segment
+     * @param destLat  The latitude of the end point of the segment
+     * @param destLon  The longitude of the end point of the segment
+     * @return True if the whole segment is on water, false if not.
+     */
+    public boolean segmentInWater(float startLat, float startLon, float destLat, float destLon) {
+        if (Math.abs(destLon - startLon) > 180 || !pointInWater(startLat, startLon)) {
+            return false;
+        }
+
+        // The great circle segment bulges away from the straight line between the points in the lat/lon plane,
+        // most in its middle. The bounding box is enlarged by twice that deviation.
+        double[] middle = getGreatCircleMidpoint(startLat, startLon, destLat, destLon);
+        double margin = 2 * Math.max(Math.abs(middle[0] - (startLat + destLat) / 2.0),
+                Math.abs(middle[1] - (startLon + destLon) / 2.0)) + 0.001;
+        double minLat = Math.min(startLat, destLat) - margin;
+        double maxLat = Math.max(startLat, destLat) + margin;
+        double minLon = Math.min(startLon, destLon) - margin;
+        double maxLon = Math.max(startLon, destLon) + margin;
+
+        int minLatIdx = Math.max(0, (int) Math.floor((minLat + 90) / 10));
+        int maxLatIdx = Math.min(17, (int) Math.floor((maxLat + 90) / 10));
+        int minLonIdx = Math.max(0, (int) Math.floor((minLon + 180) / 10));
+        int maxLonIdx = Math.min(35, (int) Math.floor((maxLon + 180) / 10));
+        for (int latIdx = minLatIdx; latIdx <= maxLatIdx; latIdx++) {
+            for (int lonIdx = minLonIdx; lonIdx <= maxLonIdx; lonIdx++) {
+                if (topLevelGrid[latIdx][lonIdx].isCrossedBySegment(startLat, startLon, destLat, destLon,
+                        minLat, maxLat, minLon, maxLon)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the midpoint of the great circle segment between two points.
+     *
+     * @return The latitude and longitude of the midpoint
+     */
+    private static double[] getGreatCircleMidpoint(double startLat, double startLon, double destLat, double destLon) {
+        double lat1 = Math.toRadians(startLat);
+        double lat2 = Math.toRadians(destLat);
+        double lon1 = Math.toRadians(startLon);
+        double lon2 = Math.toRadians(destLon);
+        double x = Math.cos(lat1) * Math.cos(lon1) + Math.cos(lat2) * Math.cos(lon2);
+        double y = Math.cos(lat1) * Math.sin(lon1) + Math.cos(lat2) * Math.sin(lon2);
+        double z = Math.sin(lat1) + Math.sin(lat2);
+        return new double[]{
+                Math.toDegrees(Math.atan2(z, Math.sqrt(x * x + y * y))),
+                Math.toDegrees(Math.atan2(y, x))
+        };
+    }
+
 }
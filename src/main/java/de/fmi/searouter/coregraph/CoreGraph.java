@@ -0,0 +1,270 @@
+package de.fmi.searouter.coregraph;
+
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import de.fmi.searouter.utils.PreprocessingFiles;
+
+import java.io.*;
+import java.util.List;
+
+/**
+ * The grid graph with most nodes contracted, leaving a small core.
+ * <p>
+ * The {@link CoreGraphContractor} removes nodes one by one in the order of their importance and adds shortcuts
+ * between their neighbors where needed, until only {@link #CORE_FRACTION} of the nodes are left. Every shortest
+ * path of the graph then has a counterpart of the same length which first goes "up" from the start node over
+ * contracted nodes (each to a node contracted later or to a core node), then through the core and then "down" to
+ * the destination node; or which goes up and down without touching the core.
+ * <p>
+ * Both the original edges and the shortcuts are stored as links between two nodes. A shortcut links two
+ * neighbors of a contracted node (its middle node) and consists of two other links, which allows to unpack
+ * it into the original edges. As the graph is symmetric, every link can be used in both directions.
+ * <p>
+ * For each contracted node its up links (to the neighbors left when it was contracted) and for each core node
+ * its core links (to other core nodes) are stored in offset arrays like {@link de.fmi.searouter.dijkstragrid.Grid}.
+ * <p>
+ * The contraction is only valid for the plain edge distances of {@link Edge}, not for edge costs changed by
+ * penalties. The core graph of the current graph is available through {@link #getInstance()}, which loads it
+ * from a serialization file or calculates and stores it if no file for the current graph exists.
+ */
+public final class CoreGraph implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The name of the serialization file which is created for storing the core graph.
+     */
+    private static final String CORE_GRAPH_SERIALIZATION_FILE_NAME = "coregraph.ser";
+
+    /**
+     * The fraction of nodes which are not contracted.
+     */
+    public static final double CORE_FRACTION = 0.1;
+
+    private static CoreGraph INSTANCE;
+
+    /**
+     * For each node its index in {@link #coreNodes}, -1 if it is contracted.
+     */
+    private final int[] coreIndex;
+    private final int[] coreNodes;
+
+    // Up links of the contracted nodes, by node id
+    private final int[] upOffset;
+    private final int[] upLinks;
+
+    // Links between core nodes, by core index
+    private final int[] coreOffset;
+    private final int[] coreLinks;
+
+    // The links: end nodes, weight and for shortcuts the middle node and the links to it (-1 for original edges)
+    private final int[] linkStart;
+    private final int[] linkDest;
+    private final int[] linkWeight;
+    private final int[] linkMiddle;
+    private final int[] linkStartToMiddle;
+    private final int[] linkMiddleToDest;
+
+    /**
+     * Checksum of the graph the core graph was calculated for.
+     */
+    private final long graphChecksum;
+
+    CoreGraph(int[] coreIndex, int[] coreNodes, int[] upOffset, int[] upLinks, int[] coreOffset, int[] coreLinks,
+              int[] linkStart, int[] linkDest, int[] linkWeight, int[] linkMiddle, int[] linkStartToMiddle,
+              int[] linkMiddleToDest) {
+        this.coreIndex = coreIndex;
+        this.coreNodes = coreNodes;
+        this.upOffset = upOffset;
+        this.upLinks = upLinks;
+        this.coreOffset = coreOffset;
+        this.coreLinks = coreLinks;
+        this.linkStart = linkStart;
+        this.linkDest = linkDest;
+        this.linkWeight = linkWeight;
+        this.linkMiddle = linkMiddle;
+        this.linkStartToMiddle = linkStartToMiddle;
+        this.linkMiddleToDest = linkMiddleToDest;
+        this.graphChecksum = GraphSnapshotHolder.getCurrentChecksum();
+    }
+
+    /**
+     * Returns the core graph of the current graph. It is read from the serialization file if that file belongs to
+     * the current graph, otherwise it is calculated and the file is (over)written.
+     *
+     * @return The core graph of the current graph.
+     */
+    public static synchronized CoreGraph getInstance() {
+        long checksum = GraphSnapshotHolder.getCurrentChecksum();
+        if (INSTANCE != null && INSTANCE.graphChecksum == checksum) {
+            return INSTANCE;
+        }
+
+        String fileName = PreprocessingFiles.getPath(CORE_GRAPH_SERIALIZATION_FILE_NAME);
+        CoreGraph coreGraph = readData(fileName);
+        if (coreGraph == null || coreGraph.graphChecksum != checksum) {
+            System.out.println("Started contracting the graph. This might take a while!");
+            coreGraph = new CoreGraphContractor().contract(CORE_FRACTION);
+            coreGraph.storeData(fileName);
+        }
+
+        INSTANCE = coreGraph;
+        return coreGraph;
+    }
+
+    /**
+     * Stores the core graph to a serialization file.
+     */
+    private void storeData(String fileName) {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeObject(this);
+            System.out.println("Core graph has been serialized");
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads a core graph from a serialization file.
+     *
+     * @return The core graph or null if the file does not exist or can not be read.
+     */
+    private static CoreGraph readData(String fileName) {
+        File file = new File(fileName);
+        if (!file.exists()) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            CoreGraph coreGraph = (CoreGraph) in.readObject();
+            System.out.println("Core graph has been deserialized");
+            return coreGraph;
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Appends the original nodes of a link to a path, without the node the link is entered from.
+     *
+     * @param fromNode The end node of the link the path currently ends with.
+     * @param link     The link.
+     * @param path     The path to extend.
+     */
+    public void unpackLink(int fromNode, int link, List<Integer> path) {
+        int middle = linkMiddle[link];
+        if (middle < 0) {
+            path.add(getOtherEnd(link, fromNode));
+        } else if (fromNode == linkStart[link]) {
+            unpackLink(fromNode, linkStartToMiddle[link], path);
+            unpackLink(middle, linkMiddleToDest[link], path);
+        } else {
+            unpackLink(fromNode, linkMiddleToDest[link], path);
+            unpackLink(middle, linkStartToMiddle[link], path);
+        }
+    }
+
+    /**
+     * @param node A node id
+     * @return True if the node has not been contracted.
+     */
+    public boolean isCoreNode(int node) {
+        return coreIndex[node] >= 0;
+    }
+
+    /**
+     * @param node A core node
+     * @return The index of the node among the core nodes.
+     */
+    public int getCoreIndex(int node) {
+        return coreIndex[node];
+    }
+
+    /**
+     * @param index An index among the core nodes
+     * @return The node id of the core node.
+     */
+    public int getCoreNode(int index) {
+        return coreNodes[index];
+    }
+
+    /**
+     * @return The number of core nodes.
+     */
+    public int getNumberOfCoreNodes() {
+        return coreNodes.length;
+    }
+
+    /**
+     * @return The first position of the up links of a contracted node.
+     */
+    public int getFirstUpLink(int node) {
+        return upOffset[node];
+    }
+
+    /**
+     * @return The position after the last up link of a contracted node.
+     */
+    public int getUpLinkEnd(int node) {
+        return upOffset[node + 1];
+    }
+
+    /**
+     * @return The link id at a position of the up links.
+     */
+    public int getUpLink(int position) {
+        return upLinks[position];
+    }
+
+    /**
+     * @return The first position of the core links of a core node, given by its core index.
+     */
+    public int getFirstCoreLink(int index) {
+        return coreOffset[index];
+    }
+
+    /**
+     * @return The position after the last core link of a core node, given by its core index.
+     */
+    public int getCoreLinkEnd(int index) {
+        return coreOffset[index + 1];
+    }
+
+    /**
+     * @return The link id at a position of the core links.
+     */
+    public int getCoreLink(int position) {
+        return coreLinks[position];
+    }
+
+    /**
+     * @param link A link id
+     * @param node One end of the link
+     * @return The other end of the link.
+     */
+    public int getOtherEnd(int link, int node) {
+        return linkStart[link] == node ? linkDest[link] : linkStart[link];
+    }
+
+    /**
+     * @param link A link id
+     * @return The length of the link.
+     */
+    public int getWeight(int link) {
+        return linkWeight[link];
+    }
+
+    /**
+     * @return The number of links (original edges and shortcuts).
+     */
+    public int getNumberOfLinks() {
+        return linkWeight.length;
+    }
+
+    /**
+     * @return The checksum of the graph the core graph belongs to.
+     */
+    public long getGraphChecksum() {
+        return graphChecksum;
+    }
+}
@@ -0,0 +1,352 @@
+package de.fmi.searouter.coregraph;
+
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.utils.IntMinHeap;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Contracts the nodes of the current graph until only a given fraction is left, see {@link CoreGraph}.
+ * <p>
+ * The node with the lowest priority is contracted next. The priority is the number of shortcuts its contraction
+ * needs minus its degree plus the number of already contracted neighbors, which prefers nodes whose removal does
+ * not make the graph denser and spreads the contraction evenly. Priorities are updated lazily: a node taken from the
+ * queue is evaluated again and put back if its priority has grown beyond the next one.
+ * <p>
+ * A shortcut between two neighbors u and w of the contracted node v is only added if a witness search from u,
+ * which avoids v, does not find a path to w which is at most as long as the path over v. The witness searches are
+ * limited to {@link #WITNESS_SEARCH_LIMIT} nodes, so some unnecessary shortcuts may be added.
+ */
+class CoreGraphContractor {
+
+    private static final int WITNESS_SEARCH_LIMIT = 100;
+
+    private static final int INITIAL_LINK_CAPACITY = 1 << 16;
+
+    // The links (original edges and shortcuts), see CoreGraph
+    private int[] linkStart = new int[INITIAL_LINK_CAPACITY];
+    private int[] linkDest = new int[INITIAL_LINK_CAPACITY];
+    private int[] linkWeight = new int[INITIAL_LINK_CAPACITY];
+    private int[] linkMiddle = new int[INITIAL_LINK_CAPACITY];
+    private int[] linkStartToMiddle = new int[INITIAL_LINK_CAPACITY];
+    private int[] linkMiddleToDest = new int[INITIAL_LINK_CAPACITY];
+    private int numberOfLinks;
+
+    // For each node the links to its neighbors, also to already contracted ones
+    private final int[][] adjacentLinks;
+    private final int[] numberOfAdjacentLinks;
+
+    private final boolean[] contracted;
+    private final int[] contractedNeighbors;
+
+    // For each contracted node its links to the neighbors that were left
+    private final int[][] upLinks;
+
+    // Neighbors of the node currently processed, with the shortest link to them
+    private final int[] bestLinkToNeighbor;
+    private int[] neighbors = new int[16];
+    private int[] neighborLinks = new int[16];
+
+    // Witness search state
+    private final int[] distance;
+    private final int[] touchedNodes;
+    private final IntMinHeap heap;
+
+    CoreGraphContractor() {
+        int numberOfNodes = Node.getSize();
+        this.adjacentLinks = new int[numberOfNodes][];
+        this.numberOfAdjacentLinks = new int[numberOfNodes];
+        this.contracted = new boolean[numberOfNodes];
+        this.contractedNeighbors = new int[numberOfNodes];
+        this.upLinks = new int[numberOfNodes][];
+        this.bestLinkToNeighbor = new int[numberOfNodes];
+        this.distance = new int[numberOfNodes];
+        this.touchedNodes = new int[numberOfNodes];
+        Arrays.fill(bestLinkToNeighbor, -1);
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        this.heap = new IntMinHeap(distance);
+
+        for (int node = 0; node < numberOfNodes; node++) {
+            adjacentLinks[node] = new int[Grid.offset[node + 1] - Grid.offset[node]];
+        }
+        // The graph is symmetric, so one link per pair of opposite edges
+        for (int node = 0; node < numberOfNodes; node++) {
+            for (int edge = Grid.offset[node]; edge < Grid.offset[node + 1]; edge++) {
+                int dest = Edge.getDest(edge);
+                if (node < dest) {
+                    addLink(node, dest, Edge.getDist(edge), -1, -1, -1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Contracts nodes until only a fraction of them is left.
+     *
+     * @param coreFraction The fraction of nodes which are not contracted.
+     * @return The core graph.
+     */
+    CoreGraph contract(double coreFraction) {
+        long startTime = System.nanoTime();
+        int numberOfNodes = Node.getSize();
+        int numberOfNodesToContract = numberOfNodes - (int) Math.ceil(numberOfNodes * coreFraction);
+
+        int[] priority = new int[numberOfNodes];
+        PriorityQueue<Long> queue = new PriorityQueue<>();
+        for (int node = 0; node < numberOfNodes; node++) {
+            priority[node] = calculatePriority(node);
+            queue.add(queueEntry(priority[node], node));
+        }
+
+        int numberOfContractedNodes = 0;
+        while (numberOfContractedNodes < numberOfNodesToContract && !queue.isEmpty()) {
+            long entry = queue.poll();
+            int node = (int) entry;
+            if (contracted[node] || (int) (entry >> 32) != priority[node]) {
+                continue;
+            }
+            priority[node] = calculatePriority(node);
+            if (!queue.isEmpty() && queueEntry(priority[node], node) > queue.peek()) {
+                queue.add(queueEntry(priority[node], node));
+                continue;
+            }
+
+            contractNode(node);
+            numberOfContractedNodes++;
+            if (numberOfContractedNodes % 100000 == 0) {
+                System.out.println("Core graph: " + numberOfContractedNodes + " of " + numberOfNodesToContract
+                        + " nodes contracted, " + numberOfLinks + " links");
+            }
+        }
+
+        CoreGraph coreGraph = buildCoreGraph();
+        System.out.println("Contracted graph to a core of " + coreGraph.getNumberOfCoreNodes() + " nodes with "
+                + numberOfLinks + " links (" + (numberOfLinks - Edge.getSize() / 2) + " shortcuts) in "
+                + (System.nanoTime() - startTime) / 1000000 + " ms");
+        return coreGraph;
+    }
+
+    private static long queueEntry(int priority, int node) {
+        return ((long) priority << 32) | node;
+    }
+
+    private int calculatePriority(int node) {
+        int degree = collectNeighbors(node);
+        int shortcuts = processNeighbors(node, degree, false);
+        resetNeighbors(degree);
+        return shortcuts - degree + contractedNeighbors[node];
+    }
+
+    private void contractNode(int node) {
+        int degree = collectNeighbors(node);
+        processNeighbors(node, degree, true);
+        upLinks[node] = Arrays.copyOf(neighborLinks, degree);
+        contracted[node] = true;
+        for (int i = 0; i < degree; i++) {
+            contractedNeighbors[neighbors[i]]++;
+            removeContractedLinks(neighbors[i]);
+        }
+        resetNeighbors(degree);
+    }
+
+    /**
+     * Removes the links to contracted nodes from the adjacency list of a node, so that the witness searches do not
+     * have to skip them again and again.
+     */
+    private void removeContractedLinks(int node) {
+        int[] links = adjacentLinks[node];
+        int size = 0;
+        for (int i = 0; i < numberOfAdjacentLinks[node]; i++) {
+            int link = links[i];
+            if (!contracted[linkStart[link]] && !contracted[linkDest[link]]) {
+                links[size++] = link;
+            }
+        }
+        numberOfAdjacentLinks[node] = size;
+    }
+
+    /**
+     * Collects the neighbors of a node which are not contracted yet, with the shortest link to each of them.
+     *
+     * @return The number of neighbors.
+     */
+    private int collectNeighbors(int node) {
+        int degree = 0;
+        for (int i = 0; i < numberOfAdjacentLinks[node]; i++) {
+            int link = adjacentLinks[node][i];
+            int neighbor = linkStart[link] == node ? linkDest[link] : linkStart[link];
+            if (contracted[neighbor]) {
+                continue;
+            }
+            if (bestLinkToNeighbor[neighbor] < 0) {
+                if (degree == neighbors.length) {
+                    neighbors = Arrays.copyOf(neighbors, 2 * degree);
+                    neighborLinks = Arrays.copyOf(neighborLinks, 2 * degree);
+                }
+                neighbors[degree] = neighbor;
+                neighborLinks[degree] = link;
+                bestLinkToNeighbor[neighbor] = degree;
+                degree++;
+            } else if (linkWeight[link] < linkWeight[neighborLinks[bestLinkToNeighbor[neighbor]]]) {
+                neighborLinks[bestLinkToNeighbor[neighbor]] = link;
+            }
+        }
+        return degree;
+    }
+
+    private void resetNeighbors(int degree) {
+        for (int i = 0; i < degree; i++) {
+            bestLinkToNeighbor[neighbors[i]] = -1;
+        }
+    }
+
+    /**
+     * Runs the witness searches between the neighbors of a node.
+     *
+     * @param addShortcuts Whether to add the needed shortcuts or only count them.
+     * @return The number of needed shortcuts.
+     */
+    private int processNeighbors(int node, int degree, boolean addShortcuts) {
+        int shortcuts = 0;
+        for (int i = 0; i < degree - 1; i++) {
+            int firstWeight = linkWeight[neighborLinks[i]];
+            int maxDistance = 0;
+            for (int j = i + 1; j < degree; j++) {
+                maxDistance = Math.max(maxDistance, firstWeight + linkWeight[neighborLinks[j]]);
+            }
+
+            int numberOfTouchedNodes = witnessSearch(neighbors[i], node, maxDistance);
+            for (int j = i + 1; j < degree; j++) {
+                int distanceOverNode = firstWeight + linkWeight[neighborLinks[j]];
+                if (distance[neighbors[j]] > distanceOverNode) {
+                    shortcuts++;
+                    if (addShortcuts) {
+                        addLink(neighbors[i], neighbors[j], distanceOverNode, node, neighborLinks[i], neighborLinks[j]);
+                    }
+                }
+            }
+            for (int k = 0; k < numberOfTouchedNodes; k++) {
+                distance[touchedNodes[k]] = Integer.MAX_VALUE;
+            }
+            heap.resetState();
+        }
+        return shortcuts;
+    }
+
+    /**
+     * Dijkstra search over the nodes which are not contracted, avoiding one node.
+     *
+     * @return The number of touched nodes, whose distances have to be reset.
+     */
+    private int witnessSearch(int startNode, int avoidedNode, int maxDistance) {
+        int numberOfTouchedNodes = 0;
+        int settled = 0;
+        distance[startNode] = 0;
+        touchedNodes[numberOfTouchedNodes++] = startNode;
+        heap.add(startNode);
+
+        while (!heap.isEmpty() && settled < WITNESS_SEARCH_LIMIT) {
+            int node = heap.getNext();
+            settled++;
+            if (distance[node] > maxDistance) {
+                break;
+            }
+            for (int i = 0; i < numberOfAdjacentLinks[node]; i++) {
+                int link = adjacentLinks[node][i];
+                int dest = linkStart[link] == node ? linkDest[link] : linkStart[link];
+                if (contracted[dest] || dest == avoidedNode) {
+                    continue;
+                }
+                int newDistance = distance[node] + linkWeight[link];
+                if (newDistance < distance[dest]) {
+                    if (distance[dest] == Integer.MAX_VALUE) {
+                        touchedNodes[numberOfTouchedNodes++] = dest;
+                    }
+                    distance[dest] = newDistance;
+                    heap.add(dest);
+                }
+            }
+        }
+        return numberOfTouchedNodes;
+    }
+
+    private void addLink(int start, int dest, int weight, int middle, int startToMiddle, int middleToDest) {
+        if (numberOfLinks == linkWeight.length) {
+            int newCapacity = 2 * numberOfLinks;
+            linkStart = Arrays.copyOf(linkStart, newCapacity);
+            linkDest = Arrays.copyOf(linkDest, newCapacity);
+            linkWeight = Arrays.copyOf(linkWeight, newCapacity);
+            linkMiddle = Arrays.copyOf(linkMiddle, newCapacity);
+            linkStartToMiddle = Arrays.copyOf(linkStartToMiddle, newCapacity);
+            linkMiddleToDest = Arrays.copyOf(linkMiddleToDest, newCapacity);
+        }
+        int link = numberOfLinks++;
+        linkStart[link] = start;
+        linkDest[link] = dest;
+        linkWeight[link] = weight;
+        linkMiddle[link] = middle;
+        linkStartToMiddle[link] = startToMiddle;
+        linkMiddleToDest[link] = middleToDest;
+        addAdjacentLink(start, link);
+        addAdjacentLink(dest, link);
+    }
+
+    private void addAdjacentLink(int node, int link) {
+        if (numberOfAdjacentLinks[node] == adjacentLinks[node].length) {
+            adjacentLinks[node] = Arrays.copyOf(adjacentLinks[node], Math.max(4, 2 * numberOfAdjacentLinks[node]));
+        }
+        adjacentLinks[node][numberOfAdjacentLinks[node]++] = link;
+    }
+
+    /**
+     * Builds the offset arrays of the up links and the core links.
+     */
+    private CoreGraph buildCoreGraph() {
+        int numberOfNodes = Node.getSize();
+        int[] coreIndex = new int[numberOfNodes];
+        int numberOfCoreNodes = 0;
+        for (int node = 0; node < numberOfNodes; node++) {
+            coreIndex[node] = contracted[node] ? -1 : numberOfCoreNodes++;
+        }
+        int[] coreNodes = new int[numberOfCoreNodes];
+        for (int node = 0; node < numberOfNodes; node++) {
+            if (coreIndex[node] >= 0) {
+                coreNodes[coreIndex[node]] = node;
+            }
+        }
+
+        int[] upOffset = new int[numberOfNodes + 1];
+        for (int node = 0; node < numberOfNodes; node++) {
+            upOffset[node + 1] = upOffset[node] + (contracted[node] ? upLinks[node].length : 0);
+        }
+        int[] upLinkArray = new int[upOffset[numberOfNodes]];
+        for (int node = 0; node < numberOfNodes; node++) {
+            if (contracted[node]) {
+                System.arraycopy(upLinks[node], 0, upLinkArray, upOffset[node], upLinks[node].length);
+            }
+        }
+
+        int[][] coreLinksOfNode = new int[numberOfCoreNodes][];
+        for (int index = 0; index < numberOfCoreNodes; index++) {
+            int degree = collectNeighbors(coreNodes[index]);
+            coreLinksOfNode[index] = Arrays.copyOf(neighborLinks, degree);
+            resetNeighbors(degree);
+        }
+        int[] coreOffset = new int[numberOfCoreNodes + 1];
+        for (int index = 0; index < numberOfCoreNodes; index++) {
+            coreOffset[index + 1] = coreOffset[index] + coreLinksOfNode[index].length;
+        }
+        int[] coreLinkArray = new int[coreOffset[numberOfCoreNodes]];
+        for (int index = 0; index < numberOfCoreNodes; index++) {
+            System.arraycopy(coreLinksOfNode[index], 0, coreLinkArray, coreOffset[index], coreLinksOfNode[index].length);
+        }
+
+        return new CoreGraph(coreIndex, coreNodes, upOffset, upLinkArray, coreOffset, coreLinkArray,
+                Arrays.copyOf(linkStart, numberOfLinks), Arrays.copyOf(linkDest, numberOfLinks),
+                Arrays.copyOf(linkWeight, numberOfLinks), Arrays.copyOf(linkMiddle, numberOfLinks),
+                Arrays.copyOf(linkStartToMiddle, numberOfLinks), Arrays.copyOf(linkMiddleToDest, numberOfLinks));
+    }
+}
@@ -0,0 +1,109 @@
+package de.fmi.searouter.costoverlay;
+
+import de.fmi.searouter.importdata.LatLong;
+
+import java.util.List;
+
+/**
+ * A cost penalty for an area, e.g. a storm, drift ice or a closed strait. The penalty applies to all edges
+ * that have at least one end node inside the polygon (in both directions, so the graph stays symmetric):
+ * the cost of such an edge becomes {@code dist * factor + addition}. Penalties can only increase costs, which
+ * keeps all lower bounds used by the A* and ALT routers valid.
+ */
+public class CostPenalty {
+
+    private final String id;
+    private final double[] polygonLatitude;
+    private final double[] polygonLongitude;
+    private final double factor;
+    private final int addition;
+
+    // Bounding box of the polygon for a fast pre-check
+    private final double minLatitude;
+    private final double maxLatitude;
+    private final double minLongitude;
+    private final double maxLongitude;
+
+    /**
+     * @param id       Unique name of the penalty. Adding a penalty with an existing id replaces the old one.
+     * @param polygon  The area the penalty applies to (at least 3 points, the polygon is closed implicitly).
+     * @param factor   Multiplicative penalty on the edge distance (at least 1).
+     * @param addition Additive penalty on the edge distance in meters (at least 0).
+     */
+    public CostPenalty(String id, List<LatLong> polygon, double factor, int addition) {
+        if (id == null || id.isEmpty()) {
+            throw new IllegalArgumentException("A penalty needs an id");
+        }
+        if (polygon == null || polygon.size() < 3) {
+            throw new IllegalArgumentException("A penalty polygon needs at least 3 points");
+        }
+        if (!(factor >= 1) || Double.isInfinite(factor)) {
+            throw new IllegalArgumentException("The penalty factor must be at least 1");
+        }
+        if (addition < 0) {
+            throw new IllegalArgumentException("The additive penalty must not be negative");
+        }
+
+        this.id = id;
+        this.factor = factor;
+        this.addition = addition;
+        this.polygonLatitude = new double[polygon.size()];
+        this.polygonLongitude = new double[polygon.size()];
+
+        double minLat = Double.MAX_VALUE;
+        double maxLat = -Double.MAX_VALUE;
+        double minLon = Double.MAX_VALUE;
+        double maxLon = -Double.MAX_VALUE;
+        for (int i = 0; i < polygon.size(); i++) {
+            polygonLatitude[i] = polygon.get(i).getLatitude();
+            polygonLongitude[i] = polygon.get(i).getLongitude();
+            minLat = Math.min(minLat, polygonLatitude[i]);
+            maxLat = Math.max(maxLat, polygonLatitude[i]);
+            minLon = Math.min(minLon, polygonLongitude[i]);
+            maxLon = Math.max(maxLon, polygonLongitude[i]);
+        }
+        this.minLatitude = minLat;
+        this.maxLatitude = maxLat;
+        this.minLongitude = minLon;
+        this.maxLongitude = maxLon;
+    }
+
+    /**
+     * Checks whether a point lies inside the polygon (even-odd rule on the lat/lon plane).
+     *
+     * @param latitude  Latitude of the point
+     * @param longitude Longitude of the point
+     * @return True if the point is inside the polygon.
+     */
+    public boolean containsPoint(double latitude, double longitude) {
+        if (latitude < minLatitude || latitude > maxLatitude || longitude < minLongitude || longitude > maxLongitude) {
+            return false;
+        }
+
+        boolean inside = false;
+        for (int i = 0, j = polygonLatitude.length - 1; i < polygonLatitude.length; j = i++) {
+            if ((polygonLatitude[i] > latitude) != (polygonLatitude[j] > latitude)
+                    && longitude < (polygonLongitude[j] - polygonLongitude[i]) * (latitude - polygonLatitude[i])
+                    / (polygonLatitude[j] - polygonLatitude[i]) + polygonLongitude[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public double getFactor() {
+        return factor;
+    }
+
+    public int getAddition() {
+        return addition;
+    }
+
+    public int getNumberOfPolygonPoints() {
+        return polygonLatitude.length;
+    }
+}
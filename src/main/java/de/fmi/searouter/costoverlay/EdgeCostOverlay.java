@@ -0,0 +1,192 @@
+package de.fmi.searouter.costoverlay;
+
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.dijkstragrid.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+/**
+ * Versioned copy-on-write overlay over the edge distances of {@link Edge} which applies the currently active
+ * {@link CostPenalty}s. Routers fetch the cost array once per query with {@link #getCurrentCosts()}, so a query
+ * always sees one consistent version while updates are applied concurrently.
+ * <p>
+ * Each update builds a new cost array (without touching the graph) and publishes it atomically. The pre-calculated
+ * landmarks are not changed: as penalties only increase costs, landmark and great circle bounds calculated
+ * on the plain distances stay valid lower bounds. Tighter landmarks for the penalized costs can be repaired in the
+ * background by {@link de.fmi.searouter.landmarks.LandmarkRepair}, which is notified by an update listener.
+ */
+public final class EdgeCostOverlay {
+
+    /**
+     * Upper limit for a penalized edge cost (400 km, about ten times the longest edge of the default grid). Keeps
+     * the sum of the costs of a route within the int range even if it has thousands of penalized edges.
+     */
+    private static final int MAX_EDGE_COST = 400000;
+
+    private static final AtomicReference<EdgeCostOverlay> current =
+            new AtomicReference<>(new EdgeCostOverlay(0, null, null, Collections.emptyList()));
+
+    private static final List<Runnable> updateListeners = new CopyOnWriteArrayList<>();
+
+    private final long version;
+
+    /**
+     * The distance array of {@link Edge} the costs were calculated for, null if there are no penalties.
+     */
+    private final int[] baseDist;
+
+    /**
+     * The penalized cost of each edge, null if there are no penalties.
+     */
+    private final int[] costs;
+
+    private final List<CostPenalty> penalties;
+
+    private EdgeCostOverlay(long version, int[] baseDist, int[] costs, List<CostPenalty> penalties) {
+        this.version = version;
+        this.baseDist = baseDist;
+        this.costs = costs;
+        this.penalties = penalties;
+    }
+
+    /**
+     * Returns the cost of all edges of the current graph including all active penalties. If the graph was
+     * replaced since the last update, the penalties are applied to the new graph first.
+     *
+     * @return The cost of each edge (index = edge id). The array must not be modified.
+     */
+    public static int[] getCurrentCosts() {
+        EdgeCostOverlay overlay = current.get();
+        if (overlay.penalties.isEmpty()) {
+            return Edge.getDistances();
+        }
+        if (overlay.baseDist != Edge.getDistances()) {
+            overlay = rebuildForCurrentGraph();
+        }
+        return overlay.costs;
+    }
+
+    private static synchronized EdgeCostOverlay rebuildForCurrentGraph() {
+        EdgeCostOverlay overlay = current.get();
+        if (!overlay.penalties.isEmpty() && overlay.baseDist != Edge.getDistances()) {
+            overlay = build(overlay.version + 1, overlay.penalties);
+            current.set(overlay);
+        }
+        return overlay;
+    }
+
+    /**
+     * Adds a penalty or replaces the penalty with the same id.
+     *
+     * @param penalty The penalty to apply.
+     * @return The version of the overlay containing the penalty.
+     */
+    public static synchronized long addPenalty(CostPenalty penalty) {
+        List<CostPenalty> penalties = new ArrayList<>(current.get().penalties);
+        penalties.removeIf(p -> p.getId().equals(penalty.getId()));
+        penalties.add(penalty);
+        return publish(penalties);
+    }
+
+    /**
+     * Removes a penalty.
+     *
+     * @param id The id of the penalty.
+     * @return True if a penalty with this id existed.
+     */
+    public static synchronized boolean removePenalty(String id) {
+        List<CostPenalty> penalties = new ArrayList<>(current.get().penalties);
+        if (!penalties.removeIf(p -> p.getId().equals(id))) {
+            return false;
+        }
+        publish(penalties);
+        return true;
+    }
+
+    /**
+     * Removes all penalties.
+     */
+    public static synchronized void clearPenalties() {
+        publish(new ArrayList<>());
+    }
+
+    private static long publish(List<CostPenalty> penalties) {
+        long startTime = System.nanoTime();
+        EdgeCostOverlay overlay = build(current.get().version + 1, penalties);
+        current.set(overlay);
+        System.out.println("Edge cost overlay version " + overlay.version + " with " + penalties.size()
+                + " penalties built in " + (System.nanoTime() - startTime) / 1000000.0 + " ms");
+        for (Runnable listener : updateListeners) {
+            listener.run();
+        }
+        return overlay.version;
+    }
+
+    /**
+     * Calculates the edge costs of the current graph for the given penalties.
+     */
+    private static EdgeCostOverlay build(long version, List<CostPenalty> penalties) {
+        List<CostPenalty> immutablePenalties = Collections.unmodifiableList(penalties);
+        if (penalties.isEmpty()) {
+            return new EdgeCostOverlay(version, null, null, immutablePenalties);
+        }
+
+        int[] baseDist = Edge.getDistances();
+        int[] offset = Grid.offset;
+        double[] factor = new double[baseDist.length];
+        long[] addition = new long[baseDist.length];
+        Arrays.fill(factor, 1.0);
+
+        for (CostPenalty penalty : penalties) {
+            boolean[] inside = new boolean[Node.getSize()];
+            IntStream.range(0, inside.length).parallel()
+                    .forEach(node -> inside[node] = penalty.containsPoint(Node.getLatitude(node), Node.getLongitude(node)));
+
+            // Each edge is only touched by the thread handling its start node, so no synchronization is needed
+            IntStream.range(0, inside.length).parallel().forEach(node -> {
+                for (int edge = offset[node]; edge < offset[node + 1]; edge++) {
+                    if (inside[node] || inside[Edge.getDest(edge)]) {
+                        factor[edge] *= penalty.getFactor();
+                        addition[edge] += penalty.getAddition();
+                    }
+                }
+            });
+        }
+
+        int[] costs = new int[baseDist.length];
+        IntStream.range(0, costs.length).parallel().forEach(edge -> {
+            double cost = baseDist[edge] * factor[edge] + addition[edge];
+            costs[edge] = Math.max(baseDist[edge], cost >= MAX_EDGE_COST ? MAX_EDGE_COST : (int) Math.round(cost));
+        });
+
+        return new EdgeCostOverlay(version, baseDist, costs, immutablePenalties);
+    }
+
+    /**
+     * @return The version of the current overlay (increases with each update).
+     */
+    public static long getVersion() {
+        return current.get().version;
+    }
+
+    /**
+     * @return All active penalties.
+     */
+    public static List<CostPenalty> getPenalties() {
+        return current.get().penalties;
+    }
+
+    /**
+     * Registers a callback that is executed after each update of the penalties.
+     */
+    public static void addUpdateListener(Runnable listener) {
+        updateListeners.add(listener);
+    }
+}
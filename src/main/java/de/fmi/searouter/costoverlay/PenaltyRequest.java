@@ -0,0 +1,48 @@
+package de.fmi.searouter.costoverlay;
+
+import de.fmi.searouter.importdata.LatLong;
+
+import java.util.List;
+
+/**
+ * Request to add a {@link CostPenalty}. Used as JSON mapping object for the REST api.
+ */
+public class PenaltyRequest {
+
+    private String id;
+    private List<LatLong> polygon;
+    private double factor = 1.0;
+    private int addition = 0;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public List<LatLong> getPolygon() {
+        return polygon;
+    }
+
+    public void setPolygon(List<LatLong> polygon) {
+        this.polygon = polygon;
+    }
+
+    public double getFactor() {
+        return factor;
+    }
+
+    public void setFactor(double factor) {
+        this.factor = factor;
+    }
+
+    public int getAddition() {
+        return addition;
+    }
+
+    public void setAddition(int addition) {
+        this.addition = addition;
+    }
+}
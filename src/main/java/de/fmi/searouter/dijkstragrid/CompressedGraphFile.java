@@ -0,0 +1,293 @@
+package de.fmi.searouter.dijkstragrid;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact binary alternative to the .fmi text format for distributing grid graphs.
+ * <p>
+ * Layout:
+ * <ul>
+ *     <li>Uncompressed header: magic number, format version, number of nodes and edges, some graph statistics
+ *     (maximum degree, minimum/maximum edge distance, number of distinct latitudes/longitudes) and the
+ *     {@link GraphSnapshot#getChecksum() checksum} of the graph.</li>
+ *     <li>Deflate compressed payload:
+ *     <ul>
+ *         <li>The sorted distinct latitudes and longitudes of all nodes. As the nodes lie on a lattice these tables
+ *         are small, and each node is stored as zigzag encoded difference of its row/column index to the previous
+ *         node. This is lossless, no rounding of coordinates takes place.</li>
+ *         <li>The adjacency in node order: degree, then for each edge the zigzag encoded difference of its
+ *         destination to the previous destination (or the node itself for the first edge) and its distance.</li>
+ *     </ul>
+ *     All integers of the payload are written as varints.</li>
+ * </ul>
+ * Writing and reading are streaming, the file content is never held in memory as a whole.
+ */
+public class CompressedGraphFile {
+
+    /**
+     * "SGRF" in ASCII
+     */
+    public static final int MAGIC = 0x53475246;
+
+    private static final short VERSION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Writes a graph into a stream. The stream is not closed.
+     *
+     * @param snapshot The graph to write (landmarks are not written).
+     * @param out      The target stream.
+     * @throws IOException If I/O fails.
+     */
+    public static void write(GraphSnapshot snapshot, OutputStream out) throws IOException {
+        int[] offset = snapshot.getOffset();
+        int[] dest = snapshot.getEdgeDest();
+        int[] dist = snapshot.getEdgeDist();
+        double[] latitude = snapshot.getLatitude();
+        double[] longitude = snapshot.getLongitude();
+
+        double[] latitudes = distinctSorted(latitude);
+        double[] longitudes = distinctSorted(longitude);
+
+        int maxDegree = 0;
+        for (int node = 0; node < snapshot.getNumberOfNodes(); node++) {
+            maxDegree = Math.max(maxDegree, offset[node + 1] - offset[node]);
+        }
+        int minDist = dist.length == 0 ? 0 : Integer.MAX_VALUE;
+        int maxDist = 0;
+        for (int d : dist) {
+            minDist = Math.min(minDist, d);
+            maxDist = Math.max(maxDist, d);
+        }
+
+        // Header
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(MAGIC);
+        header.writeShort(VERSION);
+        header.writeInt(snapshot.getNumberOfNodes());
+        header.writeInt(snapshot.getNumberOfEdges());
+        header.writeInt(maxDegree);
+        header.writeInt(minDist);
+        header.writeInt(maxDist);
+        header.writeInt(latitudes.length);
+        header.writeInt(longitudes.length);
+        header.writeLong(snapshot.getChecksum());
+        header.flush();
+
+        // Payload
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        DeflaterOutputStream deflaterStream = new DeflaterOutputStream(new NonClosingOutputStream(out), deflater, BUFFER_SIZE);
+        try (DataOutputStream payload = new DataOutputStream(new BufferedOutputStream(deflaterStream, BUFFER_SIZE))) {
+            for (double lat : latitudes) {
+                payload.writeDouble(lat);
+            }
+            for (double lon : longitudes) {
+                payload.writeDouble(lon);
+            }
+
+            int previousRow = 0;
+            int previousColumn = 0;
+            for (int node = 0; node < latitude.length; node++) {
+                int row = Arrays.binarySearch(latitudes, latitude[node]);
+                int column = Arrays.binarySearch(longitudes, longitude[node]);
+                writeVarInt(payload, zigzag(row - previousRow));
+                writeVarInt(payload, zigzag(column - previousColumn));
+                previousRow = row;
+                previousColumn = column;
+            }
+
+            for (int node = 0; node < latitude.length; node++) {
+                writeVarInt(payload, offset[node + 1] - offset[node]);
+                int previousDest = node;
+                for (int edge = offset[node]; edge < offset[node + 1]; edge++) {
+                    writeVarInt(payload, zigzag(dest[edge] - previousDest));
+                    writeVarInt(payload, dist[edge]);
+                    previousDest = dest[edge];
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Reads a graph from a stream. The stream is not closed.
+     *
+     * @param in The source stream, positioned at the magic number.
+     * @return The graph (without landmarks).
+     * @throws IOException If I/O fails, the format is unknown or the checksum does not match.
+     */
+    public static GraphSnapshot read(InputStream in) throws IOException {
+        DataInputStream header = new DataInputStream(in);
+        if (header.readInt() != MAGIC) {
+            throw new IOException("Not a compressed graph file");
+        }
+        short version = header.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported compressed graph file version " + version);
+        }
+        int numberOfNodes = header.readInt();
+        int numberOfEdges = header.readInt();
+        header.readInt(); // max degree
+        header.readInt(); // min dist
+        header.readInt(); // max dist
+        int numberOfLatitudes = header.readInt();
+        int numberOfLongitudes = header.readInt();
+        long expectedChecksum = header.readLong();
+        if (numberOfNodes < 0 || numberOfEdges < 0 || numberOfLatitudes < 0 || numberOfLongitudes < 0) {
+            throw new IOException("Corrupt compressed graph header");
+        }
+
+        double[] latitude = new double[numberOfNodes];
+        double[] longitude = new double[numberOfNodes];
+        int[] offset = new int[numberOfNodes + 1];
+        int[] start = new int[numberOfEdges];
+        int[] dest = new int[numberOfEdges];
+        int[] dist = new int[numberOfEdges];
+
+        Inflater inflater = new Inflater();
+        InflaterInputStream inflaterStream = new InflaterInputStream(new NonClosingInputStream(in), inflater, BUFFER_SIZE);
+        try (DataInputStream payload = new DataInputStream(new BufferedInputStream(inflaterStream, BUFFER_SIZE))) {
+            double[] latitudes = new double[numberOfLatitudes];
+            double[] longitudes = new double[numberOfLongitudes];
+            for (int i = 0; i < latitudes.length; i++) {
+                latitudes[i] = payload.readDouble();
+            }
+            for (int i = 0; i < longitudes.length; i++) {
+                longitudes[i] = payload.readDouble();
+            }
+
+            int row = 0;
+            int column = 0;
+            for (int node = 0; node < numberOfNodes; node++) {
+                row += unzigzag(readVarInt(payload));
+                column += unzigzag(readVarInt(payload));
+                if (row < 0 || row >= latitudes.length || column < 0 || column >= longitudes.length) {
+                    throw new IOException("Corrupt coordinates of node " + node);
+                }
+                latitude[node] = latitudes[row];
+                longitude[node] = longitudes[column];
+            }
+
+            int edge = 0;
+            for (int node = 0; node < numberOfNodes; node++) {
+                int degree = readVarInt(payload);
+                if (degree < 0 || degree > numberOfEdges - edge) {
+                    throw new IOException("Corrupt degree of node " + node);
+                }
+                int previousDest = node;
+                for (int i = 0; i < degree; i++, edge++) {
+                    start[edge] = node;
+                    dest[edge] = previousDest + unzigzag(readVarInt(payload));
+                    dist[edge] = readVarInt(payload);
+                    if (dest[edge] < 0 || dest[edge] >= numberOfNodes) {
+                        throw new IOException("Corrupt destination of edge " + edge);
+                    }
+                    previousDest = dest[edge];
+                }
+                offset[node + 1] = edge;
+            }
+            if (edge != numberOfEdges) {
+                throw new IOException("Expected " + numberOfEdges + " edges but read " + edge);
+            }
+        } finally {
+            inflater.end();
+        }
+
+        GraphSnapshot snapshot = new GraphSnapshot(offset, start, dest, dist, latitude, longitude);
+        if (snapshot.getChecksum() != expectedChecksum) {
+            throw new IOException("Checksum mismatch, the compressed graph file is corrupt");
+        }
+        return snapshot;
+    }
+
+    /**
+     * Checks whether a stream starts with the magic number of this format. The stream has to support
+     * {@link InputStream#mark(int)}, its position is not changed.
+     */
+    public static boolean isCompressedGraph(InputStream in) throws IOException {
+        in.mark(4);
+        try {
+            byte[] magic = new byte[4];
+            int read = in.readNBytes(magic, 0, 4);
+            return read == 4 && ((magic[0] & 0xFF) << 24 | (magic[1] & 0xFF) << 16 | (magic[2] & 0xFF) << 8 | (magic[3] & 0xFF)) == MAGIC;
+        } finally {
+            in.reset();
+        }
+    }
+
+    private static double[] distinctSorted(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.parallelSort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || Double.compare(sorted[i], sorted[size - 1]) != 0) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, size);
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt varint");
+    }
+
+    /**
+     * Lets the payload streams be closed (to finish the deflate stream) without closing the underlying stream.
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    private static class NonClosingInputStream extends FilterInputStream {
+        NonClosingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
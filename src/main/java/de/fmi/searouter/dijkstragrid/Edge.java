@@ -31,6 +31,13 @@ public class Edge {
         return dist[i];
     }
 
+    /**
+     * @return The distances of all edges (index = edge id). The array must not be modified.
+     */
+    public static int[] getDistances() {
+        return dist;
+    }
+
     public static void setStartNode(int[] startNode) {
         Edge.startNode = startNode;
     }
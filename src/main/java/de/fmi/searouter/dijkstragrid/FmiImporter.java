@@ -0,0 +1,594 @@
+package de.fmi.searouter.dijkstragrid;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Parses a grid graph in the .fmi text format straight into primitive arrays and builds a {@link GraphSnapshot}.
+ * <p>
+ * The file content is split into chunks at line boundaries which are parsed in parallel. Files are memory-mapped
+ * chunk by chunk instead of being read into one array, so their size is not limited to 2 GB and the content is
+ * not copied onto the heap. Node file ids are mapped to internal ids (= position of the node line) with an array
+ * lookup, the offset array is built with a counting sort over the start nodes and missing reverse edges are found
+ * with a single merge pass over the sorted (start, dest) pairs and their reversed counterparts. Thus the import
+ * runs in (nearly) linear time and does not create an object per node or edge.
+ */
+public class FmiImporter {
+
+    /**
+     * Number of chunks per available processor, more chunks give a better load balance.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * Chunks are not made smaller than this number of bytes.
+     */
+    private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Chunks are planned with at most this number of bytes. As a chunk is extended to the next line end, it
+     * stays far below the 2 GB limit of a {@link ByteBuffer}.
+     */
+    private static final int MAX_CHUNK_SIZE = 1 << 30;
+
+    /**
+     * Number of bytes that are mapped at once while reading the header or searching for a line end.
+     */
+    private static final int WINDOW_SIZE = 1 << 16;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * The content to import, either a file or an array.
+     */
+    private interface Content {
+
+        long size();
+
+        /**
+         * @return The bytes from start to start + length, indexed from 0.
+         */
+        ByteBuffer map(long start, int length) throws IOException;
+    }
+
+    private final Content content;
+
+    private int numberOfNodes;
+    private int numberOfEdges;
+
+    // Parsed node lines (index = internal node id)
+    private int[] nodeFileIds;
+    private double[] latitude;
+    private double[] longitude;
+
+    // Parsed edge lines, start and dest are file node ids until mapped
+    private int[] edgeStart;
+    private int[] edgeDest;
+    private int[] edgeDist;
+
+    private FmiImporter(Content content) {
+        this.content = content;
+    }
+
+    /**
+     * Parses the content of a .fmi file.
+     *
+     * @param data The complete file content.
+     * @return A snapshot of the parsed graph (without landmarks). Missing reverse edges are added so
+     * that the graph is undirected.
+     * @throws IOException If the content is not a valid .fmi graph.
+     */
+    public static GraphSnapshot importFmi(byte[] data) throws IOException {
+        return importFmi(new Content() {
+            @Override
+            public long size() {
+                return data.length;
+            }
+
+            @Override
+            public ByteBuffer map(long start, int length) {
+                return ByteBuffer.wrap(data, (int) start, length).slice();
+            }
+        });
+    }
+
+    /**
+     * Parses a .fmi file. The file is memory-mapped, so it is neither read into the heap nor limited in size.
+     *
+     * @param file The file to import.
+     * @return A snapshot of the parsed graph (without landmarks). Missing reverse edges are added so
+     * that the graph is undirected.
+     * @throws IOException If I/O fails or the file is not a valid .fmi graph.
+     */
+    public static GraphSnapshot importFmi(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            // Mapped buffers stay valid after the channel is closed
+            return importFmi(new Content() {
+                @Override
+                public long size() {
+                    return size;
+                }
+
+                @Override
+                public ByteBuffer map(long start, int length) throws IOException {
+                    return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                }
+            });
+        }
+    }
+
+    private static GraphSnapshot importFmi(Content content) throws IOException {
+        FmiImporter importer = new FmiImporter(content);
+        try {
+            long bodyStart = importer.parseHeader();
+            importer.parseBody(bodyStart);
+            importer.mapFileIdsToNodeIds();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return importer.buildSnapshot();
+    }
+
+    /**
+     * Skips comment and empty lines and reads the number of nodes and edges.
+     *
+     * @return The position of the first node line.
+     */
+    private long parseHeader() throws IOException {
+        long size = content.size();
+        int windowSize = (int) Math.min(size, WINDOW_SIZE);
+        while (true) {
+            ByteBuffer window = content.map(0, windowSize);
+            int pos = 0;
+            long[] counts = new long[2];
+            int countsRead = 0;
+            while (countsRead < 2 && pos < windowSize) {
+                int lineEnd = findLineEnd(window, pos);
+                if (lineEnd == windowSize && windowSize < size) {
+                    // The line may continue after the window
+                    break;
+                }
+                if (isDataLine(window, pos, lineEnd)) {
+                    counts[countsRead++] = parseLong(window, skipWhitespace(window, pos, lineEnd), lineEnd);
+                }
+                pos = lineEnd + 1;
+            }
+
+            if (countsRead == 2) {
+                if (counts[0] < 0 || counts[0] > Integer.MAX_VALUE || counts[1] < 0 || counts[1] > Integer.MAX_VALUE) {
+                    throw new IOException("Invalid number of nodes or edges");
+                }
+                numberOfNodes = (int) counts[0];
+                numberOfEdges = (int) counts[1];
+                return Math.min(pos, size);
+            }
+            if (windowSize == size || windowSize >= MAX_CHUNK_SIZE) {
+                throw new IOException("Unexpected end of file in header");
+            }
+            windowSize = (int) Math.min(size, 2L * windowSize);
+        }
+    }
+
+    /**
+     * Parses all node and edge lines in parallel.
+     *
+     * @param bodyStart The position of the first node line.
+     */
+    private void parseBody(long bodyStart) throws IOException {
+        nodeFileIds = new int[numberOfNodes];
+        latitude = new double[numberOfNodes];
+        longitude = new double[numberOfNodes];
+        edgeStart = new int[numberOfEdges];
+        edgeDest = new int[numberOfEdges];
+        edgeDist = new int[numberOfEdges];
+
+        // Split the body into chunks that start at the beginning of a line
+        long size = content.size();
+        long bodyLength = size - bodyStart;
+        long wantedChunks = Math.min((long) Runtime.getRuntime().availableProcessors() * CHUNKS_PER_THREAD, bodyLength / MIN_CHUNK_SIZE);
+        int numberOfChunks = (int) Math.max(1, Math.max(wantedChunks, (bodyLength + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE));
+        long[] chunkStart = new long[numberOfChunks + 1];
+        chunkStart[0] = bodyStart;
+        for (int i = 1; i < numberOfChunks; i++) {
+            long pos = Math.max(chunkStart[i - 1], bodyStart + bodyLength * i / numberOfChunks);
+            chunkStart[i] = pos == bodyStart ? pos : findNextLineStart(pos - 1);
+        }
+        chunkStart[numberOfChunks] = size;
+
+        ByteBuffer[] chunks = new ByteBuffer[numberOfChunks];
+        for (int i = 0; i < numberOfChunks; i++) {
+            long length = chunkStart[i + 1] - chunkStart[i];
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Line at byte " + chunkStart[i] + " is too long");
+            }
+            chunks[i] = content.map(chunkStart[i], (int) length);
+        }
+
+        // Count the (non empty, non comment) lines of each chunk to know the index of its first line
+        int[] firstLineOfChunk = new int[numberOfChunks + 1];
+        IntStream.range(0, numberOfChunks).parallel().forEach(chunk -> {
+            ByteBuffer buffer = chunks[chunk];
+            int lines = 0;
+            for (int pos = 0; pos < buffer.limit(); ) {
+                int lineEnd = findLineEnd(buffer, pos);
+                if (isDataLine(buffer, pos, lineEnd)) {
+                    lines++;
+                }
+                pos = lineEnd + 1;
+            }
+            firstLineOfChunk[chunk + 1] = lines;
+        });
+        for (int i = 1; i < firstLineOfChunk.length; i++) {
+            firstLineOfChunk[i] += firstLineOfChunk[i - 1];
+        }
+        if ((long) firstLineOfChunk[numberOfChunks] < (long) numberOfNodes + numberOfEdges) {
+            throw new IOException("Expected " + numberOfNodes + " node and " + numberOfEdges
+                    + " edge lines but found only " + firstLineOfChunk[numberOfChunks] + " lines");
+        }
+
+        IntStream.range(0, numberOfChunks).parallel().forEach(chunk -> {
+            ByteBuffer buffer = chunks[chunk];
+            int lineIdx = firstLineOfChunk[chunk];
+            for (int pos = 0; pos < buffer.limit(); ) {
+                int lineEnd = findLineEnd(buffer, pos);
+                if (isDataLine(buffer, pos, lineEnd)) {
+                    parseLine(buffer, lineIdx++, pos, lineEnd);
+                }
+                pos = lineEnd + 1;
+            }
+        });
+    }
+
+    /**
+     * Parses a node line ("id lat lon") or an edge line ("start dest dist", further columns are ignored).
+     */
+    private void parseLine(ByteBuffer buffer, int lineIdx, int start, int end) {
+        if (lineIdx < numberOfNodes) {
+            int[] pos = {start};
+            nodeFileIds[lineIdx] = toInt(parseLong(buffer, nextToken(buffer, pos, end), pos[0]));
+            latitude[lineIdx] = parseDouble(buffer, nextToken(buffer, pos, end), pos[0]);
+            longitude[lineIdx] = parseDouble(buffer, nextToken(buffer, pos, end), pos[0]);
+        } else if (lineIdx - numberOfNodes < numberOfEdges) {
+            int edgeIdx = lineIdx - numberOfNodes;
+            int[] pos = {start};
+            edgeStart[edgeIdx] = toInt(parseLong(buffer, nextToken(buffer, pos, end), pos[0]));
+            edgeDest[edgeIdx] = toInt(parseLong(buffer, nextToken(buffer, pos, end), pos[0]));
+            edgeDist[edgeIdx] = toInt(parseLong(buffer, nextToken(buffer, pos, end), pos[0]));
+        }
+    }
+
+    /**
+     * Replaces the file node ids of the edge arrays by internal node ids.
+     */
+    private void mapFileIdsToNodeIds() throws IOException {
+        boolean identity = true;
+        int minId = Integer.MAX_VALUE;
+        int maxId = Integer.MIN_VALUE;
+        for (int i = 0; i < numberOfNodes; i++) {
+            identity &= nodeFileIds[i] == i;
+            minId = Math.min(minId, nodeFileIds[i]);
+            maxId = Math.max(maxId, nodeFileIds[i]);
+        }
+        if (identity) {
+            // The usual case: files written by Grid.exportToFmiFile use the internal ids
+            for (int i = 0; i < numberOfEdges; i++) {
+                if (edgeStart[i] < 0 || edgeStart[i] >= numberOfNodes || edgeDest[i] < 0 || edgeDest[i] >= numberOfNodes) {
+                    throw new IOException("Edge " + i + " references an unknown node");
+                }
+            }
+            return;
+        }
+
+        if (minId >= 0 && (long) maxId < 4L * numberOfNodes + 16) {
+            // Dense ids: direct lookup table
+            int[] lookup = new int[maxId + 1];
+            Arrays.fill(lookup, -1);
+            for (int i = 0; i < numberOfNodes; i++) {
+                lookup[nodeFileIds[i]] = i;
+            }
+            IntStream.range(0, numberOfEdges).parallel().forEach(i -> {
+                edgeStart[i] = lookupNode(lookup, edgeStart[i], i);
+                edgeDest[i] = lookupNode(lookup, edgeDest[i], i);
+            });
+        } else {
+            // Sparse ids: binary search over (file id, node id) pairs sorted by file id
+            long[] sortedIds = new long[numberOfNodes];
+            for (int i = 0; i < numberOfNodes; i++) {
+                sortedIds[i] = ((long) nodeFileIds[i] << 32) | i;
+            }
+            Arrays.parallelSort(sortedIds);
+            IntStream.range(0, numberOfEdges).parallel().forEach(i -> {
+                edgeStart[i] = searchNode(sortedIds, edgeStart[i], i);
+                edgeDest[i] = searchNode(sortedIds, edgeDest[i], i);
+            });
+        }
+    }
+
+    private static int lookupNode(int[] lookup, int fileId, int edgeIdx) {
+        int nodeId = fileId >= 0 && fileId < lookup.length ? lookup[fileId] : -1;
+        if (nodeId < 0) {
+            throw new UncheckedIOException(new IOException("Edge " + edgeIdx + " references unknown node " + fileId));
+        }
+        return nodeId;
+    }
+
+    private static int searchNode(long[] sortedIds, int fileId, int edgeIdx) {
+        int pos = Arrays.binarySearch(sortedIds, (long) fileId << 32);
+        if (pos < 0) {
+            pos = -pos - 1;
+        }
+        if (pos >= sortedIds.length || (int) (sortedIds[pos] >> 32) != fileId) {
+            throw new UncheckedIOException(new IOException("Edge " + edgeIdx + " references unknown node " + fileId));
+        }
+        return (int) sortedIds[pos];
+    }
+
+    /**
+     * Adds missing reverse edges and sorts all edges by their start node.
+     */
+    private GraphSnapshot buildSnapshot() {
+        int[] offset = new int[numberOfNodes + 1];
+        int[][] sorted = sortByStartNode(edgeStart, edgeDest, edgeDist, numberOfEdges, offset);
+        int[] start = sorted[0];
+        int[] dest = sorted[1];
+        int[] dist = sorted[2];
+
+        // Find missing reverse edges: merge the sorted (start, dest) pairs with the sorted (dest, start) pairs
+        long[] forward = new long[numberOfEdges];
+        long[] reverse = new long[numberOfEdges];
+        for (int i = 0; i < numberOfEdges; i++) {
+            forward[i] = ((long) start[i] << 32) | dest[i];
+            reverse[i] = ((long) dest[i] << 32) | start[i];
+        }
+        Arrays.parallelSort(forward);
+        Arrays.parallelSort(reverse);
+
+        long[] missing = new long[16];
+        int numberOfMissing = 0;
+        int forwardIdx = 0;
+        for (int i = 0; i < numberOfEdges; i++) {
+            if (i > 0 && reverse[i] == reverse[i - 1]) {
+                // Duplicate edges in the file only need one reverse edge
+                continue;
+            }
+            while (forwardIdx < numberOfEdges && forward[forwardIdx] < reverse[i]) {
+                forwardIdx++;
+            }
+            if (forwardIdx >= numberOfEdges || forward[forwardIdx] != reverse[i]) {
+                if (numberOfMissing == missing.length) {
+                    missing = Arrays.copyOf(missing, missing.length * 2);
+                }
+                missing[numberOfMissing++] = reverse[i];
+            }
+        }
+
+        if (numberOfMissing == 0) {
+            return new GraphSnapshot(offset, start, dest, dist, latitude, longitude);
+        }
+        System.out.println("Added " + numberOfMissing + " missing reverse edges");
+
+        int totalEdges = numberOfEdges + numberOfMissing;
+        int[] allStart = Arrays.copyOf(start, totalEdges);
+        int[] allDest = Arrays.copyOf(dest, totalEdges);
+        int[] allDist = Arrays.copyOf(dist, totalEdges);
+        for (int i = 0; i < numberOfMissing; i++) {
+            int newStart = (int) (missing[i] >>> 32);
+            int newDest = (int) missing[i];
+            allStart[numberOfEdges + i] = newStart;
+            allDest[numberOfEdges + i] = newDest;
+            // The reverse edge gets the distance of the first existing edge newDest -> newStart
+            for (int edge = offset[newDest]; edge < offset[newDest + 1]; edge++) {
+                if (dest[edge] == newStart) {
+                    allDist[numberOfEdges + i] = dist[edge];
+                    break;
+                }
+            }
+        }
+
+        int[] allOffset = new int[numberOfNodes + 1];
+        sorted = sortByStartNode(allStart, allDest, allDist, totalEdges, allOffset);
+        return new GraphSnapshot(allOffset, sorted[0], sorted[1], sorted[2], latitude, longitude);
+    }
+
+    /**
+     * Stable counting sort of edges by their start node which fills the offset array at the same time.
+     *
+     * @param offset Zero-initialized array of length number of nodes + 1 which is filled with the offsets.
+     * @return The sorted start, dest and dist arrays.
+     */
+    static int[][] sortByStartNode(int[] start, int[] dest, int[] dist, int size, int[] offset) {
+        for (int i = 0; i < size; i++) {
+            offset[start[i] + 1]++;
+        }
+        for (int i = 1; i < offset.length; i++) {
+            offset[i] += offset[i - 1];
+        }
+
+        int[] insertPosition = Arrays.copyOf(offset, offset.length - 1);
+        int[] sortedStart = new int[size];
+        int[] sortedDest = new int[size];
+        int[] sortedDist = new int[size];
+        for (int i = 0; i < size; i++) {
+            int pos = insertPosition[start[i]]++;
+            sortedStart[pos] = start[i];
+            sortedDest[pos] = dest[i];
+            sortedDist[pos] = dist[i];
+        }
+        return new int[][]{sortedStart, sortedDest, sortedDist};
+    }
+
+    // ---------------------------------------------------------------------------------------------------------
+    // Byte level parsing helpers
+
+    /**
+     * @return The position after the next '\n' at or after pos, or the end of the content.
+     */
+    private long findNextLineStart(long pos) throws IOException {
+        long size = content.size();
+        while (pos < size) {
+            int length = (int) Math.min(WINDOW_SIZE, size - pos);
+            ByteBuffer window = content.map(pos, length);
+            for (int i = 0; i < length; i++) {
+                if (window.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += length;
+        }
+        return size;
+    }
+
+    /**
+     * @return The position of the next '\n' at or after pos, or the end of the buffer.
+     */
+    private static int findLineEnd(ByteBuffer buffer, int pos) {
+        int limit = buffer.limit();
+        while (pos < limit && buffer.get(pos) != '\n') {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * @return True if the line is neither empty nor a comment (starting with '#').
+     */
+    private static boolean isDataLine(ByteBuffer buffer, int start, int end) {
+        int first = skipWhitespace(buffer, start, end);
+        return first < end && buffer.get(first) != '#';
+    }
+
+    private static int skipWhitespace(ByteBuffer buffer, int pos, int end) {
+        while (pos < end && isWhitespace(buffer.get(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    /**
+     * Returns the start of the next token and stores its end in pos[0].
+     */
+    private static int nextToken(ByteBuffer buffer, int[] pos, int end) {
+        int tokenStart = skipWhitespace(buffer, pos[0], end);
+        int tokenEnd = tokenStart;
+        while (tokenEnd < end && !isWhitespace(buffer.get(tokenEnd))) {
+            tokenEnd++;
+        }
+        if (tokenStart == tokenEnd) {
+            throw new UncheckedIOException(new IOException("Missing value in line '"
+                    + toString(buffer, pos[0], end).trim() + "'"));
+        }
+        pos[0] = tokenEnd;
+        return tokenStart;
+    }
+
+    private static long parseLong(ByteBuffer buffer, int start, int end) {
+        end = trimEnd(buffer, start, end);
+        boolean negative = false;
+        int pos = start;
+        if (pos < end && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+            negative = buffer.get(pos) == '-';
+            pos++;
+        }
+        if (pos == end || end - pos > 18) {
+            throw invalidNumber(buffer, start, end);
+        }
+        long value = 0;
+        for (; pos < end; pos++) {
+            int digit = buffer.get(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalidNumber(buffer, start, end);
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a decimal number. Plain numbers with at most 15 significant digits are parsed directly (the division
+     * of two exactly representable doubles is correctly rounded, so the result equals {@link Double#parseDouble});
+     * everything else (e.g. exponents) is passed to {@link Double#parseDouble}.
+     */
+    private static double parseDouble(ByteBuffer buffer, int start, int end) {
+        int pos = start;
+        boolean negative = false;
+        if (pos < end && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+            negative = buffer.get(pos) == '-';
+            pos++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean inFraction = false;
+        boolean sawDigit = false;
+        boolean simple = pos < end;
+        for (; pos < end && simple; pos++) {
+            byte c = buffer.get(pos);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                sawDigit = true;
+                if (mantissa != 0) {
+                    digits++;
+                }
+                if (inFraction) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && !inFraction) {
+                inFraction = true;
+            } else {
+                simple = false;
+            }
+        }
+
+        if (simple && sawDigit && digits <= 15 && fractionDigits < POWERS_OF_TEN.length) {
+            double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+
+        try {
+            return Double.parseDouble(toString(buffer, start, end));
+        } catch (NumberFormatException e) {
+            throw invalidNumber(buffer, start, end);
+        }
+    }
+
+    private static int trimEnd(ByteBuffer buffer, int start, int end) {
+        while (end > start && isWhitespace(buffer.get(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    private static String toString(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static int toInt(long value) {
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new UncheckedIOException(new IOException("Value " + value + " exceeds the integer range"));
+        }
+        return (int) value;
+    }
+
+    private static UncheckedIOException invalidNumber(ByteBuffer buffer, int start, int end) {
+        return new UncheckedIOException(new IOException("Invalid number '" + toString(buffer, start, end) + "'"));
+    }
+}
@@ -0,0 +1,236 @@
+package de.fmi.searouter.dijkstragrid;
+
+import de.fmi.searouter.landmarks.Landmark;
+import de.fmi.searouter.landmarks.LandmarkDistances;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Immutable bundle of everything a router needs of one grid graph: the offset array of {@link Grid}, the
+ * edge arrays of {@link Edge}, the node coordinates of {@link Node}, a {@link NodeSpatialIndex} for coordinate
+ * lookups and (optionally) the pre-calculated {@link Landmark} distances.
+ * <p>
+ * A snapshot is made the active graph by {@link GraphSnapshotHolder#swap(GraphSnapshot)}, which installs
+ * its arrays into the static data structures the routers read from. The arrays of a snapshot must not be
+ * modified after construction.
+ */
+public final class GraphSnapshot {
+
+    private static final AtomicLong VERSION_COUNTER = new AtomicLong();
+
+    /**
+     * Increasing number identifying the snapshot (a higher version was created later).
+     */
+    private final long version;
+
+    private final int[] offset;
+    private final int[] edgeStart;
+    private final int[] edgeDest;
+    private final int[] edgeDist;
+    private final double[] latitude;
+    private final double[] longitude;
+    private final NodeSpatialIndex spatialIndex;
+
+    /**
+     * Landmark data belonging to this graph, null if the snapshot was created without landmarks.
+     */
+    private final LandmarkDistances landmarkDistances;
+    private final int[] landmarkNodeIDs;
+
+    /**
+     * Lazily calculated checksum of the graph (see {@link #getChecksum()}), -1 if not calculated yet.
+     */
+    private volatile long checksum = -1;
+
+    /**
+     * Creates a snapshot without landmarks and builds its {@link NodeSpatialIndex}.
+     *
+     * @param offset    The offset array (length = number of nodes + 1), see {@link Grid#offset}.
+     * @param edgeStart Start node of each edge, sorted ascending.
+     * @param edgeDest  Destination node of each edge.
+     * @param edgeDist  Distance of each edge.
+     * @param latitude  Latitude of each node.
+     * @param longitude Longitude of each node.
+     */
+    public GraphSnapshot(int[] offset, int[] edgeStart, int[] edgeDest, int[] edgeDist, double[] latitude, double[] longitude) {
+        this(offset, edgeStart, edgeDest, edgeDist, latitude, longitude,
+                new NodeSpatialIndex(latitude, longitude), null, null);
+    }
+
+    private GraphSnapshot(int[] offset, int[] edgeStart, int[] edgeDest, int[] edgeDist, double[] latitude, double[] longitude,
+                          NodeSpatialIndex spatialIndex, LandmarkDistances landmarkDistances, int[] landmarkNodeIDs) {
+        if (offset.length != latitude.length + 1 || latitude.length != longitude.length) {
+            throw new IllegalArgumentException("Offset and coordinate arrays do not match the number of nodes");
+        }
+        if (edgeStart.length != edgeDest.length || edgeStart.length != edgeDist.length
+                || offset[offset.length - 1] != edgeStart.length) {
+            throw new IllegalArgumentException("Edge arrays do not match the offset array");
+        }
+        this.version = VERSION_COUNTER.incrementAndGet();
+        this.offset = offset;
+        this.edgeStart = edgeStart;
+        this.edgeDest = edgeDest;
+        this.edgeDist = edgeDist;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.spatialIndex = spatialIndex;
+        this.landmarkDistances = landmarkDistances;
+        this.landmarkNodeIDs = landmarkNodeIDs;
+    }
+
+    /**
+     * Creates a snapshot of the graph that is currently stored in {@link Node} and {@link Edge} (e.g. after
+     * the calculation by the {@link GridCreator}). The arrays are copied and the edges sorted by their start node.
+     *
+     * @return The snapshot (without landmarks).
+     */
+    public static GraphSnapshot ofCurrentGrid() {
+        double[] latitude = new double[Node.getSize()];
+        double[] longitude = new double[Node.getSize()];
+        for (int i = 0; i < latitude.length; i++) {
+            latitude[i] = Node.getLatitude(i);
+            longitude[i] = Node.getLongitude(i);
+        }
+
+        int[] start = new int[Edge.getSize()];
+        int[] dest = new int[Edge.getSize()];
+        int[] dist = new int[Edge.getSize()];
+        for (int i = 0; i < start.length; i++) {
+            start[i] = Edge.getStart(i);
+            dest[i] = Edge.getDest(i);
+            dist[i] = Edge.getDist(i);
+        }
+
+        int[] offset = new int[latitude.length + 1];
+        int[][] sorted = FmiImporter.sortByStartNode(start, dest, dist, start.length, offset);
+        return new GraphSnapshot(offset, sorted[0], sorted[1], sorted[2], latitude, longitude);
+    }
+
+    /**
+     * Creates a new snapshot sharing the graph of this one but carrying the given landmarks.
+     *
+     * @param landmarkDistances For each landmark the distance to every node of this graph.
+     * @param landmarkNodeIDs   For each landmark its node id.
+     * @return The new snapshot (with a new version).
+     */
+    public GraphSnapshot withLandmarks(LandmarkDistances landmarkDistances, int[] landmarkNodeIDs) {
+        if (landmarkDistances.getNumberOfLandmarks() != landmarkNodeIDs.length) {
+            throw new IllegalArgumentException("Number of landmark rows and landmark ids differ");
+        }
+        if (landmarkDistances.getNumberOfLandmarks() > 0 && landmarkDistances.getNumberOfNodes() != getNumberOfNodes()) {
+            throw new IllegalArgumentException("Landmark distances were calculated for a different graph");
+        }
+        return new GraphSnapshot(offset, edgeStart, edgeDest, edgeDist, latitude, longitude,
+                spatialIndex, landmarkDistances, landmarkNodeIDs);
+    }
+
+    /**
+     * Writes the arrays of this snapshot into the static data structures of {@link Grid}, {@link Node},
+     * {@link Edge} and {@link Landmark}. If the snapshot has no landmarks, the landmarks of the previous graph are
+     * removed, as they belong to another node and edge layout. Must only be called by {@link GraphSnapshotHolder}
+     * while no query is running.
+     */
+    void install() {
+        Node.setLatitude(latitude);
+        Node.setLongitude(longitude);
+        Edge.setStartNode(edgeStart);
+        Edge.setDestNode(edgeDest);
+        Edge.setDist(edgeDist);
+        Grid.offset = offset;
+        Grid.spatialIndex = spatialIndex;
+        if (hasLandmarks()) {
+            Landmark.setLandmarks(landmarkDistances, landmarkNodeIDs);
+        } else {
+            Landmark.clearLandmarks();
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getNumberOfNodes() {
+        return latitude.length;
+    }
+
+    public int getNumberOfEdges() {
+        return edgeStart.length;
+    }
+
+    public boolean hasLandmarks() {
+        return landmarkDistances != null;
+    }
+
+    public int getNumberOfLandmarks() {
+        return hasLandmarks() ? landmarkNodeIDs.length : 0;
+    }
+
+    public NodeSpatialIndex getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    /**
+     * Returns a CRC32 checksum over the node coordinates and the edges of the graph (landmarks are not included).
+     * Can be used to check whether data calculated for a graph (e.g. landmarks) belongs to this graph.
+     *
+     * @return The checksum (an unsigned 32 bit value).
+     */
+    public long getChecksum() {
+        long result = checksum;
+        if (result < 0) {
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            buffer.putInt(getNumberOfNodes()).putInt(getNumberOfEdges());
+            for (int i = 0; i < latitude.length; i++) {
+                buffer = flushIfFull(crc, buffer, 16);
+                buffer.putDouble(latitude[i]).putDouble(longitude[i]);
+            }
+            for (int i = 0; i < offset.length; i++) {
+                buffer = flushIfFull(crc, buffer, 4);
+                buffer.putInt(offset[i]);
+            }
+            for (int i = 0; i < edgeDest.length; i++) {
+                buffer = flushIfFull(crc, buffer, 8);
+                buffer.putInt(edgeDest[i]).putInt(edgeDist[i]);
+            }
+            buffer.flip();
+            crc.update(buffer);
+            result = crc.getValue();
+            checksum = result;
+        }
+        return result;
+    }
+
+    private static ByteBuffer flushIfFull(CRC32 crc, ByteBuffer buffer, int bytesNeeded) {
+        if (buffer.remaining() < bytesNeeded) {
+            buffer.flip();
+            crc.update(buffer);
+            buffer.clear();
+        }
+        return buffer;
+    }
+
+    // Raw array access for the readers and writers of graph files in this package. The arrays must not be modified.
+
+    int[] getOffset() {
+        return offset;
+    }
+
+    int[] getEdgeDest() {
+        return edgeDest;
+    }
+
+    int[] getEdgeDist() {
+        return edgeDist;
+    }
+
+    double[] getLatitude() {
+        return latitude;
+    }
+
+    double[] getLongitude() {
+        return longitude;
+    }
+}
@@ -0,0 +1,154 @@
+package de.fmi.searouter.dijkstragrid;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Holds the {@link GraphSnapshot} that is currently used for routing and allows to replace it at runtime.
+ * <p>
+ * Queries pin the current snapshot with {@link #pin()} and release it with {@link #unpin()} (always in a
+ * finally block). A new snapshot can be loaded with {@link #reloadInBackground(String)} while queries keep
+ * running on the old one. Only the final {@link #swap(GraphSnapshot)} waits until all pinned queries are
+ * finished, installs the new arrays and lets waiting queries continue. The JVM (and thus all JIT compiled
+ * router code) stays alive, so there is no restart and no warmup phase after a reload.
+ */
+public final class GraphSnapshotHolder {
+
+    private static final AtomicReference<GraphSnapshot> current = new AtomicReference<>();
+
+    /**
+     * Read lock = pinned by a query, write lock = swap in progress. Fair, so a waiting swap is not starved
+     * by a constant stream of new queries.
+     */
+    private static final ReentrantReadWriteLock pinLock = new ReentrantReadWriteLock(true);
+
+    /**
+     * Single daemon thread on which reloads are executed, so at most one reload is running at a time.
+     */
+    private static final ExecutorService reloadExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "grid-reload");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final AtomicReference<CompletableFuture<GraphSnapshot>> runningReload = new AtomicReference<>();
+
+    /**
+     * Callbacks that are executed after each swap, e.g. to invalidate data structures derived from the graph. They
+     * run while queries are blocked, so they have to be short and must not wait for other threads that pin the
+     * graph.
+     */
+    private static final List<Runnable> swapListeners = new CopyOnWriteArrayList<>();
+
+    private GraphSnapshotHolder() {
+    }
+
+    /**
+     * @return The snapshot that is currently installed, null if no graph was loaded yet.
+     */
+    public static GraphSnapshot getCurrent() {
+        return current.get();
+    }
+
+    /**
+     * Returns the checksum of the graph that is currently installed. If the graph was not installed through a
+     * snapshot (e.g. by the {@link GridCreator}), the checksum is calculated from {@link Node} and {@link Edge}.
+     *
+     * @return The checksum, see {@link GraphSnapshot#getChecksum()}.
+     */
+    public static long getCurrentChecksum() {
+        GraphSnapshot snapshot = current.get();
+        if (snapshot != null && snapshot.getEdgeDist() == Edge.getDistances()) {
+            return snapshot.getChecksum();
+        }
+        return GraphSnapshot.ofCurrentGrid().getChecksum();
+    }
+
+    /**
+     * Pins the current snapshot so that it can not be swapped until {@link #unpin()} is called by the same thread.
+     *
+     * @return The pinned snapshot.
+     */
+    public static GraphSnapshot pin() {
+        pinLock.readLock().lock();
+        return current.get();
+    }
+
+    /**
+     * Releases a pin acquired with {@link #pin()}.
+     */
+    public static void unpin() {
+        pinLock.readLock().unlock();
+    }
+
+    /**
+     * Makes the given snapshot the current one. Blocks until all pinned queries are finished. Must not be
+     * called by a thread that holds a pin. The swap listeners run before the lock is released, so no query sees
+     * the new graph together with data derived from the old one.
+     *
+     * @param next The snapshot to install.
+     */
+    public static void swap(GraphSnapshot next) {
+        pinLock.writeLock().lock();
+        try {
+            next.install();
+            current.set(next);
+            for (Runnable listener : swapListeners) {
+                listener.run();
+            }
+        } finally {
+            pinLock.writeLock().unlock();
+        }
+
+        System.out.println("Installed graph snapshot " + next.getVersion() + " with " + next.getNumberOfNodes()
+                + " nodes, " + next.getNumberOfEdges() + " edges and " + next.getNumberOfLandmarks() + " landmarks");
+    }
+
+    /**
+     * Loads a new graph (see {@link Grid#loadSnapshot(String)}) on a background thread and swaps it in
+     * afterwards. If a reload is already running, its future is returned instead of starting a new one.
+     *
+     * @param filePath The .fmi file to load.
+     * @return A future completing with the installed snapshot or exceptionally if loading failed. In the latter
+     * case the old snapshot stays active.
+     */
+    public static synchronized CompletableFuture<GraphSnapshot> reloadInBackground(String filePath) {
+        CompletableFuture<GraphSnapshot> running = runningReload.get();
+        if (running != null && !running.isDone()) {
+            return running;
+        }
+
+        CompletableFuture<GraphSnapshot> reload = CompletableFuture.supplyAsync(() -> {
+            try {
+                GraphSnapshot next = Grid.loadSnapshot(filePath);
+                swap(next);
+                return next;
+            } catch (Exception e) {
+                e.printStackTrace();
+                throw new IllegalStateException("Reloading the grid from " + filePath + " failed", e);
+            }
+        }, reloadExecutor);
+        runningReload.set(reload);
+        return reload;
+    }
+
+    /**
+     * @return True if a reload started with {@link #reloadInBackground(String)} has not finished yet.
+     */
+    public static boolean isReloadRunning() {
+        CompletableFuture<GraphSnapshot> running = runningReload.get();
+        return running != null && !running.isDone();
+    }
+
+    /**
+     * Registers a callback that is executed after each swap.
+     */
+    public static void addSwapListener(Runnable listener) {
+        swapListeners.add(listener);
+    }
+}
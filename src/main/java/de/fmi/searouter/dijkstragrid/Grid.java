@@ -2,12 +2,15 @@ package de.fmi.searouter.dijkstragrid;
 
 import de.fmi.searouter.landmarks.Landmark;
 import de.fmi.searouter.landmarks.LandmarkDistributionMode;
+import de.fmi.searouter.landmarks.LandmarkFile;
+import de.fmi.searouter.landmarks.LandmarkSets;
 import de.fmi.searouter.utils.IntersectionHelper;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 
 import java.io.*;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -21,15 +24,9 @@ public class Grid {
     // of another nodes outgoing edges).
     public static int[] offset;
 
-    /**
-     * Whether to initialize Landmarks for ALT algorithms or not
-     */
-    private static final boolean USE_LANDMARKS = true;
-
-    /**
-     * Which {@link LandmarkDistributionMode} should be used for the Landmark selection process.
-     */
-    private static final LandmarkDistributionMode LANDMARK_DISTRIBUTION_MODE = LandmarkDistributionMode.EQUAL_SPHERE;
+    // Index over the node coordinates of the currently installed GraphSnapshot. Null if the node arrays were
+    // filled without a snapshot (e.g. by the GridCreator), in which case all nodes are scanned.
+    static NodeSpatialIndex spatialIndex;
 
 
     public static int getEdgeIDByNodeIDs(int start, int dest) {
@@ -41,6 +38,17 @@ public class Grid {
         return -1;
     }
 
+    /**
+     * @return The largest number of outgoing edges of a node of the current graph.
+     */
+    public static int getMaxDegree() {
+        int maxDegree = 0;
+        for (int node = 0; node + 1 < offset.length; node++) {
+            maxDegree = Math.max(maxDegree, offset[node + 1] - offset[node]);
+        }
+        return maxDegree;
+    }
+
     /**
      * Returns the nearest existing grid node of the Grid of a given point P.
      *
@@ -53,6 +61,11 @@ public class Grid {
     public static int getNearestGridNodeByCoordinates(double latitude, double longitude, boolean routingMode) {
         // Strategy: Get all grid nodes on the plane of integer grid numbers and then check manually the distance
 
+        NodeSpatialIndex index = spatialIndex;
+        if (routingMode && index != null) {
+            return index.getNearestNodeInSameDegree(latitude, longitude);
+        }
+
         // Integer coordinate degrees to search for
         int iLat = (int) latitude;
         int iLong = (int) longitude;
@@ -93,194 +106,114 @@ public class Grid {
 
 
     /**
-     * Only temporary used during the import of fmi files needed (for sorting).
+     * Imports a grid graph of a .fmi file format and makes it the current graph of the {@link GraphSnapshotHolder}.
+     * Landmarks are read from their serialization file or calculated if it does not exist yet. Which landmark sets
+     * are used is configured in {@link LandmarkSets#CONFIGURATION_FILE_NAME}.
+     *
+     * @param filePath The path of the file to import (file system or resources folder, see {@link #openFmiFile(String)}).
+     * @throws IOException If I/O fails.
      */
-    private static class TmpEdge {
-        public int startNode;
-        public int destNode;
-        public int dist;
-
-        public TmpEdge(int startNode, int destNode, int dist) {
-            this.startNode = startNode;
-            this.destNode = destNode;
-            this.dist = dist;
+    public static void importFmiFile(String filePath) throws IOException {
+        LandmarkSets.loadConfiguration(LandmarkSets.CONFIGURATION_FILE_NAME);
+        GraphSnapshot snapshot = readFmiFile(filePath);
+        GraphSnapshotHolder.swap(snapshot);
+
+        // Initialize landmarks for ALT algorithms (the initializers route on the installed graph)
+        if (LandmarkSets.isEnabled()) {
+            try {
+                Landmark.initLandmarks(LandmarkSets.getDefaultMode());
+                GraphSnapshotHolder.swap(snapshot.withLandmarks(Landmark.distanceOfLandmarkToEveryVertex, Landmark.landmarkNodeIDs));
+                LandmarkSets.loadAdditionalSets();
+                Landmark.setUseRegionLandmarkTable(LandmarkSets.isRegionLandmarkTableUsed());
+            } catch (NoSuchMethodException | InstantiationException | InvocationTargetException | IllegalAccessException e) {
+                e.printStackTrace();
+            }
         }
     }
 
     /**
-     * Only temporary during the import of fmi files needed (for sorting).
+     * Loads a complete {@link GraphSnapshot} (graph and landmarks) without touching the currently installed graph.
+     * Used for reloads at runtime, therefore landmarks are never calculated here: the serialization file of the
+     * default {@link LandmarkDistributionMode} (see {@link LandmarkSets}) has to exist and must belong to the new
+     * graph (same checksum). The other landmark sets are mapped again when they are used for the first time.
+     *
+     * @param filePath The path of the .fmi file to load.
+     * @return The loaded snapshot.
+     * @throws IOException If I/O fails or the landmark file does not match the graph.
      */
-    private static class TmpNode {
-        public int id;
-        public double latitude;
-        public double longitude;
-
-        public TmpNode(int id, double latitude, double longitude) {
-            this.id = id;
-            this.latitude = latitude;
-            this.longitude = longitude;
+    public static GraphSnapshot loadSnapshot(String filePath) throws IOException {
+        GraphSnapshot snapshot = readFmiFile(filePath);
+
+        if (LandmarkSets.isEnabled()) {
+            String fileName = LandmarkSets.getDefaultMode().getLandmarkFileName();
+            LandmarkFile landmarks = LandmarkFile.load(fileName);
+            if (landmarks.getGraphChecksum() != snapshot.getChecksum()) {
+                throw new IOException("Landmark file " + fileName + " does not belong to " + filePath);
+            }
+            try {
+                snapshot = snapshot.withLandmarks(landmarks.getDistances(), landmarks.getLandmarkNodeIDs());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Landmark file " + fileName + " does not belong to " + filePath, e);
+            }
         }
+
+        return snapshot;
     }
 
     /**
-     * Imports a grid graph of a .fmi file format.
+     * Opens a grid file. The path is first looked up in the file system, and if no such file exists, within
+     * the resources folder.
      *
-     * @param filePath The path within the resources folder where the file to import is placed.
-     * @throws IOException If I/O fails.
+     * @param filePath The path of the file.
+     * @return A stream of the file content.
+     * @throws IOException If the file does not exist or I/O fails.
      */
-    public static void importFmiFile(String filePath) throws IOException {
+    private static InputStream openFmiFile(String filePath) throws IOException {
+        File file = new File(filePath);
+        if (file.isFile()) {
+            return new FileInputStream(file);
+        }
         Resource fmiResource = new ClassPathResource(filePath);
-        InputStream inputStream = fmiResource.getInputStream();
-
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(inputStream))) {
-
-            br.readLine();
-            br.readLine();
-
-            // Map file id to internal used node id
-            Map<Integer, Integer> fileNodeIdToInternalUsedId = new HashMap<>();
-
-            int noNodes = Integer.parseInt(br.readLine().trim());
-            int noEdges = Integer.parseInt(br.readLine().trim());
-
-            List<TmpNode> nodeList = new ArrayList<>();
-
-            // Node handling
-            for (int nodeIdx = 0; nodeIdx < noNodes; nodeIdx++) {
-                String line = br.readLine();
-                line = line.trim();
-
-                String[] split = line.split(" ");
-
-                TmpNode node = new TmpNode(Integer.parseInt(split[0]), Double.parseDouble(split[1]), Double.parseDouble(split[2]));
-                nodeList.add(node);
-
-                fileNodeIdToInternalUsedId.put(node.id, nodeIdx);
-            }
-
-            // Sort node list by id
-            nodeList.sort(new Comparator<TmpNode>() {
-                @Override
-                public int compare(TmpNode o1, TmpNode o2) {
-                    return Integer.compare(fileNodeIdToInternalUsedId.get(o1.id), fileNodeIdToInternalUsedId.get(o2.id));
-                }
-            });
-
-            // Edge handling
-            List<TmpEdge> edgeList = new ArrayList<>();
-
-            for (int edgeIdx = 0; edgeIdx < noEdges; edgeIdx++) {
-                String line = br.readLine();
-                line = line.trim();
-
-                String[] split = line.split(" ");
-                TmpEdge edge = new TmpEdge(
-                        fileNodeIdToInternalUsedId.get(Integer.parseInt(split[0])),
-                        fileNodeIdToInternalUsedId.get(Integer.parseInt(split[1])),
-                        Integer.parseInt(split[2])
-                );
-                edgeList.add(edge);
-            }
-
-            // Sort edges by start ids
-            edgeList.sort(new Comparator<TmpEdge>() {
-                @Override
-                public int compare(TmpEdge o1, TmpEdge o2) {
-                    return Integer.compare(o1.startNode, o2.startNode);
-                }
-            });
-
-            // Build an adjacency map for the following operations
-            Map<Integer, List<TmpEdge>> adjacenceMap = new HashMap<>();
-            for (int edgeIdx = 0; edgeIdx < noEdges; edgeIdx++) {
-                int currStartNodeID = edgeList.get(edgeIdx).startNode;
-                if (!adjacenceMap.containsKey(currStartNodeID)) {
-                    adjacenceMap.put(currStartNodeID, new ArrayList<>());
-                }
-
-                adjacenceMap.get(currStartNodeID).add(edgeList.get(edgeIdx));
-            }
-
-            // Assure that the graph is undirected by adding missing unidirectional edges
-            List<TmpEdge> additionalEdgesThatWereMissing = new ArrayList<>();
-            for (Map.Entry<Integer, List<TmpEdge>> e : adjacenceMap.entrySet()) {
-
-                List<TmpEdge> reverseEdgeStartNodesToCheck = e.getValue();
-                boolean oppositeEdgeFound = false;
-
-                for (TmpEdge revEdge : reverseEdgeStartNodesToCheck) {
-                    List<TmpEdge> toCheck = adjacenceMap.get(revEdge.destNode);
-                    for (TmpEdge edges : toCheck) {
-                        if (edges.startNode == revEdge.destNode && edges.destNode == revEdge.startNode) {
-                            oppositeEdgeFound = true;
-                            break;
-                        }
-                    }
-                    if (!oppositeEdgeFound) {
-                        additionalEdgesThatWereMissing.add(new TmpEdge(revEdge.destNode, revEdge.startNode, revEdge.dist));
-                        noEdges++;
-                        System.out.println("Added edge " + revEdge.destNode + " | " + revEdge.startNode);
-                    }
-                }
-
-            }
-            edgeList.addAll(additionalEdgesThatWereMissing);
-
-            // Sort edges by start ids
-            edgeList.sort(new Comparator<TmpEdge>() {
-                @Override
-                public int compare(TmpEdge o1, TmpEdge o2) {
-                    return Integer.compare(o1.startNode, o2.startNode);
-                }
-            });
-
-            // Fill arrays
-            double[] latitude = new double[noNodes];
-            double[] longitude = new double[noNodes];
-
-            for (int i = 0; i < latitude.length; i++) {
-                latitude[i] = nodeList.get(i).latitude;
-                longitude[i] = nodeList.get(i).longitude;
-            }
-
-            Node.setLatitude(latitude);
-            Node.setLongitude(longitude);
-
-
-            int[] startNode = new int[noEdges];
-            int[] destNode = new int[noEdges];
-            int[] dist = new int[noEdges];
-
-            for (int i = 0; i < startNode.length; i++) {
-                startNode[i] = edgeList.get(i).startNode;
-                destNode[i] = edgeList.get(i).destNode;
-                dist[i] = edgeList.get(i).dist;
-            }
-
-            Edge.setStartNode(startNode);
-            Edge.setDestNode(destNode);
-            Edge.setDist(dist);
-
-            //
-            offset = new int[Node.getSize() + 1];
-            for (int i = 0; i < Edge.getSize(); ++i) {
-                offset[Edge.getStart(i) + 1] += 1;
-            }
-            for (int i = 1; i < offset.length; ++i) {
-                offset[i] += offset[i - 1];
-            }
+        return fmiResource.getInputStream();
+    }
 
-            br.close();
+    /**
+     * Finds the grid file in the file system or, if it is not there, in the resources folder.
+     *
+     * @param filePath The path of the file.
+     * @return The path of the file, or null if it is no plain file (e.g. a resource within a jar).
+     */
+    private static Path findFmiFile(String filePath) throws IOException {
+        File file = new File(filePath);
+        if (file.isFile()) {
+            return file.toPath();
+        }
+        Resource fmiResource = new ClassPathResource(filePath);
+        return fmiResource.isFile() ? fmiResource.getFile().toPath() : null;
+    }
 
-            // Initialize landmarks for ALT algorithms
-            if (USE_LANDMARKS) {
-                try {
-                    Landmark.initLandmarks(LANDMARK_DISTRIBUTION_MODE);
-                } catch (NoSuchMethodException | InstantiationException | InvocationTargetException | IllegalAccessException e) {
-                    e.printStackTrace();
-                }
+    /**
+     * Parses a grid graph of a .fmi file format (see {@link FmiImporter}) or of the compressed format
+     * (see {@link CompressedGraphFile}) into a new {@link GraphSnapshot}. The format is detected by the file content.
+     * A .fmi file is memory-mapped, only resources within a jar are read into memory.
+     *
+     * @param filePath The path of the file to import (file system or resources folder).
+     * @return The parsed graph (without landmarks).
+     * @throws IOException If I/O fails.
+     */
+    public static GraphSnapshot readFmiFile(String filePath) throws IOException {
+        try (InputStream inputStream = new BufferedInputStream(openFmiFile(filePath))) {
+            if (CompressedGraphFile.isCompressedGraph(inputStream)) {
+                return CompressedGraphFile.read(inputStream);
             }
+        }
 
+        Path fmiFile = findFmiFile(filePath);
+        if (fmiFile != null) {
+            return FmiImporter.importFmi(fmiFile);
+        }
+        try (InputStream inputStream = openFmiFile(filePath)) {
+            return FmiImporter.importFmi(inputStream.readAllBytes());
         }
     }
 
@@ -318,4 +251,17 @@ public class Grid {
         writer.close();
     }
 
+    /**
+     * Exports the current grid graph representation (contents of {@link Edge} and {@link Node}) in the
+     * compressed binary format of {@link CompressedGraphFile}. Such files can be imported like .fmi files.
+     *
+     * @param filePath The export path (relative to the main directory of this project).
+     * @throws IOException If I/O fails.
+     */
+    public static void exportToCompressedFile(String filePath) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(filePath))) {
+            CompressedGraphFile.write(GraphSnapshot.ofCurrentGrid(), out);
+        }
+    }
+
 }
@@ -26,6 +26,12 @@ public class GridCreator {
      */
     public static final String GRID_FMI_FILE_NAME = "exported_grid.fmi";
 
+    /**
+     * The name of the file where the grid graph is additionally exported in the compressed format
+     * (created on root-level of project)
+     */
+    public static final String GRID_COMPRESSED_FILE_NAME = "exported_grid.sgr";
+
     /**
      * Stores all calculated graph nodes that are situated on water.
      * Protected in order to be accessible from {@link NodeCreateWorkerThread}.
@@ -194,11 +200,13 @@ public class GridCreator {
 
     /**
      * Exports the pre-processed graph to a text file with the ending .fmi. The file will
-     * be created on the top level of this project with the name {@link #GRID_FMI_FILE_NAME}.
+     * be created on the top level of this project with the name {@link #GRID_FMI_FILE_NAME}. In addition a
+     * compressed version is written to {@link #GRID_COMPRESSED_FILE_NAME}.
      */
     private static void exportGridAsFMIFile() {
         try {
             Grid.exportToFmiFile(GRID_FMI_FILE_NAME);
+            Grid.exportToCompressedFile(GRID_COMPRESSED_FILE_NAME);
         } catch (IOException e) {
             e.printStackTrace();
         }
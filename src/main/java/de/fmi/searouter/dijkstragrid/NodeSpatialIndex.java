@@ -0,0 +1,105 @@
+package de.fmi.searouter.dijkstragrid;
+
+import de.fmi.searouter.utils.IntersectionHelper;
+
+/**
+ * Buckets all nodes of a grid graph by their integer latitude and longitude degrees. The degrees are truncated
+ * the same way {@link Grid#getNearestGridNodeByCoordinates(double, double, boolean)} always did it, so a nearest
+ * node lookup only has to scan the nodes of one bucket instead of all nodes of the graph.
+ */
+public class NodeSpatialIndex {
+
+    /**
+     * Number of integer latitude degrees (-90 to 90) and longitude degrees (-180 to 180).
+     */
+    private static final int LAT_BUCKETS = 181;
+    private static final int LON_BUCKETS = 361;
+
+    /**
+     * For each bucket the position in {@link #bucketNodes} where the node ids of the bucket start. Works
+     * like {@link Grid#offset}: the nodes of bucket b are stored from bucketOffset[b] to bucketOffset[b + 1].
+     */
+    private final int[] bucketOffset;
+
+    /**
+     * All node ids sorted by bucket and, within a bucket, by ascending node id.
+     */
+    private final int[] bucketNodes;
+
+    private final double[] latitude;
+    private final double[] longitude;
+
+    /**
+     * Builds the index with a counting sort over all nodes.
+     *
+     * @param latitude  The latitudes of all nodes (index = node id).
+     * @param longitude The longitudes of all nodes (index = node id).
+     */
+    public NodeSpatialIndex(double[] latitude, double[] longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.bucketOffset = new int[LAT_BUCKETS * LON_BUCKETS + 1];
+
+        int[] bucketOfNode = new int[latitude.length];
+        int indexedNodes = 0;
+        for (int nodeIdx = 0; nodeIdx < latitude.length; nodeIdx++) {
+            bucketOfNode[nodeIdx] = getBucket(latitude[nodeIdx], longitude[nodeIdx]);
+            if (bucketOfNode[nodeIdx] >= 0) {
+                bucketOffset[bucketOfNode[nodeIdx] + 1]++;
+                indexedNodes++;
+            }
+        }
+        for (int i = 1; i < bucketOffset.length; i++) {
+            bucketOffset[i] += bucketOffset[i - 1];
+        }
+
+        // Stable placement keeps ascending node ids within each bucket
+        this.bucketNodes = new int[indexedNodes];
+        int[] insertPosition = new int[LAT_BUCKETS * LON_BUCKETS];
+        System.arraycopy(bucketOffset, 0, insertPosition, 0, insertPosition.length);
+        for (int nodeIdx = 0; nodeIdx < latitude.length; nodeIdx++) {
+            if (bucketOfNode[nodeIdx] >= 0) {
+                bucketNodes[insertPosition[bucketOfNode[nodeIdx]]++] = nodeIdx;
+            }
+        }
+    }
+
+    /**
+     * Returns the bucket of a coordinate pair or -1 if the coordinates are out of range.
+     */
+    private static int getBucket(double latitude, double longitude) {
+        int iLat = (int) latitude + 90;
+        int iLon = (int) longitude + 180;
+        if (iLat < 0 || iLat >= LAT_BUCKETS || iLon < 0 || iLon >= LON_BUCKETS) {
+            return -1;
+        }
+        return iLat * LON_BUCKETS + iLon;
+    }
+
+    /**
+     * Returns the nearest node among all nodes that share the integer latitude and longitude degree
+     * with the given point.
+     *
+     * @param latitude  Latitude of the point
+     * @param longitude Longitude of the point
+     * @return The id of the nearest node or -1 if no node exists in the integer degree plane of the point.
+     */
+    public int getNearestNodeInSameDegree(double latitude, double longitude) {
+        int bucket = getBucket(latitude, longitude);
+        if (bucket < 0 || bucketOffset[bucket] == bucketOffset[bucket + 1]) {
+            return -1;
+        }
+
+        double minDistance = Double.MAX_VALUE;
+        int minNodeIdx = -1;
+        for (int i = bucketOffset[bucket]; i < bucketOffset[bucket + 1]; i++) {
+            int nodeIdx = bucketNodes[i];
+            double currDistance = IntersectionHelper.getDistance(latitude, longitude, this.latitude[nodeIdx], this.longitude[nodeIdx]);
+            if (currDistance < minDistance) {
+                minDistance = currDistance;
+                minNodeIdx = nodeIdx;
+            }
+        }
+        return minNodeIdx;
+    }
+}
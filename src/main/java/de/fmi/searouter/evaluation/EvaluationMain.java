@@ -5,6 +5,7 @@ import de.fmi.searouter.router.*;
 import de.fmi.searouter.router.alt.ALTRouter;
 import de.fmi.searouter.router.alt.astar.AltAStarRouter;
 import de.fmi.searouter.router.alt.consistentbiastar.AltConsBiAStar;
+import de.fmi.searouter.router.alt.reach.ReachAltRouter;
 import de.fmi.searouter.router.alt.symmetricastar.AltBiAStarSymmetric;
 import de.fmi.searouter.router.astar.AStarRouter;
 import de.fmi.searouter.router.bidijkstra.BiDijkstra;
@@ -41,6 +42,19 @@ public class EvaluationMain {
         routerToEvaluate.add(new AltAStarRouter());
         routerToEvaluate.add(new AltBiAStarSymmetric());
         routerToEvaluate.add(new AltConsBiAStar());
+        // The same search with reach pruning, the difference of the popped nodes is the effect of the pruning
+        routerToEvaluate.add(new ReachAltRouter());
+
+        // The ALT routers with the landmarks selected at the start of each query only, for comparison
+        AltAStarRouter staticAltAStar = new AltAStarRouter();
+        staticAltAStar.setAdaptiveLandmarkActivation(false);
+        routerToEvaluate.add(staticAltAStar);
+        AltBiAStarSymmetric staticAltBiAStarSymmetric = new AltBiAStarSymmetric();
+        staticAltBiAStarSymmetric.setAdaptiveLandmarkActivation(false);
+        routerToEvaluate.add(staticAltBiAStarSymmetric);
+        AltConsBiAStar staticAltConsBiAStar = new AltConsBiAStar();
+        staticAltConsBiAStar.setAdaptiveLandmarkActivation(false);
+        routerToEvaluate.add(staticAltConsBiAStar);
 
         Evaluator eval = new Evaluator();
         eval.evaluateRouting(routerToEvaluate, new DijkstraRouter());
@@ -0,0 +1,175 @@
+package de.fmi.searouter.evaluation;
+
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.dijkstragrid.GridNode;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.landmarks.Landmark;
+import de.fmi.searouter.landmarks.LandmarkDistances;
+import de.fmi.searouter.landmarks.LandmarkDistributionMode;
+import de.fmi.searouter.landmarks.LandmarkSet;
+import de.fmi.searouter.router.deltastepping.DeltaSteppingSearch;
+import de.fmi.searouter.utils.GeoJsonConverter;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Offline audit of the quality of a landmark set. Sampled start vertices are searched to all vertices, and for
+ * sampled destinations the best landmark lower bound |d(L, s) - d(L, t)| and upper bound d(s, L) + d(L, t) are
+ * compared to the real distance:
+ * <ul>
+ *     <li>A lower bound above or an upper bound below the real distance is a violation, which means that the
+ *     landmark distances do not belong to the graph.</li>
+ *     <li>The ratio of the lower bound to the real distance (1 is a perfect bound) is reported per region, a cell
+ *     of {@link #REGION_SIZE_IN_DEGREES} degrees containing the start vertex, worst regions first.</li>
+ * </ul>
+ * The regions are exported to {@link #GEOJSON_FILE_NAME}, colored by their average ratio.
+ * <p>
+ * Usage: {@code LandmarkAudit <graph file> [mode] [number of start vertices] [destinations per start vertex]}
+ */
+public class LandmarkAudit {
+
+    /**
+     * The file the regions are exported to.
+     */
+    public static final String GEOJSON_FILE_NAME = "landmarkAudit.json";
+
+    /**
+     * The size of a region in latitude and longitude.
+     */
+    public static final double REGION_SIZE_IN_DEGREES = 10.0;
+
+    /**
+     * The quality of the bounds in one region.
+     */
+    private static class RegionQuality {
+        private int pairs;
+        private double ratioSum;
+        private double minRatio = Double.MAX_VALUE;
+        private int violations;
+        private double latitudeSum;
+        private double longitudeSum;
+
+        private double getAverageRatio() {
+            return pairs == 0 ? 0 : ratioSum / pairs;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: LandmarkAudit <graph file> [mode] [number of start vertices] [destinations per start vertex]");
+            return;
+        }
+        GraphSnapshotHolder.swap(Grid.readFmiFile(args[0]));
+        LandmarkDistributionMode mode = args.length > 1 ? LandmarkDistributionMode.valueOf(args[1].trim()) : LandmarkDistributionMode.EQUAL_SPHERE;
+        int numberOfStartNodes = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int destinationsPerStartNode = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+
+        Landmark.initLandmarks(mode);
+        Map<Integer, RegionQuality> regions = audit(Landmark.getLandmarkSet(), numberOfStartNodes, destinationsPerStartNode, new Random(42));
+        printReport(regions);
+        toGeoJSON(regions);
+    }
+
+    /**
+     * Audits the bounds of a landmark set on sampled vertex pairs.
+     *
+     * @return The quality per region, keyed by the region index.
+     */
+    private static Map<Integer, RegionQuality> audit(LandmarkSet set, int numberOfStartNodes, int destinationsPerStartNode, Random random) {
+        LandmarkDistances distances = set.getDistances();
+        DeltaSteppingSearch search = new DeltaSteppingSearch();
+        Map<Integer, RegionQuality> regions = new HashMap<>();
+
+        for (int i = 0; i < numberOfStartNodes; i++) {
+            int startNode = random.nextInt(Node.getSize());
+            int[] realDistance = search.routeToAllVertices(startNode);
+            RegionQuality region = regions.computeIfAbsent(getRegion(startNode), key -> new RegionQuality());
+
+            for (int j = 0; j < destinationsPerStartNode; j++) {
+                int destinationNode = random.nextInt(Node.getSize());
+                if (destinationNode == startNode || realDistance[destinationNode] == Integer.MAX_VALUE) {
+                    continue;
+                }
+
+                long lowerBound = 0;
+                long upperBound = Long.MAX_VALUE;
+                for (int landmark = 0; landmark < set.getSize(); landmark++) {
+                    int toStart = distances.get(landmark, startNode);
+                    int toDestination = distances.get(landmark, destinationNode);
+                    if (toStart == Integer.MAX_VALUE || toDestination == Integer.MAX_VALUE) {
+                        continue;
+                    }
+                    lowerBound = Math.max(lowerBound, Math.abs(toStart - toDestination));
+                    upperBound = Math.min(upperBound, (long) toStart + toDestination);
+                }
+
+                double ratio = (double) lowerBound / realDistance[destinationNode];
+                region.pairs++;
+                region.ratioSum += ratio;
+                region.minRatio = Math.min(region.minRatio, ratio);
+                region.latitudeSum += Node.getLatitude(startNode);
+                region.longitudeSum += Node.getLongitude(startNode);
+                if (lowerBound > realDistance[destinationNode] || upperBound < realDistance[destinationNode]) {
+                    region.violations++;
+                }
+            }
+        }
+        regions.values().removeIf(region -> region.pairs == 0);
+        return regions;
+    }
+
+    private static int getRegion(int node) {
+        int rows = (int) Math.ceil(180 / REGION_SIZE_IN_DEGREES);
+        int columns = (int) Math.ceil(360 / REGION_SIZE_IN_DEGREES);
+        int row = Math.min(rows - 1, (int) ((Node.getLatitude(node) + 90) / REGION_SIZE_IN_DEGREES));
+        int column = Math.min(columns - 1, (int) ((Node.getLongitude(node) + 180) / REGION_SIZE_IN_DEGREES));
+        return row * columns + column;
+    }
+
+    private static void printReport(Map<Integer, RegionQuality> regions) {
+        int pairs = 0;
+        int violations = 0;
+        double ratioSum = 0;
+        for (RegionQuality region : regions.values()) {
+            pairs += region.pairs;
+            violations += region.violations;
+            ratioSum += region.ratioSum;
+        }
+        System.out.println("Audited " + pairs + " pairs: average bound ratio " + (pairs == 0 ? 0 : ratioSum / pairs)
+                + ", " + violations + " violations");
+
+        List<RegionQuality> sorted = new ArrayList<>(regions.values());
+        sorted.sort(Comparator.comparingDouble(RegionQuality::getAverageRatio));
+        for (RegionQuality region : sorted) {
+            System.out.println(String.format(Locale.ROOT, "Region around %.1f, %.1f: %d pairs, average ratio %.3f, minimum ratio %.3f, %d violations",
+                    region.latitudeSum / region.pairs, region.longitudeSum / region.pairs, region.pairs,
+                    region.getAverageRatio(), region.minRatio, region.violations));
+        }
+    }
+
+    /**
+     * Exports one point per region (at the average position of its start vertices) to {@link #GEOJSON_FILE_NAME},
+     * colored by the average ratio of the region.
+     */
+    private static void toGeoJSON(Map<Integer, RegionQuality> regions) throws IOException {
+        List<GridNode> nodes = new ArrayList<>();
+        List<String> colorHexs = new ArrayList<>();
+        List<String> addProps = new ArrayList<>();
+        for (RegionQuality region : regions.values()) {
+            nodes.add(new GridNode(region.latitudeSum / region.pairs, region.longitudeSum / region.pairs));
+            colorHexs.add(Landmark.getHeatmapColorForCSS((int) (1000 * region.getAverageRatio()), 1000, 0));
+            addProps.add(String.format(Locale.ROOT, "average ratio %.3f, minimum ratio %.3f, %d pairs, %d violations",
+                    region.getAverageRatio(), region.minRatio, region.pairs, region.violations));
+        }
+
+        JSONObject json = GeoJsonConverter.osmNodesToGeoJSON(nodes, colorHexs, addProps);
+        Files.writeString(Path.of(GEOJSON_FILE_NAME), json.toString(), StandardCharsets.UTF_8);
+        System.out.println("Exported " + nodes.size() + " regions to " + GEOJSON_FILE_NAME);
+    }
+}
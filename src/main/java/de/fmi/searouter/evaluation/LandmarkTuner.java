@@ -0,0 +1,429 @@
+package de.fmi.searouter.evaluation;
+
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.landmarks.Landmark;
+import de.fmi.searouter.landmarks.LandmarkDistances;
+import de.fmi.searouter.landmarks.LandmarkDistributionMode;
+import de.fmi.searouter.landmarks.LandmarkFile;
+import de.fmi.searouter.landmarks.LandmarkSets;
+import de.fmi.searouter.router.RoutingResult;
+import de.fmi.searouter.router.alt.consistentbiastar.AltConsBiAStar;
+import de.fmi.searouter.router.dijkstra.DijkstraRouter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Offline tuning of the landmarks for a representative sample of queries, e.g. taken from a query log.
+ * <p>
+ * For each {@link LandmarkDistributionMode} the landmarks of its initializer are used as candidates (calculated or
+ * mapped from the landmark file of the mode). The candidates are first rated by the quality of their lower bounds:
+ * for nodes along the shortest path of each query, the bound to the destination (and from the start) is divided by
+ * the real distance. Landmarks are then removed greedily, always the one whose removal lowers the best bound of the
+ * samples the least, until the landmarks fit into the memory budget, and afterwards swapped with removed candidates
+ * as long as this improves the bounds. The pruned sets at the budget and at half and a quarter of it are evaluated
+ * with the {@link AltConsBiAStar} for several numbers of active landmarks (in parallel), counting the settled nodes.
+ * <p>
+ * The best set is written to the landmark file of {@link LandmarkDistributionMode#TUNED} and the recommended
+ * settings to {@link #SETTINGS_FILE_NAME}, with the keys of {@link LandmarkSets#CONFIGURATION_FILE_NAME} so that they
+ * can be copied into it.
+ * <p>
+ * Usage: {@code LandmarkTuner <graph file> <query file> <memory budget in MB> [modes, comma separated]}. The query
+ * file contains one query per line: start latitude, start longitude, destination latitude and destination
+ * longitude, separated by commas. Empty lines and lines starting with # are skipped.
+ */
+public class LandmarkTuner {
+
+    /**
+     * The file the recommended settings are written to, in the format of {@link LandmarkSets#CONFIGURATION_FILE_NAME}.
+     */
+    public static final String SETTINGS_FILE_NAME = "landmarks_tuned.properties";
+
+    /**
+     * The numbers of active landmarks evaluated for each landmark set.
+     */
+    private static final int[] ACTIVE_LANDMARK_COUNTS = {2, 3, 4, 5, 6, 8, 10, 12};
+
+    /**
+     * The number of nodes on the shortest path of each query whose bounds are rated.
+     */
+    private static final int SAMPLES_PER_QUERY = 8;
+
+    /**
+     * The landmark sets are evaluated at the memory budget divided by these numbers.
+     */
+    private static final int[] SET_SIZE_DIVISORS = {1, 2, 4};
+
+    private static final int MIN_SET_SIZE = 4;
+
+    /**
+     * The maximum number of swaps after pruning to a set size.
+     */
+    private static final int MAX_SWAPS = 50;
+
+    /**
+     * The number of removed candidates (with the largest gain) tried in each swap round.
+     */
+    private static final int SWAP_CANDIDATES = 5;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("Usage: LandmarkTuner <graph file> <query file> <memory budget in MB> [modes, comma separated]");
+            return;
+        }
+
+        GraphSnapshotHolder.swap(Grid.readFmiFile(args[0]));
+        long budgetInBytes = Long.parseLong(args[2]) * 1024 * 1024;
+        int maxNumberOfLandmarks = (int) Math.min(Integer.MAX_VALUE, budgetInBytes / (4L * Node.getSize()));
+        if (maxNumberOfLandmarks < MIN_SET_SIZE) {
+            System.out.println("The memory budget is too small for " + MIN_SET_SIZE + " landmarks");
+            return;
+        }
+
+        List<LandmarkDistributionMode> modes = new ArrayList<>();
+        if (args.length > 3) {
+            for (String mode : args[3].split(",")) {
+                modes.add(LandmarkDistributionMode.valueOf(mode.trim()));
+            }
+        } else {
+            modes.addAll(EnumSet.complementOf(EnumSet.of(LandmarkDistributionMode.TUNED)));
+        }
+
+        List<TuningQuery> queries = readQueries(args[1]);
+        System.out.println("Tuning for " + queries.size() + " queries and at most " + maxNumberOfLandmarks + " landmarks");
+
+        TuningResult best = null;
+        for (LandmarkDistributionMode mode : modes) {
+            Landmark.initLandmarks(mode);
+            LandmarkDistances candidates = Landmark.distanceOfLandmarkToEveryVertex;
+            int[] candidateNodeIDs = Landmark.landmarkNodeIDs;
+
+            float[][] boundQuality = rateBounds(queries, candidates);
+            for (int[] selection : selectLandmarks(boundQuality, candidates.getNumberOfLandmarks(), maxNumberOfLandmarks)) {
+                int[] nodeIDs = new int[selection.length];
+                for (int i = 0; i < selection.length; i++) {
+                    nodeIDs[i] = candidateNodeIDs[selection[i]];
+                }
+                LandmarkDistances distances = candidates.subset(selection);
+                Landmark.setLandmarks(distances, nodeIDs);
+
+                for (TuningResult result : evaluate(queries, mode, distances, nodeIDs)) {
+                    System.out.println(mode + ", " + selection.length + " of " + candidateNodeIDs.length
+                            + " landmarks, " + result.activeLandmarks + " active: " + result.averageSettledNodes
+                            + " settled nodes, " + result.averageTimeInMs + " ms");
+                    if (best == null || result.averageSettledNodes < best.averageSettledNodes) {
+                        best = result;
+                    }
+                }
+            }
+        }
+
+        if (best == null) {
+            System.out.println("No landmark set evaluated");
+            return;
+        }
+
+        long checksum = GraphSnapshotHolder.getCurrentChecksum();
+        LandmarkFile.write(LandmarkDistributionMode.TUNED.getLandmarkFileName(), best.distances, best.landmarkNodeIDs, checksum);
+
+        Properties settings = new Properties();
+        settings.setProperty("defaultSet", LandmarkDistributionMode.TUNED.name());
+        settings.setProperty("activeLandmarks", Integer.toString(best.activeLandmarks));
+        try (Writer writer = Files.newBufferedWriter(Path.of(SETTINGS_FILE_NAME), StandardCharsets.UTF_8)) {
+            settings.store(writer, "Landmark settings recommended by the LandmarkTuner for " + queries.size() + " queries\n"
+                    + best.landmarkNodeIDs.length + " landmarks of " + best.mode + ", " + best.averageSettledNodes
+                    + " settled nodes on average, graph checksum " + checksum);
+        }
+
+        System.out.println("Recommended: " + best.landmarkNodeIDs.length + " landmarks of " + best.mode + " with "
+                + best.activeLandmarks + " active landmarks (" + best.averageSettledNodes + " settled nodes). Copy the "
+                + "entries of " + SETTINGS_FILE_NAME + " into " + LandmarkSets.CONFIGURATION_FILE_NAME + " to use them.");
+    }
+
+    /**
+     * Reads the queries and calculates their shortest paths. Queries without a path are skipped.
+     */
+    private static List<TuningQuery> readQueries(String fileName) throws IOException {
+        List<TuningQuery> queries = new ArrayList<>();
+        DijkstraRouter dijkstra = new DijkstraRouter();
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(fileName), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] values = line.split(",");
+                if (values.length != 4) {
+                    throw new IOException("Invalid query: " + line);
+                }
+                int start = Grid.getNearestGridNodeByCoordinates(Double.parseDouble(values[0].trim()), Double.parseDouble(values[1].trim()), false);
+                int dest = Grid.getNearestGridNodeByCoordinates(Double.parseDouble(values[2].trim()), Double.parseDouble(values[3].trim()), false);
+                RoutingResult result = start < 0 || dest < 0 || start == dest ? null : dijkstra.route(start, dest);
+                if (result == null || !result.isRouteFound()) {
+                    skipped++;
+                    continue;
+                }
+                queries.add(new TuningQuery(start, dest, result.getOverallDistance(), result.getPath()));
+            }
+        }
+        if (skipped > 0) {
+            System.out.println("Skipped " + skipped + " queries without a route");
+        }
+        return queries;
+    }
+
+    /**
+     * Rates the lower bounds of all landmarks for the samples of all queries.
+     *
+     * @return For each sample (a node and the destination or the start and a node of a query) and each landmark the
+     * lower bound divided by the real distance.
+     */
+    private static float[][] rateBounds(List<TuningQuery> queries, LandmarkDistances distances) {
+        List<int[]> samples = new ArrayList<>();
+        for (TuningQuery query : queries) {
+            samples.addAll(query.samples);
+        }
+        float[][] quality = new float[samples.size()][];
+        IntStream.range(0, samples.size()).parallel().forEach(i -> {
+            int[] sample = samples.get(i);
+            quality[i] = new float[distances.getNumberOfLandmarks()];
+            for (int landmark = 0; landmark < quality[i].length; landmark++) {
+                int bound = Math.abs(distances.get(landmark, sample[0]) - distances.get(landmark, sample[1]));
+                quality[i][landmark] = (float) bound / sample[2];
+            }
+        });
+        return quality;
+    }
+
+    /**
+     * Prunes and swaps the candidates as described in the class comment.
+     *
+     * @return The selected landmarks for each evaluated set size, largest set first.
+     */
+    private static List<int[]> selectLandmarks(float[][] quality, int numberOfCandidates, int maxNumberOfLandmarks) {
+        boolean[] selected = new boolean[numberOfCandidates];
+        Arrays.fill(selected, true);
+        int size = numberOfCandidates;
+
+        List<int[]> selections = new ArrayList<>();
+        for (int divisor : SET_SIZE_DIVISORS) {
+            int targetSize = Math.min(numberOfCandidates, Math.max(MIN_SET_SIZE, maxNumberOfLandmarks / divisor));
+            if (targetSize > size || (!selections.isEmpty() && targetSize == size)) {
+                continue;
+            }
+            while (size > targetSize) {
+                BestBounds bounds = new BestBounds(quality, selected);
+                double[] loss = bounds.getRemovalLoss(numberOfCandidates);
+                int toRemove = -1;
+                for (int landmark = 0; landmark < numberOfCandidates; landmark++) {
+                    if (selected[landmark] && (toRemove < 0 || loss[landmark] < loss[toRemove])) {
+                        toRemove = landmark;
+                    }
+                }
+                selected[toRemove] = false;
+                size--;
+            }
+            swapLandmarks(quality, selected);
+
+            int[] selection = new int[size];
+            int i = 0;
+            for (int landmark = 0; landmark < numberOfCandidates; landmark++) {
+                if (selected[landmark]) {
+                    selection[i++] = landmark;
+                }
+            }
+            selections.add(selection);
+        }
+        return selections;
+    }
+
+    /**
+     * Replaces selected landmarks with removed ones as long as this increases the sum of the best bounds.
+     */
+    private static void swapLandmarks(float[][] quality, boolean[] selected) {
+        for (int swaps = 0; swaps < MAX_SWAPS; swaps++) {
+            BestBounds bounds = new BestBounds(quality, selected);
+
+            // The removed candidates which would improve the bounds the most if they were added
+            double[] gain = new double[selected.length];
+            for (int sample = 0; sample < quality.length; sample++) {
+                for (int landmark = 0; landmark < selected.length; landmark++) {
+                    if (!selected[landmark] && quality[sample][landmark] > bounds.best[sample]) {
+                        gain[landmark] += quality[sample][landmark] - bounds.best[sample];
+                    }
+                }
+            }
+            Integer[] candidates = IntStream.range(0, selected.length).filter(landmark -> !selected[landmark] && gain[landmark] > 0)
+                    .boxed().sorted((a, b) -> Double.compare(gain[b], gain[a])).limit(SWAP_CANDIDATES).toArray(Integer[]::new);
+
+            double bestImprovement = 0;
+            int bestAdded = -1;
+            int bestRemoved = -1;
+            for (int added : candidates) {
+                for (int removed = 0; removed < selected.length; removed++) {
+                    if (!selected[removed]) {
+                        continue;
+                    }
+                    double improvement = 0;
+                    for (int sample = 0; sample < quality.length; sample++) {
+                        float remaining = bounds.bestLandmark[sample] == removed ? bounds.secondBest[sample] : bounds.best[sample];
+                        improvement += Math.max(remaining, quality[sample][added]) - bounds.best[sample];
+                    }
+                    if (improvement > bestImprovement) {
+                        bestImprovement = improvement;
+                        bestAdded = added;
+                        bestRemoved = removed;
+                    }
+                }
+            }
+            if (bestAdded < 0) {
+                return;
+            }
+            selected[bestAdded] = true;
+            selected[bestRemoved] = false;
+        }
+    }
+
+    /**
+     * Runs the queries with the current landmarks for each number of active landmarks, in parallel.
+     */
+    private static List<TuningResult> evaluate(List<TuningQuery> queries, LandmarkDistributionMode mode,
+                                               LandmarkDistances distances, int[] landmarkNodeIDs) {
+        List<TuningResult> results = Collections.synchronizedList(new ArrayList<>());
+        Arrays.stream(ACTIVE_LANDMARK_COUNTS).filter(count -> count <= landmarkNodeIDs.length).parallel().forEach(count -> {
+            // Adaptive landmark activation keeps the selection in the router, so the routers can run in parallel
+            AltConsBiAStar router = new AltConsBiAStar();
+            router.setMaxNumberOfQueryLandmarks(count);
+            long settledNodes = 0;
+            double timeInMs = 0;
+            for (TuningQuery query : queries) {
+                RoutingResult result = router.route(query.start, query.dest);
+                if (!result.isRouteFound() || result.getOverallDistance() != query.distance) {
+                    throw new IllegalStateException("Dijkstra and router " + router.getName() + " result do not match");
+                }
+                settledNodes += result.getAmountOfNodesPoppedOutOfHeap();
+                timeInMs += result.getCalculationTimeInMs();
+            }
+            results.add(new TuningResult(mode, distances, landmarkNodeIDs, count,
+                    (double) settledNodes / queries.size(), timeInMs / queries.size()));
+        });
+        results.sort(Comparator.comparingInt(result -> result.activeLandmarks));
+        return results;
+    }
+
+    /**
+     * A query of the sample with its shortest path.
+     */
+    private static final class TuningQuery {
+        private final int start;
+        private final int dest;
+        private final int distance;
+
+        /**
+         * Node pairs whose bounds are rated: first node, second node, real distance.
+         */
+        private final List<int[]> samples = new ArrayList<>();
+
+        private TuningQuery(int start, int dest, int distance, List<Integer> path) {
+            this.start = start;
+            this.dest = dest;
+            this.distance = distance;
+
+            int[] distanceFromStart = new int[path.size()];
+            for (int i = 1; i < path.size(); i++) {
+                int edge = Grid.getEdgeIDByNodeIDs(path.get(i - 1), path.get(i));
+                distanceFromStart[i] = distanceFromStart[i - 1] + Edge.getDist(edge);
+            }
+            for (int i = 0; i < SAMPLES_PER_QUERY; i++) {
+                int position = (int) ((long) i * (path.size() - 1) / SAMPLES_PER_QUERY);
+                int node = path.get(position);
+                if (distance - distanceFromStart[position] > 0) {
+                    samples.add(new int[]{node, dest, distance - distanceFromStart[position]});
+                }
+                if (distanceFromStart[position] > 0) {
+                    samples.add(new int[]{start, node, distanceFromStart[position]});
+                }
+            }
+        }
+    }
+
+    /**
+     * The best and second best bound quality of the selected landmarks for each sample.
+     */
+    private static final class BestBounds {
+        private final float[] best;
+        private final float[] secondBest;
+        private final int[] bestLandmark;
+
+        private BestBounds(float[][] quality, boolean[] selected) {
+            this.best = new float[quality.length];
+            this.secondBest = new float[quality.length];
+            this.bestLandmark = new int[quality.length];
+            for (int sample = 0; sample < quality.length; sample++) {
+                float first = 0;
+                float second = 0;
+                int firstLandmark = -1;
+                for (int landmark = 0; landmark < selected.length; landmark++) {
+                    if (!selected[landmark]) {
+                        continue;
+                    }
+                    float value = quality[sample][landmark];
+                    if (value > first) {
+                        second = first;
+                        first = value;
+                        firstLandmark = landmark;
+                    } else if (value > second) {
+                        second = value;
+                    }
+                }
+                best[sample] = first;
+                secondBest[sample] = second;
+                bestLandmark[sample] = firstLandmark;
+            }
+        }
+
+        /**
+         * @return For each landmark by how much the sum of the best bounds decreases if it is removed.
+         */
+        private double[] getRemovalLoss(int numberOfCandidates) {
+            double[] loss = new double[numberOfCandidates];
+            for (int sample = 0; sample < best.length; sample++) {
+                if (bestLandmark[sample] >= 0) {
+                    loss[bestLandmark[sample]] += best[sample] - secondBest[sample];
+                }
+            }
+            return loss;
+        }
+    }
+
+    /**
+     * The evaluation of a landmark set with a number of active landmarks.
+     */
+    private static final class TuningResult {
+        private final LandmarkDistributionMode mode;
+        private final LandmarkDistances distances;
+        private final int[] landmarkNodeIDs;
+        private final int activeLandmarks;
+        private final double averageSettledNodes;
+        private final double averageTimeInMs;
+
+        private TuningResult(LandmarkDistributionMode mode, LandmarkDistances distances, int[] landmarkNodeIDs,
+                             int activeLandmarks, double averageSettledNodes, double averageTimeInMs) {
+            this.mode = mode;
+            this.distances = distances;
+            this.landmarkNodeIDs = landmarkNodeIDs;
+            this.activeLandmarks = activeLandmarks;
+            this.averageSettledNodes = averageSettledNodes;
+            this.averageTimeInMs = averageTimeInMs;
+        }
+    }
+}
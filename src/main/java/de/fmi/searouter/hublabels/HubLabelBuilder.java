@@ -0,0 +1,253 @@
+package de.fmi.searouter.hublabels;
+
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.partition.GraphPartition;
+import de.fmi.searouter.utils.IntMinHeap;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Calculates the {@link HubLabels} of the current graph by pruned landmark labeling and writes them to a file.
+ * <p>
+ * The nodes are processed in the order of a nested dissection of the {@link GraphPartition}: first the separator
+ * of the coarsest level (the nodes of the first half with a neighbor in the second half), then the separators of
+ * the next level and so on, the inner nodes of the finest cells last. From each node v a Dijkstra search is run
+ * which adds v as hub to the label of every settled node u, unless the labels calculated so far already give the distance between v and u.
+ * In that case u is not expanded further. Most searches are pruned very early, and the labels of a node mostly
+ * consist of the separator nodes of the cells containing it.
+ * <p>
+ * As each search depends on the labels of all previous ones, the calculation is sequential.
+ */
+public class HubLabelBuilder {
+
+    // Label of each node: hub ranks (ascending), distances and parent nodes, and the used size
+    private final int[][] labelHubs;
+    private final int[][] labelDistances;
+    private final int[][] labelParents;
+    private final int[] labelSize;
+
+    private final int[] rankToNode;
+
+    // State of the pruned searches
+    private final int[] distance;
+    private final int[] parent;
+    private final int[] touchedNodes;
+    private final int[] rootDistanceByHub;
+    private final IntMinHeap heap;
+
+    private HubLabelBuilder() {
+        int numberOfNodes = Node.getSize();
+        this.labelHubs = new int[numberOfNodes][];
+        this.labelDistances = new int[numberOfNodes][];
+        this.labelParents = new int[numberOfNodes][];
+        this.labelSize = new int[numberOfNodes];
+        this.rankToNode = calculateOrder(GraphPartition.getInstance());
+
+        this.distance = new int[numberOfNodes];
+        this.parent = new int[numberOfNodes];
+        this.touchedNodes = new int[numberOfNodes];
+        this.rootDistanceByHub = new int[numberOfNodes];
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        Arrays.fill(rootDistanceByHub, Integer.MAX_VALUE);
+        this.heap = new IntMinHeap(distance);
+    }
+
+    /**
+     * Calculates the hub labels of the current graph and writes them to a file.
+     *
+     * @param fileName The file to write.
+     * @throws IOException If the file can not be written.
+     */
+    public static void build(String fileName) throws IOException {
+        long startTime = System.nanoTime();
+        HubLabelBuilder builder = new HubLabelBuilder();
+        builder.calculateLabels();
+        builder.write(fileName);
+        System.out.println("Calculated hub labels in " + (System.nanoTime() - startTime) / 1000000 + " ms");
+    }
+
+    /**
+     * Sorts the nodes by the coarsest partition level they are a separator node of.
+     *
+     * @return The nodes in the order they are processed.
+     */
+    private static int[] calculateOrder(GraphPartition partition) {
+        int numberOfNodes = Node.getSize();
+        long[] keys = new long[numberOfNodes];
+        for (int node = 0; node < numberOfNodes; node++) {
+            int depth = 1;
+            while (depth <= partition.getNumberOfLevels() && !isSeparatorNode(partition, depth, node)) {
+                depth++;
+            }
+            keys[node] = ((long) depth << 32) | node;
+        }
+        Arrays.parallelSort(keys);
+
+        int[] order = new int[numberOfNodes];
+        for (int rank = 0; rank < numberOfNodes; rank++) {
+            order[rank] = (int) keys[rank];
+        }
+        return order;
+    }
+
+    /**
+     * Checks whether a node belongs to the separator of its cell on the level above: only the nodes on the left side
+     * (even cell id) of a cut edge are used, which is enough to separate the two cells.
+     */
+    private static boolean isSeparatorNode(GraphPartition partition, int depth, int node) {
+        int cell = partition.getCell(depth, node);
+        if ((cell & 1) != 0) {
+            return false;
+        }
+        for (int edge = Grid.offset[node]; edge < Grid.offset[node + 1]; edge++) {
+            if (partition.getCell(depth, Edge.getDest(edge)) != cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void calculateLabels() {
+        long totalSize = 0;
+        for (int rank = 0; rank < rankToNode.length; rank++) {
+            totalSize += prunedSearch(rank);
+            if ((rank + 1) % 50000 == 0) {
+                System.out.println("Hub labels: " + (rank + 1) + " of " + rankToNode.length + " nodes done, average label size "
+                        + totalSize / (double) rankToNode.length);
+            }
+        }
+    }
+
+    /**
+     * Runs the pruned Dijkstra search from the node with the given rank.
+     *
+     * @return The number of label entries added.
+     */
+    private int prunedSearch(int rank) {
+        int root = rankToNode[rank];
+        for (int i = 0; i < labelSize[root]; i++) {
+            rootDistanceByHub[labelHubs[root][i]] = labelDistances[root][i];
+        }
+
+        int added = 0;
+        int numberOfTouchedNodes = 0;
+        distance[root] = 0;
+        parent[root] = -1;
+        touchedNodes[numberOfTouchedNodes++] = root;
+        heap.add(root);
+
+        while (!heap.isEmpty()) {
+            int node = heap.getNext();
+            int nodeDistance = distance[node];
+
+            if (queryWithRoot(node) <= nodeDistance) {
+                continue;
+            }
+            addLabelEntry(node, rank, nodeDistance, parent[node]);
+            added++;
+
+            for (int edge = Grid.offset[node]; edge < Grid.offset[node + 1]; edge++) {
+                int dest = Edge.getDest(edge);
+                int newDistance = nodeDistance + Edge.getDist(edge);
+                if (newDistance < distance[dest]) {
+                    if (distance[dest] == Integer.MAX_VALUE) {
+                        touchedNodes[numberOfTouchedNodes++] = dest;
+                    }
+                    distance[dest] = newDistance;
+                    parent[dest] = node;
+                    heap.add(dest);
+                }
+            }
+        }
+
+        for (int i = 0; i < numberOfTouchedNodes; i++) {
+            distance[touchedNodes[i]] = Integer.MAX_VALUE;
+        }
+        for (int i = 0; i < labelSize[root]; i++) {
+            rootDistanceByHub[labelHubs[root][i]] = Integer.MAX_VALUE;
+        }
+        heap.resetState();
+        return added;
+    }
+
+    /**
+     * @return The distance between the current root and a node given by the labels calculated so far.
+     */
+    private long queryWithRoot(int node) {
+        long best = Long.MAX_VALUE;
+        int[] hubs = labelHubs[node];
+        int[] distances = labelDistances[node];
+        for (int i = 0; i < labelSize[node]; i++) {
+            int rootDistance = rootDistanceByHub[hubs[i]];
+            if (rootDistance != Integer.MAX_VALUE) {
+                best = Math.min(best, (long) rootDistance + distances[i]);
+            }
+        }
+        return best;
+    }
+
+    private void addLabelEntry(int node, int hubRank, int hubDistance, int parentNode) {
+        int size = labelSize[node];
+        if (labelHubs[node] == null) {
+            labelHubs[node] = new int[4];
+            labelDistances[node] = new int[4];
+            labelParents[node] = new int[4];
+        } else if (size == labelHubs[node].length) {
+            int newLength = size * 2;
+            labelHubs[node] = Arrays.copyOf(labelHubs[node], newLength);
+            labelDistances[node] = Arrays.copyOf(labelDistances[node], newLength);
+            labelParents[node] = Arrays.copyOf(labelParents[node], newLength);
+        }
+        labelHubs[node][size] = hubRank;
+        labelDistances[node][size] = hubDistance;
+        labelParents[node][size] = parentNode;
+        labelSize[node] = size + 1;
+    }
+
+    /**
+     * Writes the labels in the format read by {@link HubLabels#load(String)}.
+     */
+    private void write(String fileName) throws IOException {
+        int numberOfNodes = rankToNode.length;
+        long numberOfEntries = 0;
+        for (int size : labelSize) {
+            numberOfEntries += size;
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16))) {
+            out.writeInt(HubLabels.MAGIC);
+            out.writeShort(HubLabels.VERSION);
+            out.writeInt(numberOfNodes);
+            out.writeLong(numberOfEntries);
+            out.writeLong(GraphSnapshotHolder.getCurrentChecksum());
+
+            for (int node : rankToNode) {
+                out.writeInt(node);
+            }
+            long offset = 0;
+            for (int node = 0; node < numberOfNodes; node++) {
+                out.writeLong(offset);
+                offset += labelSize[node];
+            }
+            out.writeLong(offset);
+
+            for (int node = 0; node < numberOfNodes; node++) {
+                for (int i = 0; i < labelSize[node]; i++) {
+                    out.writeInt(labelHubs[node][i]);
+                    out.writeInt(labelDistances[node][i]);
+                }
+            }
+            for (int node = 0; node < numberOfNodes; node++) {
+                for (int i = 0; i < labelSize[node]; i++) {
+                    out.writeInt(labelParents[node][i]);
+                }
+            }
+        }
+        System.out.println("Hub labels with " + numberOfEntries + " entries (average label size "
+                + numberOfEntries / (double) numberOfNodes + ") have been written to " + fileName);
+    }
+}
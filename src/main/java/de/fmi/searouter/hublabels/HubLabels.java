@@ -0,0 +1,280 @@
+package de.fmi.searouter.hublabels;
+
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.utils.MappedIntArray;
+import de.fmi.searouter.utils.PreprocessingFiles;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Hub label index for exact distance queries without any graph search.
+ * <p>
+ * Each node u has a label: a list of hubs h with the distance dist(u, h), sorted by the rank of the hub in the
+ * node order of the {@link HubLabelBuilder}. For every pair of nodes s and t the labels of s and t share a hub on a
+ * shortest path between them, so their distance is the minimum of dist(s, h) + dist(h, t) over all common hubs.
+ * This is calculated by a single merge of two sorted lists and takes a few microseconds.
+ * <p>
+ * Each label entry also stores the parent node, the next node on the shortest path from u to the hub. The label
+ * of the parent contains the same hub, which allows to retrieve the full path with {@link #getPath(int, int)}.
+ * <p>
+ * File layout (big endian):
+ * <ul>
+ *     <li>Header: magic number, format version, number of nodes, number of label entries, graph checksum</li>
+ *     <li>For each rank the node with this rank (int)</li>
+ *     <li>For each node the offset of its label, plus the total number of entries (long)</li>
+ *     <li>For each entry: hub rank and distance (2 ints)</li>
+ *     <li>For each entry: parent node, -1 if the node is the hub itself (int)</li>
+ * </ul>
+ * The entry and parent arrays are memory mapped and not loaded into the Java heap.
+ * <p>
+ * The labels are calculated for the plain edge distances, cost penalties are not taken into account.
+ */
+public class HubLabels {
+
+    /**
+     * "SGHL" in ASCII
+     */
+    static final int MAGIC = 0x5347484C;
+
+    static final short VERSION = 1;
+
+    private static final int HEADER_SIZE = 4 + 2 + 4 + 8 + 8;
+
+    /**
+     * The name of the file the labels of the current graph are stored in.
+     */
+    private static final String HUB_LABEL_FILE_NAME = "hublabels.bin";
+
+    private static HubLabels INSTANCE;
+
+    private final int numberOfNodes;
+    private final long graphChecksum;
+    private final int[] rankToNode;
+    private final long[] labelOffset;
+    private final MappedIntArray entries;
+    private final MappedIntArray parents;
+
+    private HubLabels(int numberOfNodes, long graphChecksum, int[] rankToNode, long[] labelOffset,
+                      MappedIntArray entries, MappedIntArray parents) {
+        this.numberOfNodes = numberOfNodes;
+        this.graphChecksum = graphChecksum;
+        this.rankToNode = rankToNode;
+        this.labelOffset = labelOffset;
+        this.entries = entries;
+        this.parents = parents;
+    }
+
+    /**
+     * Returns the hub labels of the current graph. They are mapped from the label file if that file belongs to the
+     * current graph, otherwise they are calculated and the file is (over)written.
+     *
+     * @return The hub labels of the current graph.
+     * @throws IOException If the label file can not be read or written.
+     */
+    public static synchronized HubLabels getInstance() throws IOException {
+        long checksum = GraphSnapshotHolder.getCurrentChecksum();
+        if (INSTANCE != null && INSTANCE.graphChecksum == checksum) {
+            return INSTANCE;
+        }
+
+        HubLabels labels = null;
+        String fileName = PreprocessingFiles.getPath(HUB_LABEL_FILE_NAME);
+        if (new File(fileName).exists()) {
+            try {
+                labels = load(fileName);
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+        if (labels == null || labels.graphChecksum != checksum || labels.numberOfNodes != Node.getSize()) {
+            System.out.println("Started calculating hub labels. This might take a while!");
+            HubLabelBuilder.build(fileName);
+            labels = load(fileName);
+        }
+
+        INSTANCE = labels;
+        return labels;
+    }
+
+    /**
+     * Maps a label file written by the {@link HubLabelBuilder}.
+     *
+     * @param fileName The label file.
+     * @return The labels.
+     * @throws IOException If the file can not be read or has an unknown format.
+     */
+    public static HubLabels load(String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 16));
+             RandomAccessFile file = new RandomAccessFile(fileName, "r")) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a hub label file");
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported hub label file version " + version);
+            }
+            int numberOfNodes = in.readInt();
+            long numberOfEntries = in.readLong();
+            long graphChecksum = in.readLong();
+            if (numberOfNodes < 0 || numberOfEntries < 0) {
+                throw new IOException("Corrupt hub label header");
+            }
+
+            int[] rankToNode = new int[numberOfNodes];
+            for (int rank = 0; rank < numberOfNodes; rank++) {
+                rankToNode[rank] = in.readInt();
+            }
+            long[] labelOffset = new long[numberOfNodes + 1];
+            for (int node = 0; node <= numberOfNodes; node++) {
+                labelOffset[node] = in.readLong();
+            }
+            if (labelOffset[numberOfNodes] != numberOfEntries) {
+                throw new IOException("Corrupt hub label offsets");
+            }
+
+            long entryPosition = HEADER_SIZE + 4L * numberOfNodes + 8L * (numberOfNodes + 1);
+            long parentPosition = entryPosition + 8L * numberOfEntries;
+            if (file.length() != parentPosition + 4L * numberOfEntries) {
+                throw new IOException("Hub label file has the wrong size");
+            }
+
+            FileChannel channel = file.getChannel();
+            MappedIntArray entries = new MappedIntArray(channel, entryPosition, 2 * numberOfEntries);
+            MappedIntArray parents = new MappedIntArray(channel, parentPosition, numberOfEntries);
+            System.out.println("Hub labels have been mapped (" + numberOfEntries + " entries)");
+            return new HubLabels(numberOfNodes, graphChecksum, rankToNode, labelOffset, entries, parents);
+        }
+    }
+
+    /**
+     * Calculates the distance between two nodes.
+     *
+     * @param startNodeIdx The start node.
+     * @param destNodeIdx  The destination node.
+     * @return The length of the shortest path, {@link Integer#MAX_VALUE} if there is no path.
+     */
+    public int getDistance(int startNodeIdx, int destNodeIdx) {
+        long[] meeting = findBestHub(startNodeIdx, destNodeIdx);
+        return meeting == null ? Integer.MAX_VALUE : (int) meeting[2];
+    }
+
+    /**
+     * Calculates the shortest path between two nodes.
+     *
+     * @param startNodeIdx The start node.
+     * @param destNodeIdx  The destination node.
+     * @return The nodes of the path from start to destination, null if there is no path.
+     */
+    public List<Integer> getPath(int startNodeIdx, int destNodeIdx) {
+        long[] meeting = findBestHub(startNodeIdx, destNodeIdx);
+        if (meeting == null) {
+            return null;
+        }
+
+        List<Integer> path = pathToHub(startNodeIdx, meeting[0]);
+        List<Integer> pathFromHub = pathToHub(destNodeIdx, meeting[1]);
+        Collections.reverse(pathFromHub);
+        path.addAll(pathFromHub.subList(1, pathFromHub.size()));
+        return path;
+    }
+
+    /**
+     * Merges the labels of two nodes.
+     *
+     * @return The entry indices of the best common hub in both labels and the distance over it, null if the labels
+     * have no common hub.
+     */
+    private long[] findBestHub(int startNodeIdx, int destNodeIdx) {
+        long i = labelOffset[startNodeIdx];
+        long iEnd = labelOffset[startNodeIdx + 1];
+        long j = labelOffset[destNodeIdx];
+        long jEnd = labelOffset[destNodeIdx + 1];
+
+        long best = Long.MAX_VALUE;
+        long bestI = -1;
+        long bestJ = -1;
+        while (i < iEnd && j < jEnd) {
+            int hubI = entries.get(2 * i);
+            int hubJ = entries.get(2 * j);
+            if (hubI == hubJ) {
+                long distance = (long) entries.get(2 * i + 1) + entries.get(2 * j + 1);
+                if (distance < best) {
+                    best = distance;
+                    bestI = i;
+                    bestJ = j;
+                }
+                i++;
+                j++;
+            } else if (hubI < hubJ) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return bestI < 0 ? null : new long[]{bestI, bestJ, best};
+    }
+
+    /**
+     * Follows the parent pointers from a node to the hub of one of its label entries.
+     *
+     * @return The path from the node to the hub.
+     */
+    private List<Integer> pathToHub(int node, long entry) {
+        int hubRank = entries.get(2 * entry);
+        int hub = rankToNode[hubRank];
+        List<Integer> path = new ArrayList<>();
+        path.add(node);
+        while (node != hub) {
+            node = parents.get(entry);
+            path.add(node);
+            entry = findEntry(node, hubRank);
+        }
+        return path;
+    }
+
+    /**
+     * Binary search for the entry of a hub in the label of a node.
+     */
+    private long findEntry(int node, int hubRank) {
+        long low = labelOffset[node];
+        long high = labelOffset[node + 1] - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            int midHub = entries.get(2 * mid);
+            if (midHub < hubRank) {
+                low = mid + 1;
+            } else if (midHub > hubRank) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        throw new IllegalStateException("Hub " + hubRank + " missing in the label of node " + node);
+    }
+
+    /**
+     * @return The number of entries in the label of a node.
+     */
+    public int getLabelSize(int node) {
+        return (int) (labelOffset[node + 1] - labelOffset[node]);
+    }
+
+    /**
+     * @return The total number of label entries.
+     */
+    public long getNumberOfEntries() {
+        return labelOffset[numberOfNodes];
+    }
+
+    /**
+     * @return The checksum of the graph the labels belong to.
+     */
+    public long getGraphChecksum() {
+        return graphChecksum;
+    }
+}
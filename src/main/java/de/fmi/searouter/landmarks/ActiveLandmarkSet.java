@@ -0,0 +1,149 @@
+package de.fmi.searouter.landmarks;
+
+import java.util.Arrays;
+
+/**
+ * The landmarks active for one query of an ALT router, which can grow while the query runs (Goldberg and
+ * Werneck). A query starts with the {@link #INITIAL_NUMBER_OF_LANDMARKS} landmarks giving the best lower bound on
+ * the distance from the start to the destination node. At checkpoints during the search the router asks whether
+ * another landmark gives a clearly better bound for the node the search currently expands; if so, it is added
+ * (up to a maximum number) and the router has to update its potentials.
+ * <p>
+ * The bound of a set of landmarks is the maximum of the bounds of its landmarks, so a larger active set never gives
+ * a smaller bound, and the bound stays consistent. Unlike {@link Landmark#landmarksToUseForQuery}, each router owns
+ * its active set, so concurrent queries do not interfere.
+ * <p>
+ * If the {@link RegionLandmarkTable} is used and covers the regions of the start and destination node, only the
+ * landmarks of its entry are candidates, so that neither the initial selection nor the checkpoints scan all
+ * landmarks.
+ */
+public class ActiveLandmarkSet {
+
+    /**
+     * The number of landmarks a query starts with.
+     */
+    public static final int INITIAL_NUMBER_OF_LANDMARKS = 2;
+
+    /**
+     * A landmark is only added if its bound is larger than the bound of the active set by this factor.
+     */
+    private static final double MIN_IMPROVEMENT_FACTOR = 1.01;
+
+    private int[] activeLandmarks;
+    private int numberOfActiveLandmarks;
+    private boolean[] isActive;
+
+    /**
+     * The landmarks which may be activated during the current query, null if all landmarks may be activated.
+     */
+    private int[] candidates;
+
+    /**
+     * The distances of the landmarks of the current query.
+     */
+    private LandmarkDistances distances;
+
+    /**
+     * Selects the initial landmarks for a query.
+     *
+     * @param set                  The landmarks the query uses.
+     * @param maxNumberOfLandmarks The maximum number of landmarks which may be active during the query.
+     * @param startNode            The ID of the start vertex
+     * @param destinationNode      The ID of the destination vertex
+     */
+    public void prepareForQuery(LandmarkSet set, int maxNumberOfLandmarks, int startNode, int destinationNode) {
+        distances = set.getDistances();
+        int numberOfLandmarks = set.getSize();
+        if (isActive == null || isActive.length != numberOfLandmarks) {
+            isActive = new boolean[numberOfLandmarks];
+        } else {
+            Arrays.fill(isActive, false);
+        }
+        candidates = distances == Landmark.distanceOfLandmarkToEveryVertex ? Landmark.getRegionLandmarks(startNode, destinationNode) : null;
+        activeLandmarks = new int[Math.min(maxNumberOfLandmarks, candidates == null ? numberOfLandmarks : candidates.length)];
+        numberOfActiveLandmarks = 0;
+
+        int initialNumber = Math.min(INITIAL_NUMBER_OF_LANDMARKS, activeLandmarks.length);
+        for (int i = 0; i < initialNumber; i++) {
+            int bestLandmark = findBestInactiveLandmark(startNode, destinationNode);
+            activate(bestLandmark);
+        }
+    }
+
+    /**
+     * Calculates a lower bound for the distance between two nodes with the active landmarks.
+     *
+     * @param firstNodeIdx  The first node id.
+     * @param secondNodeIdx The second node id.
+     * @return The largest bound of the active landmarks.
+     */
+    public double distance(int firstNodeIdx, int secondNodeIdx) {
+        int currMax = 0;
+        for (int i = 0; i < numberOfActiveLandmarks; i++) {
+            currMax = Math.max(currMax, bound(activeLandmarks[i], firstNodeIdx, secondNodeIdx));
+        }
+        return currMax;
+    }
+
+    /**
+     * Checks whether an inactive landmark gives a clearly better bound for the distance between two nodes than
+     * the active landmarks, and activates it if the maximum number of landmarks is not reached yet.
+     *
+     * @param firstNodeIdx  The first node id, usually the node the search currently expands.
+     * @param secondNodeIdx The second node id, usually the destination of the search.
+     * @return True if a landmark was activated. The potentials of the router have changed then.
+     */
+    public boolean activateBetterLandmark(int firstNodeIdx, int secondNodeIdx) {
+        if (numberOfActiveLandmarks >= activeLandmarks.length) {
+            return false;
+        }
+        int bestLandmark = findBestInactiveLandmark(firstNodeIdx, secondNodeIdx);
+        if (bestLandmark < 0 || bound(bestLandmark, firstNodeIdx, secondNodeIdx)
+                <= MIN_IMPROVEMENT_FACTOR * distance(firstNodeIdx, secondNodeIdx)) {
+            return false;
+        }
+        activate(bestLandmark);
+        return true;
+    }
+
+    /**
+     * @return The number of currently active landmarks.
+     */
+    public int getNumberOfActiveLandmarks() {
+        return numberOfActiveLandmarks;
+    }
+
+    /**
+     * @return The currently active landmarks (indices into the landmark set of the query) in the first
+     * {@link #getNumberOfActiveLandmarks()} entries. The array must not be modified.
+     */
+    public int[] getActiveLandmarks() {
+        return activeLandmarks;
+    }
+
+    private void activate(int landmark) {
+        isActive[landmark] = true;
+        activeLandmarks[numberOfActiveLandmarks++] = landmark;
+    }
+
+    private int findBestInactiveLandmark(int firstNodeIdx, int secondNodeIdx) {
+        int bestLandmark = -1;
+        int bestBound = -1;
+        int numberOfCandidates = candidates == null ? isActive.length : candidates.length;
+        for (int i = 0; i < numberOfCandidates; i++) {
+            int landmark = candidates == null ? i : candidates[i];
+            if (!isActive[landmark]) {
+                int bound = bound(landmark, firstNodeIdx, secondNodeIdx);
+                if (bound > bestBound) {
+                    bestBound = bound;
+                    bestLandmark = landmark;
+                }
+            }
+        }
+        return bestLandmark;
+    }
+
+    private int bound(int landmark, int firstNodeIdx, int secondNodeIdx) {
+        return Math.abs(distances.get(landmark, firstNodeIdx) - distances.get(landmark, secondNodeIdx));
+    }
+}
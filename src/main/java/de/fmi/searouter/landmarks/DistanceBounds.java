@@ -0,0 +1,66 @@
+package de.fmi.searouter.landmarks;
+
+/**
+ * Lower and upper bound on the shortest path distance between two vertices, as calculated by the
+ * {@link LandmarkDistanceOracle}. Used as JSON mapping object for the REST api.
+ */
+public class DistanceBounds {
+
+    /**
+     * Value of {@link #getUpperBound()} if no landmark reaches both vertices, or if penalties are active and the
+     * landmarks are not repaired for them.
+     */
+    public static final long UNKNOWN = -1;
+
+    private final boolean reachable;
+    private final long lowerBound;
+    private final long upperBound;
+    private final int upperBoundLandmarkNodeID;
+    private final boolean penalized;
+
+    DistanceBounds(boolean reachable, long lowerBound, long upperBound, int upperBoundLandmarkNodeID, boolean penalized) {
+        this.reachable = reachable;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.upperBoundLandmarkNodeID = upperBoundLandmarkNodeID;
+        this.penalized = penalized;
+    }
+
+    /**
+     * @return False if the vertices are known to lie in different components of the graph, in which case both
+     * bounds are meaningless.
+     */
+    public boolean isReachable() {
+        return reachable;
+    }
+
+    /**
+     * @return A lower bound of the distance in meters.
+     */
+    public long getLowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * @return An upper bound of the distance in meters including cost penalties (the length of a path via the
+     * landmark {@link #getUpperBoundLandmarkNodeID()}), or {@link #UNKNOWN}.
+     */
+    public long getUpperBound() {
+        return upperBound;
+    }
+
+    /**
+     * @return The vertex ID of the landmark the upper bound passes through, -1 if the upper bound is unknown.
+     */
+    public int getUpperBoundLandmarkNodeID() {
+        return upperBoundLandmarkNodeID;
+    }
+
+    /**
+     * @return True if cost penalties were active. The bounds then come from the landmarks repaired for the
+     * penalties (see {@link LandmarkRepair}), or the upper bound is {@link #UNKNOWN} if there are none.
+     */
+    public boolean isPenalized() {
+        return penalized;
+    }
+}
@@ -0,0 +1,41 @@
+package de.fmi.searouter.landmarks;
+
+import de.fmi.searouter.importdata.LatLong;
+
+/**
+ * Request asking for the {@link DistanceBounds} of two positions. Used as JSON mapping object for the REST api.
+ */
+public class DistanceRequest {
+
+    private LatLong startPoint;
+    private LatLong endPoint;
+
+    /**
+     * The landmark set to use, see {@link LandmarkSets#choose(String, int, int)}. Null or empty for the default set.
+     */
+    private String landmarkSet;
+
+    public LatLong getStartPoint() {
+        return startPoint;
+    }
+
+    public void setStartPoint(LatLong startPoint) {
+        this.startPoint = startPoint;
+    }
+
+    public LatLong getEndPoint() {
+        return endPoint;
+    }
+
+    public void setEndPoint(LatLong endPoint) {
+        this.endPoint = endPoint;
+    }
+
+    public String getLandmarkSet() {
+        return landmarkSet;
+    }
+
+    public void setLandmarkSet(String landmarkSet) {
+        this.landmarkSet = landmarkSet;
+    }
+}
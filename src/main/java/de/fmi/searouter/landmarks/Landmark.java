@@ -1,9 +1,10 @@
 package de.fmi.searouter.landmarks;
 
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
 import de.fmi.searouter.dijkstragrid.Grid;
 import de.fmi.searouter.dijkstragrid.GridNode;
 import de.fmi.searouter.dijkstragrid.Node;
-import de.fmi.searouter.router.dijkstra.DijkstraRouter;
+import de.fmi.searouter.router.deltastepping.DeltaSteppingSearch;
 import de.fmi.searouter.utils.GeoJsonConverter;
 import org.json.JSONObject;
 
@@ -25,7 +26,7 @@ public class Landmark {
     /**
      * Stores for each landmark all distances to all other vertices in the graph.
      */
-    public static int[][] distanceOfLandmarkToEveryVertex;
+    public static LandmarkDistances distanceOfLandmarkToEveryVertex;
 
     /**
      * Stores for each landmark the vertex ID as defined in {@link Node}
@@ -54,9 +55,22 @@ public class Landmark {
      */
     private static LandmarkBoundMaxHeap maxHeap;
 
+    /**
+     * The landmarks above as a {@link LandmarkSet}, which the routers use unless a query asks for another set.
+     */
+    private static volatile LandmarkSet landmarkSet;
+
+    /**
+     * Whether queries take their landmarks from the {@link RegionLandmarkTable} if it covers the regions of the
+     * start and destination vertex.
+     */
+    private static volatile boolean useRegionLandmarkTable = false;
+
     /**
      * Prepares the landmarks for the query phase by selecting a subset of all available landmarks
      * by choosing the ones that perform best on the start-destination vertex pair of the routing query.
+     * If the {@link RegionLandmarkTable} is used and covers the regions of the two vertices, the first landmarks
+     * of its entry are used instead.
      *
      * @param maxNumberOfLandmarksToConsider The number of landmarks that should be flagged as active for the query phase.
      * @param startNode The ID of a start vertex
@@ -74,7 +88,7 @@ public class Landmark {
         for (int currLandmarkMarkIdx = 0; currLandmarkMarkIdx < landmarkNodeIDs.length; currLandmarkMarkIdx++) {
             allLowerBounds.add(new LandmarkIDLowerBoundMapping(
                     currLandmarkMarkIdx,
-                    Math.abs(distanceOfLandmarkToEveryVertex[currLandmarkMarkIdx][startNode] - distanceOfLandmarkToEveryVertex[currLandmarkMarkIdx][destinationNode])
+                    Math.abs(distanceOfLandmarkToEveryVertex.get(currLandmarkMarkIdx, startNode) - distanceOfLandmarkToEveryVertex.get(currLandmarkMarkIdx, destinationNode))
             ));
         }
 
@@ -84,6 +98,12 @@ public class Landmark {
         }
         */
 
+        int[] regionLandmarks = getRegionLandmarks(startNode, destinationNode);
+        if (regionLandmarks != null) {
+            landmarksToUseForQuery = Arrays.copyOf(regionLandmarks, Math.min(maxNumberOfLandmarksToConsider, regionLandmarks.length));
+            return;
+        }
+
         // Variant using max heap
         landmarksToUseForQuery = new int[maxNumberOfLandmarksToConsider];
 
@@ -91,7 +111,7 @@ public class Landmark {
 
         // 1. Get the landmarks that perform best on the s-d distance (maximum)
         for (int currLandmarkMarkIdx = 0; currLandmarkMarkIdx < landmarkNodeIDs.length; currLandmarkMarkIdx++) {
-            landmarkLowerBoundOnSTDistance[currLandmarkMarkIdx] = Math.abs(distanceOfLandmarkToEveryVertex[currLandmarkMarkIdx][startNode] - distanceOfLandmarkToEveryVertex[currLandmarkMarkIdx][destinationNode]);
+            landmarkLowerBoundOnSTDistance[currLandmarkMarkIdx] = Math.abs(distanceOfLandmarkToEveryVertex.get(currLandmarkMarkIdx, startNode) - distanceOfLandmarkToEveryVertex.get(currLandmarkMarkIdx, destinationNode));
             maxHeap.add(currLandmarkMarkIdx);
         }
 
@@ -100,6 +120,33 @@ public class Landmark {
         }
     }
 
+    /**
+     * @param startNode       The ID of a start vertex
+     * @param destinationNode The ID of a destination vertex
+     * @return The landmarks the {@link RegionLandmarkTable} selected for the regions of the two vertices, best
+     * first, or null if the table is not used or does not cover the regions. The array must not be modified.
+     */
+    public static int[] getRegionLandmarks(int startNode, int destinationNode) {
+        if (!useRegionLandmarkTable) {
+            return null;
+        }
+        RegionLandmarkTable table = RegionLandmarkTable.getInstance();
+        return table == null ? null : table.getLandmarks(startNode, destinationNode);
+    }
+
+    /**
+     * Sets whether queries take their landmarks from the {@link RegionLandmarkTable}. The table is loaded or
+     * calculated for the current landmarks when it is enabled.
+     *
+     * @param use True to use the table, false to select the landmarks of every query among all landmarks.
+     */
+    public static void setUseRegionLandmarkTable(boolean use) {
+        if (use) {
+            RegionLandmarkTable.getInstance();
+        }
+        useRegionLandmarkTable = use;
+    }
+
     /**
      * Calculates a heuristic for the distance from a start node to a destination node. The heuristic
      * is hereby based on the triangle equation using an additional landmark as third point. This additional
@@ -114,7 +161,7 @@ public class Landmark {
         //int usedLandmarkIdx = -1;
 
         for (int i = 0; i < landmarksToUseForQuery.length; i++) {
-            int currVal = Math.abs(distanceOfLandmarkToEveryVertex[landmarksToUseForQuery[i]][firstNodeIdx] - distanceOfLandmarkToEveryVertex[landmarksToUseForQuery[i]][secondNodeIdx]);
+            int currVal = Math.abs(distanceOfLandmarkToEveryVertex.get(landmarksToUseForQuery[i], firstNodeIdx) - distanceOfLandmarkToEveryVertex.get(landmarksToUseForQuery[i], secondNodeIdx));
             if (currMax < currVal) {
                // usedLandmarkIdx = i;
                 currMax = currVal;
@@ -126,60 +173,53 @@ public class Landmark {
     }
 
     /**
-     * Stores the landmarks to a serialization file.
+     * Replaces the currently used landmarks, e.g. when a new graph snapshot is installed.
+     *
+     * @param distances For each landmark the distances to all vertices.
+     * @param nodeIDs   For each landmark the vertex ID as defined in {@link Node}.
      */
-    private static void storeData(String fileName) {
-        LandmarkSerializer writer = new LandmarkSerializer(distanceOfLandmarkToEveryVertex, landmarkNodeIDs);
-
-        // Serialization
-        try {
-            //Saving of object in a file
-            FileOutputStream file = new FileOutputStream(fileName);
-            ObjectOutputStream out = new ObjectOutputStream(file);
-
-            // Method for serialization of object
-            out.writeObject(writer);
-
-            out.close();
-            file.close();
+    public static void setLandmarks(int[][] distances, int[] nodeIDs) {
+        setLandmarks(LandmarkDistances.of(distances), nodeIDs);
+    }
 
-            System.out.println("Landmarks ways have been serialized");
+    /**
+     * Replaces the currently used landmarks, e.g. when a new graph snapshot is installed.
+     *
+     * @param distances For each landmark the distances to all vertices, e.g. mapped from a {@link LandmarkFile}.
+     * @param nodeIDs   For each landmark the vertex ID as defined in {@link Node}.
+     */
+    public static void setLandmarks(LandmarkDistances distances, int[] nodeIDs) {
+        setLandmarks(new LandmarkSet(null, distances, nodeIDs));
+    }
 
-        } catch (IOException ex) {
-            ex.printStackTrace();
-            System.exit(-1);
-        }
+    /**
+     * Replaces the currently used landmarks.
+     *
+     * @param set The landmarks to use.
+     */
+    public static void setLandmarks(LandmarkSet set) {
+        int[] nodeIDs = set.getLandmarkNodeIDs();
+        landmarkSet = set;
+        distanceOfLandmarkToEveryVertex = set.getDistances();
+        landmarkNodeIDs = nodeIDs;
+        numberOfUsagesOfLandmark = new int[nodeIDs.length];
+        landmarkLowerBoundOnSTDistance = new double[nodeIDs.length];
+        maxHeap = new LandmarkBoundMaxHeap();
     }
 
     /**
-     * Reads landmark definitions from a serialization file.
+     * Removes the currently used landmarks, e.g. when a graph without landmarks is installed, so that no distances
+     * of another graph are used. Afterwards no landmarks are initialized, like before the first
+     * {@link #initLandmarks(LandmarkDistributionMode)}.
      */
-    private static void getData(String fileName) {
-        try {
-            // Reading the object from a file
-            FileInputStream file = new FileInputStream(fileName);
-            ObjectInputStream in = new ObjectInputStream(file);
-
-            // Method for deserialization of object
-            LandmarkSerializer writer = (LandmarkSerializer) in.readObject();
-
-            in.close();
-            file.close();
-
-            int cutOffLength = writer.getDistanceOfLandmarkToEveryVertex().length;
-            //int cutOffLength = 370; Can be used to speed-up the pre-processing once a serialization file with many landmarks already exists
-
-
-            System.out.println("Coastline ways have been deserialized ");
-            distanceOfLandmarkToEveryVertex = Arrays.copyOfRange(writer.getDistanceOfLandmarkToEveryVertex(), 0, cutOffLength);
-            landmarkNodeIDs = Arrays.copyOfRange(writer.getLandmarkNodeIDs(),0, cutOffLength);
-            numberOfUsagesOfLandmark = new int[landmarkNodeIDs.length];
-            Arrays.fill(numberOfUsagesOfLandmark, 0);
-            System.out.println("Read landmarks in: " + landmarkNodeIDs.length);
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            System.exit(-1);
-        }
+    public static void clearLandmarks() {
+        landmarkSet = null;
+        distanceOfLandmarkToEveryVertex = null;
+        landmarkNodeIDs = null;
+        numberOfUsagesOfLandmark = null;
+        landmarksToUseForQuery = null;
+        landmarkLowerBoundOnSTDistance = null;
+        maxHeap = null;
     }
 
     /**
@@ -187,26 +227,21 @@ public class Landmark {
      * This includes basically to first choose a certain distribution of landmarks and secondly to
      * to pre-calculate all distances of the landmarks to all other vertices.
      *
+     * The distances are mapped from the {@link LandmarkFile} of the distribution mode if that file belongs to the
+     * current graph, otherwise they are calculated and the file is (over)written.
+     *
      * @param mode The {@link LandmarkDistributionMode} type that defines which distrbution strategy should be applied.
+     * @throws IOException If the landmark file can not be written or mapped.
      */
-    public static void initLandmarks(LandmarkDistributionMode mode) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
-        System.out.println("Started initializing landmarks. This might take a while!");
-
-        File f = new File(mode.getSerFileName());
-
-        if (f.exists()) {
-            getData(mode.getSerFileName());
-        } else {
-            LandmarkInitializer initializer = mode.getInitializerClass().getConstructor().newInstance();
-            distanceOfLandmarkToEveryVertex = initializer.getDistanceOfLandmarkToEveryVertex();
-            landmarkNodeIDs = initializer.getLandmarkNodeIDs();
-            numberOfUsagesOfLandmark = new int[landmarkNodeIDs.length];
-            storeData(mode.getSerFileName());
-        }
-
-        landmarkLowerBoundOnSTDistance = new double[landmarkNodeIDs.length];
-        maxHeap = new LandmarkBoundMaxHeap();
+    public static void initLandmarks(LandmarkDistributionMode mode) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException, IOException {
+        setLandmarks(LandmarkSet.load(mode, true));
+    }
 
+    /**
+     * @return The currently used landmarks as a set, null if no landmarks are initialized.
+     */
+    public static LandmarkSet getLandmarkSet() {
+        return landmarkSet;
     }
 
     /**
@@ -225,20 +260,20 @@ public class Landmark {
         landmarkNodeIDs[0] = firstLandmarkID;
         landmarkNodeIDs[1] = secondLandmarkID;
 
-        distanceOfLandmarkToEveryVertex = new int[2][Node.getSize()];
-        //distanceOfLandmarkToEveryVertex = new int[1][Node.getSize()];
+        int[][] distances = new int[2][];
 
-        DijkstraRouter router = new DijkstraRouter();
+        DeltaSteppingSearch search = new DeltaSteppingSearch();
 
-        distanceOfLandmarkToEveryVertex[0] = router.routeToAllVertices(firstLandmarkID, 4);
-        distanceOfLandmarkToEveryVertex[1] = router.routeToAllVertices(secondLandmarkID, 4);
+        distances[0] = search.routeToAllVertices(firstLandmarkID);
+        distances[1] = search.routeToAllVertices(secondLandmarkID);
+        setLandmarks(distances, landmarkNodeIDs);
     }
 
     /**
      * @return The number of all available landmarks.
      */
     public static int getSize() {
-        return Landmark.distanceOfLandmarkToEveryVertex.length;
+        return Landmark.distanceOfLandmarkToEveryVertex.getNumberOfLandmarks();
     }
 
     /**
@@ -249,7 +284,7 @@ public class Landmark {
      * @param minValue The minimum value that occurred.
      * @return A hex string representing a color.
      */
-    private static String getHeatmapColorForCSS(int value, int maxValue, int minValue) {
+    public static String getHeatmapColorForCSS(int value, int maxValue, int minValue) {
         float normalizedValue0to1 = (float) value / (float) maxValue;
 
         float minHue = 350;
@@ -277,7 +312,7 @@ public class Landmark {
         List<String> colorHexs = new ArrayList<>();
         List<GridNode> nodes = new ArrayList<>();
         List<String> addProps = new ArrayList<>();
-        for (int i = 0; i < distanceOfLandmarkToEveryVertex.length; i++) {
+        for (int i = 0; i < landmarkNodeIDs.length; i++) {
             GridNode node = new GridNode(Node.getLatitude(landmarkNodeIDs[i]), Node.getLongitude(landmarkNodeIDs[i]));
             nodes.add(node);
             colorHexs.add(getHeatmapColorForCSS(numberOfUsagesOfLandmark[i], maxUsages, minUsages));
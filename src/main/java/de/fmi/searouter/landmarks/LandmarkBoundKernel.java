@@ -0,0 +1,130 @@
+package de.fmi.searouter.landmarks;
+
+import java.nio.IntBuffer;
+
+/**
+ * Evaluates the landmark lower bounds of a query for whole batches of nodes, e.g. all neighbors of the node a
+ * search settles. The landmarks and the start and destination node are fixed per query (or until the active
+ * landmarks change), so their distances d(L, s) and d(L, t) are read once in {@link #prepare}, and a bound
+ * |d(L, v) - d(L, t)| only reads one distance per landmark. A batch is evaluated landmark by landmark: the
+ * distance row of a landmark is touched once for all nodes of the batch, and the maximum is kept with
+ * {@link Math#abs(int)} and {@link Math#max(int, int)}, which the JIT compiles without branches.
+ * <p>
+ * The bounds are the same as those of {@link Landmark#distance(int, int)} and {@link ActiveLandmarkSet#distance(int, int)}
+ * for the same landmarks. Each router owns its kernel.
+ */
+public final class LandmarkBoundKernel {
+
+    private IntBuffer[] rows = new IntBuffer[0];
+    private int[] distanceToStart = new int[0];
+    private int[] distanceToDestination = new int[0];
+    private int numberOfLandmarks;
+
+    /**
+     * Sets the landmarks and the query the bounds are calculated for.
+     *
+     * @param distances         The distances of the landmark set of the query.
+     * @param landmarks         The indices of the landmarks in the set.
+     * @param numberOfLandmarks The number of landmarks to use, starting with the first entry of the array.
+     * @param startNode         The ID of the start vertex
+     * @param destinationNode   The ID of the destination vertex
+     */
+    public void prepare(LandmarkDistances distances, int[] landmarks, int numberOfLandmarks, int startNode, int destinationNode) {
+        if (rows.length < numberOfLandmarks) {
+            rows = new IntBuffer[numberOfLandmarks];
+            distanceToStart = new int[numberOfLandmarks];
+            distanceToDestination = new int[numberOfLandmarks];
+        }
+        for (int i = 0; i < numberOfLandmarks; i++) {
+            rows[i] = distances.getRow(landmarks[i]);
+            distanceToStart[i] = rows[i].get(startNode);
+            distanceToDestination[i] = rows[i].get(destinationNode);
+        }
+        this.numberOfLandmarks = numberOfLandmarks;
+    }
+
+    /**
+     * @param node A node id
+     * @return The lower bound of the distance between the node and the destination vertex.
+     */
+    public int boundToDestination(int node) {
+        return bound(node, distanceToDestination);
+    }
+
+    /**
+     * @param node A node id
+     * @return The lower bound of the distance between the node and the start vertex.
+     */
+    public int boundToStart(int node) {
+        return bound(node, distanceToStart);
+    }
+
+    /**
+     * Calculates the lower bounds of the distances between nodes and the destination vertex.
+     *
+     * @param nodes  The node ids.
+     * @param count  The number of nodes to evaluate, starting with the first entry of the array.
+     * @param bounds Receives the bound of nodes[i] at bounds[i], so it must hold at least count entries.
+     */
+    public void boundsToDestination(int[] nodes, int count, int[] bounds) {
+        boundsToTarget(nodes, count, distanceToDestination, bounds);
+    }
+
+    /**
+     * Calculates the lower bounds of the distances between nodes and the start vertex.
+     *
+     * @param nodes  The node ids.
+     * @param count  The number of nodes to evaluate, starting with the first entry of the array.
+     * @param bounds Receives the bound of nodes[i] at bounds[i], so it must hold at least count entries.
+     */
+    public void boundsToStart(int[] nodes, int count, int[] bounds) {
+        boundsToTarget(nodes, count, distanceToStart, bounds);
+    }
+
+    /**
+     * Calculates the lower bounds of the distances between nodes and both the start and the destination vertex,
+     * reading the distances of each node only once.
+     *
+     * @param nodes                The node ids.
+     * @param count                The number of nodes to evaluate, starting with the first entry of the array.
+     * @param boundsToStart        Receives the bound of nodes[i] to the start vertex at boundsToStart[i].
+     * @param boundsToDestination  Receives the bound of nodes[i] to the destination vertex at boundsToDestination[i].
+     */
+    public void bounds(int[] nodes, int count, int[] boundsToStart, int[] boundsToDestination) {
+        for (int j = 0; j < count; j++) {
+            boundsToStart[j] = 0;
+            boundsToDestination[j] = 0;
+        }
+        for (int i = 0; i < numberOfLandmarks; i++) {
+            IntBuffer row = rows[i];
+            int toStart = distanceToStart[i];
+            int toDestination = distanceToDestination[i];
+            for (int j = 0; j < count; j++) {
+                int distance = row.get(nodes[j]);
+                boundsToStart[j] = Math.max(boundsToStart[j], Math.abs(distance - toStart));
+                boundsToDestination[j] = Math.max(boundsToDestination[j], Math.abs(distance - toDestination));
+            }
+        }
+    }
+
+    private void boundsToTarget(int[] nodes, int count, int[] distanceToTarget, int[] bounds) {
+        for (int j = 0; j < count; j++) {
+            bounds[j] = 0;
+        }
+        for (int i = 0; i < numberOfLandmarks; i++) {
+            IntBuffer row = rows[i];
+            int toTarget = distanceToTarget[i];
+            for (int j = 0; j < count; j++) {
+                bounds[j] = Math.max(bounds[j], Math.abs(row.get(nodes[j]) - toTarget));
+            }
+        }
+    }
+
+    private int bound(int node, int[] distanceToTarget) {
+        int bound = 0;
+        for (int i = 0; i < numberOfLandmarks; i++) {
+            bound = Math.max(bound, Math.abs(rows[i].get(node) - distanceToTarget[i]));
+        }
+        return bound;
+    }
+}
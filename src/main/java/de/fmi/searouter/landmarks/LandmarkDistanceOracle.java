@@ -0,0 +1,159 @@
+package de.fmi.searouter.landmarks;
+
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+import de.fmi.searouter.dijkstragrid.Edge;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Estimates the distance between two vertices from the landmark distances alone, without any graph search. By the
+ * triangle inequality, every landmark L gives
+ * <ul>
+ *     <li>the lower bound |d(L, s) - d(L, t)|, as used by the ALT routers, and</li>
+ *     <li>the upper bound d(s, L) + d(L, t), the length of the shortest path from s to t through L.</li>
+ * </ul>
+ * The oracle takes the maximum of the lower bounds and the minimum of the upper bounds over all landmarks of a
+ * {@link LandmarkSet}, which costs two distance reads per landmark. The graph is undirected, so d(s, L) = d(L, s).
+ * <p>
+ * The landmark distances do not include cost penalties (see {@link EdgeCostOverlay}). Penalties only increase
+ * costs, so the lower bound stays valid, but the upper bound does not. While penalties are active, both bounds are
+ * therefore calculated from the distances {@link LandmarkRepair} repaired for the current costs if they are
+ * available, otherwise the upper bound is {@link DistanceBounds#UNKNOWN}.
+ */
+public final class LandmarkDistanceOracle {
+
+    private LandmarkDistanceOracle() {
+    }
+
+    /**
+     * Calculates the bounds with the landmarks of the current graph.
+     *
+     * @param startNode       The ID of the start vertex
+     * @param destinationNode The ID of the destination vertex
+     * @return The bounds.
+     * @throws IllegalStateException If no landmarks are initialized.
+     */
+    public static DistanceBounds getBounds(int startNode, int destinationNode) {
+        return getBounds(currentSet(), startNode, destinationNode);
+    }
+
+    /**
+     * Calculates the bounds with the landmarks of a set.
+     *
+     * @param set             The landmark set.
+     * @param startNode       The ID of the start vertex
+     * @param destinationNode The ID of the destination vertex
+     * @return The bounds.
+     */
+    public static DistanceBounds getBounds(LandmarkSet set, int startNode, int destinationNode) {
+        int[] costs = EdgeCostOverlay.getCurrentCosts();
+        LandmarkSet boundSet = LandmarkRepair.forCosts(set, costs);
+        LandmarkDistances distances = boundSet.getDistances();
+        long lowerBound = 0;
+        long upperBound = Long.MAX_VALUE;
+        int upperBoundLandmark = -1;
+        boolean reachable = true;
+        for (int landmark = 0; landmark < set.getSize(); landmark++) {
+            int toStart = distances.get(landmark, startNode);
+            int toDestination = distances.get(landmark, destinationNode);
+            if (toStart == Integer.MAX_VALUE || toDestination == Integer.MAX_VALUE) {
+                // A landmark reaching only one of the vertices proves that they are not connected
+                reachable &= toStart == toDestination;
+                continue;
+            }
+            lowerBound = Math.max(lowerBound, Math.abs(toStart - toDestination));
+            long viaLandmark = (long) toStart + toDestination;
+            if (viaLandmark < upperBound) {
+                upperBound = viaLandmark;
+                upperBoundLandmark = landmark;
+            }
+        }
+        return toBounds(set, costs, boundSet, startNode == destinationNode, reachable, lowerBound, upperBound, upperBoundLandmark);
+    }
+
+    /**
+     * Calculates the bounds of many vertex pairs with the landmarks of a set. The pairs are evaluated landmark
+     * by landmark, so the distance row of each landmark is only looked up once.
+     *
+     * @param set              The landmark set.
+     * @param startNodes       The IDs of the start vertices
+     * @param destinationNodes The IDs of the destination vertices, at the same index as their start vertex.
+     * @return The bounds of each pair, at the index of the pair.
+     * @throws IllegalArgumentException If the arrays differ in length.
+     */
+    public static DistanceBounds[] getBounds(LandmarkSet set, int[] startNodes, int[] destinationNodes) {
+        if (startNodes.length != destinationNodes.length) {
+            throw new IllegalArgumentException("Number of start and destination vertices differ");
+        }
+        int count = startNodes.length;
+        long[] lowerBounds = new long[count];
+        long[] upperBounds = new long[count];
+        int[] upperBoundLandmarks = new int[count];
+        boolean[] unreachable = new boolean[count];
+        Arrays.fill(upperBounds, Long.MAX_VALUE);
+        Arrays.fill(upperBoundLandmarks, -1);
+
+        int[] costs = EdgeCostOverlay.getCurrentCosts();
+        LandmarkSet boundSet = LandmarkRepair.forCosts(set, costs);
+        for (int landmark = 0; landmark < boundSet.getSize(); landmark++) {
+            IntBuffer row = boundSet.getDistances().getRow(landmark);
+            for (int i = 0; i < count; i++) {
+                int toStart = row.get(startNodes[i]);
+                int toDestination = row.get(destinationNodes[i]);
+                if (toStart == Integer.MAX_VALUE || toDestination == Integer.MAX_VALUE) {
+                    unreachable[i] |= toStart != toDestination;
+                    continue;
+                }
+                lowerBounds[i] = Math.max(lowerBounds[i], Math.abs(toStart - toDestination));
+                long viaLandmark = (long) toStart + toDestination;
+                if (viaLandmark < upperBounds[i]) {
+                    upperBounds[i] = viaLandmark;
+                    upperBoundLandmarks[i] = landmark;
+                }
+            }
+        }
+
+        DistanceBounds[] bounds = new DistanceBounds[count];
+        for (int i = 0; i < count; i++) {
+            bounds[i] = toBounds(set, costs, boundSet, startNodes[i] == destinationNodes[i], !unreachable[i], lowerBounds[i],
+                    upperBounds[i], upperBoundLandmarks[i]);
+        }
+        return bounds;
+    }
+
+    /**
+     * Calculates the bounds of many vertex pairs with the landmarks of the current graph.
+     *
+     * @see #getBounds(LandmarkSet, int[], int[])
+     * @throws IllegalStateException If no landmarks are initialized.
+     */
+    public static DistanceBounds[] getBounds(int[] startNodes, int[] destinationNodes) {
+        return getBounds(currentSet(), startNodes, destinationNodes);
+    }
+
+    private static LandmarkSet currentSet() {
+        LandmarkSet set = Landmark.getLandmarkSet();
+        if (set == null) {
+            throw new IllegalStateException("No landmarks initialized");
+        }
+        return set;
+    }
+
+    /**
+     * @param costs    The edge costs the bounds were calculated for.
+     * @param boundSet The landmarks the bounds were calculated with, the set itself or its repaired landmarks.
+     */
+    private static DistanceBounds toBounds(LandmarkSet set, int[] costs, LandmarkSet boundSet, boolean sameNode, boolean reachable,
+                                           long lowerBound, long upperBound, int upperBoundLandmark) {
+        boolean penalized = costs != Edge.getDistances();
+        if (sameNode) {
+            return new DistanceBounds(true, 0, 0, -1, penalized);
+        }
+        // Without repaired distances a path via a landmark may be longer than its plain distance
+        if (upperBoundLandmark < 0 || (penalized && boundSet == set)) {
+            return new DistanceBounds(reachable, lowerBound, DistanceBounds.UNKNOWN, -1, penalized);
+        }
+        return new DistanceBounds(reachable, lowerBound, upperBound, set.getLandmarkNodeIDs()[upperBoundLandmark], penalized);
+    }
+}
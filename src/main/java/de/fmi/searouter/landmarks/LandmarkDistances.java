@@ -0,0 +1,85 @@
+package de.fmi.searouter.landmarks;
+
+import java.nio.IntBuffer;
+
+/**
+ * The distances of all landmarks to all vertices, one row per landmark. The rows are either arrays on the Java
+ * heap (e.g. right after the calculation by a {@link LandmarkInitializer}) or memory mapped regions of a
+ * {@link LandmarkFile}, which the operating system pages in when a landmark is used for the first time.
+ * <p>
+ * The rows must not be modified.
+ */
+public final class LandmarkDistances {
+
+    private final IntBuffer[] rows;
+    private final int numberOfNodes;
+
+    LandmarkDistances(IntBuffer[] rows, int numberOfNodes) {
+        this.rows = rows;
+        this.numberOfNodes = numberOfNodes;
+    }
+
+    /**
+     * Wraps distances calculated on the Java heap.
+     *
+     * @param distances For each landmark the distances to all vertices.
+     * @return The distances.
+     * @throws IllegalArgumentException If the rows differ in length.
+     */
+    public static LandmarkDistances of(int[][] distances) {
+        int numberOfNodes = distances.length == 0 ? 0 : distances[0].length;
+        IntBuffer[] rows = new IntBuffer[distances.length];
+        for (int landmark = 0; landmark < distances.length; landmark++) {
+            if (distances[landmark].length != numberOfNodes) {
+                throw new IllegalArgumentException("Landmark rows differ in length");
+            }
+            rows[landmark] = IntBuffer.wrap(distances[landmark]);
+        }
+        return new LandmarkDistances(rows, numberOfNodes);
+    }
+
+    /**
+     * Selects some of the landmarks. The rows are shared, not copied.
+     *
+     * @param landmarks The indices of the landmarks to keep, in the order of the new indices.
+     * @return The distances of the selected landmarks.
+     */
+    public LandmarkDistances subset(int[] landmarks) {
+        IntBuffer[] selectedRows = new IntBuffer[landmarks.length];
+        for (int i = 0; i < landmarks.length; i++) {
+            selectedRows[i] = rows[landmarks[i]];
+        }
+        return new LandmarkDistances(selectedRows, numberOfNodes);
+    }
+
+    /**
+     * @param landmark The index of the landmark.
+     * @return A read-only view of the row of the landmark with its own position.
+     */
+    IntBuffer getRow(int landmark) {
+        return rows[landmark].asReadOnlyBuffer();
+    }
+
+    /**
+     * @param landmark The index of the landmark (as in {@link Landmark#landmarkNodeIDs}).
+     * @param node     The id of the vertex.
+     * @return The distance of the landmark to the vertex, {@link Integer#MAX_VALUE} if it is not reachable.
+     */
+    public int get(int landmark, int node) {
+        return rows[landmark].get(node);
+    }
+
+    /**
+     * @return The number of landmarks.
+     */
+    public int getNumberOfLandmarks() {
+        return rows.length;
+    }
+
+    /**
+     * @return The number of vertices of the graph the distances were calculated for.
+     */
+    public int getNumberOfNodes() {
+        return numberOfNodes;
+    }
+}
@@ -10,7 +10,12 @@ public enum LandmarkDistributionMode {
     EQUAL_2D(EqualDistributed2DMapInitializer.class, "landmarks_equal_distributed_2d_map"),
     EQUAL_SPHERE(EqualDistributedOnSphereInitializer.class, "landmarks_equal_distributed_sphere"),
     COASTLINE(CoastlineLandmarkInitializer.class, "landmarks_equal_distributed_coastline"),
-    MAX_AVOID(MaxAvoidInitializer.class, "landmarks_max_avoid");
+    MAX_AVOID(MaxAvoidInitializer.class, "landmarks_max_avoid"),
+    /**
+     * Landmarks selected for a sample of queries by the {@link de.fmi.searouter.evaluation.LandmarkTuner}. They can
+     * not be calculated at startup, the tuner has to be run for the current graph first.
+     */
+    TUNED(null, "landmarks_tuned");
 
     private final Class<? extends LandmarkInitializer> initClass;
     private final String serFileName;
@@ -20,14 +25,25 @@ public enum LandmarkDistributionMode {
         this.serFileName = serFileName;
     }
 
+    /**
+     * @return The class calculating the landmarks, null if they can only be created offline.
+     */
     public Class<? extends LandmarkInitializer> getInitializerClass(){
         return this.initClass;
     }
 
     /**
-     * @return Name of the serialization file name of the distribution strateg.
+     * @return Name of the serialization file name of the distribution strateg in the previous format, only read
+     * to convert it (see {@link LandmarkFile#convertSerializedFile(String, String, long, int)}).
      */
     public String getSerFileName() {
         return this.serFileName;
     }
+
+    /**
+     * @return Name of the {@link LandmarkFile} of the distribution strategy.
+     */
+    public String getLandmarkFileName() {
+        return this.serFileName + LandmarkFile.FILE_EXTENSION;
+    }
 }
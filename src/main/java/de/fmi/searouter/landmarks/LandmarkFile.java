@@ -0,0 +1,251 @@
+package de.fmi.searouter.landmarks;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary file of the landmark distances of one graph. The distance rows are memory mapped instead of being read
+ * into the Java heap, so loading takes milliseconds, only the rows of the landmarks a query actually uses are
+ * paged in, and several processes on the same host which map the same file share its pages.
+ * <p>
+ * File layout:
+ * <ul>
+ *     <li>Header ({@link #HEADER_SIZE} bytes, big endian): magic number, format version, encoding of the
+ *     distances, number of nodes, number of landmarks, graph checksum (see
+ *     {@link de.fmi.searouter.dijkstragrid.GraphSnapshot#getChecksum()}), zero padding</li>
+ *     <li>For each landmark its node id (int, big endian)</li>
+ *     <li>For each landmark the distances to all nodes (int, in the byte order given by the encoding)</li>
+ * </ul>
+ * The distances are written in the native byte order of the writing machine, so that reading them does not
+ * need to swap bytes on the same kind of machine.
+ * <p>
+ * The files get the extension {@link #FILE_EXTENSION}, so that files of the previous serialization format (see
+ * {@link #convertSerializedFile(String, String, long, int)}) are neither read as nor overwritten by landmark files.
+ */
+public final class LandmarkFile {
+
+    /**
+     * Extension of landmark files, appended to the file name of the distribution mode.
+     */
+    public static final String FILE_EXTENSION = ".lmk";
+
+    /**
+     * "SGLM" in ASCII
+     */
+    private static final int MAGIC = 0x53474C4D;
+
+    private static final short VERSION = 1;
+
+    /**
+     * Encoding of the distances: 32 bit ints in big endian byte order.
+     */
+    private static final byte ENCODING_INT32_BIG_ENDIAN = 1;
+
+    /**
+     * Encoding of the distances: 32 bit ints in little endian byte order.
+     */
+    private static final byte ENCODING_INT32_LITTLE_ENDIAN = 2;
+
+    private static final int HEADER_SIZE = 32;
+
+    private final long graphChecksum;
+    private final int[] landmarkNodeIDs;
+    private final LandmarkDistances distances;
+
+    private LandmarkFile(long graphChecksum, int[] landmarkNodeIDs, LandmarkDistances distances) {
+        this.graphChecksum = graphChecksum;
+        this.landmarkNodeIDs = landmarkNodeIDs;
+        this.distances = distances;
+    }
+
+    /**
+     * Maps a landmark file. The mapping stays valid after the file is closed.
+     *
+     * @param fileName The landmark file (as written by {@link #write(String, LandmarkDistances, int[], long)}).
+     * @return The landmarks of the file.
+     * @throws IOException If the file can not be read or has an unknown format.
+     */
+    public static LandmarkFile load(String fileName) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r")) {
+            FileChannel channel = file.getChannel();
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a landmark file: " + fileName);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a landmark file: " + fileName);
+            }
+            short version = header.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported landmark file version " + version);
+            }
+            ByteOrder byteOrder = getByteOrder(header.get());
+            int numberOfNodes = header.getInt();
+            int numberOfLandmarks = header.getInt();
+            long graphChecksum = header.getLong();
+            if (numberOfNodes < 0 || numberOfLandmarks < 0) {
+                throw new IOException("Corrupt landmark file header");
+            }
+
+            long rowPosition = HEADER_SIZE + 4L * numberOfLandmarks;
+            if (channel.size() != rowPosition + 4L * numberOfNodes * numberOfLandmarks) {
+                throw new IOException("Landmark file has the wrong size");
+            }
+
+            int[] landmarkNodeIDs = new int[numberOfLandmarks];
+            channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, 4L * numberOfLandmarks)
+                    .order(ByteOrder.BIG_ENDIAN).asIntBuffer().get(landmarkNodeIDs);
+
+            // Each row is mapped on its own, a row is at most 2 GB
+            IntBuffer[] rows = new IntBuffer[numberOfLandmarks];
+            for (int landmark = 0; landmark < numberOfLandmarks; landmark++) {
+                rows[landmark] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        rowPosition + 4L * numberOfNodes * landmark, 4L * numberOfNodes)
+                        .order(byteOrder).asIntBuffer();
+            }
+            return new LandmarkFile(graphChecksum, landmarkNodeIDs, new LandmarkDistances(rows, numberOfNodes));
+        }
+    }
+
+    /**
+     * Writes landmarks to a file. The file is written under a temporary name and then renamed, so processes which
+     * still map an older version of the file keep reading the old data.
+     *
+     * @param fileName        The landmark file.
+     * @param distances       For each landmark the distances to all nodes.
+     * @param landmarkNodeIDs For each landmark its node id.
+     * @param graphChecksum   The checksum of the graph the distances were calculated for.
+     * @throws IOException If the file can not be written.
+     */
+    public static void write(String fileName, LandmarkDistances distances, int[] landmarkNodeIDs, long graphChecksum) throws IOException {
+        if (distances.getNumberOfLandmarks() != landmarkNodeIDs.length) {
+            throw new IllegalArgumentException("Number of landmark rows and landmark ids differ");
+        }
+        int numberOfNodes = distances.getNumberOfNodes();
+        ByteOrder byteOrder = ByteOrder.nativeOrder();
+
+        Path target = Path.of(fileName).toAbsolutePath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+            header.putInt(MAGIC);
+            header.putShort(VERSION);
+            header.put(byteOrder == ByteOrder.BIG_ENDIAN ? ENCODING_INT32_BIG_ENDIAN : ENCODING_INT32_LITTLE_ENDIAN);
+            header.putInt(numberOfNodes);
+            header.putInt(landmarkNodeIDs.length);
+            header.putLong(graphChecksum);
+            header.position(HEADER_SIZE);
+            header.flip();
+            writeFully(channel, header);
+
+            ByteBuffer nodeIDs = ByteBuffer.allocate(4 * landmarkNodeIDs.length).order(ByteOrder.BIG_ENDIAN);
+            nodeIDs.asIntBuffer().put(landmarkNodeIDs);
+            writeFully(channel, nodeIDs);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(byteOrder);
+            for (int landmark = 0; landmark < landmarkNodeIDs.length; landmark++) {
+                IntBuffer row = distances.getRow(landmark);
+                for (int node = 0; node < numberOfNodes; ) {
+                    buffer.clear();
+                    int count = Math.min(numberOfNodes - node, buffer.capacity() / 4);
+                    row.limit(node + count).position(node);
+                    buffer.asIntBuffer().put(row);
+                    buffer.limit(4 * count);
+                    writeFully(channel, buffer);
+                    node += count;
+                }
+            }
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println(landmarkNodeIDs.length + " landmarks have been written to " + fileName);
+    }
+
+    /**
+     * Converts a landmark file of the previous serialization format into a landmark file. The old format has no
+     * graph checksum, so the file is assumed to belong to the current graph if it has distances for the same number
+     * of nodes. The old file is not changed.
+     *
+     * @param serFileName   The file in the previous serialization format.
+     * @param fileName      The landmark file to write.
+     * @param graphChecksum The checksum of the current graph.
+     * @param numberOfNodes The number of nodes of the current graph.
+     * @return True if the file was converted, false if it does not belong to the current graph.
+     * @throws IOException If the old file can not be read or the new file can not be written.
+     */
+    public static boolean convertSerializedFile(String serFileName, String fileName, long graphChecksum, int numberOfNodes) throws IOException {
+        LandmarkSerializer serializer;
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(serFileName)))) {
+            serializer = (LandmarkSerializer) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Not a landmark serialization file: " + serFileName, e);
+        }
+
+        int[][] distances = serializer.getDistanceOfLandmarkToEveryVertex();
+        int[] landmarkNodeIDs = serializer.getLandmarkNodeIDs();
+        if (distances == null || landmarkNodeIDs == null || distances.length != landmarkNodeIDs.length) {
+            throw new IOException("Corrupt landmark serialization file: " + serFileName);
+        }
+        for (int[] row : distances) {
+            if (row == null || row.length != numberOfNodes) {
+                System.out.println("Landmark file " + serFileName + " in the previous serialization format belongs to a different graph and is ignored");
+                return false;
+            }
+        }
+
+        write(fileName, LandmarkDistances.of(distances), landmarkNodeIDs, graphChecksum);
+        System.out.println("Converted landmark file " + serFileName + " in the previous serialization format to " + fileName);
+        return true;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static ByteOrder getByteOrder(byte encoding) throws IOException {
+        switch (encoding) {
+            case ENCODING_INT32_BIG_ENDIAN:
+                return ByteOrder.BIG_ENDIAN;
+            case ENCODING_INT32_LITTLE_ENDIAN:
+                return ByteOrder.LITTLE_ENDIAN;
+            default:
+                throw new IOException("Unsupported landmark encoding " + encoding);
+        }
+    }
+
+    /**
+     * @return The checksum of the graph the distances were calculated for.
+     */
+    public long getGraphChecksum() {
+        return graphChecksum;
+    }
+
+    /**
+     * @return For each landmark its node id.
+     */
+    public int[] getLandmarkNodeIDs() {
+        return landmarkNodeIDs;
+    }
+
+    /**
+     * @return The mapped distances.
+     */
+    public LandmarkDistances getDistances() {
+        return distances;
+    }
+}
@@ -0,0 +1,427 @@
+package de.fmi.searouter.landmarks;
+
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.utils.IntMinHeap;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Updates landmark distances after edge costs changed, instead of calculating them again with a
+ * {@link LandmarkInitializer}. Only the part of each distance row which the changed edges affect is searched again
+ * (a dynamic single source shortest path repair), the landmarks are repaired in parallel:
+ * <ol>
+ *     <li>Cost increases: a vertex whose shortest path from the landmark used an increased edge may get a longer
+ *     distance. Starting at the ends of such edges, the vertices are visited in the order of their old distance
+ *     and a vertex is affected if no unaffected neighbor still gives it the same distance. The affected vertices
+ *     are then searched again from their unaffected neighbors.</li>
+ *     <li>Cost decreases: a search with the new costs starts at the ends of the decreased edges whose new cost
+ *     gives a shorter distance.</li>
+ * </ol>
+ * Rows of landmarks which no change affects are shared with the old distances, changed rows are copied to the Java
+ * heap. As the graph is undirected and penalties touch both directions of an edge, the repaired distances are
+ * symmetric like the original ones.
+ * <p>
+ * When enabled (with {@code repairLandmarks=true} in {@link LandmarkSets#CONFIGURATION_FILE_NAME}), the landmarks
+ * of the current graph are repaired in the background after each update of the {@link EdgeCostOverlay}. The
+ * repaired landmarks only give valid bounds for the cost array they were repaired for (they may exceed the
+ * distances of lower costs), so routers ask {@link #forCosts(LandmarkSet, int[])} with the cost array of their
+ * query and use the plain landmarks until the repair for it is finished.
+ */
+public final class LandmarkRepair {
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private static final byte UNVISITED = 0;
+    private static final byte QUEUED = 1;
+    private static final byte KEPT = 2;
+    private static final byte AFFECTED = 3;
+
+    private static volatile boolean enabled = false;
+
+    /**
+     * The repaired landmarks of the current graph, null if none are available.
+     */
+    private static volatile RepairedLandmarks current;
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "landmark-repair");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        GraphSnapshotHolder.addSwapListener(() -> {
+            current = null;
+            scheduleUpdate();
+        });
+        EdgeCostOverlay.addUpdateListener(LandmarkRepair::scheduleUpdate);
+    }
+
+    private LandmarkRepair() {
+    }
+
+    /**
+     * Landmarks repaired for a cost array.
+     */
+    private static final class RepairedLandmarks {
+        private final LandmarkSet base;
+        private final int[] costs;
+        private final LandmarkSet repaired;
+
+        private RepairedLandmarks(LandmarkSet base, int[] costs, LandmarkSet repaired) {
+            this.base = base;
+            this.costs = costs;
+            this.repaired = repaired;
+        }
+    }
+
+    /**
+     * Arrays for repairing one row, reused for the following rows of the same repair. Workspaces are not kept
+     * between repairs, as the next repair may belong to a graph with more nodes.
+     */
+    private static final class Workspace {
+        private final byte[] state;
+        private final IntMinHeap heap;
+        private int[] visited = new int[64];
+        private int numberOfVisited;
+        private int[] affected = new int[64];
+        private int numberOfAffected;
+
+        private Workspace(int numberOfNodes) {
+            state = new byte[numberOfNodes];
+            heap = new IntMinHeap(numberOfNodes);
+        }
+
+        private void visit(int node, byte nodeState) {
+            if (state[node] == UNVISITED) {
+                if (numberOfVisited == visited.length) {
+                    visited = Arrays.copyOf(visited, 2 * visited.length);
+                }
+                visited[numberOfVisited++] = node;
+            }
+            state[node] = nodeState;
+        }
+
+        private void addAffected(int node) {
+            if (numberOfAffected == affected.length) {
+                affected = Arrays.copyOf(affected, 2 * affected.length);
+            }
+            affected[numberOfAffected++] = node;
+        }
+
+        private void reset() {
+            for (int i = 0; i < numberOfVisited; i++) {
+                state[visited[i]] = UNVISITED;
+            }
+            numberOfVisited = 0;
+            numberOfAffected = 0;
+        }
+    }
+
+    /**
+     * Returns the landmarks to use for a query.
+     *
+     * @param set   The landmark set of the query.
+     * @param costs The edge costs of the query, see {@link EdgeCostOverlay#getCurrentCosts()}.
+     * @return The landmarks of the set repaired for the costs if available, the set itself otherwise.
+     */
+    public static LandmarkSet forCosts(LandmarkSet set, int[] costs) {
+        RepairedLandmarks repaired = current;
+        if (repaired != null && repaired.base == set && repaired.costs == costs) {
+            return repaired.repaired;
+        }
+        return set;
+    }
+
+    private static void scheduleUpdate() {
+        if (enabled) {
+            executor.execute(LandmarkRepair::update);
+        }
+    }
+
+    /**
+     * Repairs the landmarks of the current graph for the current edge costs, starting from the last repair if it
+     * belongs to the same landmarks.
+     */
+    private static void update() {
+        GraphSnapshotHolder.pin();
+        try {
+            LandmarkSet base = Landmark.getLandmarkSet();
+            int[] costs = EdgeCostOverlay.getCurrentCosts();
+            if (!enabled || base == null || costs == Edge.getDistances()) {
+                // Without penalties the plain landmarks are exact
+                current = null;
+                return;
+            }
+
+            RepairedLandmarks previous = current;
+            if (previous != null && previous.base == base && previous.costs == costs) {
+                return;
+            }
+            LandmarkSet from = base;
+            int[] fromCosts = Edge.getDistances();
+            if (previous != null && previous.base == base) {
+                from = previous.repaired;
+                fromCosts = previous.costs;
+            }
+
+            LandmarkDistances distances = repair(from.getDistances(), fromCosts, costs);
+            current = new RepairedLandmarks(base, costs, new LandmarkSet(base, distances));
+        } catch (RuntimeException e) {
+            current = null;
+            e.printStackTrace();
+        } finally {
+            GraphSnapshotHolder.unpin();
+        }
+    }
+
+    /**
+     * Repairs landmark distances of the current graph after its edge costs changed.
+     *
+     * @param distances The distances of the landmarks for the old costs.
+     * @param oldCosts  The cost of each edge the distances were calculated for.
+     * @param newCosts  The new cost of each edge.
+     * @return The distances for the new costs. Rows which did not change are shared with the old distances.
+     */
+    public static LandmarkDistances repair(LandmarkDistances distances, int[] oldCosts, int[] newCosts) {
+        long startTime = System.nanoTime();
+        int[] increasedEdges = IntStream.range(0, newCosts.length).filter(edge -> newCosts[edge] > oldCosts[edge]).toArray();
+        int[] decreasedEdges = IntStream.range(0, newCosts.length).filter(edge -> newCosts[edge] < oldCosts[edge]).toArray();
+
+        // Costs with only the increases applied, used until the decreases are handled
+        int[] increasedCosts = oldCosts.clone();
+        for (int edge : increasedEdges) {
+            increasedCosts[edge] = newCosts[edge];
+        }
+
+        int numberOfLandmarks = distances.getNumberOfLandmarks();
+        IntBuffer[] rows = new IntBuffer[numberOfLandmarks];
+        AtomicInteger repairedRows = new AtomicInteger();
+        AtomicLong visitedNodes = new AtomicLong();
+        Queue<Workspace> workspaces = new ConcurrentLinkedQueue<>();
+        IntStream.range(0, numberOfLandmarks).parallel().forEach(landmark -> {
+            IntBuffer row = distances.getRow(landmark);
+            Workspace workspace = workspaces.poll();
+            if (workspace == null) {
+                workspace = new Workspace(distances.getNumberOfNodes());
+            }
+            int[] repairedRow = repairRow(row, oldCosts, increasedCosts, newCosts, increasedEdges, decreasedEdges, workspace);
+            if (repairedRow == null) {
+                rows[landmark] = row;
+            } else {
+                rows[landmark] = IntBuffer.wrap(repairedRow);
+                repairedRows.incrementAndGet();
+                visitedNodes.addAndGet(workspace.numberOfVisited);
+            }
+            workspace.reset();
+            workspaces.offer(workspace);
+        });
+
+        System.out.println("Repaired " + repairedRows.get() + " of " + numberOfLandmarks + " landmarks for "
+                + increasedEdges.length + " increased and " + decreasedEdges.length + " decreased edge costs in "
+                + (System.nanoTime() - startTime) / 1000000 + " ms (" + visitedNodes.get() + " nodes searched again)");
+        return new LandmarkDistances(rows, distances.getNumberOfNodes());
+    }
+
+    /**
+     * Repairs the distance row of one landmark.
+     *
+     * @return The repaired row or null if no change affects the row.
+     */
+    private static int[] repairRow(IntBuffer row, int[] oldCosts, int[] increasedCosts, int[] newCosts,
+                                   int[] increasedEdges, int[] decreasedEdges, Workspace workspace) {
+        if (!isAffected(row, oldCosts, newCosts, increasedEdges, decreasedEdges)) {
+            return null;
+        }
+        int[] distance = new int[row.capacity()];
+        row.duplicate().position(0).get(distance);
+
+        if (increasedEdges.length > 0) {
+            findAffectedNodes(distance, oldCosts, increasedCosts, increasedEdges, workspace);
+            searchAffectedNodes(distance, increasedCosts, workspace);
+        }
+
+        // Decreases can only shorten distances: search from the ends of the edges which now give a shorter distance
+        IntMinHeap heap = workspace.heap;
+        heap.resetState(distance);
+        for (int edge : decreasedEdges) {
+            int start = Edge.getStart(edge);
+            int dest = Edge.getDest(edge);
+            if (distance[start] != INFINITY && (long) distance[start] + newCosts[edge] < distance[dest]) {
+                distance[dest] = distance[start] + newCosts[edge];
+                workspace.visit(dest, QUEUED);
+                heap.add(dest);
+            }
+        }
+        search(distance, newCosts, workspace);
+        return distance;
+    }
+
+    /**
+     * Checks cheaply whether a row can change: an increased edge lies on a shortest path tree of the landmark, or
+     * a decreased edge gives a shorter distance.
+     */
+    private static boolean isAffected(IntBuffer row, int[] oldCosts, int[] newCosts, int[] increasedEdges, int[] decreasedEdges) {
+        for (int edge : increasedEdges) {
+            int startDistance = row.get(Edge.getStart(edge));
+            if (startDistance != INFINITY && (long) startDistance + oldCosts[edge] == row.get(Edge.getDest(edge))) {
+                return true;
+            }
+        }
+        for (int edge : decreasedEdges) {
+            int startDistance = row.get(Edge.getStart(edge));
+            if (startDistance != INFINITY && (long) startDistance + newCosts[edge] < row.get(Edge.getDest(edge))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Marks the nodes whose distance may grow because of the increased edges, in the order of their old distance.
+     * A node keeps its distance if an unaffected neighbor with a smaller distance still gives it with the
+     * increased costs.
+     */
+    private static void findAffectedNodes(int[] distance, int[] oldCosts, int[] increasedCosts, int[] increasedEdges, Workspace workspace) {
+        IntMinHeap heap = workspace.heap;
+        heap.resetState(distance);
+        int[] offset = Grid.offset;
+
+        for (int edge : increasedEdges) {
+            int start = Edge.getStart(edge);
+            int dest = Edge.getDest(edge);
+            if (distance[start] != INFINITY && (long) distance[start] + oldCosts[edge] == distance[dest]
+                    && workspace.state[dest] == UNVISITED) {
+                workspace.visit(dest, QUEUED);
+                heap.add(dest);
+            }
+        }
+
+        while (!heap.isEmpty()) {
+            int node = heap.getNext();
+            if (hasSupport(node, distance, increasedCosts, workspace)) {
+                workspace.visit(node, KEPT);
+                continue;
+            }
+            workspace.visit(node, AFFECTED);
+            workspace.addAffected(node);
+            for (int edge = offset[node]; edge < offset[node + 1]; edge++) {
+                int dest = Edge.getDest(edge);
+                if (workspace.state[dest] == UNVISITED && distance[dest] != INFINITY
+                        && (long) distance[node] + oldCosts[edge] == distance[dest]) {
+                    workspace.visit(dest, QUEUED);
+                    heap.add(dest);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Whether a neighbor which is not affected and closer to the landmark gives the node its distance
+     * with the increased costs.
+     */
+    private static boolean hasSupport(int node, int[] distance, int[] increasedCosts, Workspace workspace) {
+        int[] offset = Grid.offset;
+        for (int edge = offset[node]; edge < offset[node + 1]; edge++) {
+            int neighbor = Edge.getDest(edge);
+            byte neighborState = workspace.state[neighbor];
+            if ((neighborState != UNVISITED && neighborState != KEPT) || distance[neighbor] >= distance[node]) {
+                continue;
+            }
+            int reverseEdge = getReverseEdge(neighbor, node);
+            if (reverseEdge >= 0 && (long) distance[neighbor] + increasedCosts[reverseEdge] == distance[node]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The id of the edge from start to dest, -1 if there is none.
+     */
+    private static int getReverseEdge(int start, int dest) {
+        int[] offset = Grid.offset;
+        for (int edge = offset[start]; edge < offset[start + 1]; edge++) {
+            if (Edge.getDest(edge) == dest) {
+                return edge;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Calculates the distances of the affected nodes again, starting from their unaffected neighbors.
+     */
+    private static void searchAffectedNodes(int[] distance, int[] increasedCosts, Workspace workspace) {
+        for (int i = 0; i < workspace.numberOfAffected; i++) {
+            distance[workspace.affected[i]] = INFINITY;
+        }
+
+        IntMinHeap heap = workspace.heap;
+        heap.resetState(distance);
+        int[] offset = Grid.offset;
+        for (int i = 0; i < workspace.numberOfAffected; i++) {
+            int node = workspace.affected[i];
+            long best = INFINITY;
+            for (int edge = offset[node]; edge < offset[node + 1]; edge++) {
+                int neighbor = Edge.getDest(edge);
+                int reverseEdge = getReverseEdge(neighbor, node);
+                if (reverseEdge >= 0 && distance[neighbor] != INFINITY) {
+                    best = Math.min(best, (long) distance[neighbor] + increasedCosts[reverseEdge]);
+                }
+            }
+            if (best < INFINITY) {
+                distance[node] = (int) best;
+                heap.add(node);
+            }
+        }
+        search(distance, increasedCosts, workspace);
+    }
+
+    /**
+     * Dijkstra search from the nodes on the heap, lowering the distances of all nodes it reaches with shorter
+     * distances.
+     */
+    private static void search(int[] distance, int[] costs, Workspace workspace) {
+        IntMinHeap heap = workspace.heap;
+        int[] offset = Grid.offset;
+        while (!heap.isEmpty()) {
+            int node = heap.getNext();
+            for (int edge = offset[node]; edge < offset[node + 1]; edge++) {
+                int dest = Edge.getDest(edge);
+                long newDistance = (long) distance[node] + costs[edge];
+                if (newDistance < distance[dest]) {
+                    distance[dest] = (int) newDistance;
+                    workspace.visit(dest, QUEUED);
+                    heap.add(dest);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param enable True to repair the landmarks of the current graph after each update of the edge costs.
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+        scheduleUpdate();
+    }
+
+    /**
+     * @return Whether the landmarks are repaired after updates of the edge costs.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+}
@@ -3,25 +3,28 @@ package de.fmi.searouter.landmarks;
 import java.io.Serializable;
 
 /**
- * Enables a serialization mechanism for already pre-calculated landmarks that were serialized
- * on disk.
+ * Serialized landmarks of the previous landmark file format, which had no graph checksum. Only used to convert
+ * such files once into a {@link LandmarkFile}. The serialVersionUID is the one Java calculated for the former
+ * public class, so that the old files can still be read.
  */
-public class LandmarkSerializer implements Serializable {
+final class LandmarkSerializer implements Serializable {
 
-    public  int[][] distanceOfLandmarkToEveryVertex;
+    private static final long serialVersionUID = -6624640757580128452L;
 
-    public  int[] landmarkNodeIDs;
+    private int[][] distanceOfLandmarkToEveryVertex;
 
-    public LandmarkSerializer(int[][] distanceOfLandmarkToEveryVertex, int[] landmarkNodeIDs) {
+    private int[] landmarkNodeIDs;
+
+    LandmarkSerializer(int[][] distanceOfLandmarkToEveryVertex, int[] landmarkNodeIDs) {
         this.distanceOfLandmarkToEveryVertex = distanceOfLandmarkToEveryVertex;
         this.landmarkNodeIDs = landmarkNodeIDs;
     }
 
-    public int[][] getDistanceOfLandmarkToEveryVertex() {
+    int[][] getDistanceOfLandmarkToEveryVertex() {
         return distanceOfLandmarkToEveryVertex;
     }
 
-    public int[] getLandmarkNodeIDs() {
+    int[] getLandmarkNodeIDs() {
         return landmarkNodeIDs;
     }
 }
@@ -0,0 +1,180 @@
+package de.fmi.searouter.landmarks;
+
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import de.fmi.searouter.dijkstragrid.Node;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+
+/**
+ * One set of landmarks of the current graph: the landmarks of a {@link LandmarkDistributionMode} with their
+ * distances to all vertices. Several sets can be used side by side (see {@link LandmarkSets}), the routers get the
+ * set of a query passed instead of reading the landmarks of {@link Landmark}.
+ * <p>
+ * A set is immutable, so it can be used by concurrent queries. Sets repaired for penalized edge costs (see
+ * {@link LandmarkRepair}) are new sets that keep a reference to the set they were repaired from.
+ */
+public final class LandmarkSet {
+
+    private final LandmarkDistributionMode mode;
+    private final LandmarkDistances distances;
+    private final int[] landmarkNodeIDs;
+    private final LandmarkSet base;
+
+    /**
+     * @param mode            The distribution mode the landmarks were selected with, null if unknown.
+     * @param distances       For each landmark the distances to all vertices.
+     * @param landmarkNodeIDs For each landmark its vertex ID as defined in {@link Node}.
+     */
+    public LandmarkSet(LandmarkDistributionMode mode, LandmarkDistances distances, int[] landmarkNodeIDs) {
+        if (distances.getNumberOfLandmarks() != landmarkNodeIDs.length) {
+            throw new IllegalArgumentException("Number of landmark rows and landmark ids differ");
+        }
+        this.mode = mode;
+        this.distances = distances;
+        this.landmarkNodeIDs = landmarkNodeIDs;
+        this.base = this;
+    }
+
+    /**
+     * Creates the same landmarks with distances repaired for other edge costs.
+     *
+     * @param base      The set the distances were repaired from.
+     * @param distances For each landmark of the base set the repaired distances to all vertices.
+     */
+    LandmarkSet(LandmarkSet base, LandmarkDistances distances) {
+        if (distances.getNumberOfLandmarks() != base.getSize()) {
+            throw new IllegalArgumentException("Number of landmark rows and landmark ids differ");
+        }
+        this.mode = base.mode;
+        this.distances = distances;
+        this.landmarkNodeIDs = base.landmarkNodeIDs;
+        this.base = base.base;
+    }
+
+    /**
+     * Maps the landmark file of a distribution mode if it belongs to the current graph. Otherwise the landmarks
+     * are calculated and the file is (over)written first, if calculating is allowed. If there is no landmark file
+     * yet, but a file of the previous serialization format, that file is converted first.
+     *
+     * @param mode      The distribution mode.
+     * @param calculate Whether the landmarks may be calculated if there is no file for the current graph.
+     * @return The landmarks of the mode.
+     * @throws IOException If the file can not be written or mapped, or does not belong to the current graph and
+     *                     the landmarks may not (or, for {@link LandmarkDistributionMode#TUNED}, can not) be calculated.
+     */
+    public static LandmarkSet load(LandmarkDistributionMode mode, boolean calculate) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException, IOException {
+        String fileName = mode.getLandmarkFileName();
+        long checksum = GraphSnapshotHolder.getCurrentChecksum();
+
+        if (!new File(fileName).exists() && new File(mode.getSerFileName()).exists()) {
+            try {
+                LandmarkFile.convertSerializedFile(mode.getSerFileName(), fileName, checksum, Node.getSize());
+            } catch (IOException ex) {
+                System.out.println("Landmark file " + mode.getSerFileName() + " in the previous serialization format can not be converted");
+                ex.printStackTrace();
+            }
+        }
+
+        LandmarkFile landmarkFile = null;
+        if (new File(fileName).exists()) {
+            try {
+                landmarkFile = LandmarkFile.load(fileName);
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+        if (landmarkFile == null || landmarkFile.getGraphChecksum() != checksum
+                || landmarkFile.getDistances().getNumberOfNodes() != Node.getSize()) {
+            if (mode.getInitializerClass() == null) {
+                throw new IOException("No landmark file " + fileName + " for the current graph, it has to be created by the LandmarkTuner");
+            }
+            if (!calculate) {
+                throw new IOException("No landmark file " + fileName + " for the current graph");
+            }
+            System.out.println("Started initializing landmarks. This might take a while!");
+            LandmarkInitializer initializer = mode.getInitializerClass().getConstructor().newInstance();
+            LandmarkFile.write(fileName, LandmarkDistances.of(initializer.getDistanceOfLandmarkToEveryVertex()), initializer.getLandmarkNodeIDs(), checksum);
+            landmarkFile = LandmarkFile.load(fileName);
+        }
+
+        System.out.println("Mapped " + landmarkFile.getLandmarkNodeIDs().length + " landmarks from " + fileName);
+        return new LandmarkSet(mode, landmarkFile.getDistances(), landmarkFile.getLandmarkNodeIDs());
+    }
+
+    /**
+     * Selects the landmarks giving the best lower bounds on the distance between the start and the destination
+     * vertex of a query. For the landmarks installed in {@link Landmark}, the {@link RegionLandmarkTable} is used
+     * if it is enabled and covers the two vertices.
+     *
+     * @param maxNumberOfLandmarks The number of landmarks to select.
+     * @param startNode            The ID of the start vertex
+     * @param destinationNode      The ID of the destination vertex
+     * @return The indices of the selected landmarks, best first.
+     */
+    public int[] selectLandmarksForQuery(int maxNumberOfLandmarks, int startNode, int destinationNode) {
+        if (distances == Landmark.distanceOfLandmarkToEveryVertex) {
+            int[] regionLandmarks = Landmark.getRegionLandmarks(startNode, destinationNode);
+            if (regionLandmarks != null) {
+                return Arrays.copyOf(regionLandmarks, Math.min(maxNumberOfLandmarks, regionLandmarks.length));
+            }
+        }
+
+        int numberOfLandmarks = landmarkNodeIDs.length;
+        int[] bound = new int[numberOfLandmarks];
+        for (int landmark = 0; landmark < numberOfLandmarks; landmark++) {
+            bound[landmark] = Math.abs(distances.get(landmark, startNode) - distances.get(landmark, destinationNode));
+        }
+
+        int[] selected = new int[Math.min(maxNumberOfLandmarks, numberOfLandmarks)];
+        for (int i = 0; i < selected.length; i++) {
+            int bestLandmark = 0;
+            for (int landmark = 1; landmark < numberOfLandmarks; landmark++) {
+                if (bound[landmark] > bound[bestLandmark]) {
+                    bestLandmark = landmark;
+                }
+            }
+            selected[i] = bestLandmark;
+            bound[bestLandmark] = -1;
+        }
+        return selected;
+    }
+
+    /**
+     * @return The distribution mode the landmarks were selected with, null if unknown.
+     */
+    public LandmarkDistributionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return For each landmark the distances to all vertices.
+     */
+    public LandmarkDistances getDistances() {
+        return distances;
+    }
+
+    /**
+     * @return For each landmark its vertex ID. The array must not be modified.
+     */
+    public int[] getLandmarkNodeIDs() {
+        return landmarkNodeIDs;
+    }
+
+    /**
+     * @return The set this set was repaired from (see {@link LandmarkRepair}), the set itself if it was not
+     * repaired.
+     */
+    public LandmarkSet getBase() {
+        return base;
+    }
+
+    /**
+     * @return The number of landmarks of the set.
+     */
+    public int getSize() {
+        return landmarkNodeIDs.length;
+    }
+}
@@ -0,0 +1,232 @@
+package de.fmi.searouter.landmarks;
+
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.utils.IntersectionHelper;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The landmark sets available for routing queries, configured at runtime in {@link #CONFIGURATION_FILE_NAME}
+ * instead of being fixed at compile time. Each set belongs to a {@link LandmarkDistributionMode}:
+ * <ul>
+ *     <li>The default set is installed in {@link Landmark} (and in the graph snapshot) and used by all queries
+ *     which do not ask for another set. It is calculated at startup if its file does not exist.</li>
+ *     <li>The additional sets are mapped (see {@link LandmarkFile}) next to the default set at startup and
+ *     calculated if needed. They only cost memory for the distance rows which queries actually read.</li>
+ *     <li>Lazy sets are only mapped when a query asks for them for the first time, they are never calculated
+ *     at runtime, so their file has to exist for the current graph.</li>
+ * </ul>
+ * A query can name a set or ask for {@link #AUTO}, which chooses the set by the great-circle distance between the
+ * start and the destination: landmarks close to the coast help short hops along the coast, landmarks spread over
+ * the oceans help long crossings.
+ * <p>
+ * After a graph reload the additional sets are mapped again on their next use, as only the default set is part of
+ * the graph snapshot.
+ */
+public final class LandmarkSets {
+
+    /**
+     * The name of the configuration file (in the working directory). All entries are optional:
+     * <ul>
+     *     <li>enabled: whether landmarks are initialized at all (default true)</li>
+     *     <li>defaultSet: the distribution mode of the default set (default EQUAL_SPHERE)</li>
+     *     <li>sets: comma separated distribution modes loaded at startup in addition to the default set</li>
+     *     <li>lazySets: comma separated distribution modes mapped on first use</li>
+     *     <li>autoShortSet, autoLongSet: the sets {@link #AUTO} chooses for short and long queries (default: the
+     *     default set)</li>
+     *     <li>autoDistanceThreshold: great-circle distance in meters from which a query is long (default 1000000)</li>
+     *     <li>useRegionLandmarkTable: whether the default set uses a {@link RegionLandmarkTable} (default false)</li>
+     *     <li>telemetry: whether the queries of the ALT routers are recorded by {@link LandmarkTelemetry} (default false)</li>
+     *     <li>repairLandmarks: whether the default set is repaired by {@link LandmarkRepair} after penalty updates (default false)</li>
+     *     <li>activeLandmarks: the maximum number of landmarks the ALT routers use per query (default 5)</li>
+     * </ul>
+     */
+    public static final String CONFIGURATION_FILE_NAME = "landmarks.properties";
+
+    /**
+     * Name which lets {@link #choose(String, int, int)} choose the set by the geometry of the query.
+     */
+    public static final String AUTO = "auto";
+
+    private static boolean enabled = true;
+    private static LandmarkDistributionMode defaultMode = LandmarkDistributionMode.EQUAL_SPHERE;
+    private static EnumSet<LandmarkDistributionMode> eagerModes = EnumSet.noneOf(LandmarkDistributionMode.class);
+    private static EnumSet<LandmarkDistributionMode> lazyModes = EnumSet.noneOf(LandmarkDistributionMode.class);
+    private static LandmarkDistributionMode autoShortMode;
+    private static LandmarkDistributionMode autoLongMode;
+    private static double autoDistanceThreshold = 1000000;
+    private static boolean useRegionLandmarkTable = false;
+    private static int activeLandmarks = 5;
+
+    /**
+     * The mapped additional and lazy sets of the current graph.
+     */
+    private static final Map<LandmarkDistributionMode, LandmarkSet> loadedSets = new EnumMap<>(LandmarkDistributionMode.class);
+
+    static {
+        GraphSnapshotHolder.addSwapListener(LandmarkSets::clearLoadedSets);
+    }
+
+    private LandmarkSets() {
+    }
+
+    /**
+     * Reads the configuration file. Entries missing in the file (or a missing file) keep their defaults.
+     *
+     * @param fileName The configuration file.
+     * @throws IOException If the file exists but can not be read.
+     * @throws IllegalArgumentException If the file names an unknown distribution mode or an invalid number of
+     *                                  active landmarks.
+     */
+    public static synchronized void loadConfiguration(String fileName) throws IOException {
+        File file = new File(fileName);
+        if (!file.exists()) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = new BufferedReader(new FileReader(file))) {
+            properties.load(reader);
+        }
+
+        enabled = Boolean.parseBoolean(properties.getProperty("enabled", String.valueOf(enabled)));
+        defaultMode = parseMode(properties.getProperty("defaultSet", defaultMode.name()));
+        eagerModes = parseModes(properties.getProperty("sets", ""));
+        lazyModes = parseModes(properties.getProperty("lazySets", ""));
+        if (properties.getProperty("autoShortSet") != null) {
+            autoShortMode = parseMode(properties.getProperty("autoShortSet"));
+        }
+        if (properties.getProperty("autoLongSet") != null) {
+            autoLongMode = parseMode(properties.getProperty("autoLongSet"));
+        }
+        autoDistanceThreshold = Double.parseDouble(properties.getProperty("autoDistanceThreshold", String.valueOf(autoDistanceThreshold)));
+        useRegionLandmarkTable = Boolean.parseBoolean(properties.getProperty("useRegionLandmarkTable", String.valueOf(useRegionLandmarkTable)));
+        LandmarkTelemetry.setEnabled(Boolean.parseBoolean(properties.getProperty("telemetry", String.valueOf(LandmarkTelemetry.isEnabled()))));
+        LandmarkRepair.setEnabled(Boolean.parseBoolean(properties.getProperty("repairLandmarks", String.valueOf(LandmarkRepair.isEnabled()))));
+        int configuredActiveLandmarks = Integer.parseInt(properties.getProperty("activeLandmarks", String.valueOf(activeLandmarks)).trim());
+        if (configuredActiveLandmarks < 1) {
+            throw new IllegalArgumentException("activeLandmarks must be at least 1: " + configuredActiveLandmarks);
+        }
+        activeLandmarks = configuredActiveLandmarks;
+        System.out.println("Landmark sets: default " + defaultMode + ", additional " + eagerModes + ", lazy " + lazyModes
+                + ", " + activeLandmarks + " active landmarks");
+    }
+
+    private static LandmarkDistributionMode parseMode(String name) {
+        return LandmarkDistributionMode.valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    private static EnumSet<LandmarkDistributionMode> parseModes(String names) {
+        EnumSet<LandmarkDistributionMode> modes = EnumSet.noneOf(LandmarkDistributionMode.class);
+        for (String name : names.split(",")) {
+            if (!name.trim().isEmpty()) {
+                modes.add(parseMode(name));
+            }
+        }
+        return modes;
+    }
+
+    /**
+     * Maps (or calculates) the additional sets of the configuration for the current graph. The default set is
+     * initialized through {@link Landmark#initLandmarks(LandmarkDistributionMode)}.
+     */
+    public static synchronized void loadAdditionalSets() throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException, IOException {
+        for (LandmarkDistributionMode mode : eagerModes) {
+            if (mode != defaultMode && !loadedSets.containsKey(mode)) {
+                loadedSets.put(mode, LandmarkSet.load(mode, true));
+            }
+        }
+    }
+
+    /**
+     * Returns the landmark set of a distribution mode, mapping it if it is configured but not mapped yet.
+     *
+     * @param mode The distribution mode.
+     * @return The set or null if the mode is not configured or its file does not belong to the current graph.
+     */
+    public static synchronized LandmarkSet get(LandmarkDistributionMode mode) {
+        if (mode == defaultMode) {
+            return Landmark.getLandmarkSet();
+        }
+        LandmarkSet set = loadedSets.get(mode);
+        if (set == null && (eagerModes.contains(mode) || lazyModes.contains(mode))) {
+            try {
+                set = LandmarkSet.load(mode, false);
+                loadedSets.put(mode, set);
+            } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | InstantiationException | IOException e) {
+                System.out.println("Landmark set " + mode + " is not available: " + e.getMessage());
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Chooses the landmark set of a query.
+     *
+     * @param name            The name of a distribution mode (case insensitive), {@link #AUTO}, or null or empty
+     *                        for the default set.
+     * @param startNode       The ID of the start vertex
+     * @param destinationNode The ID of the destination vertex
+     * @return The set or null if the named set is not available.
+     * @throws IllegalArgumentException If the name is neither a distribution mode nor {@link #AUTO}.
+     */
+    public static LandmarkSet choose(String name, int startNode, int destinationNode) {
+        if (name == null || name.trim().isEmpty()) {
+            return Landmark.getLandmarkSet();
+        }
+        if (AUTO.equalsIgnoreCase(name.trim())) {
+            return chooseByGeometry(startNode, destinationNode);
+        }
+        return get(parseMode(name));
+    }
+
+    /**
+     * Chooses the set for short or long queries by the great-circle distance between start and destination.
+     * Falls back to the default set if the chosen set is not available.
+     */
+    private static LandmarkSet chooseByGeometry(int startNode, int destinationNode) {
+        double distance = IntersectionHelper.getDistance(Node.getLatitude(startNode), Node.getLongitude(startNode),
+                Node.getLatitude(destinationNode), Node.getLongitude(destinationNode));
+        LandmarkDistributionMode mode = distance < autoDistanceThreshold ? autoShortMode : autoLongMode;
+        LandmarkSet set = mode == null ? null : get(mode);
+        return set != null ? set : Landmark.getLandmarkSet();
+    }
+
+    private static synchronized void clearLoadedSets() {
+        loadedSets.clear();
+    }
+
+    /**
+     * @return Whether landmarks are initialized at all.
+     */
+    public static synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return The distribution mode of the default set.
+     */
+    public static synchronized LandmarkDistributionMode getDefaultMode() {
+        return defaultMode;
+    }
+
+    /**
+     * @return The maximum number of landmarks the ALT routers use per query, unless it is set on the router.
+     */
+    public static synchronized int getActiveLandmarks() {
+        return activeLandmarks;
+    }
+
+    /**
+     * @return Whether the default set uses a {@link RegionLandmarkTable}.
+     */
+    public static synchronized boolean isRegionLandmarkTableUsed() {
+        return useRegionLandmarkTable;
+    }
+}
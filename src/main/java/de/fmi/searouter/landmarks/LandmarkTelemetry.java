@@ -0,0 +1,216 @@
+package de.fmi.searouter.landmarks;
+
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import de.fmi.searouter.dijkstragrid.GridNode;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.router.RoutingResult;
+import de.fmi.searouter.utils.GeoJsonConverter;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional telemetry about the landmarks used by the ALT routers. For each query with a route it records which of
+ * the landmarks the router selected for the query (at the end of the query, with adaptive landmark activation)
+ * gives the best lower bound between start and destination, and the ratio of that bound to the real distance
+ * (1 is a perfect bound). It also counts the queries for which an unselected landmark of the set would have given a
+ * better bound, which shows a poor selection at query time. This costs one pass over the landmarks per query, not
+ * per settled node.
+ * <p>
+ * The counters are {@link LongAdder}s, which spread concurrent increments over several cells, so parallel queries
+ * do not contend on them. Queries with a set repaired for penalized costs are counted for the set it was repaired
+ * from (see {@link LandmarkSet#getBase()}), so repairs do not add counters. The counters of a landmark set are
+ * dropped when the graph is replaced.
+ * <p>
+ * The telemetry is off by default and enabled with {@code telemetry=true} in {@link LandmarkSets#CONFIGURATION_FILE_NAME}
+ * or {@link #setEnabled(boolean)}. While it is off, recording a query only reads a volatile flag.
+ */
+public final class LandmarkTelemetry {
+
+    /**
+     * The number of buckets the bound ratios are counted in, each covering an equal part of [0, 1].
+     */
+    public static final int RATIO_BUCKETS = 10;
+
+    private static volatile boolean enabled = false;
+
+    private static final Map<LandmarkSet, SetCounters> countersOfSet = new ConcurrentHashMap<>();
+
+    static {
+        GraphSnapshotHolder.addSwapListener(LandmarkTelemetry::reset);
+    }
+
+    private LandmarkTelemetry() {
+    }
+
+    /**
+     * The counters of one landmark set.
+     */
+    private static final class SetCounters {
+        private final LongAdder[] bestBoundOfLandmark;
+        private final LongAdder queries = new LongAdder();
+        private final LongAdder inadmissibleQueries = new LongAdder();
+        private final LongAdder betterLandmarkNotSelectedQueries = new LongAdder();
+        private final DoubleAdder ratioSum = new DoubleAdder();
+        private final LongAdder[] ratioHistogram = new LongAdder[RATIO_BUCKETS];
+
+        private SetCounters(int numberOfLandmarks) {
+            bestBoundOfLandmark = new LongAdder[numberOfLandmarks];
+            for (int i = 0; i < numberOfLandmarks; i++) {
+                bestBoundOfLandmark[i] = new LongAdder();
+            }
+            for (int i = 0; i < RATIO_BUCKETS; i++) {
+                ratioHistogram[i] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * Records a finished query if the telemetry is enabled.
+     *
+     * @param set                    The landmark set the query used, its bounds are evaluated with its own distances.
+     * @param queryLandmarks         The indices of the landmarks the router selected in the set.
+     * @param numberOfQueryLandmarks The number of selected landmarks (the first entries of queryLandmarks).
+     * @param startNode              The ID of the start vertex
+     * @param destinationNode        The ID of the destination vertex
+     * @param result                 The result of the query, only queries with a route are recorded.
+     */
+    public static void recordQuery(LandmarkSet set, int[] queryLandmarks, int numberOfQueryLandmarks,
+                                   int startNode, int destinationNode, RoutingResult result) {
+        if (!enabled || set == null || numberOfQueryLandmarks == 0 || !result.isRouteFound() || result.getOverallDistance() <= 0) {
+            return;
+        }
+
+        LandmarkDistances distances = set.getDistances();
+        int bestLandmark = -1;
+        int bestBound = -1;
+        for (int i = 0; i < numberOfQueryLandmarks; i++) {
+            int bound = getBound(distances, queryLandmarks[i], startNode, destinationNode);
+            if (bound > bestBound) {
+                bestBound = bound;
+                bestLandmark = queryLandmarks[i];
+            }
+        }
+        boolean betterLandmarkNotSelected = false;
+        for (int landmark = 0; landmark < set.getSize() && !betterLandmarkNotSelected; landmark++) {
+            betterLandmarkNotSelected = getBound(distances, landmark, startNode, destinationNode) > bestBound;
+        }
+
+        double ratio = (double) bestBound / result.getOverallDistance();
+        SetCounters counters = countersOfSet.computeIfAbsent(set.getBase(), key -> new SetCounters(key.getSize()));
+        counters.bestBoundOfLandmark[bestLandmark].increment();
+        counters.queries.increment();
+        counters.ratioSum.add(ratio);
+        counters.ratioHistogram[Math.min(RATIO_BUCKETS - 1, (int) (ratio * RATIO_BUCKETS))].increment();
+        if (ratio > 1) {
+            counters.inadmissibleQueries.increment();
+        }
+        if (betterLandmarkNotSelected) {
+            counters.betterLandmarkNotSelectedQueries.increment();
+        }
+    }
+
+    private static int getBound(LandmarkDistances distances, int landmark, int startNode, int destinationNode) {
+        return Math.abs(distances.get(landmark, startNode) - distances.get(landmark, destinationNode));
+    }
+
+    /**
+     * @param set The landmark set.
+     * @return For each landmark of the set the number of recorded queries it gave the best bound of the selected
+     * landmarks for.
+     */
+    public static long[] getBestBoundCounts(LandmarkSet set) {
+        long[] counts = new long[set.getSize()];
+        SetCounters counters = countersOfSet.get(set.getBase());
+        if (counters != null) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = counters.bestBoundOfLandmark[i].sum();
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Summarizes the counters of a landmark set.
+     *
+     * @param set The landmark set.
+     * @return The number of recorded queries, the average and histogram of the bound ratios, the number of queries
+     * whose bound exceeded the real distance (which indicates outdated landmark distances), the number of queries
+     * for which an unselected landmark would have given a better bound and the
+     * {@link #getBestBoundCounts(LandmarkSet) best bound counts}.
+     */
+    public static Map<String, Object> getReport(LandmarkSet set) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        SetCounters counters = countersOfSet.get(set.getBase());
+        long queries = counters == null ? 0 : counters.queries.sum();
+        long[] histogram = new long[RATIO_BUCKETS];
+        if (counters != null) {
+            for (int i = 0; i < RATIO_BUCKETS; i++) {
+                histogram[i] = counters.ratioHistogram[i].sum();
+            }
+        }
+        report.put("enabled", enabled);
+        report.put("mode", set.getMode());
+        report.put("queries", queries);
+        report.put("averageBoundRatio", queries == 0 ? 0 : counters.ratioSum.sum() / queries);
+        report.put("boundRatioHistogram", histogram);
+        report.put("inadmissibleQueries", counters == null ? 0 : counters.inadmissibleQueries.sum());
+        report.put("betterLandmarkNotSelectedQueries", counters == null ? 0 : counters.betterLandmarkNotSelectedQueries.sum());
+        report.put("bestBoundCounts", getBestBoundCounts(set));
+        return report;
+    }
+
+    /**
+     * Exports the landmarks of a set to a GeoJSON file, colored by how often they gave the best bound (like
+     * {@link Landmark#toGeoJSON()}).
+     *
+     * @param set      The landmark set.
+     * @param fileName The GeoJSON file.
+     * @throws IOException If something with writing to the export file fails.
+     */
+    public static void toGeoJSON(LandmarkSet set, String fileName) throws IOException {
+        long[] counts = getBestBoundCounts(set);
+        long maxCount = Math.max(1, Arrays.stream(counts).max().orElse(1));
+        int[] nodeIDs = set.getLandmarkNodeIDs();
+
+        List<GridNode> nodes = new ArrayList<>();
+        List<String> colorHexs = new ArrayList<>();
+        List<String> addProps = new ArrayList<>();
+        for (int i = 0; i < nodeIDs.length; i++) {
+            nodes.add(new GridNode(Node.getLatitude(nodeIDs[i]), Node.getLongitude(nodeIDs[i])));
+            colorHexs.add(Landmark.getHeatmapColorForCSS((int) (1000 * counts[i] / maxCount), 1000, 0));
+            addProps.add(Long.toString(counts[i]));
+        }
+
+        JSONObject json = GeoJsonConverter.osmNodesToGeoJSON(nodes, colorHexs, addProps);
+        Files.writeString(Path.of(fileName), json.toString(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Drops all counters.
+     */
+    public static void reset() {
+        countersOfSet.clear();
+    }
+
+    /**
+     * @param enable True to record the queries of the ALT routers.
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    /**
+     * @return Whether the queries of the ALT routers are recorded.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+}
@@ -0,0 +1,270 @@
+package de.fmi.searouter.landmarks;
+
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.partition.GraphPartition;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed landmark selection for pairs of coarse regions. The regions are the cells of the
+ * {@link GraphPartition} on depth {@link #REGION_DEPTH}. For every pair of different regions the table stores up to
+ * {@link #LANDMARKS_PER_REGION_PAIR} landmarks, chosen offline on {@link #SAMPLES_PER_REGION_PAIR} sampled queries
+ * between the two regions: greedily, each next landmark is the one that raises the summed bound of the selected
+ * landmarks on the samples the most (each sample weighted by the best bound any landmark gives for it). A query
+ * then takes its landmarks from the table with one lookup instead of calculating the bounds of all landmarks.
+ * <p>
+ * Pairs within the same region are not covered, as the best landmarks of short queries depend on their exact
+ * position; such queries (and all queries if no table is available) use the selection over all landmarks.
+ * <p>
+ * The table belongs to a graph and a set of landmarks. The table of the current graph and landmarks is available
+ * through {@link #getInstance()}, which loads it from a serialization file or calculates and stores it if no file
+ * for the current graph and landmarks exists.
+ */
+public final class RegionLandmarkTable implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The name of the serialization file which is created for storing the table.
+     */
+    private static final String REGION_LANDMARKS_SERIALIZATION_FILE_NAME = "regionLandmarks.ser";
+
+    /**
+     * The depth of the {@link GraphPartition} whose cells are the regions (2^depth regions).
+     */
+    public static final int REGION_DEPTH = 6;
+
+    /**
+     * The maximum number of landmarks stored per region pair, in the order of selection.
+     */
+    public static final int LANDMARKS_PER_REGION_PAIR = 16;
+
+    /**
+     * The number of sampled queries per region pair the landmarks are chosen on.
+     */
+    public static final int SAMPLES_PER_REGION_PAIR = 32;
+
+    private static volatile RegionLandmarkTable INSTANCE;
+
+    private final int numberOfRegions;
+
+    /**
+     * For each pair of regions (index firstRegion * numberOfRegions + secondRegion) the indices of the selected
+     * landmarks (as in {@link Landmark#landmarkNodeIDs}), null if the pair is not covered. Pairs in opposite
+     * directions share their entry, as the landmark bounds are symmetric.
+     */
+    private final int[][] landmarksOfRegionPair;
+
+    /**
+     * Checksum of the graph the table was calculated for.
+     */
+    private final long graphChecksum;
+
+    /**
+     * The node ids of the landmarks the table was calculated for.
+     */
+    private final int[] landmarkNodeIDs;
+
+    /**
+     * The landmark node ids currently in use (as in {@link Landmark#landmarkNodeIDs}) when the table was checked
+     * against them, so that a query only has to compare references.
+     */
+    private transient int[] checkedLandmarkNodeIDs;
+
+    private transient GraphPartition partition;
+
+    private RegionLandmarkTable(int numberOfRegions, int[][] landmarksOfRegionPair, int[] landmarkNodeIDs) {
+        this.numberOfRegions = numberOfRegions;
+        this.landmarksOfRegionPair = landmarksOfRegionPair;
+        this.landmarkNodeIDs = landmarkNodeIDs;
+        this.graphChecksum = GraphSnapshotHolder.getCurrentChecksum();
+    }
+
+    /**
+     * Returns the table of the current graph and landmarks. It is read from the serialization file if that file
+     * belongs to the current graph and landmarks, otherwise it is calculated and the file is (over)written.
+     *
+     * @return The table, null if no landmarks are initialized.
+     */
+    public static RegionLandmarkTable getInstance() {
+        RegionLandmarkTable table = INSTANCE;
+        if (table != null && table.checkedLandmarkNodeIDs == Landmark.landmarkNodeIDs
+                && table.graphChecksum == GraphSnapshotHolder.getCurrentChecksum()) {
+            return table;
+        }
+        return loadOrCalculate();
+    }
+
+    private static synchronized RegionLandmarkTable loadOrCalculate() {
+        int[] currentLandmarkNodeIDs = Landmark.landmarkNodeIDs;
+        if (currentLandmarkNodeIDs == null) {
+            return null;
+        }
+        long checksum = GraphSnapshotHolder.getCurrentChecksum();
+        RegionLandmarkTable table = INSTANCE;
+        if (table == null || !table.belongsTo(checksum, currentLandmarkNodeIDs)) {
+            table = readData(REGION_LANDMARKS_SERIALIZATION_FILE_NAME);
+            if (table == null || !table.belongsTo(checksum, currentLandmarkNodeIDs)) {
+                System.out.println("Started calculating the region landmark table. This might take a while!");
+                table = calculate(GraphPartition.getInstance(), Landmark.distanceOfLandmarkToEveryVertex, currentLandmarkNodeIDs);
+                table.storeData(REGION_LANDMARKS_SERIALIZATION_FILE_NAME);
+            }
+        }
+
+        table.partition = GraphPartition.getInstance();
+        table.checkedLandmarkNodeIDs = currentLandmarkNodeIDs;
+        INSTANCE = table;
+        return table;
+    }
+
+    private boolean belongsTo(long checksum, int[] currentLandmarkNodeIDs) {
+        return graphChecksum == checksum && Arrays.equals(landmarkNodeIDs, currentLandmarkNodeIDs);
+    }
+
+    /**
+     * Calculates the table for a set of landmarks on the current graph.
+     *
+     * @param partition       The partition of the current graph, its cells on depth {@link #REGION_DEPTH} are the regions.
+     * @param distances       For each landmark the distances to all vertices.
+     * @param landmarkNodeIDs For each landmark its vertex id.
+     * @return The table.
+     */
+    static RegionLandmarkTable calculate(GraphPartition partition, LandmarkDistances distances, int[] landmarkNodeIDs) {
+        long startTime = System.nanoTime();
+        int depth = Math.min(REGION_DEPTH, partition.getNumberOfLevels());
+        int numberOfRegions = partition.getNumberOfCells(depth);
+
+        List<List<Integer>> nodesOfRegion = new ArrayList<>();
+        for (int region = 0; region < numberOfRegions; region++) {
+            nodesOfRegion.add(new ArrayList<>());
+        }
+        for (int node = 0; node < Node.getSize(); node++) {
+            nodesOfRegion.get(partition.getCell(depth, node)).add(node);
+        }
+
+        int[][] landmarksOfRegionPair = new int[numberOfRegions * numberOfRegions][];
+        IntStream.range(0, numberOfRegions * numberOfRegions).parallel().forEach(pair -> {
+            int firstRegion = pair / numberOfRegions;
+            int secondRegion = pair % numberOfRegions;
+            if (firstRegion < secondRegion && !nodesOfRegion.get(firstRegion).isEmpty()
+                    && !nodesOfRegion.get(secondRegion).isEmpty()) {
+                int[] selected = selectLandmarks(nodesOfRegion.get(firstRegion), nodesOfRegion.get(secondRegion),
+                        distances, new Random(pair));
+                landmarksOfRegionPair[pair] = selected;
+                landmarksOfRegionPair[secondRegion * numberOfRegions + firstRegion] = selected;
+            }
+        });
+
+        System.out.println("Calculated the region landmark table for " + numberOfRegions + " regions in "
+                + (System.nanoTime() - startTime) / 1000000 + " ms");
+        return new RegionLandmarkTable(numberOfRegions, landmarksOfRegionPair, landmarkNodeIDs.clone());
+    }
+
+    /**
+     * Greedily selects the landmarks for one pair of regions on sampled queries between them.
+     */
+    private static int[] selectLandmarks(List<Integer> firstNodes, List<Integer> secondNodes,
+                                         LandmarkDistances distances, Random random) {
+        int numberOfLandmarks = distances.getNumberOfLandmarks();
+
+        // Bound of every landmark on every sample, relative to the best bound of the sample
+        double[][] quality = new double[SAMPLES_PER_REGION_PAIR][numberOfLandmarks];
+        for (int sample = 0; sample < SAMPLES_PER_REGION_PAIR; sample++) {
+            int first = firstNodes.get(random.nextInt(firstNodes.size()));
+            int second = secondNodes.get(random.nextInt(secondNodes.size()));
+            int bestBound = 0;
+            for (int landmark = 0; landmark < numberOfLandmarks; landmark++) {
+                int bound = Math.abs(distances.get(landmark, first) - distances.get(landmark, second));
+                quality[sample][landmark] = bound;
+                bestBound = Math.max(bestBound, bound);
+            }
+            for (int landmark = 0; landmark < numberOfLandmarks; landmark++) {
+                quality[sample][landmark] = bestBound == 0 ? 0 : quality[sample][landmark] / bestBound;
+            }
+        }
+
+        int[] selected = new int[Math.min(LANDMARKS_PER_REGION_PAIR, numberOfLandmarks)];
+        boolean[] isSelected = new boolean[numberOfLandmarks];
+        double[] currentQuality = new double[SAMPLES_PER_REGION_PAIR];
+        for (int i = 0; i < selected.length; i++) {
+            int bestLandmark = -1;
+            double bestGain = -1;
+            for (int landmark = 0; landmark < numberOfLandmarks; landmark++) {
+                if (isSelected[landmark]) {
+                    continue;
+                }
+                double gain = 0;
+                for (int sample = 0; sample < SAMPLES_PER_REGION_PAIR; sample++) {
+                    gain += Math.max(0, quality[sample][landmark] - currentQuality[sample]);
+                }
+                if (gain > bestGain) {
+                    bestGain = gain;
+                    bestLandmark = landmark;
+                }
+            }
+            selected[i] = bestLandmark;
+            isSelected[bestLandmark] = true;
+            for (int sample = 0; sample < SAMPLES_PER_REGION_PAIR; sample++) {
+                currentQuality[sample] = Math.max(currentQuality[sample], quality[sample][bestLandmark]);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Stores the table to a serialization file.
+     */
+    private void storeData(String fileName) {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeObject(this);
+            System.out.println("Region landmark table has been serialized");
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads a table from a serialization file.
+     *
+     * @return The table or null if the file does not exist or can not be read.
+     */
+    private static RegionLandmarkTable readData(String fileName) {
+        File file = new File(fileName);
+        if (!file.exists()) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            RegionLandmarkTable table = (RegionLandmarkTable) in.readObject();
+            System.out.println("Region landmark table has been deserialized");
+            return table;
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @param startNode       The ID of the start vertex
+     * @param destinationNode The ID of the destination vertex
+     * @return The landmarks (indices as in {@link Landmark#landmarkNodeIDs}) selected for the regions of the two
+     * vertices, best first, or null if the region pair is not covered. The array must not be modified.
+     */
+    public int[] getLandmarks(int startNode, int destinationNode) {
+        int depth = Math.min(REGION_DEPTH, partition.getNumberOfLevels());
+        return landmarksOfRegionPair[partition.getCell(depth, startNode) * numberOfRegions
+                + partition.getCell(depth, destinationNode)];
+    }
+
+    /**
+     * @return The checksum of the graph the table belongs to.
+     */
+    public long getGraphChecksum() {
+        return graphChecksum;
+    }
+}
@@ -3,7 +3,7 @@ package de.fmi.searouter.landmarks.initializer;
 import de.fmi.searouter.dijkstragrid.Edge;
 import de.fmi.searouter.dijkstragrid.Node;
 import de.fmi.searouter.landmarks.LandmarkInitializer;
-import de.fmi.searouter.router.dijkstra.DijkstraRouter;
+import de.fmi.searouter.router.deltastepping.DeltaSteppingSearch;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -60,7 +60,7 @@ public class CoastlineLandmarkInitializer implements LandmarkInitializer {
          * is fulfilled.
          */
 
-        DijkstraRouter router = new DijkstraRouter();
+        DeltaSteppingSearch search = new DeltaSteppingSearch();
         List<Integer> currLandmarks = new ArrayList<>();
         Random rand = new Random(4304344);
         // Shuffle the coastlines to assure that there is no pre-sorting that might affect the strategy somehow
@@ -80,7 +80,7 @@ public class CoastlineLandmarkInitializer implements LandmarkInitializer {
 
                 // Check whether the candidate fulfills the properties
 
-                int[] distancesOfCandidate = router.routeToAllVertices(newLandmarkCandidate, 4);
+                int[] distancesOfCandidate = search.routeToAllVertices(newLandmarkCandidate);
                 for (Integer i : currLandmarks) {
                     if (distancesOfCandidate[i] < distance) {
                         currLandmarkNotSuitable = true;
@@ -105,7 +105,7 @@ public class CoastlineLandmarkInitializer implements LandmarkInitializer {
 
         for (int i = 0; i < currLandmarks.size(); i++) {
             landmarkNodeIDs[i] = currLandmarks.get(i);
-            distanceOfLandmarkToEveryVertex[i] = router.routeToAllVertices(currLandmarks.get(i), 4);
+            distanceOfLandmarkToEveryVertex[i] = search.routeToAllVertices(currLandmarks.get(i));
         }
 
         System.out.println("No landmarks: " + NUMBER_OF_LANDMARKS);
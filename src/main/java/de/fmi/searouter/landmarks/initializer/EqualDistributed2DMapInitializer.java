@@ -3,7 +3,7 @@ package de.fmi.searouter.landmarks.initializer;
 import de.fmi.searouter.dijkstragrid.Grid;
 import de.fmi.searouter.dijkstragrid.Node;
 import de.fmi.searouter.landmarks.LandmarkInitializer;
-import de.fmi.searouter.router.dijkstra.DijkstraRouter;
+import de.fmi.searouter.router.deltastepping.DeltaSteppingSearch;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -48,10 +48,10 @@ public class EqualDistributed2DMapInitializer implements LandmarkInitializer {
         landmarkNodeIDs = new int[noLandmarks];
 
         // For every chosen landmark: Pre-calculate the distances to all other vertices in the graph
-        DijkstraRouter router = new DijkstraRouter();
+        DeltaSteppingSearch search = new DeltaSteppingSearch();
         for (int i = 0; i < currChosenLandmarks.size(); i++) {
             landmarkNodeIDs[i] = currChosenLandmarks.get(i);
-            distanceOfLandmarkToEveryVertex[i] = router.routeToAllVertices(currChosenLandmarks.get(i), 4);
+            distanceOfLandmarkToEveryVertex[i] = search.routeToAllVertices(currChosenLandmarks.get(i));
         }
 
         System.out.println("No-landmarks: " + noLandmarks);
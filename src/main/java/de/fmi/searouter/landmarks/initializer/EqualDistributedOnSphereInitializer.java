@@ -3,7 +3,7 @@ package de.fmi.searouter.landmarks.initializer;
 import de.fmi.searouter.dijkstragrid.Grid;
 import de.fmi.searouter.dijkstragrid.Node;
 import de.fmi.searouter.landmarks.LandmarkInitializer;
-import de.fmi.searouter.router.dijkstra.DijkstraRouter;
+import de.fmi.searouter.router.deltastepping.DeltaSteppingSearch;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -70,12 +70,12 @@ public class EqualDistributedOnSphereInitializer implements LandmarkInitializer
         distanceOfLandmarkToEveryVertex = new int[noLandmarks][Node.getSize()];
         landmarkNodeIDs = new int[noLandmarks];
 
-        DijkstraRouter router = new DijkstraRouter();
+        DeltaSteppingSearch search = new DeltaSteppingSearch();
         System.out.println("No of landmarks: " + noLandmarks);
 
         for (int i = 0; i < currChosenLandmarks.size(); i++) {
             landmarkNodeIDs[i] = currChosenLandmarks.get(i);
-            distanceOfLandmarkToEveryVertex[i] = router.routeToAllVertices(currChosenLandmarks.get(i), 4);
+            distanceOfLandmarkToEveryVertex[i] = search.routeToAllVertices(currChosenLandmarks.get(i));
         }
 
     }
@@ -2,7 +2,7 @@ package de.fmi.searouter.landmarks.initializer;
 
 import de.fmi.searouter.dijkstragrid.Node;
 import de.fmi.searouter.landmarks.LandmarkInitializer;
-import de.fmi.searouter.router.dijkstra.DijkstraRouter;
+import de.fmi.searouter.router.deltastepping.DeltaSteppingSearch;
 
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -36,14 +36,13 @@ public class RandomLandmarkInitializer implements LandmarkInitializer {
 
         int maxNodeIdx = Node.getSize() - 1;
 
-        DijkstraRouter router = new DijkstraRouter();
+        DeltaSteppingSearch search = new DeltaSteppingSearch();
 
         // Random mode
         for (int noOfDraws = 0; noOfDraws < NO_OF_LANDMARKS_RANDOM; noOfDraws++) {
             int nodeIdx = ThreadLocalRandom.current().nextInt(0, maxNodeIdx + 1);
             landmarkNodeIDs[noOfDraws] = nodeIdx;
-            int dest = ThreadLocalRandom.current().nextInt(0, maxNodeIdx + 1);
-            distanceOfLandmarkToEveryVertex[noOfDraws] = router.routeToAllVertices(nodeIdx, dest);
+            distanceOfLandmarkToEveryVertex[noOfDraws] = search.routeToAllVertices(nodeIdx);
         }
     }
 
@@ -0,0 +1,181 @@
+package de.fmi.searouter.partition;
+
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.utils.PreprocessingFiles;
+
+import java.io.*;
+
+/**
+ * A nested partition of the grid graph into cells, calculated by the {@link GraphPartitioner}.
+ * <p>
+ * The partition consists of {@link #getNumberOfLevels()} bisection levels: on depth d (1 = coarsest) there are
+ * 2^d cells, and each cell of depth d is split into two cells of depth d + 1. The cell id of a node on depth d
+ * consists of the first d bits of its cell id on the finest level.
+ * <p>
+ * The partition of the current graph is available through {@link #getInstance()}, which loads it from a
+ * serialization file or calculates and stores it if no file for the current graph exists.
+ */
+public final class GraphPartition implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The name of the serialization file which is created for storing the partition.
+     */
+    private static final String PARTITION_SERIALIZATION_FILE_NAME = "partition.ser";
+
+    /**
+     * The number of levels used by {@link #getInstance()}. 2^12 = 4096 cells of about 250 nodes each
+     * on the default grid.
+     */
+    public static final int DEFAULT_NUMBER_OF_LEVELS = 12;
+
+    /**
+     * The instance belonging to the current graph
+     */
+    private static GraphPartition INSTANCE;
+
+    private final int numberOfLevels;
+
+    /**
+     * For each node its cell id on the finest level.
+     */
+    private final int[] cellIds;
+
+    /**
+     * Checksum of the graph the partition was calculated for.
+     */
+    private final long graphChecksum;
+
+    GraphPartition(int numberOfLevels, int[] cellIds) {
+        this.numberOfLevels = numberOfLevels;
+        this.cellIds = cellIds;
+        this.graphChecksum = GraphSnapshotHolder.getCurrentChecksum();
+    }
+
+    /**
+     * Returns the partition of the current graph. It is read from the serialization file if that file
+     * belongs to the current graph, otherwise it is calculated and the file is (over)written.
+     *
+     * @return The partition of the current graph.
+     */
+    public static synchronized GraphPartition getInstance() {
+        long checksum = GraphSnapshotHolder.getCurrentChecksum();
+        if (INSTANCE != null && INSTANCE.graphChecksum == checksum) {
+            return INSTANCE;
+        }
+
+        String fileName = PreprocessingFiles.getPath(PARTITION_SERIALIZATION_FILE_NAME);
+        GraphPartition partition = readData(fileName);
+        if (partition == null || partition.graphChecksum != checksum || partition.numberOfLevels != DEFAULT_NUMBER_OF_LEVELS) {
+            System.out.println("Started partitioning the graph. This might take a while!");
+            partition = GraphPartitioner.partition(DEFAULT_NUMBER_OF_LEVELS);
+            partition.storeData(fileName);
+        }
+
+        INSTANCE = partition;
+        return partition;
+    }
+
+    /**
+     * Stores the partition to a serialization file.
+     */
+    private void storeData(String fileName) {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeObject(this);
+            System.out.println("Partition has been serialized");
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads a partition from a serialization file.
+     *
+     * @return The partition or null if the file does not exist or can not be read.
+     */
+    private static GraphPartition readData(String fileName) {
+        File file = new File(fileName);
+        if (!file.exists()) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            GraphPartition partition = (GraphPartition) in.readObject();
+            System.out.println("Partition has been deserialized");
+            return partition;
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @return The number of levels, the finest level has 2^levels cells.
+     */
+    public int getNumberOfLevels() {
+        return numberOfLevels;
+    }
+
+    /**
+     * @param depth The level (1 = coarsest, {@link #getNumberOfLevels()} = finest).
+     * @return The number of cells on this level.
+     */
+    public int getNumberOfCells(int depth) {
+        return 1 << depth;
+    }
+
+    /**
+     * @param node A node id
+     * @return The cell id of the node on the finest level.
+     */
+    public int getCell(int node) {
+        return cellIds[node];
+    }
+
+    /**
+     * @param depth The level (1 = coarsest, {@link #getNumberOfLevels()} = finest).
+     * @param node  A node id
+     * @return The cell id of the node on the given level.
+     */
+    public int getCell(int depth, int node) {
+        return cellIds[node] >>> (numberOfLevels - depth);
+    }
+
+    /**
+     * @param depth The level (1 = coarsest, {@link #getNumberOfLevels()} = finest).
+     * @param node  A node id
+     * @return True if the node has a neighbor in another cell of the given level.
+     */
+    public boolean isBoundaryNode(int depth, int node) {
+        int cell = getCell(depth, node);
+        for (int edge = Grid.offset[node]; edge < Grid.offset[node + 1]; edge++) {
+            if (getCell(depth, Edge.getDest(edge)) != cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param depth The level (1 = coarsest, {@link #getNumberOfLevels()} = finest).
+     * @return The number of (directed) edges whose end nodes are in different cells of the given level.
+     */
+    public long countCutEdges(int depth) {
+        long cut = 0;
+        for (int edge = 0; edge < Edge.getSize(); edge++) {
+            if (getCell(depth, Edge.getStart(edge)) != getCell(depth, Edge.getDest(edge))) {
+                cut++;
+            }
+        }
+        return cut;
+    }
+
+    /**
+     * @return The checksum of the graph this partition belongs to.
+     */
+    public long getGraphChecksum() {
+        return graphChecksum;
+    }
+}
@@ -0,0 +1,319 @@
+package de.fmi.searouter.partition;
+
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.dijkstragrid.Node;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Calculates a {@link GraphPartition} of the current grid graph by recursive bisection.
+ * <p>
+ * Each bisection step projects the nodes of a cell onto several directions in 3D space (the three coordinate axes
+ * and the principal axis of the cell), splits at the median of each projection and keeps the split with the fewest
+ * cut edges. The split is then improved by a greedy boundary refinement in the style of Kernighan-Lin/Fiduccia-
+ * Mattheyses which moves boundary nodes to the other side as long as this reduces the cut and keeps the halves
+ * balanced. Ocean graphs have natural chokepoints (straits, canals), where geometric splits plus refinement already
+ * find very small separators.
+ * <p>
+ * The two halves of a cell are processed in parallel in a {@link ForkJoinPool}.
+ */
+public class GraphPartitioner {
+
+    /**
+     * Maximum allowed deviation of a half from exactly half of the nodes of its cell.
+     */
+    private static final double IMBALANCE = 0.03;
+
+    /**
+     * Maximum number of refinement passes over the nodes of a cell.
+     */
+    private static final int MAX_REFINEMENT_PASSES = 10;
+
+    /**
+     * Cells with less nodes are bisected within the current task instead of forking new ones.
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 10000;
+
+    private final int numberOfLevels;
+
+    /**
+     * For each node the index of the bisection tree node (root = 1, children of k = 2k and 2k + 1) it is
+     * currently assigned to. The tasks work on disjoint node sets, and a task only compares the entries of
+     * neighbor nodes with its own tree indices, which no other task writes.
+     */
+    private final int[] assignment;
+
+    // Node positions on the unit sphere
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+
+    private GraphPartitioner(int numberOfLevels) {
+        this.numberOfLevels = numberOfLevels;
+        int numberOfNodes = Node.getSize();
+        this.assignment = new int[numberOfNodes];
+        this.x = new double[numberOfNodes];
+        this.y = new double[numberOfNodes];
+        this.z = new double[numberOfNodes];
+
+        for (int node = 0; node < numberOfNodes; node++) {
+            double lat = Math.toRadians(Node.getLatitude(node));
+            double lon = Math.toRadians(Node.getLongitude(node));
+            x[node] = Math.cos(lat) * Math.cos(lon);
+            y[node] = Math.cos(lat) * Math.sin(lon);
+            z[node] = Math.sin(lat);
+            assignment[node] = 1;
+        }
+    }
+
+    /**
+     * Partitions the current graph.
+     *
+     * @param numberOfLevels The number of bisection levels, the finest level has 2^numberOfLevels cells.
+     * @return The partition.
+     */
+    public static GraphPartition partition(int numberOfLevels) {
+        if (numberOfLevels < 1 || numberOfLevels > 30) {
+            throw new IllegalArgumentException("The number of levels must be between 1 and 30");
+        }
+
+        long startTime = System.nanoTime();
+        GraphPartitioner partitioner = new GraphPartitioner(numberOfLevels);
+
+        int[] allNodes = new int[Node.getSize()];
+        for (int i = 0; i < allNodes.length; i++) {
+            allNodes[i] = i;
+        }
+        ForkJoinPool.commonPool().invoke(partitioner.new BisectionTask(allNodes, 1, 0));
+
+        int[] cellIds = new int[allNodes.length];
+        int firstLeaf = 1 << numberOfLevels;
+        for (int node = 0; node < cellIds.length; node++) {
+            cellIds[node] = partitioner.assignment[node] - firstLeaf;
+        }
+
+        GraphPartition partition = new GraphPartition(numberOfLevels, cellIds);
+        System.out.println("Partitioned graph into " + firstLeaf + " cells with " + partition.countCutEdges(numberOfLevels)
+                + " cut edges in " + (System.nanoTime() - startTime) / 1000000 + " ms");
+        return partition;
+    }
+
+    /**
+     * Bisects the nodes of one cell and recursively its two halves.
+     */
+    private class BisectionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] nodes;
+        private final int treeIndex;
+        private final int depth;
+
+        BisectionTask(int[] nodes, int treeIndex, int depth) {
+            this.nodes = nodes;
+            this.treeIndex = treeIndex;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (depth == numberOfLevels) {
+                return;
+            }
+
+            int leftIndex = 2 * treeIndex;
+            int rightIndex = leftIndex + 1;
+            bisect(nodes, leftIndex, rightIndex);
+
+            int leftSize = 0;
+            for (int node : nodes) {
+                if (assignment[node] == leftIndex) {
+                    leftSize++;
+                }
+            }
+            int[] leftNodes = new int[leftSize];
+            int[] rightNodes = new int[nodes.length - leftSize];
+            int l = 0;
+            int r = 0;
+            for (int node : nodes) {
+                if (assignment[node] == leftIndex) {
+                    leftNodes[l++] = node;
+                } else {
+                    rightNodes[r++] = node;
+                }
+            }
+
+            BisectionTask left = new BisectionTask(leftNodes, leftIndex, depth + 1);
+            BisectionTask right = new BisectionTask(rightNodes, rightIndex, depth + 1);
+            if (nodes.length < SEQUENTIAL_THRESHOLD) {
+                left.compute();
+                right.compute();
+            } else {
+                invokeAll(left, right);
+            }
+        }
+    }
+
+    /**
+     * Splits a node set into two balanced halves and assigns the nodes to leftIndex or rightIndex.
+     */
+    private void bisect(int[] nodes, int leftIndex, int rightIndex) {
+        int n = nodes.length;
+        if (n < 2) {
+            for (int node : nodes) {
+                assignment[node] = leftIndex;
+            }
+            return;
+        }
+
+        double[][] directions = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}, principalAxis(nodes)};
+
+        boolean[] bestIsLeft = null;
+        long bestCut = Long.MAX_VALUE;
+        for (double[] direction : directions) {
+            boolean[] isLeft = splitAtMedian(nodes, direction);
+            for (int i = 0; i < n; i++) {
+                assignment[nodes[i]] = isLeft[i] ? leftIndex : rightIndex;
+            }
+            long cut = countCut(nodes, leftIndex, rightIndex);
+            if (cut < bestCut) {
+                bestCut = cut;
+                bestIsLeft = isLeft;
+            }
+        }
+
+        int leftSize = 0;
+        for (int i = 0; i < n; i++) {
+            assignment[nodes[i]] = bestIsLeft[i] ? leftIndex : rightIndex;
+            if (bestIsLeft[i]) {
+                leftSize++;
+            }
+        }
+
+        refine(nodes, leftIndex, rightIndex, leftSize);
+    }
+
+    /**
+     * Marks the first half of the nodes sorted by their projection on a direction as left.
+     */
+    private boolean[] splitAtMedian(int[] nodes, double[] direction) {
+        long[] keys = new long[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            int node = nodes[i];
+            float projection = (float) (x[node] * direction[0] + y[node] * direction[1] + z[node] * direction[2]);
+            // Make the float bits sortable as signed int and store the position in the lower 32 bits
+            int bits = Float.floatToIntBits(projection);
+            bits ^= (bits >> 31) & 0x7FFFFFFF;
+            keys[i] = ((long) bits << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        boolean[] isLeft = new boolean[nodes.length];
+        for (int i = 0; i < nodes.length / 2; i++) {
+            isLeft[(int) keys[i]] = true;
+        }
+        return isLeft;
+    }
+
+    /**
+     * @return The number of edges between the two halves.
+     */
+    private long countCut(int[] nodes, int leftIndex, int rightIndex) {
+        long cut = 0;
+        for (int node : nodes) {
+            if (assignment[node] != leftIndex) {
+                continue;
+            }
+            for (int edge = Grid.offset[node]; edge < Grid.offset[node + 1]; edge++) {
+                if (assignment[Edge.getDest(edge)] == rightIndex) {
+                    cut++;
+                }
+            }
+        }
+        return cut;
+    }
+
+    /**
+     * Greedily moves nodes to the other half as long as this reduces the number of cut edges and the halves
+     * stay balanced.
+     */
+    private void refine(int[] nodes, int leftIndex, int rightIndex, int leftSize) {
+        int n = nodes.length;
+        int minSize = (int) Math.floor(n * (0.5 - IMBALANCE / 2));
+        int maxSize = (int) Math.ceil(n * (0.5 + IMBALANCE / 2));
+
+        for (int pass = 0; pass < MAX_REFINEMENT_PASSES; pass++) {
+            int moves = 0;
+            for (int node : nodes) {
+                int own = assignment[node];
+                int other = own == leftIndex ? rightIndex : leftIndex;
+                int gain = 0;
+                for (int edge = Grid.offset[node]; edge < Grid.offset[node + 1]; edge++) {
+                    int neighbourAssignment = assignment[Edge.getDest(edge)];
+                    if (neighbourAssignment == other) {
+                        gain++;
+                    } else if (neighbourAssignment == own) {
+                        gain--;
+                    }
+                }
+                if (gain <= 0) {
+                    continue;
+                }
+
+                int newLeftSize = own == leftIndex ? leftSize - 1 : leftSize + 1;
+                if (newLeftSize < minSize || newLeftSize > maxSize) {
+                    continue;
+                }
+                assignment[node] = other;
+                leftSize = newLeftSize;
+                moves++;
+            }
+            if (moves == 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Calculates the direction of the largest extent of the node set by a power iteration on its covariance matrix.
+     */
+    private double[] principalAxis(int[] nodes) {
+        double mx = 0, my = 0, mz = 0;
+        for (int node : nodes) {
+            mx += x[node];
+            my += y[node];
+            mz += z[node];
+        }
+        mx /= nodes.length;
+        my /= nodes.length;
+        mz /= nodes.length;
+
+        double cxx = 0, cxy = 0, cxz = 0, cyy = 0, cyz = 0, czz = 0;
+        for (int node : nodes) {
+            double dx = x[node] - mx, dy = y[node] - my, dz = z[node] - mz;
+            cxx += dx * dx;
+            cxy += dx * dy;
+            cxz += dx * dz;
+            cyy += dy * dy;
+            cyz += dy * dz;
+            czz += dz * dz;
+        }
+
+        double[] v = {1, 1, 1};
+        for (int iteration = 0; iteration < 30; iteration++) {
+            double nx = cxx * v[0] + cxy * v[1] + cxz * v[2];
+            double ny = cxy * v[0] + cyy * v[1] + cyz * v[2];
+            double nz = cxz * v[0] + cyz * v[1] + czz * v[2];
+            double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length == 0) {
+                return new double[]{1, 0, 0};
+            }
+            v[0] = nx / length;
+            v[1] = ny / length;
+            v[2] = nz / length;
+        }
+        return v;
+    }
+}
@@ -0,0 +1,328 @@
+package de.fmi.searouter.reach;
+
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.utils.IntMinHeap;
+import de.fmi.searouter.utils.PreprocessingFiles;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Reach values of the nodes of the grid graph. The reach of a node v is the maximum of min(dist(s, v), dist(v, t))
+ * over all shortest paths from s to t containing v. A search towards t can skip v if the reach of v is smaller
+ * than both dist(s, v) and a lower bound of dist(v, t), as v can not lie on a shortest path from s to t then.
+ * <p>
+ * The reach values are calculated with partial shortest path searches: if a node v has a reach r < ε, there is
+ * a shortest path s*-v-t* with min(dist(s*, v), dist(v, t*)) = r which is shorter than 2ε plus two edges (cut off
+ * the path at the last node before v and the first node after v which are still at least r away from v). Therefore
+ * a search from every node s up to this radius, taking all shortest paths into account (the shortest path DAG, so
+ * that ties do not matter), gives the exact reach of every node with a reach below ε, the reach limit. For all
+ * other nodes only reach &ge; ε is known, they get the reach {@link Integer#MAX_VALUE} and are never skipped.
+ * The searches run in parallel. The reach limit is chosen from the graph, see {@link #chooseReachLimit()}.
+ * <p>
+ * The reach values are only valid for the plain edge distances of {@link Edge}, not for edge costs changed by
+ * penalties. The reach values of the current graph are available through {@link #getInstance()}, which loads them
+ * from a serialization file or calculates and stores them if no file for the current graph exists.
+ */
+public final class ReachBounds implements Serializable {
+
+    private static final long serialVersionUID = 2L;
+
+    /**
+     * The name of the serialization file which is created for storing the reach values.
+     */
+    private static final String REACH_SERIALIZATION_FILE_NAME = "reach.ser";
+
+    /**
+     * The reach limit is chosen so that a partial search settles about this number of nodes. The calculation time
+     * grows linearly with it.
+     */
+    private static final int SETTLED_NODES_PER_SEARCH = 1 << 13;
+
+    /**
+     * Number of searches from random nodes whose radius is measured to choose the reach limit.
+     */
+    private static final int NUMBER_OF_SAMPLE_SEARCHES = 64;
+
+    private static ReachBounds INSTANCE;
+
+    /**
+     * For each node its reach, {@link Integer#MAX_VALUE} if it is at least {@link #reachLimit}.
+     */
+    private final int[] reach;
+
+    /**
+     * Reach values below this limit (in meters) are calculated exactly.
+     */
+    private final int reachLimit;
+
+    /**
+     * Checksum of the graph the reach values were calculated for.
+     */
+    private final long graphChecksum;
+
+    private ReachBounds(int[] reach, int reachLimit) {
+        this.reach = reach;
+        this.reachLimit = reachLimit;
+        this.graphChecksum = GraphSnapshotHolder.getCurrentChecksum();
+    }
+
+    /**
+     * Returns the reach values of the current graph. They are read from the serialization file if that file
+     * belongs to the current graph, otherwise they are calculated and the file is (over)written.
+     *
+     * @return The reach values of the current graph.
+     */
+    public static synchronized ReachBounds getInstance() {
+        long checksum = GraphSnapshotHolder.getCurrentChecksum();
+        if (INSTANCE != null && INSTANCE.graphChecksum == checksum) {
+            return INSTANCE;
+        }
+
+        String fileName = PreprocessingFiles.getPath(REACH_SERIALIZATION_FILE_NAME);
+        ReachBounds reachBounds = readData(fileName);
+        if (reachBounds == null || reachBounds.graphChecksum != checksum) {
+            System.out.println("Started calculating reach values. This might take a while!");
+            reachBounds = calculate(chooseReachLimit());
+            reachBounds.storeData(fileName);
+        }
+
+        INSTANCE = reachBounds;
+        return reachBounds;
+    }
+
+    /**
+     * Chooses the reach limit for the current graph: the partial searches of {@link #calculate(int)} get the median
+     * radius in which a search from a random node settles {@link #SETTLED_NODES_PER_SEARCH} nodes. Thus the
+     * calculation time only depends on the number of nodes, and the limit grows with the edge distances of the
+     * graph. A fixed limit in meters would either bound the reach of only a few nodes on a coarse graph or take
+     * very long on a fine one.
+     *
+     * @return The reach limit in meters.
+     */
+    static int chooseReachLimit() {
+        int numberOfNodes = Node.getSize();
+        if (numberOfNodes == 0) {
+            return 0;
+        }
+        int maxEdgeDistance = getMaxEdgeDistance();
+
+        Random random = new Random(numberOfNodes);
+        PartialSearch search = new PartialSearch();
+        int[] radius = new int[NUMBER_OF_SAMPLE_SEARCHES];
+        for (int i = 0; i < NUMBER_OF_SAMPLE_SEARCHES; i++) {
+            radius[i] = search.searchRadius(random.nextInt(numberOfNodes), SETTLED_NODES_PER_SEARCH);
+        }
+        Arrays.sort(radius);
+
+        // The partial searches have the radius 2 * limit + 2 * maximum edge distance
+        long reachLimit = ((long) radius[NUMBER_OF_SAMPLE_SEARCHES / 2] - 2L * maxEdgeDistance) / 2;
+        reachLimit = Math.min(reachLimit, Integer.MAX_VALUE / 2 - maxEdgeDistance - 1);
+        return (int) Math.max(maxEdgeDistance, reachLimit);
+    }
+
+    private static int getMaxEdgeDistance() {
+        int maxEdgeDistance = 0;
+        for (int edge = 0; edge < Edge.getSize(); edge++) {
+            maxEdgeDistance = Math.max(maxEdgeDistance, Edge.getDist(edge));
+        }
+        return maxEdgeDistance;
+    }
+
+    /**
+     * Calculates the reach values of the current graph.
+     *
+     * @param reachLimit Reach values below this limit are calculated exactly, all others are set to
+     *                   {@link Integer#MAX_VALUE}.
+     * @return The reach values.
+     */
+    static ReachBounds calculate(int reachLimit) {
+        long startTime = System.nanoTime();
+        int numberOfNodes = Node.getSize();
+
+        int maxEdgeDistance = getMaxEdgeDistance();
+        long radius = 2L * reachLimit + 2L * maxEdgeDistance;
+        if (radius >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Reach limit too large: " + reachLimit);
+        }
+
+        AtomicIntegerArray maxReach = new AtomicIntegerArray(numberOfNodes);
+        ThreadLocal<PartialSearch> searches = ThreadLocal.withInitial(PartialSearch::new);
+        AtomicInteger finished = new AtomicInteger();
+        IntStream.range(0, numberOfNodes).parallel().forEach(source -> {
+            searches.get().search(source, (int) radius, maxReach);
+
+            int count = finished.incrementAndGet();
+            if (count % 100000 == 0) {
+                System.out.println("Reach: " + count + " of " + numberOfNodes + " partial searches done");
+            }
+        });
+
+        int[] reach = new int[numberOfNodes];
+        int numberOfBoundedNodes = 0;
+        for (int node = 0; node < numberOfNodes; node++) {
+            if (maxReach.get(node) < reachLimit) {
+                reach[node] = maxReach.get(node);
+                numberOfBoundedNodes++;
+            } else {
+                reach[node] = Integer.MAX_VALUE;
+            }
+        }
+        System.out.println("Calculated reach values in " + (System.nanoTime() - startTime) / 1000000 + " ms, "
+                + numberOfBoundedNodes + " of " + numberOfNodes + " nodes have a reach below " + reachLimit);
+        return new ReachBounds(reach, reachLimit);
+    }
+
+    /**
+     * Dijkstra search from one node up to a radius, calculating the reach of all nodes with respect to the shortest
+     * paths starting at that node. One instance per thread.
+     */
+    private static class PartialSearch {
+        private final int[] distance;
+        private final int[] height;
+        private final int[] settledNodes;
+        private final IntMinHeap heap;
+
+        PartialSearch() {
+            this.distance = new int[Node.getSize()];
+            this.height = new int[Node.getSize()];
+            this.settledNodes = new int[Node.getSize()];
+            Arrays.fill(distance, Integer.MAX_VALUE);
+            this.heap = new IntMinHeap(distance);
+        }
+
+        void search(int source, int radius, AtomicIntegerArray maxReach) {
+            int numberOfSettledNodes = 0;
+            distance[source] = 0;
+            heap.add(source);
+
+            while (!heap.isEmpty()) {
+                int node = heap.getNext();
+                settledNodes[numberOfSettledNodes++] = node;
+                for (int edge = Grid.offset[node]; edge < Grid.offset[node + 1]; edge++) {
+                    int dest = Edge.getDest(edge);
+                    int newDistance = distance[node] + Edge.getDist(edge);
+                    if (newDistance <= radius && newDistance < distance[dest]) {
+                        distance[dest] = newDistance;
+                        heap.add(dest);
+                    }
+                }
+            }
+
+            // Height of each node in the shortest path DAG, in reverse settle order so that all successors are done
+            for (int i = numberOfSettledNodes - 1; i >= 0; i--) {
+                int node = settledNodes[i];
+                int nodeHeight = 0;
+                for (int edge = Grid.offset[node]; edge < Grid.offset[node + 1]; edge++) {
+                    int dest = Edge.getDest(edge);
+                    if (distance[dest] != Integer.MAX_VALUE && distance[node] + Edge.getDist(edge) == distance[dest]) {
+                        nodeHeight = Math.max(nodeHeight, Edge.getDist(edge) + height[dest]);
+                    }
+                }
+                height[node] = nodeHeight;
+
+                int nodeReach = Math.min(distance[node], nodeHeight);
+                if (nodeReach > maxReach.get(node)) {
+                    maxReach.accumulateAndGet(node, nodeReach, Math::max);
+                }
+            }
+
+            for (int i = 0; i < numberOfSettledNodes; i++) {
+                distance[settledNodes[i]] = Integer.MAX_VALUE;
+            }
+            heap.resetState();
+        }
+
+        /**
+         * Dijkstra search from one node which stops after a number of settled nodes.
+         *
+         * @return The distance of the last settled node.
+         */
+        int searchRadius(int source, int numberOfNodesToSettle) {
+            int numberOfSettledNodes = 0;
+            int radius = 0;
+            distance[source] = 0;
+            heap.add(source);
+
+            while (!heap.isEmpty() && numberOfSettledNodes < numberOfNodesToSettle) {
+                int node = heap.getNext();
+                numberOfSettledNodes++;
+                radius = distance[node];
+                for (int edge = Grid.offset[node]; edge < Grid.offset[node + 1]; edge++) {
+                    int dest = Edge.getDest(edge);
+                    int newDistance = distance[node] + Edge.getDist(edge);
+                    if (newDistance < distance[dest]) {
+                        distance[dest] = newDistance;
+                        heap.add(dest);
+                    }
+                }
+            }
+
+            // Nodes left on the heap have a distance as well
+            Arrays.fill(distance, Integer.MAX_VALUE);
+            heap.resetState();
+            return radius;
+        }
+    }
+
+    /**
+     * Stores the reach values to a serialization file.
+     */
+    private void storeData(String fileName) {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeObject(this);
+            System.out.println("Reach values have been serialized");
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads reach values from a serialization file.
+     *
+     * @return The reach values or null if the file does not exist or can not be read.
+     */
+    private static ReachBounds readData(String fileName) {
+        File file = new File(fileName);
+        if (!file.exists()) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            ReachBounds reachBounds = (ReachBounds) in.readObject();
+            System.out.println("Reach values have been deserialized");
+            return reachBounds;
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @param node A node id
+     * @return The reach of the node, {@link Integer#MAX_VALUE} if it is at least the {@link #getReachLimit() limit}.
+     */
+    public int getReach(int node) {
+        return reach[node];
+    }
+
+    /**
+     * @return The limit (in meters) below which the reach values are calculated exactly.
+     */
+    public int getReachLimit() {
+        return reachLimit;
+    }
+
+    /**
+     * @return The checksum of the graph the reach values belong to.
+     */
+    public long getGraphChecksum() {
+        return graphChecksum;
+    }
+}
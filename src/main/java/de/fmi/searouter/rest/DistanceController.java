@@ -0,0 +1,100 @@
+package de.fmi.searouter.rest;
+
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.landmarks.DistanceBounds;
+import de.fmi.searouter.landmarks.DistanceRequest;
+import de.fmi.searouter.landmarks.Landmark;
+import de.fmi.searouter.landmarks.LandmarkDistanceOracle;
+import de.fmi.searouter.landmarks.LandmarkSet;
+import de.fmi.searouter.landmarks.LandmarkSets;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Returns lower and upper bounds on the distance between two positions from the landmark distances, without
+ * calculating a route, see {@link LandmarkDistanceOracle}. The bounds are the ones of the nearest grid nodes.
+ */
+@RestController
+@RequestMapping("/distance")
+public class DistanceController {
+
+    @PostMapping("")
+    public ResponseEntity getBounds(@RequestBody DistanceRequest request) {
+        ResponseEntity batch = getBatchBounds(List.of(request));
+        if (batch.getStatusCode() != HttpStatus.OK) {
+            return batch;
+        }
+        return ResponseEntity.ok(((DistanceBounds[]) batch.getBody())[0]);
+    }
+
+    /**
+     * Calculates the bounds of many position pairs. Pairs using the same landmark set are evaluated together.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity getBatchBounds(@RequestBody List<DistanceRequest> requests) {
+        GraphSnapshotHolder.pin();
+        try {
+            return calculateBounds(requests);
+        } finally {
+            GraphSnapshotHolder.unpin();
+        }
+    }
+
+    private ResponseEntity calculateBounds(List<DistanceRequest> requests) {
+        if (Landmark.getLandmarkSet() == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("No landmarks loaded");
+        }
+
+        int[] startNodes = new int[requests.size()];
+        int[] destinationNodes = new int[requests.size()];
+        Map<LandmarkSet, List<Integer>> requestsOfSet = new IdentityHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            DistanceRequest request = requests.get(i);
+            if (request.getStartPoint() == null || request.getEndPoint() == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Request " + i + ": start and end point are required");
+            }
+            startNodes[i] = Grid.getNearestGridNodeByCoordinates(request.getStartPoint().getLatitude(), request.getStartPoint().getLongitude(), true);
+            destinationNodes[i] = Grid.getNearestGridNodeByCoordinates(request.getEndPoint().getLatitude(), request.getEndPoint().getLongitude(), true);
+            if (startNodes[i] < 0) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Request " + i + ": start position is not on the ocean!");
+            }
+            if (destinationNodes[i] < 0) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Request " + i + ": destination position is not on the ocean!");
+            }
+
+            LandmarkSet set;
+            try {
+                set = LandmarkSets.choose(request.getLandmarkSet(), startNodes[i], destinationNodes[i]);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Request " + i + ": invalid landmark set: " + e.getMessage());
+            }
+            if (set == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Request " + i + ": landmark set " + request.getLandmarkSet() + " is not available");
+            }
+            requestsOfSet.computeIfAbsent(set, key -> new ArrayList<>()).add(i);
+        }
+
+        DistanceBounds[] bounds = new DistanceBounds[requests.size()];
+        for (Map.Entry<LandmarkSet, List<Integer>> entry : requestsOfSet.entrySet()) {
+            List<Integer> indices = entry.getValue();
+            int[] startNodesOfSet = new int[indices.size()];
+            int[] destinationNodesOfSet = new int[indices.size()];
+            for (int i = 0; i < indices.size(); i++) {
+                startNodesOfSet[i] = startNodes[indices.get(i)];
+                destinationNodesOfSet[i] = destinationNodes[indices.get(i)];
+            }
+            DistanceBounds[] boundsOfSet = LandmarkDistanceOracle.getBounds(entry.getKey(), startNodesOfSet, destinationNodesOfSet);
+            for (int i = 0; i < indices.size(); i++) {
+                bounds[indices.get(i)] = boundsOfSet[i];
+            }
+        }
+        return ResponseEntity.ok(bounds);
+    }
+}
@@ -0,0 +1,48 @@
+package de.fmi.searouter.rest;
+
+import de.fmi.searouter.SearouterApplication;
+import de.fmi.searouter.dijkstragrid.GraphSnapshot;
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Provides information about the currently used grid graph and allows to reload it without restarting the server.
+ */
+@RestController
+@RequestMapping("/grid")
+public class GridController {
+
+    @GetMapping("")
+    public ResponseEntity getGridInfo() {
+        GraphSnapshot snapshot = GraphSnapshotHolder.getCurrent();
+        if (snapshot == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("No grid loaded");
+        }
+
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("version", snapshot.getVersion());
+        info.put("nodes", snapshot.getNumberOfNodes());
+        info.put("edges", snapshot.getNumberOfEdges());
+        info.put("landmarks", snapshot.getNumberOfLandmarks());
+        info.put("reloadRunning", GraphSnapshotHolder.isReloadRunning());
+        return ResponseEntity.ok(info);
+    }
+
+    /**
+     * Loads the grid file again in the background and swaps it in once it is ready. Running routing
+     * queries are not interrupted.
+     */
+    @PostMapping("/reload")
+    public ResponseEntity reloadGrid() {
+        if (GraphSnapshotHolder.isReloadRunning()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("A reload is already running");
+        }
+        GraphSnapshotHolder.reloadInBackground(SearouterApplication.GRID_FILE);
+        return ResponseEntity.accepted().body("Reload of " + SearouterApplication.GRID_FILE + " started");
+    }
+}
@@ -0,0 +1,78 @@
+package de.fmi.searouter.rest;
+
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import de.fmi.searouter.landmarks.LandmarkDistributionMode;
+import de.fmi.searouter.landmarks.LandmarkSet;
+import de.fmi.searouter.landmarks.LandmarkSets;
+import de.fmi.searouter.landmarks.LandmarkTelemetry;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Shows the telemetry of the landmark sets, see {@link LandmarkTelemetry}.
+ */
+@RestController
+@RequestMapping("/landmarks/telemetry")
+public class LandmarkController {
+
+    /**
+     * File the telemetry of a landmark set is exported to.
+     */
+    public static final String TELEMETRY_GEOJSON_FILE_NAME = "landmarkTelemetry.json";
+
+    @GetMapping("")
+    public ResponseEntity getTelemetry(@RequestParam(required = false) String set) {
+        try {
+            LandmarkSet landmarkSet = getLandmarkSet(set);
+            if (landmarkSet == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Landmark set " + set + " is not loaded");
+            }
+            return ResponseEntity.ok(LandmarkTelemetry.getReport(landmarkSet));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid landmark set: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the landmarks of a set, colored by how often they gave the best bound, to
+     * {@link #TELEMETRY_GEOJSON_FILE_NAME}.
+     */
+    @PostMapping("/export")
+    public ResponseEntity exportTelemetry(@RequestParam(required = false) String set) {
+        GraphSnapshotHolder.pin();
+        try {
+            LandmarkSet landmarkSet = getLandmarkSet(set);
+            if (landmarkSet == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Landmark set " + set + " is not loaded");
+            }
+            LandmarkTelemetry.toGeoJSON(landmarkSet, TELEMETRY_GEOJSON_FILE_NAME);
+            return ResponseEntity.ok("Exported to " + TELEMETRY_GEOJSON_FILE_NAME);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid landmark set: " + e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        } finally {
+            GraphSnapshotHolder.unpin();
+        }
+    }
+
+    @DeleteMapping("")
+    public ResponseEntity resetTelemetry() {
+        LandmarkTelemetry.reset();
+        return ResponseEntity.ok("Telemetry reset");
+    }
+
+    /**
+     * @return The named landmark set, the default set if no name is given, or null if it is not loaded.
+     */
+    private LandmarkSet getLandmarkSet(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return LandmarkSets.get(LandmarkSets.getDefaultMode());
+        }
+        return LandmarkSets.get(LandmarkDistributionMode.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+    }
+}
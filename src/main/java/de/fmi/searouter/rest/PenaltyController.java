@@ -0,0 +1,77 @@
+package de.fmi.searouter.rest;
+
+import de.fmi.searouter.costoverlay.CostPenalty;
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+import de.fmi.searouter.costoverlay.PenaltyRequest;
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Allows to add and remove edge cost penalties (storms, ice, closures) at runtime, see {@link EdgeCostOverlay}.
+ */
+@RestController
+@RequestMapping("/penalties")
+public class PenaltyController {
+
+    @GetMapping("")
+    public ResponseEntity getPenalties() {
+        List<Map<String, Object>> penalties = new ArrayList<>();
+        for (CostPenalty penalty : EdgeCostOverlay.getPenalties()) {
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("id", penalty.getId());
+            info.put("factor", penalty.getFactor());
+            info.put("addition", penalty.getAddition());
+            info.put("polygonPoints", penalty.getNumberOfPolygonPoints());
+            penalties.add(info);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("version", EdgeCostOverlay.getVersion());
+        result.put("penalties", penalties);
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("")
+    public ResponseEntity addPenalty(@RequestBody PenaltyRequest request) {
+        CostPenalty penalty;
+        try {
+            penalty = new CostPenalty(request.getId(), request.getPolygon(), request.getFactor(), request.getAddition());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+
+        // The graph must not be swapped while the penalized costs are calculated
+        GraphSnapshotHolder.pin();
+        try {
+            return ResponseEntity.ok(EdgeCostOverlay.addPenalty(penalty));
+        } finally {
+            GraphSnapshotHolder.unpin();
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity removePenalty(@PathVariable String id) {
+        GraphSnapshotHolder.pin();
+        try {
+            if (!EdgeCostOverlay.removePenalty(id)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No penalty with id " + id);
+            }
+            return ResponseEntity.ok(EdgeCostOverlay.getVersion());
+        } finally {
+            GraphSnapshotHolder.unpin();
+        }
+    }
+
+    @DeleteMapping("")
+    public ResponseEntity clearPenalties() {
+        EdgeCostOverlay.clearPenalties();
+        return ResponseEntity.ok(EdgeCostOverlay.getVersion());
+    }
+}
@@ -1,17 +1,33 @@
 package de.fmi.searouter.rest;
 
+import de.fmi.searouter.router.PathStraightener;
 import de.fmi.searouter.router.Router;
 import de.fmi.searouter.router.RoutingRequest;
 import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import de.fmi.searouter.landmarks.LandmarkSet;
+import de.fmi.searouter.landmarks.LandmarkSets;
+import de.fmi.searouter.router.alt.ALTRouter;
 import de.fmi.searouter.router.alt.astar.AltAStarRouter;
 import de.fmi.searouter.router.alt.consistentbiastar.AltConsBiAStar;
+import de.fmi.searouter.router.alt.core.CoreAltRouter;
+import de.fmi.searouter.router.alt.parallelbiastar.ParallelAltBiAStar;
+import de.fmi.searouter.router.alt.reach.ReachAltRouter;
 import de.fmi.searouter.router.alt.symmetricastar.AltBiAStarSymmetric;
+import de.fmi.searouter.router.arcflags.ArcFlagBiDijkstra;
+import de.fmi.searouter.router.arcflags.ArcFlagRouter;
 import de.fmi.searouter.router.astar.AStarRouter;
 import de.fmi.searouter.router.bidijkstra.BiDijkstra;
 import de.fmi.searouter.router.consistentbiastar.BiAStarConsistent;
+import de.fmi.searouter.router.crp.CRPRouter;
 import de.fmi.searouter.router.dijkstra.DijkstraRouter;
+import de.fmi.searouter.router.hublabels.HubLabelRouter;
+import de.fmi.searouter.router.jps.JumpPointRouter;
+import de.fmi.searouter.router.parallelbidijkstra.ParallelBiAStarConsistent;
+import de.fmi.searouter.router.parallelbidijkstra.ParallelBiDijkstra;
 import de.fmi.searouter.router.RoutingResult;
 import de.fmi.searouter.router.symmetricastar.BiAStarSymmetric;
+import de.fmi.searouter.router.transitnodes.TransitNodeRouter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -49,6 +65,16 @@ public class RoutingController {
 
     @PostMapping("")
     public ResponseEntity getRoute(@RequestBody RoutingRequest routingRequest) {
+        // Keep the graph from being swapped by a reload while the query is running
+        GraphSnapshotHolder.pin();
+        try {
+            return calculateRoute(routingRequest);
+        } finally {
+            GraphSnapshotHolder.unpin();
+        }
+    }
+
+    private ResponseEntity calculateRoute(RoutingRequest routingRequest) {
 
         String routerName = routingRequest.getRouter();
         Router router;
@@ -64,15 +90,24 @@ public class RoutingController {
             case "bidijkstra":
                 router = new BiDijkstra();
                 break;
+            case "bidijkstra_parallel":
+                router = new ParallelBiDijkstra();
+                break;
             case "astar":
                 router = new AStarRouter();
                 break;
+            case "jps":
+                router = new JumpPointRouter();
+                break;
             case "biastar_sym":
                 router = new BiAStarSymmetric();
                 break;
             case "biastar_cons":
                 router = new BiAStarConsistent();
                 break;
+            case "biastar_parallel":
+                router = new ParallelBiAStarConsistent();
+                break;
             case "alt_astar":
                 router = new AltAStarRouter();
                 break;
@@ -82,6 +117,30 @@ public class RoutingController {
             case "alt_biastar_cons":
                 router = new AltConsBiAStar();
                 break;
+            case "alt_biastar_parallel":
+                router = new ParallelAltBiAStar();
+                break;
+            case "alt_reach":
+                router = new ReachAltRouter();
+                break;
+            case "alt_core":
+                router = new CoreAltRouter();
+                break;
+            case "crp":
+                router = new CRPRouter();
+                break;
+            case "arcflags":
+                router = new ArcFlagRouter();
+                break;
+            case "arcflags_bidijkstra":
+                router = new ArcFlagBiDijkstra();
+                break;
+            case "hublabels":
+                router = new HubLabelRouter();
+                break;
+            case "transitnodes":
+                router = new TransitNodeRouter();
+                break;
             default:
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("No valid router chosen");
         }
@@ -129,7 +188,22 @@ public class RoutingController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Destination position is not on the ocean!");
         }
 
+        if (router instanceof ALTRouter && routingRequest.getLandmarkSet() != null && !routingRequest.getLandmarkSet().isEmpty()) {
+            try {
+                LandmarkSet landmarkSet = LandmarkSets.choose(routingRequest.getLandmarkSet(), startNodeId, destNodeId);
+                if (landmarkSet == null) {
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Landmark set " + routingRequest.getLandmarkSet() + " is not available");
+                }
+                ((ALTRouter) router).setLandmarkSet(landmarkSet);
+            } catch (IllegalArgumentException | UnsupportedOperationException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid landmark set: " + e.getMessage());
+            }
+        }
+
         RoutingResult res = router.route(startNodeId, destNodeId);
+        if (routingRequest.isStraightenPath()) {
+            res = PathStraightener.straighten(res);
+        }
 
         return ResponseEntity.ok(res);
     }
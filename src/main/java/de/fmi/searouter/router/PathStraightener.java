@@ -0,0 +1,107 @@
+package de.fmi.searouter.router;
+
+import de.fmi.searouter.coastlinegrid.CoastlineWays;
+import de.fmi.searouter.coastlinegrid.PointInWaterChecker;
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.utils.IntersectionHelper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Post-processing of routes found on the grid graph by string pulling: runs of grid nodes are replaced by direct
+ * great circle segments if the {@link PointInWaterChecker} confirms that the segment does not cross a coastline.
+ * This removes the zigzag of grid paths, so that a coarse grid produces routes close to those of a fine grid.
+ * <p>
+ * Starting at the first node of the path, the path is followed as long as the segment from the current anchor to
+ * the next node is in water. The last visible node becomes the new anchor. The straightened path only contains the
+ * anchors, its distance is the sum of the great circle distances of the segments.
+ * <p>
+ * Straightening needs the coastline data of the import ({@link CoastlineWays} and {@link PointInWaterChecker}
+ * serialization files). If they are not available routes are returned unchanged. While penalties are active
+ * (see {@link EdgeCostOverlay}) routes are not straightened either, as the segments could cut through penalized
+ * areas.
+ */
+public final class PathStraightener {
+
+    /**
+     * Maximum length of a straight segment in meters. Limits the size of the bounding box checked for coastlines.
+     */
+    private static final double MAXIMUM_SEGMENT_LENGTH = 500000;
+
+    private static Boolean available;
+
+    private PathStraightener() {
+    }
+
+    /**
+     * Loads the coastline data on first use.
+     *
+     * @return True if the coastline data is available.
+     */
+    private static synchronized boolean isAvailable() {
+        if (available == null) {
+            available = new File(CoastlineWays.COASTLINE_WAYS_SERIALIZATION_FILE_NAME).exists()
+                    && new File(PointInWaterChecker.POINT_IN_WATER_CHECKER_SERIALIZATION_FILE_NAME).exists();
+            if (available) {
+                CoastlineWays.initCoastlineWays();
+                PointInWaterChecker.getInstance();
+            } else {
+                System.out.println("No coastline data found, routes are not straightened");
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Straightens the path of a routing result.
+     *
+     * @param result The result of a router
+     * @return A result with the straightened path, or the given result if it can not be straightened.
+     */
+    public static RoutingResult straighten(RoutingResult result) {
+        if (!result.isRouteFound() || result.getPath().size() < 3
+                || EdgeCostOverlay.getCurrentCosts() != Edge.getDistances() || !isAvailable()) {
+            return result;
+        }
+
+        long startTime = System.nanoTime();
+        PointInWaterChecker checker = PointInWaterChecker.getInstance();
+        List<Integer> path = result.getPath();
+        List<Integer> straightPath = new ArrayList<>();
+        double distance = 0;
+
+        int anchor = 0;
+        straightPath.add(path.get(anchor));
+        while (anchor < path.size() - 1) {
+            // The next node of the grid path is always reachable
+            int lastVisible = anchor + 1;
+            for (int i = anchor + 2; i < path.size(); i++) {
+                if (getDistance(path.get(anchor), path.get(i)) > MAXIMUM_SEGMENT_LENGTH
+                        || !checker.segmentInWater((float) Node.getLatitude(path.get(anchor)),
+                        (float) Node.getLongitude(path.get(anchor)), (float) Node.getLatitude(path.get(i)),
+                        (float) Node.getLongitude(path.get(i)))) {
+                    break;
+                }
+                lastVisible = i;
+            }
+            distance += getDistance(path.get(anchor), path.get(lastVisible));
+            straightPath.add(path.get(lastVisible));
+            anchor = lastVisible;
+        }
+
+        long stopTime = System.nanoTime();
+        // The edge distances are rounded down, so a path which is already straight can get a bit longer
+        return new RoutingResult(true, straightPath, Math.min(result.getOverallDistance(), (int) distance),
+                result.getCalculationTimeInMs() + (double) (stopTime - startTime) / 1000000,
+                result.getAmountOfNodesPoppedOutOfHeap());
+    }
+
+    private static double getDistance(int startNode, int destNode) {
+        return IntersectionHelper.getDistance(Node.getLatitude(startNode), Node.getLongitude(startNode),
+                Node.getLatitude(destNode), Node.getLongitude(destNode));
+    }
+}
@@ -11,6 +11,17 @@ public class RoutingRequest {
     private LatLong endPoint;
     private String router;
 
+    /**
+     * If true the path of the route is straightened, see {@link PathStraightener}.
+     */
+    private boolean straightenPath;
+
+    /**
+     * The landmark set used by ALT routers, see {@link de.fmi.searouter.landmarks.LandmarkSets#choose(String, int, int)}.
+     * Null or empty for the default set.
+     */
+    private String landmarkSet;
+
     public String getRouter() {
         return router;
     }
@@ -19,6 +30,22 @@ public class RoutingRequest {
         this.router = router;
     }
 
+    public String getLandmarkSet() {
+        return landmarkSet;
+    }
+
+    public void setLandmarkSet(String landmarkSet) {
+        this.landmarkSet = landmarkSet;
+    }
+
+    public boolean isStraightenPath() {
+        return straightenPath;
+    }
+
+    public void setStraightenPath(boolean straightenPath) {
+        this.straightenPath = straightenPath;
+    }
+
     public LatLong getStartPoint() {
         return startPoint;
     }
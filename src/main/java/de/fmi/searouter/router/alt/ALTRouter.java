@@ -1,5 +1,7 @@
 package de.fmi.searouter.router.alt;
 
+import de.fmi.searouter.landmarks.Landmark;
+import de.fmi.searouter.landmarks.LandmarkSet;
 import de.fmi.searouter.router.Router;
 import de.fmi.searouter.router.RoutingResult;
 
@@ -7,4 +9,16 @@ public interface ALTRouter extends Router {
 
     void setMaxNumberOfQueryLandmarks(int maxLandmarks);
 
+    /**
+     * Sets the landmark set the following queries use.
+     *
+     * @param landmarkSet The landmark set, null for the default set of the current graph.
+     * @throws UnsupportedOperationException If the router only works with the landmarks of the current graph.
+     */
+    default void setLandmarkSet(LandmarkSet landmarkSet) {
+        if (landmarkSet != null && landmarkSet != Landmark.getLandmarkSet()) {
+            throw new UnsupportedOperationException(getName() + " only supports the default landmark set");
+        }
+    }
+
 }
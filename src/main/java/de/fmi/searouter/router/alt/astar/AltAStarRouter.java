@@ -1,9 +1,16 @@
 package de.fmi.searouter.router.alt.astar;
 
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
 import de.fmi.searouter.dijkstragrid.Edge;
 import de.fmi.searouter.dijkstragrid.Grid;
 import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.landmarks.ActiveLandmarkSet;
 import de.fmi.searouter.landmarks.Landmark;
+import de.fmi.searouter.landmarks.LandmarkBoundKernel;
+import de.fmi.searouter.landmarks.LandmarkRepair;
+import de.fmi.searouter.landmarks.LandmarkSet;
+import de.fmi.searouter.landmarks.LandmarkSets;
+import de.fmi.searouter.landmarks.LandmarkTelemetry;
 import de.fmi.searouter.router.Router;
 import de.fmi.searouter.router.RoutingResult;
 import de.fmi.searouter.router.alt.ALTRouter;
@@ -17,10 +24,32 @@ import java.util.List;
 
 /**
  * Router using an ALT variant of an A* implementation.
+ * <p>
+ * With adaptive landmark activation (the default) the query starts with few landmarks and adds landmarks which
+ * give a better bound for the current search frontier at checkpoints, see {@link ActiveLandmarkSet}. The heap keys
+ * are recalculated whenever a landmark is added.
+ * <p>
+ * The heuristic of all new neighbors of a settled node is calculated in one pass over the landmarks with a
+ * {@link LandmarkBoundKernel}.
  */
 public class AltAStarRouter implements ALTRouter {
 
-    private int maxNumberOfQueryLandmarks = 5; // default
+    /**
+     * Roughly how often during a query the active landmarks are checked, spread over the distance to the target.
+     */
+    private static final int NUMBER_OF_CHECKPOINTS = 10;
+
+    private int maxNumberOfQueryLandmarks = LandmarkSets.getActiveLandmarks(); // default
+    private LandmarkSet landmarkSet; // null: the landmarks of the current graph
+    private LandmarkSet queryLandmarkSet;
+    private int[] queryLandmarks;
+    private boolean adaptiveLandmarkActivation = true; // default
+    private final ActiveLandmarkSet activeLandmarks = new ActiveLandmarkSet();
+    private final LandmarkBoundKernel boundKernel = new LandmarkBoundKernel();
+
+    // neighbors of the settled node whose heuristic is calculated in one batch, and their heuristic
+    private final int[] neighbourBatch;
+    private final int[] neighbourBatchBounds;
 
     //current distance to the target node
     protected final double[] currDistanceToNodeAStar;
@@ -43,6 +72,8 @@ public class AltAStarRouter implements ALTRouter {
         this.distanceToTarget = new double[Node.getSize()];
         this.nodeTouched = new boolean[Node.getSize()];
         this.vertexHeap = new AltAStarHeap(this);
+        this.neighbourBatch = new int[Grid.getMaxDegree()];
+        this.neighbourBatchBounds = new int[Grid.getMaxDegree()];
 
         Arrays.fill(currDistanceToNodeAStar, Double.MAX_VALUE);
         Arrays.fill(distanceToTarget, -1);
@@ -72,7 +103,44 @@ public class AltAStarRouter implements ALTRouter {
      * @return The heuristics estimation value.
      */
     private double pi(int currNodeIdx) {
-        return Landmark.distance(currNodeIdx, destNodeIdx);
+        return boundKernel.boundToDestination(currNodeIdx);
+    }
+
+    /**
+     * Passes the landmarks of the query (the active landmarks with adaptive landmark activation) to the kernel.
+     */
+    private void prepareBoundKernel(int startNodeIdx) {
+        if (adaptiveLandmarkActivation) {
+            boundKernel.prepare(queryLandmarkSet.getDistances(), activeLandmarks.getActiveLandmarks(), activeLandmarks.getNumberOfActiveLandmarks(), startNodeIdx, destNodeIdx);
+        } else {
+            boundKernel.prepare(queryLandmarkSet.getDistances(), queryLandmarks, queryLandmarks.length, startNodeIdx, destNodeIdx);
+        }
+    }
+
+    /**
+     * Recalculates the heuristic of all nodes on the heap after the active landmarks changed.
+     */
+    private void updateHeuristic(int startNodeIdx) {
+        prepareBoundKernel(startNodeIdx);
+        Arrays.fill(distanceToTarget, -1);
+        for (int i = 0; i < vertexHeap.size(); i++) {
+            int nodeIdx = vertexHeap.getIdAt(i);
+            distanceToTarget[nodeIdx] = pi(nodeIdx);
+            currDistanceToNodeAStar[nodeIdx] = realDistanceToNode[nodeIdx] + distanceToTarget[nodeIdx];
+        }
+        vertexHeap.rebuild();
+    }
+
+    @Override
+    public RoutingResult route(int startNodeIdx, int destNodeIdx) {
+        RoutingResult result = calculateRoute(startNodeIdx, destNodeIdx);
+        if (adaptiveLandmarkActivation) {
+            LandmarkTelemetry.recordQuery(queryLandmarkSet, activeLandmarks.getActiveLandmarks(),
+                    activeLandmarks.getNumberOfActiveLandmarks(), startNodeIdx, destNodeIdx, result);
+        } else {
+            LandmarkTelemetry.recordQuery(queryLandmarkSet, queryLandmarks, queryLandmarks.length, startNodeIdx, destNodeIdx, result);
+        }
+        return result;
     }
 
     /**
@@ -84,15 +152,25 @@ public class AltAStarRouter implements ALTRouter {
      * @param destNodeIdx  The index of the destination node (corresponding to {@link Node} indices)
      * @return a route between start and destination node
      */
-    @Override
-    public RoutingResult route(int startNodeIdx, int destNodeIdx) {
+    private RoutingResult calculateRoute(int startNodeIdx, int destNodeIdx) {
 
         long startTime = System.nanoTime();
-        Landmark.prepareLandmarksForQueryPhase(maxNumberOfQueryLandmarks, startNodeIdx, destNodeIdx);
+
+        // Edge costs including all active penalties, fixed for the whole query
+        int[] edgeCost = EdgeCostOverlay.getCurrentCosts();
+        queryLandmarkSet = LandmarkRepair.forCosts(landmarkSet != null ? landmarkSet : Landmark.getLandmarkSet(), edgeCost);
+        if (adaptiveLandmarkActivation) {
+            activeLandmarks.prepareForQuery(queryLandmarkSet, maxNumberOfQueryLandmarks, startNodeIdx, destNodeIdx);
+        } else {
+            queryLandmarks = queryLandmarkSet.selectLandmarksForQuery(maxNumberOfQueryLandmarks, startNodeIdx, destNodeIdx);
+        }
 
         resetState();
 
         this.destNodeIdx = destNodeIdx;
+        prepareBoundKernel(startNodeIdx);
+        int checkpointDistance = Math.max(1, (int) (pi(startNodeIdx) / NUMBER_OF_CHECKPOINTS));
+        int nextCheckpoint = checkpointDistance;
 
         currDistanceToNodeAStar[startNodeIdx] = 0;
         realDistanceToNode[startNodeIdx] = 0;
@@ -113,6 +191,26 @@ public class AltAStarRouter implements ALTRouter {
                 break;
             }
 
+            if (adaptiveLandmarkActivation && realDistanceToNode[nodeToHandleId] >= nextCheckpoint) {
+                nextCheckpoint = realDistanceToNode[nodeToHandleId] + checkpointDistance;
+                if (activeLandmarks.activateBetterLandmark(nodeToHandleId, destNodeIdx)) {
+                    updateHeuristic(startNodeIdx);
+                }
+            }
+
+            // Calculate the heuristic of all neighbours reached for the first time in one batch
+            int batchSize = 0;
+            for (int neighbourEdgeId = Grid.offset[nodeToHandleId]; neighbourEdgeId < Grid.offset[nodeToHandleId + 1]; ++neighbourEdgeId) {
+                int destinationVertexId = Edge.getDest(neighbourEdgeId);
+                if (!nodeTouched[destinationVertexId] && distanceToTarget[destinationVertexId] < 0) {
+                    neighbourBatch[batchSize++] = destinationVertexId;
+                }
+            }
+            boundKernel.boundsToDestination(neighbourBatch, batchSize, neighbourBatchBounds);
+            for (int i = 0; i < batchSize; i++) {
+                distanceToTarget[neighbourBatch[i]] = neighbourBatchBounds[i];
+            }
+
             for (int neighbourEdgeId = Grid.offset[nodeToHandleId]; neighbourEdgeId < Grid.offset[nodeToHandleId + 1]; ++neighbourEdgeId) {
 
                 int destinationVertexId = Edge.getDest(neighbourEdgeId);
@@ -121,12 +219,8 @@ public class AltAStarRouter implements ALTRouter {
                     continue;
                 }
 
-                if (distanceToTarget[destinationVertexId] < 0) {
-                    distanceToTarget[destinationVertexId] = pi(destinationVertexId);
-                }
-
                 // Calculate the distance to the destination vertex using the current edge
-                int newRealDistanceOverThisEdgeToDestVertex = (realDistanceToNode[nodeToHandleId] + Edge.getDist(neighbourEdgeId));
+                int newRealDistanceOverThisEdgeToDestVertex = (realDistanceToNode[nodeToHandleId] + edgeCost[neighbourEdgeId]);
                 double newDistanceOverThisEdgeToDestVertex =  newRealDistanceOverThisEdgeToDestVertex + distanceToTarget[destinationVertexId];
 
                 // If the new calculated distance to the destination vertex is lower as the previously known, update the corresponding data structures
@@ -168,11 +262,24 @@ public class AltAStarRouter implements ALTRouter {
 
     @Override
     public String getName() {
-        return "ALT: AStar, noActiveLandmarks" + maxNumberOfQueryLandmarks;
+        return "ALT: AStar, noActiveLandmarks" + maxNumberOfQueryLandmarks + (adaptiveLandmarkActivation ? ", adaptive" : "");
+    }
+
+    /**
+     * @param adaptiveLandmarkActivation True to add landmarks during the query, false to use the landmarks
+     *                                   selected for the start and destination node only.
+     */
+    public void setAdaptiveLandmarkActivation(boolean adaptiveLandmarkActivation) {
+        this.adaptiveLandmarkActivation = adaptiveLandmarkActivation;
     }
 
     @Override
     public void setMaxNumberOfQueryLandmarks(int maxLandmarks) {
         this.maxNumberOfQueryLandmarks = maxLandmarks;
     }
+
+    @Override
+    public void setLandmarkSet(LandmarkSet landmarkSet) {
+        this.landmarkSet = landmarkSet;
+    }
 }
@@ -1,8 +1,15 @@
 package de.fmi.searouter.router.alt.consistentbiastar;
 
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
 import de.fmi.searouter.dijkstragrid.Edge;
 import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.landmarks.ActiveLandmarkSet;
 import de.fmi.searouter.landmarks.Landmark;
+import de.fmi.searouter.landmarks.LandmarkBoundKernel;
+import de.fmi.searouter.landmarks.LandmarkRepair;
+import de.fmi.searouter.landmarks.LandmarkSet;
+import de.fmi.searouter.landmarks.LandmarkSets;
+import de.fmi.searouter.landmarks.LandmarkTelemetry;
 import de.fmi.searouter.dijkstragrid.Node;
 import de.fmi.searouter.router.RoutingResult;
 import de.fmi.searouter.router.alt.ALTRouter;
@@ -15,10 +22,32 @@ import java.util.List;
 
 /**
  * Router using an ALT variant of a consistent bidirectional A* implementation.
+ * <p>
+ * With adaptive landmark activation (the default) the query starts with few landmarks and adds landmarks at
+ * checkpoints of both searches, see {@link ActiveLandmarkSet}. The averaged potentials of both searches are
+ * recalculated together, so they still add up to zero. Once the potentials changed, the search space of a search is
+ * no longer a ball in the reduced costs, so instead of stopping when a node is settled by both searches, the
+ * search stops when the smallest keys of both heaps add up to at least the shortest distance found so far.
  */
 public class AltConsBiAStar implements ALTRouter {
 
-    private int maxNumberOfQueryLandmarks = 5; // default
+    /**
+     * Roughly how often during a query the active landmarks are checked, spread over the distance to the target.
+     */
+    private static final int NUMBER_OF_CHECKPOINTS = 10;
+
+    private int maxNumberOfQueryLandmarks = LandmarkSets.getActiveLandmarks(); // default
+    private LandmarkSet landmarkSet; // null: the landmarks of the current graph
+    private LandmarkSet queryLandmarkSet;
+    private int[] queryLandmarks;
+    private boolean adaptiveLandmarkActivation = true; // default
+    private final ActiveLandmarkSet activeLandmarks = new ActiveLandmarkSet();
+    private final LandmarkBoundKernel boundKernel = new LandmarkBoundKernel();
+
+    // neighbors of the settled node whose heuristic is calculated in one batch, and their bounds to both ends
+    private final int[] neighbourBatch;
+    private final int[] neighbourBatchBoundsToStart;
+    private final int[] neighbourBatchBoundsToDestination;
 
     public int bicounter = 0;
 
@@ -62,7 +91,9 @@ public class AltConsBiAStar implements ALTRouter {
         this.vertexHeapBackward = new AltConsBiAStarHeapBackward(this);
         this.distanceToTargetForward = new double[Node.getSize()];
         this.distanceToTargetBackward = new double[Node.getSize()];
-
+        this.neighbourBatch = new int[Grid.getMaxDegree()];
+        this.neighbourBatchBoundsToStart = new int[Grid.getMaxDegree()];
+        this.neighbourBatchBoundsToDestination = new int[Grid.getMaxDegree()];
 
         this.currentSmallestDistnace = Integer.MAX_VALUE;
         this.currentBestWayForwardEndId = -1;
@@ -126,8 +157,8 @@ public class AltConsBiAStar implements ALTRouter {
      * @param currNodeIdx The index of vertex v.
      * @return The distance estimate dist(v, t).
      */
-    private double pi_f(int currNodeIdx) {
-        return Landmark.distance(currNodeIdx, destNodeIdx);
+    protected double pi_f(int currNodeIdx) {
+        return boundKernel.boundToDestination(currNodeIdx);
     }
 
     /**
@@ -136,8 +167,64 @@ public class AltConsBiAStar implements ALTRouter {
      * @param currNodeIdx The index of vertex v.
      * @return The distance estimate dist(v, s).
      */
-    private double pi_r(int currNodeIdx) {
-        return Landmark.distance(currNodeIdx, startNodeIdx);
+    protected double pi_r(int currNodeIdx) {
+        return boundKernel.boundToStart(currNodeIdx);
+    }
+
+    /**
+     * Passes the landmarks of the query (the active landmarks with adaptive landmark activation) to the kernel.
+     */
+    private void prepareBoundKernel() {
+        if (adaptiveLandmarkActivation) {
+            boundKernel.prepare(queryLandmarkSet.getDistances(), activeLandmarks.getActiveLandmarks(), activeLandmarks.getNumberOfActiveLandmarks(), startNodeIdx, destNodeIdx);
+        } else {
+            boundKernel.prepare(queryLandmarkSet.getDistances(), queryLandmarks, queryLandmarks.length, startNodeIdx, destNodeIdx);
+        }
+    }
+
+    /**
+     * Calculates the heuristic of the neighbours of a settled node which are not settled by the same search and
+     * have no heuristic yet, in one pass over the landmarks.
+     *
+     * @param nodeIdx          The settled node.
+     * @param nodeTouched      The settled nodes of the search.
+     * @param distanceToTarget The heuristic of the search, negative if not calculated yet.
+     * @param forward          True for the forward search ({@link #p_f(int)}), false for the backward search.
+     */
+    private void calculateHeuristicOfNeighbours(int nodeIdx, boolean[] nodeTouched, double[] distanceToTarget, boolean forward) {
+        int batchSize = 0;
+        for (int neighbourEdgeId = Grid.offset[nodeIdx]; neighbourEdgeId < Grid.offset[nodeIdx + 1]; ++neighbourEdgeId) {
+            int destinationVertexId = Edge.getDest(neighbourEdgeId);
+            if (!nodeTouched[destinationVertexId] && distanceToTarget[destinationVertexId] < 0) {
+                neighbourBatch[batchSize++] = destinationVertexId;
+            }
+        }
+        boundKernel.bounds(neighbourBatch, batchSize, neighbourBatchBoundsToStart, neighbourBatchBoundsToDestination);
+        for (int i = 0; i < batchSize; i++) {
+            double difference = (double) neighbourBatchBoundsToDestination[i] - neighbourBatchBoundsToStart[i];
+            distanceToTarget[neighbourBatch[i]] = (forward ? difference : -difference) / 2;
+        }
+    }
+
+    /**
+     * Recalculates the heuristic of all nodes on both heaps after the active landmarks changed.
+     */
+    private void updateHeuristic() {
+        prepareBoundKernel();
+        Arrays.fill(distanceToTargetForward, -1);
+        Arrays.fill(distanceToTargetBackward, -1);
+        for (int i = 0; i < vertexHeapForward.size(); i++) {
+            int nodeIdx = vertexHeapForward.getIdAt(i);
+            distanceToTargetForward[nodeIdx] = p_f(nodeIdx);
+            currDistanceToNodeForwardAStar[nodeIdx] = currDistanceToNodeForward[nodeIdx] + distanceToTargetForward[nodeIdx];
+        }
+        for (int i = 0; i < vertexHeapBackward.size(); i++) {
+            int nodeIdx = vertexHeapBackward.getIdAt(i);
+            distanceToTargetBackward[nodeIdx] = p_r(nodeIdx);
+            currDistanceToNodeBackwardAStar[nodeIdx] = currDistanceToNodeBackward[nodeIdx] + distanceToTargetBackward[nodeIdx];
+        }
+        vertexHeapForward.rebuild();
+        vertexHeapBackward.rebuild();
     }
 
     /**
@@ -164,6 +251,42 @@ public class AltConsBiAStar implements ALTRouter {
         return (pi_r(currNodeIdx) - pi_f(currNodeIdx)) / 2;
     }
 
+    /**
+     * Checks whether the forward search can skip a node instead of relaxing the edge to it. Subclasses can use this
+     * to prune the search, but the nodes of at least one shortest path must never be skipped.
+     *
+     * @param currNodeIdx The node index.
+     * @param distance    The distance of the node from the start node over the current edge.
+     * @return True if the node is skipped, always false for the plain ALT search.
+     */
+    protected boolean isPrunedForward(int currNodeIdx, int distance) {
+        return false;
+    }
+
+    /**
+     * Checks whether the backward search can skip a node instead of relaxing the edge to it, see
+     * {@link #isPrunedForward(int, int)}.
+     *
+     * @param currNodeIdx The node index.
+     * @param distance    The distance of the node to the destination node over the current edge.
+     * @return True if the node is skipped, always false for the plain ALT search.
+     */
+    protected boolean isPrunedBackward(int currNodeIdx, int distance) {
+        return false;
+    }
+
+
+    @Override
+    public RoutingResult route(int startNodeIdx, int destNodeIdx) {
+        RoutingResult result = calculateRoute(startNodeIdx, destNodeIdx);
+        if (adaptiveLandmarkActivation) {
+            LandmarkTelemetry.recordQuery(queryLandmarkSet, activeLandmarks.getActiveLandmarks(),
+                    activeLandmarks.getNumberOfActiveLandmarks(), startNodeIdx, destNodeIdx, result);
+        } else {
+            LandmarkTelemetry.recordQuery(queryLandmarkSet, queryLandmarks, queryLandmarks.length, startNodeIdx, destNodeIdx, result);
+        }
+        return result;
+    }
 
     /**
      * Calculates the shortest path from one start node to a destination node. Node definitions
@@ -174,19 +297,37 @@ public class AltConsBiAStar implements ALTRouter {
      * @param destNodeIdx  The index of the destination node (corresponding to {@link Node} indices)
      * @return a route between start and destination node
      */
-    @Override
-    public RoutingResult route(int startNodeIdx, int destNodeIdx) {
+    private RoutingResult calculateRoute(int startNodeIdx, int destNodeIdx) {
         long startTime = System.nanoTime();
-        Landmark.prepareLandmarksForQueryPhase(maxNumberOfQueryLandmarks, startNodeIdx, destNodeIdx);
+
+        // Edge costs including all active penalties, fixed for the whole query
+        int[] edgeCost = EdgeCostOverlay.getCurrentCosts();
+        queryLandmarkSet = LandmarkRepair.forCosts(landmarkSet != null ? landmarkSet : Landmark.getLandmarkSet(), edgeCost);
+        if (adaptiveLandmarkActivation) {
+            activeLandmarks.prepareForQuery(queryLandmarkSet, maxNumberOfQueryLandmarks, startNodeIdx, destNodeIdx);
+        } else {
+            queryLandmarks = queryLandmarkSet.selectLandmarksForQuery(maxNumberOfQueryLandmarks, startNodeIdx, destNodeIdx);
+        }
 
 
         resetState(startNodeIdx, destNodeIdx);
+        prepareBoundKernel();
 
         // Counts how many nodes where popped out the heap, meaning that they had the "labeled" status
         int vertexPoppedOutCount = 0;
 
+        int checkpointDistance = Math.max(1, (int) (pi_f(startNodeIdx) / NUMBER_OF_CHECKPOINTS));
+        int nextCheckpointForward = checkpointDistance;
+        int nextCheckpointBackward = checkpointDistance;
+
         while (!vertexHeapForward.isEmpty() && !vertexHeapBackward.isEmpty()) {
 
+            if (adaptiveLandmarkActivation && currentSmallestDistnace != Integer.MAX_VALUE
+                    && currDistanceToNodeForwardAStar[vertexHeapForward.getIdAt(0)]
+                    + currDistanceToNodeBackwardAStar[vertexHeapBackward.getIdAt(0)] >= currentSmallestDistnace) {
+                break;
+            }
+
             // ========================
             // ==== FORWARD SEARCH ====
             // ========================
@@ -205,10 +346,19 @@ public class AltConsBiAStar implements ALTRouter {
             }
 
             // Backward and forward search met --> terminate
-            if (nodeTouchedBackward[nodeToHandleIdForward]) {
+            if (!adaptiveLandmarkActivation && nodeTouchedBackward[nodeToHandleIdForward]) {
                 break;
             }
 
+            if (adaptiveLandmarkActivation && currDistanceToNodeForward[nodeToHandleIdForward] >= nextCheckpointForward) {
+                nextCheckpointForward = currDistanceToNodeForward[nodeToHandleIdForward] + checkpointDistance;
+                if (activeLandmarks.activateBetterLandmark(nodeToHandleIdForward, destNodeIdx)) {
+                    updateHeuristic();
+                }
+            }
+
+            calculateHeuristicOfNeighbours(nodeToHandleIdForward, nodeTouchedForward, distanceToTargetForward, true);
+
             for (int neighbourEdgeId = Grid.offset[nodeToHandleIdForward]; neighbourEdgeId < Grid.offset[nodeToHandleIdForward + 1]; ++neighbourEdgeId) {
 
                 int destinationVertexId = Edge.getDest(neighbourEdgeId);
@@ -217,12 +367,12 @@ public class AltConsBiAStar implements ALTRouter {
                     continue;
                 }
 
-                if (distanceToTargetForward[destinationVertexId] < 0) {
-                    distanceToTargetForward[destinationVertexId] = p_f(destinationVertexId);
+                if (isPrunedForward(destinationVertexId, currDistanceToNodeForward[nodeToHandleIdForward] + edgeCost[neighbourEdgeId])) {
+                    continue;
                 }
 
                 // Calculate the distance to the destination vertex using the current edge
-                int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeForward[nodeToHandleIdForward] + Edge.getDist(neighbourEdgeId);
+                int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeForward[nodeToHandleIdForward] + edgeCost[neighbourEdgeId];
                 double newDistanceOverThisEdgeToDestVertexAStar = newDistanceOverThisEdgeToDestVertex + distanceToTargetForward[destinationVertexId];
 
 
@@ -236,7 +386,7 @@ public class AltConsBiAStar implements ALTRouter {
 
 
                 if (nodeTouchedBackward[destinationVertexId]) {
-                    int newRealDistanceOverall = currDistanceToNodeForward[nodeToHandleIdForward] + Edge.getDist(neighbourEdgeId) + currDistanceToNodeBackward[destinationVertexId];
+                    int newRealDistanceOverall = currDistanceToNodeForward[nodeToHandleIdForward] + edgeCost[neighbourEdgeId] + currDistanceToNodeBackward[destinationVertexId];
 
                     if (currentSmallestDistnace > newRealDistanceOverall) {
                         currentSmallestDistnace = newRealDistanceOverall;
@@ -265,10 +415,19 @@ public class AltConsBiAStar implements ALTRouter {
 
 
             // Backward and forward search met --> terminate
-            if (nodeTouchedForward[nodeToHandleIdBackward]) {
+            if (!adaptiveLandmarkActivation && nodeTouchedForward[nodeToHandleIdBackward]) {
                 break;
             }
 
+            if (adaptiveLandmarkActivation && currDistanceToNodeBackward[nodeToHandleIdBackward] >= nextCheckpointBackward) {
+                nextCheckpointBackward = currDistanceToNodeBackward[nodeToHandleIdBackward] + checkpointDistance;
+                if (activeLandmarks.activateBetterLandmark(nodeToHandleIdBackward, startNodeIdx)) {
+                    updateHeuristic();
+                }
+            }
+
+            calculateHeuristicOfNeighbours(nodeToHandleIdBackward, nodeTouchedBackward, distanceToTargetBackward, false);
+
             for (int neighbourEdgeId = Grid.offset[nodeToHandleIdBackward]; neighbourEdgeId < Grid.offset[nodeToHandleIdBackward + 1]; ++neighbourEdgeId) {
 
                 int destinationVertexId = Edge.getDest(neighbourEdgeId);
@@ -277,12 +436,12 @@ public class AltConsBiAStar implements ALTRouter {
                     continue;
                 }
 
-                if (distanceToTargetBackward[destinationVertexId] < 0) {
-                    distanceToTargetBackward[destinationVertexId] = p_r(destinationVertexId);
+                if (isPrunedBackward(destinationVertexId, currDistanceToNodeBackward[nodeToHandleIdBackward] + edgeCost[neighbourEdgeId])) {
+                    continue;
                 }
 
                 // Calculate the distance to the destination vertex using the current edge
-                int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeBackward[nodeToHandleIdBackward] + Edge.getDist(neighbourEdgeId);
+                int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeBackward[nodeToHandleIdBackward] + edgeCost[neighbourEdgeId];
                 double newDistanceOverThisEdgeToDestVertexAStar = newDistanceOverThisEdgeToDestVertex + distanceToTargetBackward[destinationVertexId];
 
 
@@ -295,7 +454,7 @@ public class AltConsBiAStar implements ALTRouter {
                 }
 
                 if (nodeTouchedForward[destinationVertexId]) {
-                    int newRealDistanceOverall = currDistanceToNodeBackward[nodeToHandleIdBackward] + Edge.getDist(neighbourEdgeId) + currDistanceToNodeForward[destinationVertexId];
+                    int newRealDistanceOverall = currDistanceToNodeBackward[nodeToHandleIdBackward] + edgeCost[neighbourEdgeId] + currDistanceToNodeForward[destinationVertexId];
                     if (currentSmallestDistnace > newRealDistanceOverall) {
                         currentSmallestDistnace = newRealDistanceOverall;
                         currentBestWayBackwardEndId = nodeToHandleIdBackward;
@@ -332,7 +491,7 @@ public class AltConsBiAStar implements ALTRouter {
 
     @Override
     public String getName() {
-        return "ALT with Consistent Bidirectional AStar, noActiveLandmarks" + maxNumberOfQueryLandmarks;
+        return "ALT with Consistent Bidirectional AStar, noActiveLandmarks" + maxNumberOfQueryLandmarks + (adaptiveLandmarkActivation ? ", adaptive" : "");
     }
 
     public List<Integer> getPathToNodeWithIDForward(int id, int startNodeIdx) {
@@ -374,4 +533,17 @@ public class AltConsBiAStar implements ALTRouter {
     public void setMaxNumberOfQueryLandmarks(int maxLandmarks) {
         this.maxNumberOfQueryLandmarks = maxLandmarks;
     }
+
+    @Override
+    public void setLandmarkSet(LandmarkSet landmarkSet) {
+        this.landmarkSet = landmarkSet;
+    }
+
+    /**
+     * @param adaptiveLandmarkActivation True to add landmarks during the query, false to use the landmarks
+     *                                   selected for the start and destination node only.
+     */
+    public void setAdaptiveLandmarkActivation(boolean adaptiveLandmarkActivation) {
+        this.adaptiveLandmarkActivation = adaptiveLandmarkActivation;
+    }
 }
\ No newline at end of file
@@ -85,6 +85,30 @@ public class AltConsBiAStarHeapBackward {
         }
     }
 
+    /**
+     * @return the number of ids on the heap
+     */
+    protected int size() {
+        return currentSize;
+    }
+
+    /**
+     * @param position a position in the heap array, smaller than {@link #size()}
+     * @return the id at this position, the id with the shortest distance at position 0
+     */
+    protected int getIdAt(int position) {
+        return idHeapArray[position];
+    }
+
+    /**
+     * restores the heap property of the whole array after the distances of the contained ids changed.
+     */
+    protected void rebuild() {
+        for (int i = currentSize / 2 - 1; i >= 0; i--) {
+            heapifyTopDown(currentSize, i);
+        }
+    }
+
     /**
      * restores the heap property of the array after removing the first element.
      * @param n the length of the array
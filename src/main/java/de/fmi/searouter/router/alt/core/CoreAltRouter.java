@@ -0,0 +1,402 @@
+package de.fmi.searouter.router.alt.core;
+
+import de.fmi.searouter.coregraph.CoreGraph;
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.landmarks.Landmark;
+import de.fmi.searouter.landmarks.LandmarkSets;
+import de.fmi.searouter.router.RoutingResult;
+import de.fmi.searouter.router.alt.ALTRouter;
+import de.fmi.searouter.router.alt.consistentbiastar.AltConsBiAStar;
+import de.fmi.searouter.router.bidijkstra.BiDijkstra;
+import de.fmi.searouter.utils.IntMinHeap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Router using Core-ALT on the {@link CoreGraph}.
+ * <p>
+ * The query has two phases. First a bidirectional Dijkstra search on the up links: from the start node and from
+ * the destination node, only contracted nodes are expanded, core nodes reached are only labeled. This already
+ * finds all paths which do not touch the core. Then a consistent bidirectional A* search on the core graph is
+ * started from the labeled core nodes of both sides, with the landmark lower bounds of {@link CoreLandmarks}. As the
+ * landmarks only know core nodes, the bounds are taken to the nearest core node reached from the start and the
+ * destination node (their proxies) minus the distance to it. The search stops as soon as the smallest keys of both
+ * heaps show that no shorter path can be found.
+ * <p>
+ * The contraction is only valid for the plain edge distances. While penalties are active an {@link AltConsBiAStar}
+ * is used instead, or a {@link BiDijkstra} if the landmarks of the full graph are not loaded (Core-ALT does not need
+ * them).
+ */
+public class CoreAltRouter implements ALTRouter {
+
+    private int maxNumberOfQueryLandmarks = LandmarkSets.getActiveLandmarks(); // default
+
+    private final int[] currDistanceToNodeForward;
+    private final int[] currDistanceToNodeBackward;
+
+    // Keys of the core search: 2 * distance + difference of the two landmark bounds, to stay in ints
+    private final int[] coreKeyForward;
+    private final int[] coreKeyBackward;
+
+    private final int[] previousNodeForward;
+    private final int[] previousNodeBackward;
+    private final int[] previousLinkForward;
+    private final int[] previousLinkBackward;
+
+    private final int[] touchedNodesForward;
+    private final int[] touchedNodesBackward;
+    private int numberOfTouchedNodesForward;
+    private int numberOfTouchedNodesBackward;
+
+    private final IntMinHeap upHeapForward;
+    private final IntMinHeap upHeapBackward;
+    private final IntMinHeap coreHeapForward;
+    private final IntMinHeap coreHeapBackward;
+
+    private int[] coreEntriesForward = new int[64];
+    private int[] coreEntriesBackward = new int[64];
+    private int numberOfCoreEntriesForward;
+    private int numberOfCoreEntriesBackward;
+
+    private CoreGraph coreGraph;
+    private CoreLandmarks landmarks;
+    private int[] activeLandmarks;
+    private int numberOfActiveLandmarks;
+    private int startProxyIndex;
+    private int startProxyDistance;
+    private int destProxyIndex;
+    private int destProxyDistance;
+
+    private int currentSmallestDistance;
+    private int meetingNode;
+    private int vertexPoppedOutCount;
+
+    /**
+     * constructor. also initializes internal fields
+     */
+    public CoreAltRouter() {
+        this.currDistanceToNodeForward = new int[Node.getSize()];
+        this.currDistanceToNodeBackward = new int[Node.getSize()];
+        this.coreKeyForward = new int[Node.getSize()];
+        this.coreKeyBackward = new int[Node.getSize()];
+        this.previousNodeForward = new int[Node.getSize()];
+        this.previousNodeBackward = new int[Node.getSize()];
+        this.previousLinkForward = new int[Node.getSize()];
+        this.previousLinkBackward = new int[Node.getSize()];
+        this.touchedNodesForward = new int[Node.getSize()];
+        this.touchedNodesBackward = new int[Node.getSize()];
+
+        Arrays.fill(currDistanceToNodeForward, Integer.MAX_VALUE);
+        Arrays.fill(currDistanceToNodeBackward, Integer.MAX_VALUE);
+
+        this.upHeapForward = new IntMinHeap(currDistanceToNodeForward);
+        this.upHeapBackward = new IntMinHeap(currDistanceToNodeBackward);
+        this.coreHeapForward = new IntMinHeap(coreKeyForward);
+        this.coreHeapBackward = new IntMinHeap(coreKeyBackward);
+    }
+
+    /**
+     * resets the state of a previous calculation
+     */
+    private void resetState() {
+        for (int i = 0; i < numberOfTouchedNodesForward; i++) {
+            currDistanceToNodeForward[touchedNodesForward[i]] = Integer.MAX_VALUE;
+        }
+        for (int i = 0; i < numberOfTouchedNodesBackward; i++) {
+            currDistanceToNodeBackward[touchedNodesBackward[i]] = Integer.MAX_VALUE;
+        }
+        numberOfTouchedNodesForward = 0;
+        numberOfTouchedNodesBackward = 0;
+        numberOfCoreEntriesForward = 0;
+        numberOfCoreEntriesBackward = 0;
+        upHeapForward.resetState();
+        upHeapBackward.resetState();
+        coreHeapForward.resetState();
+        coreHeapBackward.resetState();
+
+        currentSmallestDistance = Integer.MAX_VALUE;
+        meetingNode = -1;
+        vertexPoppedOutCount = 0;
+    }
+
+    @Override
+    public RoutingResult route(int startNodeIdx, int destNodeIdx) {
+        if (EdgeCostOverlay.getCurrentCosts() != Edge.getDistances()) {
+            if (Landmark.getLandmarkSet() == null) {
+                return new BiDijkstra().route(startNodeIdx, destNodeIdx);
+            }
+            AltConsBiAStar router = new AltConsBiAStar();
+            router.setMaxNumberOfQueryLandmarks(maxNumberOfQueryLandmarks);
+            return router.route(startNodeIdx, destNodeIdx);
+        }
+        coreGraph = CoreGraph.getInstance();
+        landmarks = CoreLandmarks.getCurrent(coreGraph);
+
+        long startTime = System.nanoTime();
+        resetState();
+
+        // Phase 1: up links outside of the core
+        setDistanceForward(startNodeIdx, 0, -1, -1);
+        upHeapForward.add(startNodeIdx);
+        searchUpForward();
+        setDistanceBackward(destNodeIdx, 0, -1, -1);
+        upHeapBackward.add(destNodeIdx);
+        searchUpBackward();
+
+        // Phase 2: ALT inside the core
+        if (numberOfCoreEntriesForward > 0 && numberOfCoreEntriesBackward > 0) {
+            prepareCoreSearch();
+            searchCore();
+        }
+
+        if (meetingNode < 0) {
+            long stopTime = System.nanoTime();
+            return new RoutingResult(false, Arrays.asList(startNodeIdx, destNodeIdx), Integer.MAX_VALUE, (double) (stopTime - startTime) / 1000000, vertexPoppedOutCount);
+        }
+
+        List<Integer> path = getPath(startNodeIdx);
+        long stopTime = System.nanoTime();
+        return new RoutingResult(true, path, currentSmallestDistance, (double) (stopTime - startTime) / 1000000, vertexPoppedOutCount);
+    }
+
+    private void searchUpForward() {
+        while (!upHeapForward.isEmpty()) {
+            int node = upHeapForward.getNext();
+            vertexPoppedOutCount++;
+            if (coreGraph.isCoreNode(node)) {
+                if (numberOfCoreEntriesForward == coreEntriesForward.length) {
+                    coreEntriesForward = Arrays.copyOf(coreEntriesForward, 2 * numberOfCoreEntriesForward);
+                }
+                coreEntriesForward[numberOfCoreEntriesForward++] = node;
+                continue;
+            }
+            for (int i = coreGraph.getFirstUpLink(node); i < coreGraph.getUpLinkEnd(node); i++) {
+                int link = coreGraph.getUpLink(i);
+                int dest = coreGraph.getOtherEnd(link, node);
+                int newDistance = currDistanceToNodeForward[node] + coreGraph.getWeight(link);
+                if (newDistance < currDistanceToNodeForward[dest]) {
+                    setDistanceForward(dest, newDistance, node, link);
+                    upHeapForward.add(dest);
+                }
+            }
+        }
+    }
+
+    private void searchUpBackward() {
+        while (!upHeapBackward.isEmpty()) {
+            int node = upHeapBackward.getNext();
+            vertexPoppedOutCount++;
+            if (coreGraph.isCoreNode(node)) {
+                if (numberOfCoreEntriesBackward == coreEntriesBackward.length) {
+                    coreEntriesBackward = Arrays.copyOf(coreEntriesBackward, 2 * numberOfCoreEntriesBackward);
+                }
+                coreEntriesBackward[numberOfCoreEntriesBackward++] = node;
+                continue;
+            }
+            for (int i = coreGraph.getFirstUpLink(node); i < coreGraph.getUpLinkEnd(node); i++) {
+                int link = coreGraph.getUpLink(i);
+                int dest = coreGraph.getOtherEnd(link, node);
+                int newDistance = currDistanceToNodeBackward[node] + coreGraph.getWeight(link);
+                if (newDistance < currDistanceToNodeBackward[dest]) {
+                    setDistanceBackward(dest, newDistance, node, link);
+                    upHeapBackward.add(dest);
+                }
+            }
+        }
+    }
+
+    /**
+     * Chooses the proxies and the active landmarks and puts the labeled core nodes on the core heaps.
+     */
+    private void prepareCoreSearch() {
+        int startProxy = coreEntriesForward[0];
+        for (int i = 1; i < numberOfCoreEntriesForward; i++) {
+            if (currDistanceToNodeForward[coreEntriesForward[i]] < currDistanceToNodeForward[startProxy]) {
+                startProxy = coreEntriesForward[i];
+            }
+        }
+        int destProxy = coreEntriesBackward[0];
+        for (int i = 1; i < numberOfCoreEntriesBackward; i++) {
+            if (currDistanceToNodeBackward[coreEntriesBackward[i]] < currDistanceToNodeBackward[destProxy]) {
+                destProxy = coreEntriesBackward[i];
+            }
+        }
+        startProxyIndex = coreGraph.getCoreIndex(startProxy);
+        startProxyDistance = currDistanceToNodeForward[startProxy];
+        destProxyIndex = coreGraph.getCoreIndex(destProxy);
+        destProxyDistance = currDistanceToNodeBackward[destProxy];
+
+        selectActiveLandmarks();
+
+        for (int i = 0; i < numberOfCoreEntriesForward; i++) {
+            int node = coreEntriesForward[i];
+            coreKeyForward[node] = 2 * currDistanceToNodeForward[node] + potentialDifference(node);
+            coreHeapForward.add(node);
+        }
+        for (int i = 0; i < numberOfCoreEntriesBackward; i++) {
+            int node = coreEntriesBackward[i];
+            coreKeyBackward[node] = 2 * currDistanceToNodeBackward[node] - potentialDifference(node);
+            coreHeapBackward.add(node);
+        }
+    }
+
+    /**
+     * Selects the landmarks giving the best lower bounds between the two proxies.
+     */
+    private void selectActiveLandmarks() {
+        int numberOfLandmarks = landmarks.getNumberOfLandmarks();
+        int[] bound = new int[numberOfLandmarks];
+        Integer[] order = new Integer[numberOfLandmarks];
+        for (int i = 0; i < numberOfLandmarks; i++) {
+            bound[i] = landmarks.lowerBound(i, startProxyIndex, destProxyIndex);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(bound[b], bound[a]));
+
+        activeLandmarks = new int[Math.min(maxNumberOfQueryLandmarks, numberOfLandmarks)];
+        numberOfActiveLandmarks = 0;
+        for (int i = 0; i < activeLandmarks.length; i++) {
+            activeLandmarks[numberOfActiveLandmarks++] = order[i];
+        }
+    }
+
+    /**
+     * Lower bound of the distance from a core node to the destination node: the landmark bound to the destination
+     * proxy minus the distance between proxy and destination node.
+     */
+    private int boundToDestination(int coreIndex) {
+        int bound = 0;
+        for (int i = 0; i < numberOfActiveLandmarks; i++) {
+            bound = Math.max(bound, landmarks.lowerBound(activeLandmarks[i], coreIndex, destProxyIndex));
+        }
+        return Math.max(0, bound - destProxyDistance);
+    }
+
+    /**
+     * Lower bound of the distance from the start node to a core node, see {@link #boundToDestination(int)}.
+     */
+    private int boundToStart(int coreIndex) {
+        int bound = 0;
+        for (int i = 0; i < numberOfActiveLandmarks; i++) {
+            bound = Math.max(bound, landmarks.lowerBound(activeLandmarks[i], coreIndex, startProxyIndex));
+        }
+        return Math.max(0, bound - startProxyDistance);
+    }
+
+    /**
+     * The consistent potential of the forward search (the average of both bounds as proposed by Ikeda et al.),
+     * doubled so that it is an integer. The backward search uses the negated value.
+     */
+    private int potentialDifference(int node) {
+        int coreIndex = coreGraph.getCoreIndex(node);
+        return boundToDestination(coreIndex) - boundToStart(coreIndex);
+    }
+
+    private void searchCore() {
+        while (!coreHeapForward.isEmpty() && !coreHeapBackward.isEmpty()) {
+            if ((long) coreHeapForward.peekDistance() + coreHeapBackward.peekDistance() >= 2L * currentSmallestDistance) {
+                break;
+            }
+
+            if (coreHeapForward.peekDistance() <= coreHeapBackward.peekDistance()) {
+                int node = coreHeapForward.getNext();
+                vertexPoppedOutCount++;
+                int index = coreGraph.getCoreIndex(node);
+                for (int i = coreGraph.getFirstCoreLink(index); i < coreGraph.getCoreLinkEnd(index); i++) {
+                    int link = coreGraph.getCoreLink(i);
+                    int dest = coreGraph.getOtherEnd(link, node);
+                    int newDistance = currDistanceToNodeForward[node] + coreGraph.getWeight(link);
+                    if (newDistance < currDistanceToNodeForward[dest]) {
+                        setDistanceForward(dest, newDistance, node, link);
+                        coreKeyForward[dest] = 2 * newDistance + potentialDifference(dest);
+                        coreHeapForward.add(dest);
+                    }
+                }
+            } else {
+                int node = coreHeapBackward.getNext();
+                vertexPoppedOutCount++;
+                int index = coreGraph.getCoreIndex(node);
+                for (int i = coreGraph.getFirstCoreLink(index); i < coreGraph.getCoreLinkEnd(index); i++) {
+                    int link = coreGraph.getCoreLink(i);
+                    int dest = coreGraph.getOtherEnd(link, node);
+                    int newDistance = currDistanceToNodeBackward[node] + coreGraph.getWeight(link);
+                    if (newDistance < currDistanceToNodeBackward[dest]) {
+                        setDistanceBackward(dest, newDistance, node, link);
+                        coreKeyBackward[dest] = 2 * newDistance - potentialDifference(dest);
+                        coreHeapBackward.add(dest);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the forward distance of a node and checks whether the path over it is the best one found so far.
+     */
+    private void setDistanceForward(int node, int distance, int previousNode, int previousLink) {
+        if (currDistanceToNodeForward[node] == Integer.MAX_VALUE) {
+            touchedNodesForward[numberOfTouchedNodesForward++] = node;
+        }
+        currDistanceToNodeForward[node] = distance;
+        previousNodeForward[node] = previousNode;
+        previousLinkForward[node] = previousLink;
+        if (currDistanceToNodeBackward[node] != Integer.MAX_VALUE
+                && distance + currDistanceToNodeBackward[node] < currentSmallestDistance) {
+            currentSmallestDistance = distance + currDistanceToNodeBackward[node];
+            meetingNode = node;
+        }
+    }
+
+    /**
+     * Sets the backward distance of a node and checks whether the path over it is the best one found so far.
+     */
+    private void setDistanceBackward(int node, int distance, int previousNode, int previousLink) {
+        if (currDistanceToNodeBackward[node] == Integer.MAX_VALUE) {
+            touchedNodesBackward[numberOfTouchedNodesBackward++] = node;
+        }
+        currDistanceToNodeBackward[node] = distance;
+        previousNodeBackward[node] = previousNode;
+        previousLinkBackward[node] = previousLink;
+        if (currDistanceToNodeForward[node] != Integer.MAX_VALUE
+                && distance + currDistanceToNodeForward[node] < currentSmallestDistance) {
+            currentSmallestDistance = distance + currDistanceToNodeForward[node];
+            meetingNode = node;
+        }
+    }
+
+    /**
+     * Unpacks the links from the start node to the meeting node and from there to the destination node.
+     */
+    private List<Integer> getPath(int startNodeIdx) {
+        List<Integer> forwardNodes = new ArrayList<>();
+        for (int node = meetingNode; node != startNodeIdx; node = previousNodeForward[node]) {
+            forwardNodes.add(node);
+        }
+
+        List<Integer> path = new ArrayList<>();
+        path.add(startNodeIdx);
+        int currentNode = startNodeIdx;
+        for (int i = forwardNodes.size() - 1; i >= 0; i--) {
+            coreGraph.unpackLink(currentNode, previousLinkForward[forwardNodes.get(i)], path);
+            currentNode = forwardNodes.get(i);
+        }
+        for (int node = meetingNode; previousNodeBackward[node] >= 0; node = previousNodeBackward[node]) {
+            coreGraph.unpackLink(node, previousLinkBackward[node], path);
+        }
+        return path;
+    }
+
+    @Override
+    public String getName() {
+        return "Core-ALT with Consistent Bidirectional AStar, noActiveLandmarks" + maxNumberOfQueryLandmarks;
+    }
+
+    @Override
+    public void setMaxNumberOfQueryLandmarks(int maxLandmarks) {
+        this.maxNumberOfQueryLandmarks = maxLandmarks;
+    }
+}
@@ -0,0 +1,217 @@
+package de.fmi.searouter.router.alt.core;
+
+import de.fmi.searouter.coregraph.CoreGraph;
+import de.fmi.searouter.utils.IntMinHeap;
+import de.fmi.searouter.utils.PreprocessingFiles;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Landmark distances restricted to the nodes of a {@link CoreGraph}, used by the {@link CoreAltRouter}.
+ * <p>
+ * The landmarks are core nodes chosen by farthest selection: each landmark is the core node with the largest
+ * distance to all landmarks chosen before, starting with the core node farthest from the first core node. Core
+ * nodes in another component than all landmarks so far count as infinitely far away, so every component gets a
+ * landmark. The distances are calculated with one Dijkstra search on the core graph per landmark and only stored for
+ * the core nodes, so the table needs only {@link CoreGraph#CORE_FRACTION} of the memory of a full landmark table,
+ * and the landmark table of the other ALT routers (see {@link de.fmi.searouter.landmarks.Landmark}) is not needed.
+ * <p>
+ * The distances are read from a serialization file if that file belongs to the current core graph, otherwise they
+ * are calculated and the file is (over)written.
+ */
+final class CoreLandmarks implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The name of the serialization file which is created for storing the landmark distances.
+     */
+    private static final String CORE_LANDMARKS_SERIALIZATION_FILE_NAME = "corelandmarks.ser";
+
+    /**
+     * The number of landmarks (if the core has enough nodes).
+     */
+    private static final int NUMBER_OF_LANDMARKS = 300;
+
+    private static CoreLandmarks current;
+
+    /**
+     * The core graph the distances belong to, only used to detect a new core graph quickly.
+     */
+    private transient CoreGraph coreGraph;
+
+    /**
+     * Checksum of the graph and of the core nodes the distances were calculated for.
+     */
+    private final long graphChecksum;
+    private final long coreChecksum;
+
+    /**
+     * For each landmark the distance to every core node, by core index.
+     */
+    private final int[][] distance;
+
+    private CoreLandmarks(CoreGraph coreGraph, int[][] distance) {
+        this.coreGraph = coreGraph;
+        this.graphChecksum = coreGraph.getGraphChecksum();
+        this.coreChecksum = calculateCoreChecksum(coreGraph);
+        this.distance = distance;
+    }
+
+    /**
+     * Returns the core landmark distances for a core graph, loading or calculating them if needed.
+     *
+     * @param coreGraph The core graph of the current graph.
+     * @return The landmark distances of the core nodes.
+     */
+    static synchronized CoreLandmarks getCurrent(CoreGraph coreGraph) {
+        if (current != null && current.coreGraph == coreGraph) {
+            return current;
+        }
+
+        String fileName = PreprocessingFiles.getPath(CORE_LANDMARKS_SERIALIZATION_FILE_NAME);
+        CoreLandmarks coreLandmarks = readData(fileName);
+        if (coreLandmarks == null || !coreLandmarks.belongsTo(coreGraph)) {
+            coreLandmarks = calculate(coreGraph);
+            coreLandmarks.storeData(fileName);
+        }
+        coreLandmarks.coreGraph = coreGraph;
+
+        current = coreLandmarks;
+        return coreLandmarks;
+    }
+
+    private boolean belongsTo(CoreGraph coreGraph) {
+        return graphChecksum == coreGraph.getGraphChecksum() && coreChecksum == calculateCoreChecksum(coreGraph);
+    }
+
+    /**
+     * @return A checksum of the core nodes by core index, as the core indices differ between contractions.
+     */
+    private static long calculateCoreChecksum(CoreGraph coreGraph) {
+        long checksum = coreGraph.getNumberOfCoreNodes();
+        for (int index = 0; index < coreGraph.getNumberOfCoreNodes(); index++) {
+            checksum = 31 * checksum + coreGraph.getCoreNode(index);
+        }
+        return checksum;
+    }
+
+    private static CoreLandmarks calculate(CoreGraph coreGraph) {
+        long startTime = System.nanoTime();
+        int numberOfCoreNodes = coreGraph.getNumberOfCoreNodes();
+        int numberOfLandmarks = Math.min(NUMBER_OF_LANDMARKS, numberOfCoreNodes);
+        int[][] distance = new int[numberOfLandmarks][];
+
+        // Smallest distance of each core node to the landmarks chosen so far, MAX_VALUE if not reachable from them
+        int[] distanceToLandmarks = new int[numberOfCoreNodes];
+        Arrays.fill(distanceToLandmarks, Integer.MAX_VALUE);
+        int nextLandmark = numberOfCoreNodes > 0 ? findFarthestCoreNode(calculateCoreDistances(coreGraph, 0)) : -1;
+        for (int landmark = 0; landmark < numberOfLandmarks; landmark++) {
+            distance[landmark] = calculateCoreDistances(coreGraph, nextLandmark);
+            for (int index = 0; index < numberOfCoreNodes; index++) {
+                distanceToLandmarks[index] = Math.min(distanceToLandmarks[index], distance[landmark][index]);
+            }
+            nextLandmark = findFarthestCoreNode(distanceToLandmarks);
+        }
+
+        System.out.println("Calculated core distances of " + numberOfLandmarks + " landmarks in "
+                + (System.nanoTime() - startTime) / 1000000 + " ms");
+        return new CoreLandmarks(coreGraph, distance);
+    }
+
+    /**
+     * @return The core index with the largest distance, unreachable core nodes first.
+     */
+    private static int findFarthestCoreNode(int[] coreDistance) {
+        int farthest = 0;
+        for (int index = 1; index < coreDistance.length; index++) {
+            if (coreDistance[index] > coreDistance[farthest]) {
+                farthest = index;
+            }
+        }
+        return farthest;
+    }
+
+    /**
+     * Dijkstra search on the core graph.
+     *
+     * @param startIndex The core index of the start node.
+     * @return The distances of all core nodes to the start node, by core index.
+     */
+    private static int[] calculateCoreDistances(CoreGraph coreGraph, int startIndex) {
+        int[] coreDistance = new int[coreGraph.getNumberOfCoreNodes()];
+        Arrays.fill(coreDistance, Integer.MAX_VALUE);
+        IntMinHeap heap = new IntMinHeap(coreDistance);
+        coreDistance[startIndex] = 0;
+        heap.add(startIndex);
+
+        while (!heap.isEmpty()) {
+            int index = heap.getNext();
+            int node = coreGraph.getCoreNode(index);
+            for (int i = coreGraph.getFirstCoreLink(index); i < coreGraph.getCoreLinkEnd(index); i++) {
+                int link = coreGraph.getCoreLink(i);
+                int destIndex = coreGraph.getCoreIndex(coreGraph.getOtherEnd(link, node));
+                int newDistance = coreDistance[index] + coreGraph.getWeight(link);
+                if (newDistance < coreDistance[destIndex]) {
+                    coreDistance[destIndex] = newDistance;
+                    heap.add(destIndex);
+                }
+            }
+        }
+        return coreDistance;
+    }
+
+    /**
+     * Stores the landmark distances to a serialization file.
+     */
+    private void storeData(String fileName) {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeObject(this);
+            System.out.println("Core landmark distances have been serialized");
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads landmark distances from a serialization file.
+     *
+     * @return The landmark distances or null if the file does not exist or can not be read.
+     */
+    private static CoreLandmarks readData(String fileName) {
+        File file = new File(fileName);
+        if (!file.exists()) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            CoreLandmarks coreLandmarks = (CoreLandmarks) in.readObject();
+            System.out.println("Core landmark distances have been deserialized");
+            return coreLandmarks;
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @return The number of landmarks.
+     */
+    int getNumberOfLandmarks() {
+        return distance.length;
+    }
+
+    /**
+     * Lower bound of the distance between two core nodes given by one landmark.
+     *
+     * @return The lower bound, 0 if one of the nodes is not reachable from the landmark.
+     */
+    int lowerBound(int landmark, int firstCoreIndex, int secondCoreIndex) {
+        int first = distance[landmark][firstCoreIndex];
+        int second = distance[landmark][secondCoreIndex];
+        if (first == Integer.MAX_VALUE || second == Integer.MAX_VALUE) {
+            return 0;
+        }
+        return Math.abs(first - second);
+    }
+}
@@ -0,0 +1,66 @@
+package de.fmi.searouter.router.alt.parallelbiastar;
+
+import de.fmi.searouter.landmarks.Landmark;
+import de.fmi.searouter.landmarks.LandmarkBoundKernel;
+import de.fmi.searouter.landmarks.LandmarkRepair;
+import de.fmi.searouter.landmarks.LandmarkSet;
+import de.fmi.searouter.landmarks.LandmarkSets;
+import de.fmi.searouter.landmarks.LandmarkTelemetry;
+import de.fmi.searouter.router.RoutingResult;
+import de.fmi.searouter.router.alt.ALTRouter;
+import de.fmi.searouter.router.parallelbidijkstra.ParallelBiDijkstra;
+
+/**
+ * ALT variant of a consistent bidirectional A* whose forward and backward search run on two threads at the same
+ * time (see {@link ParallelBiDijkstra}).
+ * <p>
+ * Like the {@link de.fmi.searouter.router.alt.consistentbiastar.AltConsBiAStar}, the forward search uses the
+ * average of the landmark estimates to the destination and from the start, and the backward search its negation
+ * (Ikeda et al.), so that both searches can stop on the same criterion as the bidirectional dijkstra. The bounds
+ * are prepared once per query and then only read by both threads.
+ */
+public class ParallelAltBiAStar extends ParallelBiDijkstra implements ALTRouter {
+
+    private int maxNumberOfQueryLandmarks = LandmarkSets.getActiveLandmarks(); // default
+    private LandmarkSet landmarkSet; // null: the landmarks of the current graph
+    private LandmarkSet queryLandmarkSet;
+    private int[] queryLandmarks;
+
+    private final LandmarkBoundKernel boundKernel = new LandmarkBoundKernel();
+
+    @Override
+    public RoutingResult route(int startNodeIdx, int destNodeIdx) {
+        RoutingResult result = super.route(startNodeIdx, destNodeIdx);
+        LandmarkTelemetry.recordQuery(queryLandmarkSet, queryLandmarks, queryLandmarks.length, startNodeIdx, destNodeIdx, result);
+        return result;
+    }
+
+    @Override
+    protected void prepareQuery(int startNodeIdx, int destNodeIdx) {
+        queryLandmarkSet = LandmarkRepair.forCosts(landmarkSet != null ? landmarkSet : Landmark.getLandmarkSet(), getEdgeCost());
+        queryLandmarks = queryLandmarkSet.selectLandmarksForQuery(maxNumberOfQueryLandmarks, startNodeIdx, destNodeIdx);
+        boundKernel.prepare(queryLandmarkSet.getDistances(), queryLandmarks, queryLandmarks.length, startNodeIdx, destNodeIdx);
+    }
+
+    @Override
+    protected int potential(int nodeIdx, boolean forward) {
+        // The landmark distances are integers, so twice the average is as well
+        int difference = boundKernel.boundToDestination(nodeIdx) - boundKernel.boundToStart(nodeIdx);
+        return forward ? difference : -difference;
+    }
+
+    @Override
+    public String getName() {
+        return "Parallel ALT with Consistent Bidirectional AStar, noActiveLandmarks" + maxNumberOfQueryLandmarks;
+    }
+
+    @Override
+    public void setMaxNumberOfQueryLandmarks(int maxLandmarks) {
+        this.maxNumberOfQueryLandmarks = maxLandmarks;
+    }
+
+    @Override
+    public void setLandmarkSet(LandmarkSet landmarkSet) {
+        this.landmarkSet = landmarkSet;
+    }
+}
@@ -0,0 +1,47 @@
+package de.fmi.searouter.router.alt.reach;
+
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.reach.ReachBounds;
+import de.fmi.searouter.router.RoutingResult;
+import de.fmi.searouter.router.alt.consistentbiastar.AltConsBiAStar;
+
+/**
+ * Router combining reach pruning with the consistent bidirectional A* of the ALT routers (REAL).
+ * <p>
+ * When the forward search reaches a node v with distance d, v is skipped if its reach (see {@link ReachBounds}) is
+ * smaller than d and smaller than the landmark lower bound of its distance to the destination, as v can not lie on
+ * a shortest path to the destination then. The backward search works the same way with the lower bound of the
+ * distance to the start node. No node of a shortest path is skipped by either search, so the stopping criteria of
+ * {@link AltConsBiAStar} stay valid. As the reach values are only valid for the plain edge distances, nodes are not
+ * skipped while penalties are active.
+ */
+public class ReachAltRouter extends AltConsBiAStar {
+
+    private ReachBounds reachBounds;
+    private boolean useReach;
+
+    @Override
+    public RoutingResult route(int startNodeIdx, int destNodeIdx) {
+        reachBounds = ReachBounds.getInstance();
+        useReach = EdgeCostOverlay.getCurrentCosts() == Edge.getDistances();
+        return super.route(startNodeIdx, destNodeIdx);
+    }
+
+    @Override
+    protected boolean isPrunedForward(int currNodeIdx, int distance) {
+        int reach = reachBounds.getReach(currNodeIdx);
+        return useReach && reach < distance && reach < pi_f(currNodeIdx);
+    }
+
+    @Override
+    protected boolean isPrunedBackward(int currNodeIdx, int distance) {
+        int reach = reachBounds.getReach(currNodeIdx);
+        return useReach && reach < distance && reach < pi_r(currNodeIdx);
+    }
+
+    @Override
+    public String getName() {
+        return "REAL (Reach with " + super.getName() + ")";
+    }
+}
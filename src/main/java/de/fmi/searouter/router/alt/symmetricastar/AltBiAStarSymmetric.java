@@ -1,9 +1,16 @@
 package de.fmi.searouter.router.alt.symmetricastar;
 
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
 import de.fmi.searouter.dijkstragrid.Edge;
 import de.fmi.searouter.dijkstragrid.Grid;
 import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.landmarks.ActiveLandmarkSet;
 import de.fmi.searouter.landmarks.Landmark;
+import de.fmi.searouter.landmarks.LandmarkBoundKernel;
+import de.fmi.searouter.landmarks.LandmarkRepair;
+import de.fmi.searouter.landmarks.LandmarkSet;
+import de.fmi.searouter.landmarks.LandmarkSets;
+import de.fmi.searouter.landmarks.LandmarkTelemetry;
 import de.fmi.searouter.router.Router;
 import de.fmi.searouter.router.RoutingResult;
 import de.fmi.searouter.router.alt.ALTRouter;
@@ -17,10 +24,32 @@ import java.util.List;
 
 /**
  * Router using an ALT variant of a symmetric bidirectional A* implementation.
+ * <p>
+ * With adaptive landmark activation (the default) the query starts with few landmarks and adds landmarks at
+ * checkpoints of both searches, see {@link ActiveLandmarkSet}. Both heuristics only grow when a landmark is added,
+ * so the stop criterion stays valid after the keys of both heaps are recalculated.
+ * <p>
+ * The heuristic of all new neighbors of a settled node is calculated in one pass over the landmarks with a
+ * {@link LandmarkBoundKernel}.
  */
 public class AltBiAStarSymmetric implements ALTRouter {
 
-    private int maxNumberOfQueryLandmarks = 5; // default
+    /**
+     * Roughly how often during a query the active landmarks are checked, spread over the distance to the target.
+     */
+    private static final int NUMBER_OF_CHECKPOINTS = 10;
+
+    private int maxNumberOfQueryLandmarks = LandmarkSets.getActiveLandmarks(); // default
+    private LandmarkSet landmarkSet; // null: the landmarks of the current graph
+    private LandmarkSet queryLandmarkSet;
+    private int[] queryLandmarks;
+    private boolean adaptiveLandmarkActivation = true; // default
+    private final ActiveLandmarkSet activeLandmarks = new ActiveLandmarkSet();
+    private final LandmarkBoundKernel boundKernel = new LandmarkBoundKernel();
+
+    // neighbors of the settled node whose heuristic is calculated in one batch, and their heuristic
+    private final int[] neighbourBatch;
+    private final int[] neighbourBatchBounds;
 
 
     //current distance to the target node
@@ -63,7 +92,8 @@ public class AltBiAStarSymmetric implements ALTRouter {
         this.vertexHeapBackward = new AltSymmetricBiAStarHeapBackward(this);
         this.distanceToTargetForward = new double[Node.getSize()];
         this.distanceToTargetBackward = new double[Node.getSize()];
-
+        this.neighbourBatch = new int[Grid.getMaxDegree()];
+        this.neighbourBatchBounds = new int[Grid.getMaxDegree()];
 
         this.currentSmallestDistnace = Integer.MAX_VALUE;
         this.currentBestWayForwardEndId = -1;
@@ -128,7 +158,7 @@ public class AltBiAStarSymmetric implements ALTRouter {
      * @return The distance estimate dist(v, t).
      */
     private double pi_f(int currNodeIdx) {
-        return Landmark.distance(currNodeIdx, destNodeIdx);
+        return boundKernel.boundToDestination(currNodeIdx);
     }
 
     /**
@@ -138,7 +168,51 @@ public class AltBiAStarSymmetric implements ALTRouter {
      * @return The distance estimate dist(v, s).
      */
     private double pi_r(int currNodeIdx) {
-        return Landmark.distance(currNodeIdx, startNodeIdx);
+        return boundKernel.boundToStart(currNodeIdx);
+    }
+
+    /**
+     * Passes the landmarks of the query (the active landmarks with adaptive landmark activation) to the kernel.
+     */
+    private void prepareBoundKernel() {
+        if (adaptiveLandmarkActivation) {
+            boundKernel.prepare(queryLandmarkSet.getDistances(), activeLandmarks.getActiveLandmarks(), activeLandmarks.getNumberOfActiveLandmarks(), startNodeIdx, destNodeIdx);
+        } else {
+            boundKernel.prepare(queryLandmarkSet.getDistances(), queryLandmarks, queryLandmarks.length, startNodeIdx, destNodeIdx);
+        }
+    }
+
+    /**
+     * Recalculates the heuristic of all nodes on both heaps after the active landmarks changed.
+     */
+    private void updateHeuristic() {
+        prepareBoundKernel();
+        Arrays.fill(distanceToTargetForward, -1);
+        Arrays.fill(distanceToTargetBackward, -1);
+        for (int i = 0; i < vertexHeapForward.size(); i++) {
+            int nodeIdx = vertexHeapForward.getIdAt(i);
+            distanceToTargetForward[nodeIdx] = pi_f(nodeIdx);
+            currDistanceToNodeForwardAStar[nodeIdx] = currDistanceToNodeForward[nodeIdx] + distanceToTargetForward[nodeIdx];
+        }
+        for (int i = 0; i < vertexHeapBackward.size(); i++) {
+            int nodeIdx = vertexHeapBackward.getIdAt(i);
+            distanceToTargetBackward[nodeIdx] = pi_r(nodeIdx);
+            currDistanceToNodeBackwardAStar[nodeIdx] = currDistanceToNodeBackward[nodeIdx] + distanceToTargetBackward[nodeIdx];
+        }
+        vertexHeapForward.rebuild();
+        vertexHeapBackward.rebuild();
+    }
+
+    @Override
+    public RoutingResult route(int startNodeIdx, int destNodeIdx) {
+        RoutingResult result = calculateRoute(startNodeIdx, destNodeIdx);
+        if (adaptiveLandmarkActivation) {
+            LandmarkTelemetry.recordQuery(queryLandmarkSet, activeLandmarks.getActiveLandmarks(),
+                    activeLandmarks.getNumberOfActiveLandmarks(), startNodeIdx, destNodeIdx, result);
+        } else {
+            LandmarkTelemetry.recordQuery(queryLandmarkSet, queryLandmarks, queryLandmarks.length, startNodeIdx, destNodeIdx, result);
+        }
+        return result;
     }
 
     /**
@@ -150,16 +224,27 @@ public class AltBiAStarSymmetric implements ALTRouter {
      * @param destNodeIdx  The index of the destination node (corresponding to {@link Node} indices)
      * @return a route between start and destination node
      */
-    @Override
-    public RoutingResult route(int startNodeIdx, int destNodeIdx) {
+    private RoutingResult calculateRoute(int startNodeIdx, int destNodeIdx) {
         long startTime = System.nanoTime();
-        resetState(startNodeIdx, destNodeIdx);
-        Landmark.prepareLandmarksForQueryPhase(maxNumberOfQueryLandmarks, startNodeIdx, destNodeIdx);
 
+        // Edge costs including all active penalties, fixed for the whole query
+        int[] edgeCost = EdgeCostOverlay.getCurrentCosts();
+        resetState(startNodeIdx, destNodeIdx);
+        queryLandmarkSet = LandmarkRepair.forCosts(landmarkSet != null ? landmarkSet : Landmark.getLandmarkSet(), edgeCost);
+        if (adaptiveLandmarkActivation) {
+            activeLandmarks.prepareForQuery(queryLandmarkSet, maxNumberOfQueryLandmarks, startNodeIdx, destNodeIdx);
+        } else {
+            queryLandmarks = queryLandmarkSet.selectLandmarksForQuery(maxNumberOfQueryLandmarks, startNodeIdx, destNodeIdx);
+        }
+        prepareBoundKernel();
 
         // Counts how many nodes where popped out the heap, meaning that they had the "labeled" status
         int vertexPoppedOutCount = 0;
 
+        int checkpointDistance = Math.max(1, (int) (pi_f(startNodeIdx) / NUMBER_OF_CHECKPOINTS));
+        int nextCheckpointForward = checkpointDistance;
+        int nextCheckpointBackward = checkpointDistance;
+
         while (!vertexHeapForward.isEmpty() && !vertexHeapBackward.isEmpty()) {
 
             // ========================
@@ -174,6 +259,27 @@ public class AltBiAStarSymmetric implements ALTRouter {
                 break;
             }
 
+            if (adaptiveLandmarkActivation && currDistanceToNodeForward[nodeToHandleIdForward] >= nextCheckpointForward) {
+                nextCheckpointForward = currDistanceToNodeForward[nodeToHandleIdForward] + checkpointDistance;
+                if (activeLandmarks.activateBetterLandmark(nodeToHandleIdForward, destNodeIdx)) {
+                    updateHeuristic();
+                }
+            }
+
+            // Calculate the heuristic of all neighbours reached for the first time in one batch
+            int batchSize = 0;
+            for (int neighbourEdgeId = Grid.offset[nodeToHandleIdForward]; neighbourEdgeId < Grid.offset[nodeToHandleIdForward + 1]; ++neighbourEdgeId) {
+                int destinationVertexId = Edge.getDest(neighbourEdgeId);
+                if (!nodeTouchedForward[destinationVertexId] && !nodeTouchedBackward[destinationVertexId]
+                        && distanceToTargetForward[destinationVertexId] < 0) {
+                    neighbourBatch[batchSize++] = destinationVertexId;
+                }
+            }
+            boundKernel.boundsToDestination(neighbourBatch, batchSize, neighbourBatchBounds);
+            for (int i = 0; i < batchSize; i++) {
+                distanceToTargetForward[neighbourBatch[i]] = neighbourBatchBounds[i];
+            }
+
             for (int neighbourEdgeId = Grid.offset[nodeToHandleIdForward]; neighbourEdgeId < Grid.offset[nodeToHandleIdForward + 1]; ++neighbourEdgeId) {
 
                 int destinationVertexId = Edge.getDest(neighbourEdgeId);
@@ -185,7 +291,7 @@ public class AltBiAStarSymmetric implements ALTRouter {
 
 
                 if (nodeTouchedBackward[destinationVertexId]) {
-                    int newRealDistanceOverall = currDistanceToNodeForward[nodeToHandleIdForward] + Edge.getDist(neighbourEdgeId) + currDistanceToNodeBackward[destinationVertexId];
+                    int newRealDistanceOverall = currDistanceToNodeForward[nodeToHandleIdForward] + edgeCost[neighbourEdgeId] + currDistanceToNodeBackward[destinationVertexId];
 
                     if (currentSmallestDistnace > newRealDistanceOverall) {
                         currentSmallestDistnace = newRealDistanceOverall;
@@ -194,12 +300,8 @@ public class AltBiAStarSymmetric implements ALTRouter {
                     }
                 } else { // Optimization suggested by Kwa
 
-                    if (distanceToTargetForward[destinationVertexId] < 0) {
-                        distanceToTargetForward[destinationVertexId] = pi_f(destinationVertexId);
-                    }
-
                     // Calculate the distance to the destination vertex using the current edge
-                    int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeForward[nodeToHandleIdForward] + Edge.getDist(neighbourEdgeId);
+                    int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeForward[nodeToHandleIdForward] + edgeCost[neighbourEdgeId];
                     double newDistanceOverThisEdgeToDestVertexAStar = newDistanceOverThisEdgeToDestVertex + distanceToTargetForward[destinationVertexId];
 
                     // If the new calculated distance to the destination vertex is lower as the previously known, update the corresponding data structures
@@ -226,6 +328,27 @@ public class AltBiAStarSymmetric implements ALTRouter {
                 break;
             }
 
+            if (adaptiveLandmarkActivation && currDistanceToNodeBackward[nodeToHandleIdBackward] >= nextCheckpointBackward) {
+                nextCheckpointBackward = currDistanceToNodeBackward[nodeToHandleIdBackward] + checkpointDistance;
+                if (activeLandmarks.activateBetterLandmark(nodeToHandleIdBackward, startNodeIdx)) {
+                    updateHeuristic();
+                }
+            }
+
+            // Calculate the heuristic of all neighbours reached for the first time in one batch
+            batchSize = 0;
+            for (int neighbourEdgeId = Grid.offset[nodeToHandleIdBackward]; neighbourEdgeId < Grid.offset[nodeToHandleIdBackward + 1]; ++neighbourEdgeId) {
+                int destinationVertexId = Edge.getDest(neighbourEdgeId);
+                if (!nodeTouchedBackward[destinationVertexId] && !nodeTouchedForward[destinationVertexId]
+                        && distanceToTargetBackward[destinationVertexId] < 0) {
+                    neighbourBatch[batchSize++] = destinationVertexId;
+                }
+            }
+            boundKernel.boundsToStart(neighbourBatch, batchSize, neighbourBatchBounds);
+            for (int i = 0; i < batchSize; i++) {
+                distanceToTargetBackward[neighbourBatch[i]] = neighbourBatchBounds[i];
+            }
+
             for (int neighbourEdgeId = Grid.offset[nodeToHandleIdBackward]; neighbourEdgeId < Grid.offset[nodeToHandleIdBackward + 1]; ++neighbourEdgeId) {
 
                 int destinationVertexId = Edge.getDest(neighbourEdgeId);
@@ -235,7 +358,7 @@ public class AltBiAStarSymmetric implements ALTRouter {
                 }
 
                 if (nodeTouchedForward[destinationVertexId]) {
-                    int newRealDistanceOverall = currDistanceToNodeBackward[nodeToHandleIdBackward] + Edge.getDist(neighbourEdgeId) + currDistanceToNodeForward[destinationVertexId];
+                    int newRealDistanceOverall = currDistanceToNodeBackward[nodeToHandleIdBackward] + edgeCost[neighbourEdgeId] + currDistanceToNodeForward[destinationVertexId];
                     if (currentSmallestDistnace > newRealDistanceOverall) {
                         currentSmallestDistnace = newRealDistanceOverall;
                         currentBestWayBackwardEndId = nodeToHandleIdBackward;
@@ -243,12 +366,8 @@ public class AltBiAStarSymmetric implements ALTRouter {
                     }
                 } else { // Optimization proposed by Kwa
 
-                    if (distanceToTargetBackward[destinationVertexId] < 0) {
-                        distanceToTargetBackward[destinationVertexId] = pi_r(destinationVertexId);
-                    }
-
                     // Calculate the distance to the destination vertex using the current edge
-                    int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeBackward[nodeToHandleIdBackward] + Edge.getDist(neighbourEdgeId);
+                    int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeBackward[nodeToHandleIdBackward] + edgeCost[neighbourEdgeId];
                     double newDistanceOverThisEdgeToDestVertexAStar = newDistanceOverThisEdgeToDestVertex + distanceToTargetBackward[destinationVertexId];
 
 
@@ -295,7 +414,7 @@ public class AltBiAStarSymmetric implements ALTRouter {
 
     @Override
     public String getName() {
-        return "ALT: Bidirectional AStar Symmetric, noActiveLandmarks" + maxNumberOfQueryLandmarks;
+        return "ALT: Bidirectional AStar Symmetric, noActiveLandmarks" + maxNumberOfQueryLandmarks + (adaptiveLandmarkActivation ? ", adaptive" : "");
     }
 
     public List<Integer> getPathToNodeWithIDForward(int id, int startNodeIdx) {
@@ -337,4 +456,17 @@ public class AltBiAStarSymmetric implements ALTRouter {
     public void setMaxNumberOfQueryLandmarks(int maxLandmarks) {
         this.maxNumberOfQueryLandmarks = maxLandmarks;
     }
+
+    @Override
+    public void setLandmarkSet(LandmarkSet landmarkSet) {
+        this.landmarkSet = landmarkSet;
+    }
+
+    /**
+     * @param adaptiveLandmarkActivation True to add landmarks during the query, false to use the landmarks
+     *                                   selected for the start and destination node only.
+     */
+    public void setAdaptiveLandmarkActivation(boolean adaptiveLandmarkActivation) {
+        this.adaptiveLandmarkActivation = adaptiveLandmarkActivation;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package de.fmi.searouter.router.arcflags;
+
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.router.RoutingResult;
+import de.fmi.searouter.router.bidijkstra.BiDijkstra;
+
+/**
+ * Bidirectional dijkstra restricted by {@link ArcFlags}: the forward search only relaxes edges flagged for the
+ * region of the destination node, the backward search only edges flagged for the region of the start node.
+ * As the graph is symmetric, an edge (u, v) relaxed by the backward search stands for the edge (v, u), which is on
+ * a shortest path from the start region exactly if (u, v) is on a shortest path to it.
+ * <p>
+ * While cost penalties are active the flags are not valid, and all edges are relaxed.
+ */
+public class ArcFlagBiDijkstra extends BiDijkstra {
+
+    private ArcFlags arcFlags;
+    private boolean useFlags;
+    private long forwardRegionBit;
+    private long backwardRegionBit;
+
+    @Override
+    public RoutingResult route(int startNodeIdx, int destNodeIdx) {
+        arcFlags = ArcFlags.getInstance();
+        useFlags = EdgeCostOverlay.getCurrentCosts() == Edge.getDistances();
+        forwardRegionBit = 1L << arcFlags.getRegion(destNodeIdx);
+        backwardRegionBit = 1L << arcFlags.getRegion(startNodeIdx);
+        return super.route(startNodeIdx, destNodeIdx);
+    }
+
+    @Override
+    protected boolean isEdgeAllowedForward(int edgeId) {
+        return !useFlags || (arcFlags.getFlags(edgeId) & forwardRegionBit) != 0;
+    }
+
+    @Override
+    protected boolean isEdgeAllowedBackward(int edgeId) {
+        return !useFlags || (arcFlags.getFlags(edgeId) & backwardRegionBit) != 0;
+    }
+
+    @Override
+    public String getName() {
+        return "Arc-Flags Bidirectional Dijkstra";
+    }
+}
@@ -0,0 +1,38 @@
+package de.fmi.searouter.router.arcflags;
+
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.router.RoutingResult;
+import de.fmi.searouter.router.dijkstra.DijkstraRouter;
+
+/**
+ * Router using a dijkstra implementation which only relaxes edges whose {@link ArcFlags arc flag} for the
+ * region of the destination node is set.
+ * <p>
+ * While cost penalties are active the flags are not valid, and all edges are relaxed.
+ */
+public class ArcFlagRouter extends DijkstraRouter {
+
+    private ArcFlags arcFlags;
+    private boolean useFlags;
+    private long destRegionBit;
+
+    @Override
+    public RoutingResult route(int startNodeIdx, int destNodeIdx) {
+        arcFlags = ArcFlags.getInstance();
+        useFlags = EdgeCostOverlay.getCurrentCosts() == Edge.getDistances();
+        destRegionBit = 1L << arcFlags.getRegion(destNodeIdx);
+        return super.route(startNodeIdx, destNodeIdx);
+    }
+
+    @Override
+    protected boolean isEdgeAllowed(int edgeId) {
+        // Skip edges which are on no shortest path to the region of the destination
+        return !useFlags || (arcFlags.getFlags(edgeId) & destRegionBit) != 0;
+    }
+
+    @Override
+    public String getName() {
+        return "Arc-Flags Dijkstra";
+    }
+}
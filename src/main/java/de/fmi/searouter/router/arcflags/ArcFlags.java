@@ -0,0 +1,223 @@
+package de.fmi.searouter.router.arcflags;
+
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.partition.GraphPartition;
+import de.fmi.searouter.router.dijkstra.DijkstraRouter;
+import de.fmi.searouter.utils.PreprocessingFiles;
+
+import java.io.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Arc flags of the grid graph. The graph is divided into {@link #NUMBER_OF_REGIONS} regions (the cells of one
+ * level of the {@link GraphPartition}), and each edge gets one bit per region, stored in one long per edge
+ * (index = edge id, like the arrays of {@link Edge}). The bit of a region is set if the edge lies on a shortest
+ * path to a node of the region, so a search towards a node of that region only has to relax edges with this bit.
+ * <p>
+ * The flags are calculated with one Dijkstra search per boundary node of each region (a node with a neighbor in
+ * another region). As the graph is symmetric, the forward search from a boundary node b gives the distance of all
+ * nodes to b, and an edge (u, v) is on a shortest path to b if dist(u, b) = cost(u, v) + dist(v, b). All such
+ * edges are flagged, so ties between equally long paths are kept. Edges starting inside a region are always flagged
+ * for it. The searches run in parallel.
+ * <p>
+ * The flags are only valid for the plain edge distances of {@link Edge}, not for edge costs changed by penalties.
+ * The flags of the current graph are available through {@link #getInstance()}, which loads them from a
+ * serialization file or calculates and stores them if no file for the current graph exists.
+ */
+public final class ArcFlags implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The name of the serialization file which is created for storing the flags.
+     */
+    private static final String ARC_FLAGS_SERIALIZATION_FILE_NAME = "arcflags.ser";
+
+    /**
+     * The partition depth used for the regions. 2^6 = 64 regions, so the flags of an edge fit in one long.
+     */
+    private static final int REGION_DEPTH = 6;
+
+    public static final int NUMBER_OF_REGIONS = 1 << REGION_DEPTH;
+
+    private static ArcFlags INSTANCE;
+
+    /**
+     * For each edge a bitset of the regions it is relevant for.
+     */
+    private final long[] flags;
+
+    /**
+     * For each node its region.
+     */
+    private final int[] regions;
+
+    /**
+     * Checksum of the graph the flags were calculated for.
+     */
+    private final long graphChecksum;
+
+    private ArcFlags(long[] flags, int[] regions) {
+        this.flags = flags;
+        this.regions = regions;
+        this.graphChecksum = GraphSnapshotHolder.getCurrentChecksum();
+    }
+
+    /**
+     * Returns the arc flags of the current graph. They are read from the serialization file if that file
+     * belongs to the current graph, otherwise they are calculated and the file is (over)written.
+     *
+     * @return The arc flags of the current graph.
+     */
+    public static synchronized ArcFlags getInstance() {
+        long checksum = GraphSnapshotHolder.getCurrentChecksum();
+        if (INSTANCE != null && INSTANCE.graphChecksum == checksum) {
+            return INSTANCE;
+        }
+
+        String fileName = PreprocessingFiles.getPath(ARC_FLAGS_SERIALIZATION_FILE_NAME);
+        ArcFlags arcFlags = readData(fileName);
+        if (arcFlags == null || arcFlags.graphChecksum != checksum) {
+            System.out.println("Started calculating arc flags. This might take a while!");
+            arcFlags = calculate(GraphPartition.getInstance());
+            arcFlags.storeData(fileName);
+        }
+
+        INSTANCE = arcFlags;
+        return arcFlags;
+    }
+
+    /**
+     * Calculates the arc flags of the current graph.
+     *
+     * @param partition The partition of the current graph, its cells on depth {@link #REGION_DEPTH} are the regions.
+     * @return The arc flags.
+     */
+    static ArcFlags calculate(GraphPartition partition) {
+        long startTime = System.nanoTime();
+        int depth = Math.min(REGION_DEPTH, partition.getNumberOfLevels());
+
+        int[] regions = new int[Node.getSize()];
+        for (int node = 0; node < regions.length; node++) {
+            regions[node] = partition.getCell(depth, node);
+        }
+        int[] boundaryNodes = IntStream.range(0, regions.length)
+                .filter(node -> partition.isBoundaryNode(depth, node)).toArray();
+
+        AtomicLongArray flags = new AtomicLongArray(Edge.getSize());
+        for (int node = 0; node < regions.length; node++) {
+            long bit = 1L << regions[node];
+            for (int edge = Grid.offset[node]; edge < Grid.offset[node + 1]; edge++) {
+                flags.set(edge, bit);
+            }
+        }
+
+        ThreadLocal<DijkstraRouter> routers = ThreadLocal.withInitial(DijkstraRouter::new);
+        AtomicInteger finished = new AtomicInteger();
+        IntStream.range(0, boundaryNodes.length).parallel().forEach(i -> {
+            int boundaryNode = boundaryNodes[i];
+            int[] distance = routers.get().routeToAllVertices(boundaryNode, boundaryNode);
+            flagShortestPathEdges(flags, distance, 1L << regions[boundaryNode]);
+
+            int count = finished.incrementAndGet();
+            if (count % 1000 == 0) {
+                System.out.println("Arc flags: " + count + " of " + boundaryNodes.length + " boundary nodes done");
+            }
+        });
+
+        long[] result = new long[flags.length()];
+        for (int edge = 0; edge < result.length; edge++) {
+            result[edge] = flags.get(edge);
+        }
+        System.out.println("Calculated arc flags for " + (1 << depth) + " regions from " + boundaryNodes.length
+                + " boundary nodes in " + (System.nanoTime() - startTime) / 1000000 + " ms");
+        return new ArcFlags(result, regions);
+    }
+
+    /**
+     * Sets a flag on all edges (u, v) with distance[u] = dist(u, v) + distance[v].
+     */
+    private static void flagShortestPathEdges(AtomicLongArray flags, int[] distance, long bit) {
+        for (int node = 0; node < distance.length; node++) {
+            if (distance[node] == Integer.MAX_VALUE) {
+                continue;
+            }
+            for (int edge = Grid.offset[node]; edge < Grid.offset[node + 1]; edge++) {
+                int destDistance = distance[Edge.getDest(edge)];
+                if (destDistance != Integer.MAX_VALUE && distance[node] == Edge.getDist(edge) + destDistance
+                        && (flags.get(edge) & bit) == 0) {
+                    flags.getAndAccumulate(edge, bit, (a, b) -> a | b);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores the flags to a serialization file.
+     */
+    private void storeData(String fileName) {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeObject(this);
+            System.out.println("Arc flags have been serialized");
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads flags from a serialization file.
+     *
+     * @return The flags or null if the file does not exist or can not be read.
+     */
+    private static ArcFlags readData(String fileName) {
+        File file = new File(fileName);
+        if (!file.exists()) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            ArcFlags arcFlags = (ArcFlags) in.readObject();
+            System.out.println("Arc flags have been deserialized");
+            return arcFlags;
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @param node A node id
+     * @return The region of the node.
+     */
+    public int getRegion(int node) {
+        return regions[node];
+    }
+
+    /**
+     * @param edge An edge id
+     * @return The flags of the edge, bit r is set if the edge is relevant for region r.
+     */
+    public long getFlags(int edge) {
+        return flags[edge];
+    }
+
+    /**
+     * @param edge   An edge id
+     * @param region A region
+     * @return True if the edge lies on a shortest path to a node of the region.
+     */
+    public boolean isFlagSet(int edge, int region) {
+        return (flags[edge] & (1L << region)) != 0;
+    }
+
+    /**
+     * @return The checksum of the graph the flags belong to.
+     */
+    public long getGraphChecksum() {
+        return graphChecksum;
+    }
+}
@@ -1,5 +1,6 @@
 package de.fmi.searouter.router.astar;
 
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
 import de.fmi.searouter.dijkstragrid.Edge;
 import de.fmi.searouter.dijkstragrid.Grid;
 import de.fmi.searouter.dijkstragrid.Node;
@@ -84,6 +85,9 @@ public class AStarRouter implements Router {
     public RoutingResult route(int startNodeIdx, int destNodeIdx) {
 
         long startTime = System.nanoTime();
+
+        // Edge costs including all active penalties, fixed for the whole query
+        int[] edgeCost = EdgeCostOverlay.getCurrentCosts();
         resetState();
 
         this.destNodeIdx = destNodeIdx;
@@ -120,7 +124,7 @@ public class AStarRouter implements Router {
                 }
 
                 // Calculate the distance to the destination vertex using the current edge
-                int newRealDistanceOverThisEdgeToDestVertex = (realDistanceToNode[nodeToHandleId] + Edge.getDist(neighbourEdgeId));
+                int newRealDistanceOverThisEdgeToDestVertex = (realDistanceToNode[nodeToHandleId] + edgeCost[neighbourEdgeId]);
                 double newDistanceOverThisEdgeToDestVertex =  newRealDistanceOverThisEdgeToDestVertex + distanceToTarget[destinationVertexId];
 
                 // If the new calculated distance to the destination vertex is lower as the previously known, update the corresponding data structures
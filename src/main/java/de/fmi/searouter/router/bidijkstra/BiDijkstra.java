@@ -1,5 +1,6 @@
 package de.fmi.searouter.router.bidijkstra;
 
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
 import de.fmi.searouter.dijkstragrid.Edge;
 import de.fmi.searouter.dijkstragrid.Grid;
 import de.fmi.searouter.dijkstragrid.Node;
@@ -90,6 +91,9 @@ public class BiDijkstra implements Router {
     public RoutingResult route(int startNodeIdx, int destNodeIdx) {
 
         long startTime = System.nanoTime();
+
+        // Edge costs including all active penalties, fixed for the whole query
+        int[] edgeCost = EdgeCostOverlay.getCurrentCosts();
         resetState();
 
         currDistanceToNodeForward[startNodeIdx] = 0;
@@ -117,7 +121,7 @@ public class BiDijkstra implements Router {
 
                 long stopTime = System.nanoTime();
 
-                return new RoutingResult(true, getPathToNodeWithIDForward(nodeToHandleIdForward, startNodeIdx),currDistanceToNodeForward[destNodeIdx] + Edge.getDest(Grid.getEdgeIDByNodeIDs(nodeToHandleIdForward, destNodeIdx)), (double) (stopTime - startTime) / 1000000, vertexPoppedOutCount);
+                return new RoutingResult(true, getPathToNodeWithIDForward(nodeToHandleIdForward, startNodeIdx),currDistanceToNodeForward[destNodeIdx], (double) (stopTime - startTime) / 1000000, vertexPoppedOutCount);
             }
 
             // Backward and forward search met --> terminate
@@ -127,6 +131,10 @@ public class BiDijkstra implements Router {
 
             for (int neighbourEdgeId = Grid.offset[nodeToHandleIdForward]; neighbourEdgeId < Grid.offset[nodeToHandleIdForward + 1]; ++neighbourEdgeId) {
 
+                if (!isEdgeAllowedForward(neighbourEdgeId)) {
+                    continue;
+                }
+
                 int destinationVertexId = Edge.getDest(neighbourEdgeId);
 
                 if (nodeTouchedForward[destinationVertexId]) {
@@ -134,7 +142,7 @@ public class BiDijkstra implements Router {
                 }
 
                 // Calculate the distance to the destination vertex using the current edge
-                int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeForward[nodeToHandleIdForward] + Edge.getDist(neighbourEdgeId);
+                int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeForward[nodeToHandleIdForward] + edgeCost[neighbourEdgeId];
 
                 // If the new calculated distance to the destination vertex is lower as the previously known, update the corresponding data structures
                 if (newDistanceOverThisEdgeToDestVertex < currDistanceToNodeForward[destinationVertexId]) {
@@ -145,7 +153,7 @@ public class BiDijkstra implements Router {
 
 
                 if (nodeTouchedBackward[destinationVertexId]) {
-                    int newDistanceOverall = currDistanceToNodeForward[nodeToHandleIdForward] +  Edge.getDist(neighbourEdgeId) + currDistanceToNodeBackward[destinationVertexId];
+                    int newDistanceOverall = currDistanceToNodeForward[nodeToHandleIdForward] +  edgeCost[neighbourEdgeId] + currDistanceToNodeBackward[destinationVertexId];
                     if (currentSmallestDistnace > newDistanceOverall) {
                         currentSmallestDistnace = newDistanceOverall;
                         currentBestWayForwardEndId = nodeToHandleIdForward;
@@ -167,7 +175,7 @@ public class BiDijkstra implements Router {
 
                 long stopTime = System.nanoTime();
 
-                return new RoutingResult(true, getPathToNodeWithIDBackward(nodeToHandleIdBackward, destNodeIdx),currDistanceToNodeBackward[startNodeIdx] + Edge.getDest(Grid.getEdgeIDByNodeIDs(nodeToHandleIdBackward, startNodeIdx)), (double) (stopTime - startTime) / 1000000, vertexPoppedOutCount);
+                return new RoutingResult(true, getPathToNodeWithIDBackward(nodeToHandleIdBackward, destNodeIdx),currDistanceToNodeBackward[startNodeIdx], (double) (stopTime - startTime) / 1000000, vertexPoppedOutCount);
             }
 
             // Backward and forward search met --> terminate
@@ -177,6 +185,10 @@ public class BiDijkstra implements Router {
 
             for (int neighbourEdgeId = Grid.offset[nodeToHandleIdBackward]; neighbourEdgeId < Grid.offset[nodeToHandleIdBackward + 1]; ++neighbourEdgeId) {
 
+                if (!isEdgeAllowedBackward(neighbourEdgeId)) {
+                    continue;
+                }
+
                 int destinationVertexId = Edge.getDest(neighbourEdgeId);
 
                 if (nodeTouchedBackward[destinationVertexId]) {
@@ -184,7 +196,7 @@ public class BiDijkstra implements Router {
                 }
 
                 // Calculate the distance to the destination vertex using the current edge
-                int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeBackward[nodeToHandleIdBackward] + Edge.getDist(neighbourEdgeId);
+                int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeBackward[nodeToHandleIdBackward] + edgeCost[neighbourEdgeId];
 
                 // If the new calculated distance to the destination vertex is lower as the previously known, update the corresponding data structures
                 if (newDistanceOverThisEdgeToDestVertex < currDistanceToNodeBackward[destinationVertexId]) {
@@ -194,7 +206,7 @@ public class BiDijkstra implements Router {
                 }
 
                 if (nodeTouchedForward[destinationVertexId]) {
-                    int newDistanceOverall = currDistanceToNodeBackward[nodeToHandleIdBackward] +  Edge.getDist(neighbourEdgeId) + currDistanceToNodeForward[destinationVertexId];
+                    int newDistanceOverall = currDistanceToNodeBackward[nodeToHandleIdBackward] +  edgeCost[neighbourEdgeId] + currDistanceToNodeForward[destinationVertexId];
                     if (currentSmallestDistnace > newDistanceOverall) {
                         currentSmallestDistnace = newDistanceOverall;
                         currentBestWayBackwardEndId = nodeToHandleIdBackward;
@@ -235,6 +247,24 @@ public class BiDijkstra implements Router {
         return "Bidirectional Dijkstra";
     }
 
+    /**
+     * Checks whether the forward search may relax an edge. Subclasses can use this to restrict the search.
+     * @param edgeId the id of the edge
+     * @return true if the edge may be relaxed, always true for the plain bidirectional dijkstra
+     */
+    protected boolean isEdgeAllowedForward(int edgeId) {
+        return true;
+    }
+
+    /**
+     * Checks whether the backward search may relax an edge. Subclasses can use this to restrict the search.
+     * @param edgeId the id of the edge
+     * @return true if the edge may be relaxed, always true for the plain bidirectional dijkstra
+     */
+    protected boolean isEdgeAllowedBackward(int edgeId) {
+        return true;
+    }
+
     public List<Integer> getPathToNodeWithIDForward(int id, int startNodeIdx) {
         List<Integer> path = new ArrayList<>();
         int currNodeUnderInvestigation = id;
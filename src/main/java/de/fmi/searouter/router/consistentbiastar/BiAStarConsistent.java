@@ -1,5 +1,6 @@
 package de.fmi.searouter.router.consistentbiastar;
 
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
 import de.fmi.searouter.dijkstragrid.Edge;
 import de.fmi.searouter.dijkstragrid.Grid;
 import de.fmi.searouter.dijkstragrid.Node;
@@ -176,6 +177,9 @@ public class BiAStarConsistent implements Router {
     @Override
     public RoutingResult route(int startNodeIdx, int destNodeIdx) {
         long startTime = System.nanoTime();
+
+        // Edge costs including all active penalties, fixed for the whole query
+        int[] edgeCost = EdgeCostOverlay.getCurrentCosts();
         resetState(startNodeIdx, destNodeIdx);
 
         // Counts how many nodes where popped out the heap, meaning that they had the "labeled" status
@@ -219,7 +223,7 @@ public class BiAStarConsistent implements Router {
                 }
 
                 // Calculate the distance to the destination vertex using the current edge
-                int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeForward[nodeToHandleIdForward] + Edge.getDist(neighbourEdgeId);
+                int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeForward[nodeToHandleIdForward] + edgeCost[neighbourEdgeId];
                 double newDistanceOverThisEdgeToDestVertexAStar = newDistanceOverThisEdgeToDestVertex + distanceToTargetForward[destinationVertexId];
 
 
@@ -233,7 +237,7 @@ public class BiAStarConsistent implements Router {
 
 
                 if (nodeTouchedBackward[destinationVertexId]) {
-                    int newRealDistanceOverall = currDistanceToNodeForward[nodeToHandleIdForward] + Edge.getDist(neighbourEdgeId) + currDistanceToNodeBackward[destinationVertexId];
+                    int newRealDistanceOverall = currDistanceToNodeForward[nodeToHandleIdForward] + edgeCost[neighbourEdgeId] + currDistanceToNodeBackward[destinationVertexId];
 
                     if (currentSmallestDistnace > newRealDistanceOverall) {
                         currentSmallestDistnace = newRealDistanceOverall;
@@ -279,7 +283,7 @@ public class BiAStarConsistent implements Router {
                 }
 
                 // Calculate the distance to the destination vertex using the current edge
-                int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeBackward[nodeToHandleIdBackward] + Edge.getDist(neighbourEdgeId);
+                int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeBackward[nodeToHandleIdBackward] + edgeCost[neighbourEdgeId];
                 double newDistanceOverThisEdgeToDestVertexAStar = newDistanceOverThisEdgeToDestVertex + distanceToTargetBackward[destinationVertexId];
 
 
@@ -292,7 +296,7 @@ public class BiAStarConsistent implements Router {
                 }
 
                 if (nodeTouchedForward[destinationVertexId]) {
-                    int newRealDistanceOverall = currDistanceToNodeBackward[nodeToHandleIdBackward] + Edge.getDist(neighbourEdgeId) + currDistanceToNodeForward[destinationVertexId];
+                    int newRealDistanceOverall = currDistanceToNodeBackward[nodeToHandleIdBackward] + edgeCost[neighbourEdgeId] + currDistanceToNodeForward[destinationVertexId];
                     if (currentSmallestDistnace > newRealDistanceOverall) {
                         currentSmallestDistnace = newRealDistanceOverall;
                         currentBestWayBackwardEndId = nodeToHandleIdBackward;
@@ -0,0 +1,240 @@
+package de.fmi.searouter.router.crp;
+
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.router.Router;
+import de.fmi.searouter.router.RoutingResult;
+import de.fmi.searouter.utils.IntMinHeap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Router using Customizable Route Planning: a bidirectional Dijkstra on the {@link MultiLevelOverlay}.
+ * <p>
+ * Each settled node is handled on its query level (see {@link MultiLevelOverlay#getQueryLevel(int, int, int)}):
+ * nodes in the level 1 cells of the start and destination node relax their original edges, all other nodes
+ * relax the clique arcs of their cell on the query level and the original edges leaving that cell. The search
+ * therefore only uses the coarsest cells not containing start or destination. Clique arcs of the resulting path
+ * are unpacked into original edges afterwards by searches within the cells.
+ * <p>
+ * The clique weights are taken from {@link OverlayMetric#getCurrent()}, so active cost penalties are respected.
+ */
+public class CRPRouter implements Router {
+    private final int[] currDistanceToNodeForward;
+    private final int[] currDistanceToNodeBackward;
+    //previous node on the way to the node (forward) or next node on the way to the destination (backward)
+    private final int[] previousNodeForward;
+    private final int[] previousNodeBackward;
+    //level of the clique arc to the previous node, 0 for an original edge
+    private final int[] previousArcLevelForward;
+    private final int[] previousArcLevelBackward;
+    private final boolean[] nodeTouchedForward;
+    private final boolean[] nodeTouchedBackward;
+    private final IntMinHeap vertexHeapForward;
+    private final IntMinHeap vertexHeapBackward;
+
+    private MultiLevelOverlay overlay;
+    private OverlayMetric metric;
+    private int startNodeIdx;
+    private int destNodeIdx;
+    private long currentSmallestDistance;
+    private int currentBestMeetingNodeId;
+
+    /**
+     * constructor. also initializes internal fields
+     */
+    public CRPRouter() {
+        this.currDistanceToNodeForward = new int[Node.getSize()];
+        this.currDistanceToNodeBackward = new int[Node.getSize()];
+        this.previousNodeForward = new int[Node.getSize()];
+        this.previousNodeBackward = new int[Node.getSize()];
+        this.previousArcLevelForward = new int[Node.getSize()];
+        this.previousArcLevelBackward = new int[Node.getSize()];
+        this.nodeTouchedForward = new boolean[Node.getSize()];
+        this.nodeTouchedBackward = new boolean[Node.getSize()];
+        this.vertexHeapForward = new IntMinHeap(currDistanceToNodeForward);
+        this.vertexHeapBackward = new IntMinHeap(currDistanceToNodeBackward);
+    }
+
+    /**
+     * resets the state of a previous calculation
+     */
+    private void resetState() {
+        Arrays.fill(currDistanceToNodeForward, Integer.MAX_VALUE);
+        Arrays.fill(currDistanceToNodeBackward, Integer.MAX_VALUE);
+        Arrays.fill(previousNodeForward, -1);
+        Arrays.fill(previousNodeBackward, -1);
+        Arrays.fill(nodeTouchedForward, false);
+        Arrays.fill(nodeTouchedBackward, false);
+
+        this.currentSmallestDistance = Integer.MAX_VALUE;
+        this.currentBestMeetingNodeId = -1;
+
+        vertexHeapForward.resetState();
+        vertexHeapBackward.resetState();
+    }
+
+    /**
+     * Calculates the shortest path from one start node to a destination node. Node definitions
+     * are in {@link Node}, edge definition in {@link Edge} and the relationships between those two
+     * data structures in {@link Grid}.
+     *
+     * @param startNodeIdx The index of the start node (corresponding to {@link Node} indices)
+     * @param destNodeIdx  The index of the destination node (corresponding to {@link Node} indices)
+     * @return a route between start and destination node
+     */
+    @Override
+    public RoutingResult route(int startNodeIdx, int destNodeIdx) {
+        long startTime = System.nanoTime();
+
+        this.metric = OverlayMetric.getCurrent();
+        this.overlay = metric.getOverlay();
+        this.startNodeIdx = startNodeIdx;
+        this.destNodeIdx = destNodeIdx;
+        resetState();
+
+        currDistanceToNodeForward[startNodeIdx] = 0;
+        currDistanceToNodeBackward[destNodeIdx] = 0;
+        vertexHeapForward.add(startNodeIdx);
+        vertexHeapBackward.add(destNodeIdx);
+        if (startNodeIdx == destNodeIdx) {
+            currentSmallestDistance = 0;
+            currentBestMeetingNodeId = startNodeIdx;
+        }
+
+        // Counts how many nodes where popped out the heap, meaning that they had the "labeled" status
+        int vertexPoppedOutCount = 0;
+
+        while (true) {
+            long minForward = vertexHeapForward.peekDistance();
+            long minBackward = vertexHeapBackward.peekDistance();
+            // No shorter connection than the current one can be found anymore
+            if (minForward + minBackward >= currentSmallestDistance) {
+                break;
+            }
+
+            boolean forward = minForward <= minBackward;
+            IntMinHeap heap = forward ? vertexHeapForward : vertexHeapBackward;
+            int nodeToHandleId = heap.getNext();
+            vertexPoppedOutCount++;
+            (forward ? nodeTouchedForward : nodeTouchedBackward)[nodeToHandleId] = true;
+
+            relaxNode(nodeToHandleId, forward);
+        }
+
+        if (currentBestMeetingNodeId < 0) {
+            long stopTime = System.nanoTime();
+            return new RoutingResult(false, Arrays.asList(startNodeIdx, destNodeIdx), Integer.MAX_VALUE, (double) (stopTime - startTime) / 1000000, vertexPoppedOutCount);
+        }
+
+        List<Integer> path = unpackPath();
+
+        long stopTime = System.nanoTime();
+        return new RoutingResult(true, path, (int) currentSmallestDistance, (double) (stopTime - startTime) / 1000000, vertexPoppedOutCount);
+    }
+
+    /**
+     * Relaxes the outgoing arcs of a node on its query level.
+     */
+    private void relaxNode(int node, boolean forward) {
+        int[] distance = forward ? currDistanceToNodeForward : currDistanceToNodeBackward;
+        int[] edgeCost = metric.getEdgeCost();
+        int level = overlay.getQueryLevel(node, startNodeIdx, destNodeIdx);
+
+        if (level == 0 || overlay.getBoundaryIndex(level, node) < 0) {
+            for (int edge = Grid.offset[node]; edge < Grid.offset[node + 1]; edge++) {
+                relaxArc(node, Edge.getDest(edge), distance[node] + edgeCost[edge], 0, forward);
+            }
+            return;
+        }
+
+        // Clique arcs of the cell of the node (the graph is symmetric, so they are used in both directions)
+        int cell = overlay.getCell(level, node);
+        int first = overlay.getFirstBoundaryIndex(level, cell);
+        int size = overlay.getNumberOfBoundaryNodes(level, cell);
+        int row = overlay.getCliqueOffset(level, cell) + (overlay.getBoundaryIndex(level, node) - first) * size;
+        int[] weights = metric.getCliqueWeights(level);
+        int nodeDistance = distance[node];
+        for (int j = 0; j < size; j++) {
+            int weight = weights[row + j];
+            if (weight == Integer.MAX_VALUE) {
+                continue;
+            }
+            // Most clique arcs do not improve anything, so check this before doing any other work
+            int dest = overlay.getBoundaryNode(level, first + j);
+            if (nodeDistance + weight < distance[dest]) {
+                relaxArc(node, dest, nodeDistance + weight, level, forward);
+            }
+        }
+
+        // Original edges leaving the cell
+        for (int edge = Grid.offset[node]; edge < Grid.offset[node + 1]; edge++) {
+            int dest = Edge.getDest(edge);
+            if (overlay.getCell(level, dest) != cell) {
+                relaxArc(node, dest, distance[node] + edgeCost[edge], 0, forward);
+            }
+        }
+    }
+
+    private void relaxArc(int from, int to, int newDistance, int arcLevel, boolean forward) {
+        int[] distance = forward ? currDistanceToNodeForward : currDistanceToNodeBackward;
+        int[] otherDistance = forward ? currDistanceToNodeBackward : currDistanceToNodeForward;
+        boolean[] touched = forward ? nodeTouchedForward : nodeTouchedBackward;
+
+        if (touched[to] || newDistance >= distance[to]) {
+            return;
+        }
+        distance[to] = newDistance;
+        (forward ? previousNodeForward : previousNodeBackward)[to] = from;
+        (forward ? previousArcLevelForward : previousArcLevelBackward)[to] = arcLevel;
+        (forward ? vertexHeapForward : vertexHeapBackward).add(to);
+
+        if (otherDistance[to] != Integer.MAX_VALUE && (long) newDistance + otherDistance[to] < currentSmallestDistance) {
+            currentSmallestDistance = (long) newDistance + otherDistance[to];
+            currentBestMeetingNodeId = to;
+        }
+    }
+
+    /**
+     * Builds the path over the meeting node and replaces all clique arcs by their original paths.
+     */
+    private List<Integer> unpackPath() {
+        List<Integer> overlayPath = new ArrayList<>();
+        List<Integer> arcLevels = new ArrayList<>();
+        for (int node = currentBestMeetingNodeId; node != startNodeIdx; node = previousNodeForward[node]) {
+            overlayPath.add(node);
+            arcLevels.add(previousArcLevelForward[node]);
+        }
+        overlayPath.add(startNodeIdx);
+        Collections.reverse(overlayPath);
+        Collections.reverse(arcLevels);
+        for (int node = currentBestMeetingNodeId; node != destNodeIdx; node = previousNodeBackward[node]) {
+            overlayPath.add(previousNodeBackward[node]);
+            arcLevels.add(previousArcLevelBackward[node]);
+        }
+
+        List<Integer> path = new ArrayList<>();
+        path.add(startNodeIdx);
+        CellSearch cellSearch = null;
+        for (int i = 1; i < overlayPath.size(); i++) {
+            if (arcLevels.get(i - 1) == 0) {
+                path.add(overlayPath.get(i));
+            } else {
+                if (cellSearch == null) {
+                    cellSearch = new CellSearch(overlay, metric);
+                }
+                cellSearch.appendCliqueArc(arcLevels.get(i - 1), overlayPath.get(i - 1), overlayPath.get(i), path);
+            }
+        }
+        return path;
+    }
+
+    @Override
+    public String getName() {
+        return "CRP";
+    }
+}
@@ -0,0 +1,215 @@
+package de.fmi.searouter.router.crp;
+
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.utils.IntMinHeap;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dijkstra search restricted to one cell of the {@link MultiLevelOverlay}. On level 1 it runs on the original
+ * edges between the nodes of the cell. On a higher level it runs on the overlay graph of the level below inside
+ * the cell: its vertices are the boundary nodes of the subcells, its arcs the clique arcs of the subcells and the
+ * original edges between different subcells.
+ * <p>
+ * Used to calculate the clique weights during customization and to unpack clique arcs into original paths.
+ * An instance can be reused for many searches but must not be shared between threads.
+ */
+class CellSearch {
+
+    private final MultiLevelOverlay overlay;
+    private final OverlayMetric metric;
+
+    // Indexed by local vertex id
+    private final int[] distance;
+    private final int[] previousVertex;
+    // The original edge leading to a vertex or -1 if it was reached by a clique arc
+    private final int[] previousEdge;
+    private final boolean[] settled;
+    private final IntMinHeap heap;
+
+    // State of the current search
+    private int level;
+    private int cell;
+    private int base;
+    private int numberOfVertices;
+
+    CellSearch(MultiLevelOverlay overlay, OverlayMetric metric) {
+        this.overlay = overlay;
+        this.metric = metric;
+        int size = overlay.getMaxCellSearchSize();
+        this.distance = new int[size];
+        this.previousVertex = new int[size];
+        this.previousEdge = new int[size];
+        this.settled = new boolean[size];
+        this.heap = new IntMinHeap(distance);
+    }
+
+    /**
+     * Runs a search within a cell from a boundary node of the cell until the boundary nodes of the cell with an
+     * index of at least firstTarget (in the boundary nodes of the cell) are settled.
+     *
+     * @param level       The level of the cell.
+     * @param cell        The cell.
+     * @param sourceNode  A boundary node of the cell.
+     * @param firstTarget Index of the first boundary node of the cell that has to be settled.
+     */
+    void searchBoundaryNodes(int level, int cell, int sourceNode, int firstTarget) {
+        run(level, cell, sourceNode, -1, overlay.getFirstBoundaryIndex(level, cell) + firstTarget,
+                overlay.getNumberOfBoundaryNodes(level, cell) - firstTarget);
+    }
+
+    /**
+     * Runs a search within a cell until a node is settled.
+     *
+     * @param level      The level of the cell.
+     * @param cell       The cell.
+     * @param sourceNode The node to start at (has to be a vertex of the search, i.e. a node of the cell on
+     *                   level 1 or a boundary node of the level below).
+     * @param destNode   The node to stop at.
+     */
+    void searchNode(int level, int cell, int sourceNode, int destNode) {
+        run(level, cell, sourceNode, destNode, -1, 1);
+    }
+
+    /**
+     * Runs the search. A settled node is a target if it is the destination node or a boundary node of the level
+     * with an index of at least firstBoundaryTarget. The search stops when the given number of targets is settled.
+     */
+    private void run(int level, int cell, int sourceNode, int destNode, int firstBoundaryTarget, int numberOfTargets) {
+        this.level = level;
+        this.cell = cell;
+        if (level == 1) {
+            this.base = overlay.getCellNodeOffset(cell);
+            this.numberOfVertices = overlay.getCellSize(cell);
+        } else {
+            int subcells = overlay.getSubcellsPerCell(level);
+            this.base = overlay.getFirstBoundaryIndex(level - 1, cell * subcells);
+            this.numberOfVertices = overlay.getFirstBoundaryIndex(level - 1, (cell + 1) * subcells) - base;
+        }
+
+        Arrays.fill(distance, 0, numberOfVertices, Integer.MAX_VALUE);
+        Arrays.fill(previousVertex, 0, numberOfVertices, -1);
+        Arrays.fill(previousEdge, 0, numberOfVertices, -1);
+        Arrays.fill(settled, 0, numberOfVertices, false);
+        heap.resetState();
+
+        int remainingTargets = numberOfTargets;
+        int source = toLocal(sourceNode);
+        distance[source] = 0;
+        heap.add(source);
+
+        while (!heap.isEmpty() && remainingTargets > 0) {
+            int vertex = heap.getNext();
+            settled[vertex] = true;
+            int node = toNode(vertex);
+
+            if (node == destNode || (firstBoundaryTarget >= 0 && overlay.getBoundaryIndex(level, node) >= firstBoundaryTarget)) {
+                remainingTargets--;
+            }
+
+            if (level == 1) {
+                relaxEdgesWithinCell(vertex, node);
+            } else {
+                relaxSubcellOverlay(vertex, node);
+            }
+        }
+    }
+
+    private void relaxEdgesWithinCell(int vertex, int node) {
+        int[] edgeCost = metric.getEdgeCost();
+        for (int edge = Grid.offset[node]; edge < Grid.offset[node + 1]; edge++) {
+            int dest = Edge.getDest(edge);
+            if (overlay.getCell(1, dest) == cell) {
+                relax(vertex, overlay.getLocalIndex(dest), distance[vertex] + edgeCost[edge], edge);
+            }
+        }
+    }
+
+    private void relaxSubcellOverlay(int vertex, int node) {
+        int subLevel = level - 1;
+        int subcell = overlay.getCell(subLevel, node);
+
+        // Clique arcs of the subcell
+        int first = overlay.getFirstBoundaryIndex(subLevel, subcell);
+        int size = overlay.getNumberOfBoundaryNodes(subLevel, subcell);
+        int row = overlay.getCliqueOffset(subLevel, subcell) + (overlay.getBoundaryIndex(subLevel, node) - first) * size;
+        int[] weights = metric.getCliqueWeights(subLevel);
+        for (int j = 0; j < size; j++) {
+            int weight = weights[row + j];
+            if (weight != Integer.MAX_VALUE) {
+                relax(vertex, first + j - base, distance[vertex] + weight, -1);
+            }
+        }
+
+        // Original edges to other subcells of the cell
+        int[] edgeCost = metric.getEdgeCost();
+        for (int edge = Grid.offset[node]; edge < Grid.offset[node + 1]; edge++) {
+            int dest = Edge.getDest(edge);
+            if (overlay.getCell(subLevel, dest) != subcell && overlay.getCell(level, dest) == cell) {
+                relax(vertex, toLocal(dest), distance[vertex] + edgeCost[edge], edge);
+            }
+        }
+    }
+
+    private void relax(int from, int to, int newDistance, int edge) {
+        if (!settled[to] && newDistance < distance[to]) {
+            distance[to] = newDistance;
+            previousVertex[to] = from;
+            previousEdge[to] = edge;
+            heap.add(to);
+        }
+    }
+
+    /**
+     * @return The distance of the last search from its source node to a node of the cell.
+     */
+    int getDistance(int node) {
+        return distance[toLocal(node)];
+    }
+
+    /**
+     * Appends the original path of a clique arc to a path. The path has to end with the start node of the arc,
+     * the nodes of the arc after its start node are added.
+     *
+     * @param level    The level of the clique arc.
+     * @param fromNode The start node of the arc.
+     * @param toNode   The end node of the arc.
+     * @param path     The path to extend.
+     */
+    void appendCliqueArc(int level, int fromNode, int toNode, List<Integer> path) {
+        searchNode(level, overlay.getCell(level, fromNode), fromNode, toNode);
+
+        // Collect the steps before unpacking them, as unpacking runs further searches
+        int steps = 0;
+        for (int vertex = toLocal(toNode); previousVertex[vertex] >= 0; vertex = previousVertex[vertex]) {
+            steps++;
+        }
+        int[] stepNode = new int[steps + 1];
+        boolean[] stepIsEdge = new boolean[steps + 1];
+        int vertex = toLocal(toNode);
+        for (int i = steps; i >= 0; i--) {
+            stepNode[i] = toNode(vertex);
+            stepIsEdge[i] = previousEdge[vertex] >= 0;
+            vertex = previousVertex[vertex];
+        }
+        int searchLevel = this.level;
+
+        for (int i = 1; i <= steps; i++) {
+            if (stepIsEdge[i]) {
+                path.add(stepNode[i]);
+            } else {
+                appendCliqueArc(searchLevel - 1, stepNode[i - 1], stepNode[i], path);
+            }
+        }
+    }
+
+    private int toLocal(int node) {
+        return level == 1 ? overlay.getLocalIndex(node) : overlay.getBoundaryIndex(level - 1, node) - base;
+    }
+
+    private int toNode(int vertex) {
+        return level == 1 ? overlay.getCellNode(base + vertex) : overlay.getBoundaryNode(level - 1, base + vertex);
+    }
+}
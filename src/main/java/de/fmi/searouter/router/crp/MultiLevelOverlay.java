@@ -0,0 +1,284 @@
+package de.fmi.searouter.router.crp;
+
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.partition.GraphPartition;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Metric independent part of the multi-level overlay used for Customizable Route Planning (CRP).
+ * <p>
+ * The overlay has {@link #getNumberOfLevels()} levels (1 = finest). Each level uses the cells of one depth of the
+ * {@link GraphPartition}. A node is a boundary node on a level if it has a neighbor in another cell of that level.
+ * For each cell the overlay stores its boundary nodes and reserves a boundary-to-boundary clique matrix, whose
+ * weights are calculated for a concrete edge cost metric by {@link OverlayMetric}.
+ * <p>
+ * Boundary nodes are stored cell by cell in one flat array per level. As the cell ids of the partition are nested,
+ * the boundary nodes of all subcells of a cell of the next higher level form a consecutive range of this array.
+ */
+public class MultiLevelOverlay {
+
+    /**
+     * Depths in the {@link GraphPartition} of the overlay levels, finest first. Levels deeper than the partition
+     * are skipped. Every level combines 8 cells of the level below.
+     */
+    private static final int[] LEVEL_DEPTHS = {12, 9, 6};
+
+    private static MultiLevelOverlay INSTANCE;
+
+    private final GraphPartition partition;
+
+    // For each level (index = level - 1)
+    private final int[] levelDepth;
+    private final int[][] boundaryOffset;
+    private final int[][] boundaryNodes;
+    private final int[][] boundaryIndex;
+    private final int[][] cliqueOffset;
+
+    // All nodes of the cells of level 1, sorted by cell, and the position of each node within its cell
+    private final int[] cellNodeOffset;
+    private final int[] cellNodes;
+    private final int[] localIndex;
+
+    private final int maxCellSearchSize;
+
+    private MultiLevelOverlay(GraphPartition partition) {
+        this.partition = partition;
+        this.levelDepth = Arrays.stream(LEVEL_DEPTHS).filter(depth -> depth <= partition.getNumberOfLevels()).toArray();
+        if (levelDepth.length == 0) {
+            throw new IllegalStateException("The partition has not enough levels for an overlay");
+        }
+
+        int numberOfLevels = levelDepth.length;
+        this.boundaryOffset = new int[numberOfLevels][];
+        this.boundaryNodes = new int[numberOfLevels][];
+        this.boundaryIndex = new int[numberOfLevels][];
+        this.cliqueOffset = new int[numberOfLevels][];
+
+        for (int level = 1; level <= numberOfLevels; level++) {
+            int depth = levelDepth[level - 1];
+            boolean[] isBoundary = new boolean[Node.getSize()];
+            IntStream.range(0, isBoundary.length).parallel().forEach(node -> isBoundary[node] = partition.isBoundaryNode(depth, node));
+
+            int[] offset = new int[partition.getNumberOfCells(depth) + 1];
+            int[] index = new int[Node.getSize()];
+            Arrays.fill(index, -1);
+            int[] sorted = sortByCell(depth, isBoundary, offset, index);
+
+            int[] cliques = new int[offset.length];
+            for (int cell = 0; cell < offset.length - 1; cell++) {
+                long size = offset[cell + 1] - offset[cell];
+                long end = cliques[cell] + size * size;
+                if (end > Integer.MAX_VALUE) {
+                    throw new IllegalStateException("The cliques of overlay level " + level + " are too large");
+                }
+                cliques[cell + 1] = (int) end;
+            }
+
+            boundaryOffset[level - 1] = offset;
+            boundaryNodes[level - 1] = sorted;
+            boundaryIndex[level - 1] = index;
+            cliqueOffset[level - 1] = cliques;
+        }
+
+        boolean[] allNodes = new boolean[Node.getSize()];
+        Arrays.fill(allNodes, true);
+        this.cellNodeOffset = new int[partition.getNumberOfCells(levelDepth[0]) + 1];
+        int[] position = new int[Node.getSize()];
+        this.cellNodes = sortByCell(levelDepth[0], allNodes, cellNodeOffset, position);
+        for (int node = 0; node < position.length; node++) {
+            position[node] -= cellNodeOffset[partition.getCell(levelDepth[0], node)];
+        }
+        this.localIndex = position;
+        this.maxCellSearchSize = calculateMaxCellSearchSize();
+    }
+
+    /**
+     * Sorts the selected nodes by their cell on the given depth (stable counting sort).
+     *
+     * @param offset   Filled with the start of each cell in the result (length = number of cells + 1).
+     * @param position Filled with the position of each selected node in the result.
+     * @return The selected nodes sorted by cell.
+     */
+    private int[] sortByCell(int depth, boolean[] selected, int[] offset, int[] position) {
+        for (int node = 0; node < selected.length; node++) {
+            if (selected[node]) {
+                offset[partition.getCell(depth, node) + 1]++;
+            }
+        }
+        for (int cell = 0; cell < offset.length - 1; cell++) {
+            offset[cell + 1] += offset[cell];
+        }
+        int[] next = Arrays.copyOf(offset, offset.length - 1);
+        int[] sorted = new int[offset[offset.length - 1]];
+        for (int node = 0; node < selected.length; node++) {
+            if (selected[node]) {
+                int pos = next[partition.getCell(depth, node)]++;
+                sorted[pos] = node;
+                position[node] = pos;
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * Returns the overlay of the current partition, which is built if the partition changed.
+     *
+     * @return The overlay for {@link GraphPartition#getInstance()}.
+     */
+    public static synchronized MultiLevelOverlay getInstance() {
+        GraphPartition partition = GraphPartition.getInstance();
+        if (INSTANCE == null || INSTANCE.partition != partition) {
+            long startTime = System.nanoTime();
+            INSTANCE = new MultiLevelOverlay(partition);
+            System.out.println("Built overlay with " + INSTANCE.getNumberOfLevels() + " levels in "
+                    + (System.nanoTime() - startTime) / 1000000 + " ms");
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * @return The number of overlay levels.
+     */
+    public int getNumberOfLevels() {
+        return levelDepth.length;
+    }
+
+    /**
+     * @param level The overlay level (1 = finest).
+     * @return The number of cells on this level.
+     */
+    public int getNumberOfCells(int level) {
+        return boundaryOffset[level - 1].length - 1;
+    }
+
+    /**
+     * @param level The overlay level (1 = finest).
+     * @param node  A node id
+     * @return The cell of the node on the level.
+     */
+    public int getCell(int level, int node) {
+        return partition.getCell(levelDepth[level - 1], node);
+    }
+
+    /**
+     * Calculates the level a node is handled on in a query between two nodes: the highest level on which the
+     * cell of the node contains neither the start nor the destination node, or 0 if the node is in the same
+     * level 1 cell as one of them.
+     */
+    public int getQueryLevel(int node, int startNode, int destNode) {
+        for (int level = levelDepth.length; level >= 1; level--) {
+            int cell = getCell(level, node);
+            if (cell != getCell(level, startNode) && cell != getCell(level, destNode)) {
+                return level;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return The number of boundary nodes of a cell.
+     */
+    public int getNumberOfBoundaryNodes(int level, int cell) {
+        return boundaryOffset[level - 1][cell + 1] - boundaryOffset[level - 1][cell];
+    }
+
+    /**
+     * @return The position of the first boundary node of the cell in the boundary node array of the level.
+     */
+    int getFirstBoundaryIndex(int level, int cell) {
+        return boundaryOffset[level - 1][cell];
+    }
+
+    /**
+     * @return The node at a position of the boundary node array of the level.
+     */
+    int getBoundaryNode(int level, int index) {
+        return boundaryNodes[level - 1][index];
+    }
+
+    /**
+     * @return The position of a node in the boundary node array of the level, -1 if it is no boundary node
+     * of the level.
+     */
+    int getBoundaryIndex(int level, int node) {
+        return boundaryIndex[level - 1][node];
+    }
+
+    /**
+     * @return The total number of boundary nodes of the level.
+     */
+    int getNumberOfBoundaryNodes(int level) {
+        return boundaryNodes[level - 1].length;
+    }
+
+    /**
+     * @return The start of the clique matrix of a cell in the clique weight array of the level.
+     */
+    int getCliqueOffset(int level, int cell) {
+        return cliqueOffset[level - 1][cell];
+    }
+
+    /**
+     * @return The size of the clique weight array of the level.
+     */
+    int getCliqueSize(int level) {
+        int[] offset = cliqueOffset[level - 1];
+        return offset[offset.length - 1];
+    }
+
+    /**
+     * @return The number of subcells (cells of the level below) of each cell of the level.
+     */
+    int getSubcellsPerCell(int level) {
+        return 1 << (levelDepth[level - 2] - levelDepth[level - 1]);
+    }
+
+    /**
+     * @return The start of the nodes of a level 1 cell in {@link #getCellNode(int)}.
+     */
+    int getCellNodeOffset(int cell) {
+        return cellNodeOffset[cell];
+    }
+
+    /**
+     * @return The number of nodes of a level 1 cell.
+     */
+    int getCellSize(int cell) {
+        return cellNodeOffset[cell + 1] - cellNodeOffset[cell];
+    }
+
+    int getCellNode(int index) {
+        return cellNodes[index];
+    }
+
+    /**
+     * @return The position of a node within the nodes of its level 1 cell.
+     */
+    int getLocalIndex(int node) {
+        return localIndex[node];
+    }
+
+    /**
+     * @return The maximum number of vertices of a search within one cell of any level.
+     */
+    int getMaxCellSearchSize() {
+        return maxCellSearchSize;
+    }
+
+    private int calculateMaxCellSearchSize() {
+        int max = 0;
+        for (int cell = 0; cell < cellNodeOffset.length - 1; cell++) {
+            max = Math.max(max, getCellSize(cell));
+        }
+        for (int level = 2; level <= getNumberOfLevels(); level++) {
+            int subcells = getSubcellsPerCell(level);
+            for (int cell = 0; cell < getNumberOfCells(level); cell++) {
+                int[] offset = boundaryOffset[level - 2];
+                max = Math.max(max, offset[(cell + 1) * subcells] - offset[cell * subcells]);
+            }
+        }
+        return max;
+    }
+}
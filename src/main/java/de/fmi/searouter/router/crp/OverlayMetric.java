@@ -0,0 +1,121 @@
+package de.fmi.searouter.router.crp;
+
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+
+import java.util.stream.IntStream;
+
+/**
+ * Metric dependent part of the multi-level overlay: the clique weights of all cells of a
+ * {@link MultiLevelOverlay} for one edge cost array.
+ * <p>
+ * The weights are calculated by the customization phase of CRP. It works bottom-up: the cliques of level 1 are
+ * calculated by Dijkstra searches on the original edges within each cell, the cliques of each higher level by
+ * searches on the (much smaller) overlay graph of the level below. The cells of one level are independent of each
+ * other and are customized in parallel. Customization does not depend on the partition calculation, so a cost
+ * change (e.g. a new {@link de.fmi.searouter.costoverlay.CostPenalty}) only requires running it again.
+ */
+public class OverlayMetric {
+
+    private static volatile OverlayMetric current;
+
+    private final MultiLevelOverlay overlay;
+    private final int[] edgeCost;
+
+    /**
+     * For each level (index = level - 1) the clique matrices of all cells, row by row. Entry (i, j) of a cell is the
+     * distance from its i-th to its j-th boundary node within the cell, {@link Integer#MAX_VALUE} if there is no path.
+     */
+    private final int[][] cliqueWeights;
+
+    private OverlayMetric(MultiLevelOverlay overlay, int[] edgeCost) {
+        this.overlay = overlay;
+        this.edgeCost = edgeCost;
+        this.cliqueWeights = new int[overlay.getNumberOfLevels()][];
+    }
+
+    /**
+     * Returns the metric for the current overlay and the current edge costs including all penalties of the
+     * {@link EdgeCostOverlay}. If the costs or the graph changed since the last call, the overlay is customized
+     * for the new costs first.
+     *
+     * @return The current metric.
+     */
+    public static OverlayMetric getCurrent() {
+        MultiLevelOverlay overlay = MultiLevelOverlay.getInstance();
+        int[] edgeCost = EdgeCostOverlay.getCurrentCosts();
+        OverlayMetric metric = current;
+        if (metric != null && metric.overlay == overlay && metric.edgeCost == edgeCost) {
+            return metric;
+        }
+        return customizeCurrent(overlay, edgeCost);
+    }
+
+    private static synchronized OverlayMetric customizeCurrent(MultiLevelOverlay overlay, int[] edgeCost) {
+        OverlayMetric metric = current;
+        if (metric == null || metric.overlay != overlay || metric.edgeCost != edgeCost) {
+            metric = customize(overlay, edgeCost);
+            current = metric;
+        }
+        return metric;
+    }
+
+    /**
+     * Calculates the clique weights of an overlay for an edge cost array.
+     *
+     * @param overlay  The overlay.
+     * @param edgeCost The cost of each edge (index = edge id).
+     * @return The customized metric.
+     */
+    public static OverlayMetric customize(MultiLevelOverlay overlay, int[] edgeCost) {
+        long startTime = System.nanoTime();
+        OverlayMetric metric = new OverlayMetric(overlay, edgeCost);
+        ThreadLocal<CellSearch> searches = ThreadLocal.withInitial(() -> new CellSearch(overlay, metric));
+
+        for (int level = 1; level <= overlay.getNumberOfLevels(); level++) {
+            long levelStartTime = System.nanoTime();
+            final int currentLevel = level;
+            metric.cliqueWeights[level - 1] = new int[overlay.getCliqueSize(level)];
+            IntStream.range(0, overlay.getNumberOfCells(level)).parallel()
+                    .forEach(cell -> metric.customizeCell(searches.get(), currentLevel, cell));
+            System.out.println("Customized overlay level " + level + " in " + (System.nanoTime() - levelStartTime) / 1000000 + " ms");
+        }
+
+        System.out.println("Customized overlay in " + (System.nanoTime() - startTime) / 1000000 + " ms");
+        return metric;
+    }
+
+    /**
+     * Calculates the clique matrix of one cell with one search per boundary node. As the graph is symmetric,
+     * so is the matrix: the search from the i-th boundary node only has to settle the boundary nodes from i on.
+     */
+    private void customizeCell(CellSearch search, int level, int cell) {
+        int first = overlay.getFirstBoundaryIndex(level, cell);
+        int size = overlay.getNumberOfBoundaryNodes(level, cell);
+        int offset = overlay.getCliqueOffset(level, cell);
+        int[] weights = cliqueWeights[level - 1];
+
+        for (int i = 0; i < size; i++) {
+            search.searchBoundaryNodes(level, cell, overlay.getBoundaryNode(level, first + i), i);
+            for (int j = i; j < size; j++) {
+                int distance = search.getDistance(overlay.getBoundaryNode(level, first + j));
+                weights[offset + i * size + j] = distance;
+                weights[offset + j * size + i] = distance;
+            }
+        }
+    }
+
+    MultiLevelOverlay getOverlay() {
+        return overlay;
+    }
+
+    int[] getEdgeCost() {
+        return edgeCost;
+    }
+
+    /**
+     * @return The clique matrices of all cells of a level.
+     */
+    int[] getCliqueWeights(int level) {
+        return cliqueWeights[level - 1];
+    }
+}
@@ -0,0 +1,247 @@
+package de.fmi.searouter.router.deltastepping;
+
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.router.dijkstra.DijkstraRouter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Single source shortest paths to all nodes with parallel delta-stepping (Meyer and Sanders). Returns the same
+ * distances as {@link DijkstraRouter#routeToAllVertices(int, int)}, but the relaxations run in parallel on the
+ * common ForkJoinPool.
+ * <p>
+ * Nodes are kept in buckets of width delta by their tentative distance. The buckets are processed in order: the
+ * light edges (at most delta long) of all nodes of the current bucket are relaxed in parallel, nodes whose distance
+ * drops into the current bucket are processed again in the next phase, until the bucket stays empty. The heavy
+ * edges of all nodes which were in the bucket are then relaxed once. Distances are updated with compare-and-set,
+ * so several threads can relax edges to the same node.
+ * <p>
+ * The grid edges all have about the same integer length, so delta is a small multiple of the average edge length:
+ * each bucket is a band a few edges wide around the start node, with enough nodes to keep all cores busy and few
+ * nodes which are relaxed more than once.
+ */
+public class DeltaSteppingSearch {
+
+    /**
+     * Delta as a multiple of the average edge length.
+     */
+    private static final int BUCKET_WIDTH_FACTOR = 4;
+
+    /**
+     * Phases with fewer nodes are relaxed on the calling thread only.
+     */
+    private static final int PARALLEL_THRESHOLD = 512;
+
+    private final int[] edgeCost;
+    private final int bucketWidth;
+
+    private final AtomicIntegerArray distance;
+    //nodes whose distance was decreased in the current phase, may contain a node more than once
+    private final int[] changedNodes;
+    private final AtomicInteger numberOfChangedNodes;
+    //the phase in which the node was last put in the frontier
+    private final int[] frontierPhase;
+    //the bucket in which the node was last processed, +1
+    private final int[] processedInBucket;
+    //the bucket the node was last added to, +1
+    private final int[] addedToBucket;
+
+    private int[] frontier;
+    private int frontierSize;
+    private int[] processedNodes;
+    private int numberOfProcessedNodes;
+    private int phase;
+    private final List<Bucket> buckets;
+
+    /**
+     * Creates a search on the edge distances without penalties.
+     */
+    public DeltaSteppingSearch() {
+        this(Edge.getDistances());
+    }
+
+    /**
+     * @param edgeCost The cost of each edge (index = edge id).
+     */
+    public DeltaSteppingSearch(int[] edgeCost) {
+        this.edgeCost = edgeCost;
+
+        long sum = 0;
+        for (int edge = 0; edge < edgeCost.length; edge++) {
+            sum += edgeCost[edge];
+        }
+        this.bucketWidth = (int) Math.max(1, Math.min(Integer.MAX_VALUE / 4,
+                BUCKET_WIDTH_FACTOR * sum / Math.max(1, edgeCost.length)));
+
+        this.distance = new AtomicIntegerArray(Node.getSize());
+        this.changedNodes = new int[Math.max(1, Edge.getSize())];
+        this.numberOfChangedNodes = new AtomicInteger();
+        this.frontierPhase = new int[Node.getSize()];
+        this.processedInBucket = new int[Node.getSize()];
+        this.addedToBucket = new int[Node.getSize()];
+        this.frontier = new int[Node.getSize()];
+        this.processedNodes = new int[Node.getSize()];
+        this.buckets = new ArrayList<>();
+    }
+
+    /**
+     * resets the state of a previous calculation
+     */
+    private void resetState() {
+        for (int node = 0; node < Node.getSize(); node++) {
+            distance.set(node, Integer.MAX_VALUE);
+        }
+        Arrays.fill(frontierPhase, 0);
+        Arrays.fill(processedInBucket, 0);
+        Arrays.fill(addedToBucket, 0);
+        phase = 0;
+        buckets.clear();
+    }
+
+    /**
+     * Calculates the distances from a start node to all nodes.
+     *
+     * @param startNodeIdx The index of the start node (corresponding to {@link Node} indices)
+     * @return A new array with the distance of each node, {@link Integer#MAX_VALUE} for unreachable nodes.
+     */
+    public int[] routeToAllVertices(int startNodeIdx) {
+        resetState();
+        distance.set(startNodeIdx, 0);
+        addToBucket(startNodeIdx, 0);
+
+        for (int bucket = 0; bucket < buckets.size(); bucket++) {
+            Bucket currentBucket = buckets.get(bucket);
+            if (currentBucket == null) {
+                continue;
+            }
+            buckets.set(bucket, null);
+
+            phase++;
+            frontierSize = 0;
+            for (int i = 0; i < currentBucket.size; i++) {
+                addToFrontier(currentBucket.nodes[i], bucket);
+            }
+            numberOfProcessedNodes = 0;
+
+            while (frontierSize > 0) {
+                for (int i = 0; i < frontierSize; i++) {
+                    int node = frontier[i];
+                    if (processedInBucket[node] != bucket + 1) {
+                        processedInBucket[node] = bucket + 1;
+                        processedNodes[numberOfProcessedNodes++] = node;
+                    }
+                }
+
+                relaxEdges(frontier, frontierSize, true);
+
+                phase++;
+                frontierSize = 0;
+                for (int i = 0; i < numberOfChangedNodes.get(); i++) {
+                    int node = changedNodes[i];
+                    int nodeBucket = distance.get(node) / bucketWidth;
+                    if (nodeBucket == bucket) {
+                        addToFrontier(node, bucket);
+                    } else {
+                        addToBucket(node, nodeBucket);
+                    }
+                }
+            }
+
+            relaxEdges(processedNodes, numberOfProcessedNodes, false);
+            for (int i = 0; i < numberOfChangedNodes.get(); i++) {
+                int node = changedNodes[i];
+                addToBucket(node, distance.get(node) / bucketWidth);
+            }
+        }
+
+        int[] result = new int[Node.getSize()];
+        for (int node = 0; node < result.length; node++) {
+            result[node] = distance.get(node);
+        }
+        return result;
+    }
+
+    /**
+     * Adds a node of the current bucket to the frontier of the next phase, if it is not in it yet and its
+     * distance is still in the bucket.
+     */
+    private void addToFrontier(int node, int bucket) {
+        if (frontierPhase[node] != phase && distance.get(node) / bucketWidth == bucket) {
+            frontierPhase[node] = phase;
+            frontier[frontierSize++] = node;
+        }
+    }
+
+    /**
+     * Adds a node to a later bucket. Entries of nodes whose distance drops into an earlier bucket afterwards are
+     * skipped when the bucket is processed.
+     */
+    private void addToBucket(int node, int bucket) {
+        if (addedToBucket[node] == bucket + 1) {
+            return;
+        }
+        addedToBucket[node] = bucket + 1;
+        while (buckets.size() <= bucket) {
+            buckets.add(null);
+        }
+        if (buckets.get(bucket) == null) {
+            buckets.set(bucket, new Bucket());
+        }
+        buckets.get(bucket).add(node);
+    }
+
+    /**
+     * Relaxes the light or the heavy edges of some nodes, in parallel if there are enough of them. The nodes whose
+     * distance was decreased are collected in {@link #changedNodes}.
+     */
+    private void relaxEdges(int[] nodes, int size, boolean light) {
+        numberOfChangedNodes.set(0);
+        IntStream indices = IntStream.range(0, size);
+        if (size >= PARALLEL_THRESHOLD) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> relaxEdgesOfNode(nodes[i], light));
+    }
+
+    private void relaxEdgesOfNode(int node, boolean light) {
+        int nodeDistance = distance.get(node);
+        for (int edge = Grid.offset[node]; edge < Grid.offset[node + 1]; edge++) {
+            int cost = edgeCost[edge];
+            if ((cost <= bucketWidth) != light) {
+                continue;
+            }
+            int dest = Edge.getDest(edge);
+            int newDistance = nodeDistance + cost;
+            int oldDistance = distance.get(dest);
+            while (newDistance < oldDistance) {
+                if (distance.compareAndSet(dest, oldDistance, newDistance)) {
+                    changedNodes[numberOfChangedNodes.getAndIncrement()] = dest;
+                    break;
+                }
+                oldDistance = distance.get(dest);
+            }
+        }
+    }
+
+    /**
+     * The nodes added to one bucket.
+     */
+    private static final class Bucket {
+        private int[] nodes = new int[16];
+        private int size;
+
+        private void add(int node) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            nodes[size++] = node;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package de.fmi.searouter.router.dijkstra;
 
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
 import de.fmi.searouter.dijkstragrid.Edge;
 import de.fmi.searouter.dijkstragrid.Grid;
 import de.fmi.searouter.dijkstragrid.Node;
@@ -129,6 +130,9 @@ public class DijkstraRouter implements Router {
     public RoutingResult route(int startNodeIdx, int destNodeIdx) {
 
         long startTime = System.nanoTime();
+
+        // Edge costs including all active penalties, fixed for the whole query
+        int[] edgeCost = EdgeCostOverlay.getCurrentCosts();
         resetState();
 
         currDistanceToNode[startNodeIdx] = 0;
@@ -151,6 +155,10 @@ public class DijkstraRouter implements Router {
 
             for (int neighbourEdgeId = Grid.offset[nodeToHandleId]; neighbourEdgeId < Grid.offset[nodeToHandleId + 1]; ++neighbourEdgeId) {
 
+                if (!isEdgeAllowed(neighbourEdgeId)) {
+                    continue;
+                }
+
                 int destinationVertexId = Edge.getDest(neighbourEdgeId);
 
                 if (nodeTouched[destinationVertexId]) {
@@ -158,7 +166,7 @@ public class DijkstraRouter implements Router {
                 }
 
                 // Calculate the distance to the destination vertex using the current edge
-                int newDistanceOverThisEdgeToDestVertex = currDistanceToNode[nodeToHandleId] + Edge.getDist(neighbourEdgeId);
+                int newDistanceOverThisEdgeToDestVertex = currDistanceToNode[nodeToHandleId] + edgeCost[neighbourEdgeId];
 
                 // If the new calculated distance to the destination vertex is lower as the previously known, update the corresponding data structures
                 if (newDistanceOverThisEdgeToDestVertex < currDistanceToNode[destinationVertexId]) {
@@ -196,6 +204,16 @@ public class DijkstraRouter implements Router {
         return new RoutingResult(true, path, currDistanceToNode[destNodeIdx], (double) (stopTime - startTime) / 1000000, vertexPoppedOutCount);
     }
 
+    /**
+     * Checks whether the search of {@link #route(int, int)} may relax an edge. Subclasses can use this to restrict
+     * the search.
+     * @param edgeId the id of the edge
+     * @return true if the edge may be relaxed, always true for the plain dijkstra
+     */
+    protected boolean isEdgeAllowed(int edgeId) {
+        return true;
+    }
+
     @Override
     public String getName() {
         return "Dijkstra";
@@ -0,0 +1,54 @@
+package de.fmi.searouter.router.hublabels;
+
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.hublabels.HubLabels;
+import de.fmi.searouter.router.Router;
+import de.fmi.searouter.router.RoutingResult;
+import de.fmi.searouter.router.bidijkstra.BiDijkstra;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Router answering queries with the {@link HubLabels} of the graph: the distance is calculated by merging the labels
+ * of start and destination node, the path by following the parent pointers of the labels. No node is popped from
+ * any heap.
+ * <p>
+ * The labels do not know about cost penalties, so while penalties are active the query is answered by a
+ * {@link BiDijkstra} instead.
+ */
+public class HubLabelRouter implements Router {
+
+    @Override
+    public RoutingResult route(int startNodeIdx, int destNodeIdx) {
+        if (EdgeCostOverlay.getCurrentCosts() != Edge.getDistances()) {
+            return new BiDijkstra().route(startNodeIdx, destNodeIdx);
+        }
+
+        HubLabels labels;
+        try {
+            labels = HubLabels.getInstance();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        long startTime = System.nanoTime();
+        List<Integer> path = labels.getPath(startNodeIdx, destNodeIdx);
+        if (path == null) {
+            long stopTime = System.nanoTime();
+            return new RoutingResult(false, Arrays.asList(startNodeIdx, destNodeIdx), Integer.MAX_VALUE, (double) (stopTime - startTime) / 1000000, 0);
+        }
+        int distance = labels.getDistance(startNodeIdx, destNodeIdx);
+        long stopTime = System.nanoTime();
+
+        return new RoutingResult(true, path, distance, (double) (stopTime - startTime) / 1000000, 0);
+    }
+
+    @Override
+    public String getName() {
+        return "Hub Labels";
+    }
+}
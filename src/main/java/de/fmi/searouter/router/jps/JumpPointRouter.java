@@ -0,0 +1,265 @@
+package de.fmi.searouter.router.jps;
+
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.router.Router;
+import de.fmi.searouter.router.RoutingResult;
+import de.fmi.searouter.router.bidijkstra.BiDijkstra;
+import de.fmi.searouter.utils.IntMinHeap;
+import de.fmi.searouter.utils.IntersectionHelper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A* with jump point search on the rows and columns of the grid (see {@link LatticeNeighbors}).
+ * <p>
+ * Classic jump point search relies on all paths with the same moves having the same length, which does not hold
+ * here: horizontal edges get shorter towards the poles. Instead, the pruning compares the two ways around each
+ * grid cell (see {@link JumpTables}). Swapping two moves to the shorter way around a cell never makes a path
+ * longer, so for every route there is a shortest canonical route, and a node only has to be continued in its
+ * canonical directions. As the actual edge costs are compared, this also holds with active penalties.
+ * <p>
+ * The search jumps along rows and columns: a node is only put on the heap if it is the destination node, or if it
+ * has a canonical successor in a perpendicular direction whose straight run reaches the destination node or a node
+ * with more than one canonical successor. In open water horizontal runs only turn towards the equator, and runs
+ * towards the equator go straight until they hit the coast, so most nodes are only scanned.
+ * <p>
+ * The heuristic is the great circle distance to the destination node, scaled so that it is a lower bound. The
+ * router returns the same distances as the DijkstraRouter. If the graph is not a lattice a {@link BiDijkstra} is
+ * used.
+ */
+public class JumpPointRouter implements Router {
+
+    private static final int START_DIRECTION = 4;
+    private static final int ALL_DIRECTIONS = 0b1111;
+
+    private final int[] currDistanceToNode;
+    //distance from the start plus heuristic, the heap key
+    private final int[] currKey;
+    private final int[] heuristic;
+    //the jump point the node was reached from and the direction of the jump
+    private final int[] previousNode;
+    private final int[] previousDirection;
+    //the directions in which the node is reached on shortest paths found so far, and those already expanded
+    private final int[] incomingDirections;
+    private final int[] expandedDirections;
+    //for each node the directions in which its straight run reaches the destination node
+    private final int[] runsToDestination;
+    private final int[] touchedNodes;
+    private final IntMinHeap vertexHeap;
+    private int numberOfTouchedNodes;
+
+    private JumpTables tables;
+    private LatticeNeighbors lattice;
+    private int[] edgeCost;
+    private int destNodeIdx;
+    //cost of the last jump
+    private int jumpCost;
+
+    public JumpPointRouter() {
+        this.currDistanceToNode = new int[Node.getSize()];
+        this.currKey = new int[Node.getSize()];
+        this.heuristic = new int[Node.getSize()];
+        this.previousNode = new int[Node.getSize()];
+        this.previousDirection = new int[Node.getSize()];
+        this.incomingDirections = new int[Node.getSize()];
+        this.expandedDirections = new int[Node.getSize()];
+        this.runsToDestination = new int[Node.getSize()];
+        this.touchedNodes = new int[Node.getSize()];
+        Arrays.fill(currDistanceToNode, Integer.MAX_VALUE);
+        Arrays.fill(heuristic, -1);
+        this.vertexHeap = new IntMinHeap(currKey);
+    }
+
+    /**
+     * resets the state of a previous calculation
+     */
+    private void resetState() {
+        for (int i = 0; i < numberOfTouchedNodes; i++) {
+            currDistanceToNode[touchedNodes[i]] = Integer.MAX_VALUE;
+            heuristic[touchedNodes[i]] = -1;
+            runsToDestination[touchedNodes[i]] = 0;
+        }
+        numberOfTouchedNodes = 0;
+        vertexHeap.resetState();
+    }
+
+    @Override
+    public RoutingResult route(int startNodeIdx, int destNodeIdx) {
+        if (!LatticeNeighbors.getCurrent().isLattice()) {
+            return new BiDijkstra().route(startNodeIdx, destNodeIdx);
+        }
+        JumpTables tables = JumpTables.getCurrent();
+
+        long startTime = System.nanoTime();
+        this.tables = tables;
+        this.lattice = tables.getLattice();
+        this.edgeCost = tables.getEdgeCost();
+        this.destNodeIdx = destNodeIdx;
+        resetState();
+
+        markRunsToDestination();
+        updateDistance(startNodeIdx, 0, -1, START_DIRECTION);
+
+        int vertexPoppedOutCount = 0;
+        boolean found = false;
+        while (!vertexHeap.isEmpty()) {
+            int nodeToHandleId = vertexHeap.getNext();
+            vertexPoppedOutCount++;
+
+            if (nodeToHandleId == destNodeIdx) {
+                found = true;
+                break;
+            }
+
+            int newDirections = incomingDirections[nodeToHandleId] & ~expandedDirections[nodeToHandleId];
+            expandedDirections[nodeToHandleId] |= newDirections;
+            int successors = 0;
+            for (int direction = 0; direction <= START_DIRECTION; direction++) {
+                if ((newDirections & (1 << direction)) != 0) {
+                    successors |= direction == START_DIRECTION
+                            ? ALL_DIRECTIONS : tables.getSuccessors(direction, nodeToHandleId);
+                }
+            }
+
+            for (int direction = 0; direction < 4; direction++) {
+                if ((successors & (1 << direction)) == 0 || lattice.getNeighbor(direction, nodeToHandleId) < 0) {
+                    continue;
+                }
+                int jumpPoint = jump(nodeToHandleId, direction);
+                if (jumpPoint >= 0) {
+                    updateDistance(jumpPoint, currDistanceToNode[nodeToHandleId] + jumpCost, nodeToHandleId, direction);
+                }
+            }
+        }
+
+        long stopTime = System.nanoTime();
+        if (!found) {
+            return new RoutingResult(false, Arrays.asList(startNodeIdx, destNodeIdx), Integer.MAX_VALUE, (double) (stopTime - startTime) / 1000000, vertexPoppedOutCount);
+        }
+        return new RoutingResult(true, getPath(startNodeIdx), currDistanceToNode[destNodeIdx], (double) (stopTime - startTime) / 1000000, vertexPoppedOutCount);
+    }
+
+    /**
+     * Marks the nodes whose straight run in a direction reaches the destination node. Going backwards from the
+     * destination node, the run of a node reaches it if all nodes in between have no other canonical successor.
+     */
+    private void markRunsToDestination() {
+        for (int direction = 0; direction < 4; direction++) {
+            int node = destNodeIdx;
+            while (true) {
+                node = lattice.getNeighbor(LatticeNeighbors.reverse(direction), node);
+                if (node < 0 || node == destNodeIdx) {
+                    break;
+                }
+                touch(node);
+                runsToDestination[node] |= 1 << direction;
+                if (tables.getSuccessors(direction, node) != 1 << direction) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Remembers that the state of a node has to be reset for the next calculation.
+     */
+    private void touch(int node) {
+        if (currDistanceToNode[node] == Integer.MAX_VALUE && heuristic[node] < 0 && runsToDestination[node] == 0) {
+            touchedNodes[numberOfTouchedNodes++] = node;
+        }
+    }
+
+    /**
+     * Updates the distance of a jump point reached from another jump point. A jump point reached on another
+     * shortest path from a new direction is put on the heap again, so that it is also expanded in the canonical
+     * directions of that path.
+     */
+    private void updateDistance(int node, int distance, int fromNode, int direction) {
+        if (distance < currDistanceToNode[node]) {
+            touch(node);
+            if (heuristic[node] < 0) {
+                heuristic[node] = (int) (lattice.getHeuristicFactor() * IntersectionHelper.getDistance(
+                        Node.getLatitude(node), Node.getLongitude(node),
+                        Node.getLatitude(destNodeIdx), Node.getLongitude(destNodeIdx)));
+            }
+            currDistanceToNode[node] = distance;
+            currKey[node] = distance + heuristic[node];
+            previousNode[node] = fromNode;
+            previousDirection[node] = direction;
+            incomingDirections[node] = 1 << direction;
+            expandedDirections[node] = 0;
+            vertexHeap.add(node);
+        } else if (distance == currDistanceToNode[node] && (incomingDirections[node] & (1 << direction)) == 0) {
+            incomingDirections[node] |= 1 << direction;
+            vertexHeap.add(node);
+        }
+    }
+
+    /**
+     * Moves straight from a node in a direction until a jump point is found.
+     *
+     * @return The jump point or -1 if there is none in this direction. The cost of the jump is stored in
+     * {@link #jumpCost}.
+     */
+    private int jump(int fromNode, int direction) {
+        int node = fromNode;
+        jumpCost = 0;
+        while (true) {
+            int nextNode = lattice.getNeighbor(direction, node);
+            if (nextNode < 0) {
+                return -1;
+            }
+            jumpCost += edgeCost[lattice.getEdge(direction, node)];
+            node = nextNode;
+            if (node == fromNode) {
+                // Once around the globe
+                return -1;
+            }
+            if (node == destNodeIdx) {
+                return node;
+            }
+
+            int successors = tables.getSuccessors(direction, node);
+            int turns = successors & ~(1 << direction);
+            for (int turn = 0; turns != 0 && turn < 4; turn++) {
+                if ((turns & (1 << turn)) != 0
+                        && ((runsToDestination[node] & (1 << turn)) != 0 || tables.reachesBranch(turn, node))) {
+                    return node;
+                }
+            }
+            if ((successors & (1 << direction)) == 0) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Unpacks the jumps from the start node to the destination node.
+     *
+     * @return The path with all nodes.
+     */
+    private List<Integer> getPath(int startNodeIdx) {
+        List<Integer> path = new ArrayList<>();
+        int node = destNodeIdx;
+        path.add(node);
+        while (node != startNodeIdx) {
+            int jumpStart = previousNode[node];
+            int backwards = LatticeNeighbors.reverse(previousDirection[node]);
+            while (node != jumpStart) {
+                node = lattice.getNeighbor(backwards, node);
+                path.add(node);
+            }
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    @Override
+    public String getName() {
+        return "Jump Point Search";
+    }
+}
@@ -0,0 +1,177 @@
+package de.fmi.searouter.router.jps;
+
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+import de.fmi.searouter.dijkstragrid.Node;
+
+/**
+ * Tables used by the {@link JumpPointRouter} for one set of edge costs: the canonical successors of every node for
+ * each direction it is reached from, and for every node and direction whether the straight run from the node in
+ * that direction reaches a node with more than one canonical successor.
+ * <p>
+ * A path which moves in direction d to a node and then in a perpendicular direction p is not canonical if moving
+ * first in p and then in d is shorter, or equally long and starts with the horizontal move. The reverse direction
+ * is never canonical.
+ * <p>
+ * The tables are rebuilt when the graph or the edge costs (see {@link EdgeCostOverlay}) change.
+ */
+final class JumpTables {
+
+    private static JumpTables current;
+
+    private final LatticeNeighbors lattice;
+    private final int[] edgeCost;
+
+    /**
+     * For each direction a node is reached from the directions in which it is continued, one bit each.
+     */
+    private final byte[][] successors;
+
+    /**
+     * For each direction and node true if the straight run from the node reaches a node with a canonical
+     * successor in another direction before it ends.
+     */
+    private final boolean[][] reachesBranch;
+
+    private JumpTables(LatticeNeighbors lattice, int[] edgeCost) {
+        this.lattice = lattice;
+        this.edgeCost = edgeCost;
+        this.successors = new byte[4][Node.getSize()];
+        this.reachesBranch = new boolean[4][Node.getSize()];
+
+        for (int direction = 0; direction < 4; direction++) {
+            for (int node = 0; node < Node.getSize(); node++) {
+                if (lattice.getNeighbor(LatticeNeighbors.reverse(direction), node) >= 0) {
+                    successors[direction][node] = (byte) calculateSuccessors(node, direction);
+                }
+            }
+        }
+        for (int direction = 0; direction < 4; direction++) {
+            calculateRuns(direction);
+        }
+    }
+
+    /**
+     * Returns the tables for the current graph and edge costs, calculating them if needed.
+     *
+     * @return The tables for the current graph and edge costs.
+     */
+    static synchronized JumpTables getCurrent() {
+        LatticeNeighbors lattice = LatticeNeighbors.getCurrent();
+        int[] edgeCost = EdgeCostOverlay.getCurrentCosts();
+        if (current == null || current.lattice != lattice || current.edgeCost != edgeCost) {
+            long startTime = System.nanoTime();
+            current = new JumpTables(lattice, edgeCost);
+            System.out.println("Calculated jump point tables in " + (System.nanoTime() - startTime) / 1000000 + " ms");
+        }
+        return current;
+    }
+
+    /**
+     * Calculates the canonical successors of a node which is reached by a move in a direction.
+     *
+     * @return A bit for each canonical direction.
+     */
+    private int calculateSuccessors(int node, int direction) {
+        int previous = lattice.getNeighbor(LatticeNeighbors.reverse(direction), node);
+        int result = 0;
+        for (int next = 0; next < 4; next++) {
+            int nextNode = lattice.getNeighbor(next, node);
+            if (nextNode < 0 || next == LatticeNeighbors.reverse(direction)) {
+                continue;
+            }
+            if (next != direction) {
+                int corner = lattice.getNeighbor(next, previous);
+                if (corner >= 0 && lattice.getNeighbor(direction, corner) == nextNode) {
+                    long viaNode = (long) edgeCost[lattice.getEdge(direction, previous)] + edgeCost[lattice.getEdge(next, node)];
+                    long viaCorner = (long) edgeCost[lattice.getEdge(next, previous)] + edgeCost[lattice.getEdge(direction, corner)];
+                    if (viaCorner < viaNode || (viaCorner == viaNode && LatticeNeighbors.isHorizontal(next))) {
+                        continue;
+                    }
+                }
+            }
+            result |= 1 << next;
+        }
+        return result;
+    }
+
+    /**
+     * Fills {@link #reachesBranch} for one direction. Each run is followed until a node with a known result, the
+     * results are then assigned backwards along the run.
+     */
+    private void calculateRuns(int direction) {
+        boolean[] reaches = reachesBranch[direction];
+        // 0: unknown, 1: on the run currently followed, 2: known
+        byte[] state = new byte[Node.getSize()];
+        int[] run = new int[Node.getSize()];
+
+        for (int start = 0; start < Node.getSize(); start++) {
+            int runLength = 0;
+            int node = start;
+            boolean result;
+            while (true) {
+                if (state[node] == 2) {
+                    result = reaches[node];
+                    break;
+                }
+                if (state[node] == 1) {
+                    // Once around the globe without a branch
+                    result = false;
+                    break;
+                }
+                state[node] = 1;
+                run[runLength++] = node;
+
+                int next = lattice.getNeighbor(direction, node);
+                if (next < 0) {
+                    result = false;
+                    break;
+                }
+                int nextSuccessors = successors[direction][next];
+                if ((nextSuccessors & ~(1 << direction)) != 0) {
+                    result = true;
+                    break;
+                }
+                if (nextSuccessors == 0) {
+                    result = false;
+                    break;
+                }
+                node = next;
+            }
+            for (int i = 0; i < runLength; i++) {
+                reaches[run[i]] = result;
+                state[run[i]] = 2;
+            }
+        }
+    }
+
+    /**
+     * @param direction The direction of the move to the node.
+     * @param node      A node
+     * @return A bit for each direction in which the node is continued.
+     */
+    int getSuccessors(int direction, int node) {
+        return successors[direction][node];
+    }
+
+    /**
+     * @return True if the straight run from a node in a direction reaches a node with a canonical successor in
+     * another direction.
+     */
+    boolean reachesBranch(int direction, int node) {
+        return reachesBranch[direction][node];
+    }
+
+    /**
+     * @return The edge costs the tables belong to.
+     */
+    int[] getEdgeCost() {
+        return edgeCost;
+    }
+
+    /**
+     * @return The lattice the tables belong to.
+     */
+    LatticeNeighbors getLattice() {
+        return lattice;
+    }
+}
@@ -0,0 +1,172 @@
+package de.fmi.searouter.router.jps;
+
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.utils.IntersectionHelper;
+
+import java.util.Arrays;
+
+/**
+ * The row/column structure of the grid graph: for each node its neighbor and the edge to it in each of the four
+ * directions. Horizontal edges connect nodes of the same latitude, vertical edges nodes of the same longitude.
+ * Longitudes are compared modulo 360 degrees, so the edges crossing the date line are horizontal edges like all
+ * others.
+ * <p>
+ * If the graph is not such a lattice (an edge which is neither horizontal nor vertical, two edges of a node in the
+ * same direction or an edge without its reverse edge), {@link #isLattice()} returns false.
+ * <p>
+ * The instance for the current graph is available through {@link #getCurrent()}; it is rebuilt when the graph
+ * changes.
+ */
+final class LatticeNeighbors {
+
+    static final int NORTH = 0;
+    static final int EAST = 1;
+    static final int SOUTH = 2;
+    static final int WEST = 3;
+
+    private static final double COORDINATE_EPSILON = 1e-9;
+
+    private static LatticeNeighbors current;
+
+    private final long graphChecksum;
+    private final boolean lattice;
+
+    // For each direction and node the neighbor in that direction and the edge to it, -1 if there is none
+    private final int[][] neighbor;
+    private final int[][] edge;
+
+    /**
+     * Factor for the great circle distance so that it is a lower bound of every edge distance.
+     */
+    private final double heuristicFactor;
+
+    private LatticeNeighbors(long graphChecksum) {
+        this.graphChecksum = graphChecksum;
+        this.neighbor = new int[4][Node.getSize()];
+        this.edge = new int[4][Node.getSize()];
+        for (int direction = 0; direction < 4; direction++) {
+            Arrays.fill(neighbor[direction], -1);
+            Arrays.fill(edge[direction], -1);
+        }
+        this.lattice = assignDirections();
+
+        double factor = 1.0;
+        for (int edgeId = 0; edgeId < Edge.getSize(); edgeId++) {
+            double greatCircleDistance = IntersectionHelper.getDistance(
+                    Node.getLatitude(Edge.getStart(edgeId)), Node.getLongitude(Edge.getStart(edgeId)),
+                    Node.getLatitude(Edge.getDest(edgeId)), Node.getLongitude(Edge.getDest(edgeId)));
+            // Edges shorter than a meter (between nodes at the poles) have length 0
+            if (greatCircleDistance >= 1) {
+                factor = Math.min(factor, Edge.getDist(edgeId) / greatCircleDistance);
+            }
+        }
+        // Some slack for rounding errors of the distance calculation
+        this.heuristicFactor = Math.max(0, factor * (1 - 1e-9));
+    }
+
+    /**
+     * Returns the lattice structure of the current graph, building it if the graph changed.
+     *
+     * @return The lattice structure of the current graph.
+     */
+    static synchronized LatticeNeighbors getCurrent() {
+        long checksum = GraphSnapshotHolder.getCurrentChecksum();
+        if (current == null || current.graphChecksum != checksum) {
+            current = new LatticeNeighbors(checksum);
+            if (!current.lattice) {
+                System.out.println("The graph is not a lattice, jump point search is not available");
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Assigns a direction to every edge.
+     *
+     * @return False if the graph is not a lattice.
+     */
+    private boolean assignDirections() {
+        for (int node = 0; node < Node.getSize(); node++) {
+            for (int edgeId = Grid.offset[node]; edgeId < Grid.offset[node + 1]; edgeId++) {
+                int dest = Edge.getDest(edgeId);
+                double latitudeDifference = Node.getLatitude(dest) - Node.getLatitude(node);
+                double longitudeDifference = Node.getLongitude(dest) - Node.getLongitude(node);
+                if (longitudeDifference > 180) {
+                    longitudeDifference -= 360;
+                } else if (longitudeDifference < -180) {
+                    longitudeDifference += 360;
+                }
+
+                int direction;
+                if (Math.abs(latitudeDifference) < COORDINATE_EPSILON && Math.abs(longitudeDifference) >= COORDINATE_EPSILON) {
+                    direction = longitudeDifference > 0 ? EAST : WEST;
+                } else if (Math.abs(longitudeDifference) < COORDINATE_EPSILON && Math.abs(latitudeDifference) >= COORDINATE_EPSILON) {
+                    direction = latitudeDifference > 0 ? NORTH : SOUTH;
+                } else {
+                    return false;
+                }
+                if (neighbor[direction][node] != -1) {
+                    return false;
+                }
+                neighbor[direction][node] = dest;
+                edge[direction][node] = edgeId;
+            }
+        }
+
+        for (int node = 0; node < Node.getSize(); node++) {
+            for (int direction = 0; direction < 4; direction++) {
+                int dest = neighbor[direction][node];
+                if (dest != -1 && neighbor[reverse(direction)][dest] != node) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The opposite direction.
+     */
+    static int reverse(int direction) {
+        return (direction + 2) % 4;
+    }
+
+    /**
+     * @return True for east and west.
+     */
+    static boolean isHorizontal(int direction) {
+        return (direction & 1) == 1;
+    }
+
+    /**
+     * @return False if the graph is not a lattice. No other method may be used then.
+     */
+    boolean isLattice() {
+        return lattice;
+    }
+
+    /**
+     * @return The neighbor of a node in a direction, -1 if there is none.
+     */
+    int getNeighbor(int direction, int node) {
+        return neighbor[direction][node];
+    }
+
+    /**
+     * @return The edge from a node to its neighbor in a direction, -1 if there is none.
+     */
+    int getEdge(int direction, int node) {
+        return edge[direction][node];
+    }
+
+    /**
+     * @return A factor for the great circle distance of two nodes which makes it a lower bound of their distance
+     * in the graph, also for every edge.
+     */
+    double getHeuristicFactor() {
+        return heuristicFactor;
+    }
+}
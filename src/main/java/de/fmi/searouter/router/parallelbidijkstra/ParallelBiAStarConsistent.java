@@ -0,0 +1,80 @@
+package de.fmi.searouter.router.parallelbidijkstra;
+
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.router.consistentbiastar.BiAStarConsistent;
+import de.fmi.searouter.utils.IntersectionHelper;
+
+/**
+ * Consistent bidirectional A* whose forward and backward search run on two threads at the same time (see
+ * {@link ParallelBiDijkstra}).
+ * <p>
+ * Like the {@link BiAStarConsistent}, the forward search uses the average of the great circle distance to the
+ * destination and the negated great circle distance to the start as potential, and the backward search its negation
+ * (Ikeda et al.). The edge distances of the graph are rounded, so the great circle distances are scaled by the
+ * smallest ratio of edge distance to great circle distance of the graph first and then rounded down, which keeps
+ * the doubled potentials integers and feasible. As penalties only increase the edge costs, the potentials stay
+ * feasible with penalties.
+ */
+public class ParallelBiAStarConsistent extends ParallelBiDijkstra {
+
+    private static long factorGraphChecksum;
+    private static double currentHeuristicFactor = -1;
+
+    private double heuristicFactor;
+    private double startLatitude;
+    private double startLongitude;
+    private double destLatitude;
+    private double destLongitude;
+
+    @Override
+    protected void prepareQuery(int startNodeIdx, int destNodeIdx) {
+        heuristicFactor = getHeuristicFactor();
+        startLatitude = Node.getLatitude(startNodeIdx);
+        startLongitude = Node.getLongitude(startNodeIdx);
+        destLatitude = Node.getLatitude(destNodeIdx);
+        destLongitude = Node.getLongitude(destNodeIdx);
+    }
+
+    @Override
+    protected int potential(int nodeIdx, boolean forward) {
+        double latitude = Node.getLatitude(nodeIdx);
+        double longitude = Node.getLongitude(nodeIdx);
+        // Rounding both estimates down keeps their differences between the ends of an edge within its cost
+        int toDestination = (int) (heuristicFactor * IntersectionHelper.getDistance(latitude, longitude, destLatitude, destLongitude));
+        int toStart = (int) (heuristicFactor * IntersectionHelper.getDistance(latitude, longitude, startLatitude, startLongitude));
+        int difference = toDestination - toStart;
+        return forward ? difference : -difference;
+    }
+
+    /**
+     * Returns a factor for the great circle distance which makes it a lower bound of the distance of every edge of
+     * the current graph, calculating it if the graph changed.
+     *
+     * @return The factor, at most 1.
+     */
+    private static synchronized double getHeuristicFactor() {
+        long checksum = GraphSnapshotHolder.getCurrentChecksum();
+        if (currentHeuristicFactor < 0 || factorGraphChecksum != checksum) {
+            double factor = 1.0;
+            for (int edgeId = 0; edgeId < Edge.getSize(); edgeId++) {
+                double greatCircleDistance = IntersectionHelper.getDistance(
+                        Node.getLatitude(Edge.getStart(edgeId)), Node.getLongitude(Edge.getStart(edgeId)),
+                        Node.getLatitude(Edge.getDest(edgeId)), Node.getLongitude(Edge.getDest(edgeId)));
+                if (greatCircleDistance > 0) {
+                    factor = Math.min(factor, Edge.getDist(edgeId) / greatCircleDistance);
+                }
+            }
+            // Some slack for rounding errors of the distance calculation
+            currentHeuristicFactor = Math.max(0, factor * (1 - 1e-9));
+            factorGraphChecksum = checksum;
+        }
+        return currentHeuristicFactor;
+    }
+
+    @Override
+    public String getName() {
+        return "Parallel Consistent Bidirectional AStar";
+    }
+}
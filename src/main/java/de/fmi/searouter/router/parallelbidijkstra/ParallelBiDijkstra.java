@@ -0,0 +1,326 @@
+package de.fmi.searouter.router.parallelbidijkstra;
+
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.router.Router;
+import de.fmi.searouter.router.RoutingResult;
+import de.fmi.searouter.router.bidijkstra.BiDijkstra;
+import de.fmi.searouter.utils.IntMinHeap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Bidirectional dijkstra which runs the forward search and the backward search on two threads at the same time,
+ * instead of alternating them in one thread like the {@link BiDijkstra}.
+ * <p>
+ * The two searches only share their tentative distances (in {@link AtomicIntegerArray}s, so that every write is
+ * seen by the other thread in order) and the best meeting found so far. Whenever a search settles a node or scans
+ * an edge, it combines its distance with the tentative distance of the other search at the node or at the end of
+ * the edge. A search stops once its smallest heap key plus the last key settled by the other search is at least
+ * the best meeting distance; no shorter path can be found after that, even if the other search is still running.
+ * <p>
+ * The heap keys can be shifted by a potential (see {@link #potential(int, boolean)}). With a potential of zero this
+ * is a bidirectional dijkstra; subclasses use the average of a forward and a backward heuristic, which keeps the
+ * stopping criterion valid. The potentials are doubled so that all keys are integers.
+ */
+public class ParallelBiDijkstra implements Router {
+
+    /**
+     * Threads for the forward searches, the backward search runs on the thread of the request.
+     */
+    private static final ExecutorService FORWARD_SEARCH_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "parallel-bidijkstra-forward");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Search forwardSearch;
+    private final Search backwardSearch;
+
+    private int[] edgeCost;
+
+    //best meeting of both searches found so far, updated by both threads
+    private volatile int currentSmallestDistance;
+    private int currentBestWayForwardEndId;
+    private int currentBestWayBackwardEndId;
+    //edge between the two ends, -1 if both searches met at the same node
+    private int currentBestWayEdgeId;
+
+    /**
+     * constructor. also initializes internal fields
+     */
+    public ParallelBiDijkstra() {
+        this.forwardSearch = new Search(true);
+        this.backwardSearch = new Search(false);
+        this.forwardSearch.other = backwardSearch;
+        this.backwardSearch.other = forwardSearch;
+    }
+
+    /**
+     * resets the state of a previous calculation
+     */
+    private void resetState() {
+        forwardSearch.resetState();
+        backwardSearch.resetState();
+        this.currentSmallestDistance = Integer.MAX_VALUE;
+        this.currentBestWayForwardEndId = -1;
+        this.currentBestWayBackwardEndId = -1;
+        this.currentBestWayEdgeId = -1;
+    }
+
+    /**
+     * Calculates the shortest path from one start node to a destination node. Node definitions
+     * are in {@link Node}, edge definition in {@link Edge} and the relationships between those two
+     * data structures in {@link Grid}.
+     *
+     * @param startNodeIdx The index of the start node (corresponding to {@link Node} indices)
+     * @param destNodeIdx  The index of the destination node (corresponding to {@link Node} indices)
+     * @return a route between start and destination node
+     */
+    @Override
+    public RoutingResult route(int startNodeIdx, int destNodeIdx) {
+        long startTime = System.nanoTime();
+
+        // Edge costs including all active penalties, fixed for the whole query
+        this.edgeCost = EdgeCostOverlay.getCurrentCosts();
+        prepareQuery(startNodeIdx, destNodeIdx);
+        resetState();
+
+        forwardSearch.updateDistance(startNodeIdx, 0, startNodeIdx);
+        backwardSearch.updateDistance(destNodeIdx, 0, destNodeIdx);
+
+        Future<?> forward = FORWARD_SEARCH_EXECUTOR.submit(forwardSearch::run);
+        try {
+            backwardSearch.run();
+        } finally {
+            try {
+                forward.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the forward search", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("The forward search failed", e.getCause());
+            }
+        }
+
+        int vertexPoppedOutCount = forwardSearch.poppedCount + backwardSearch.poppedCount;
+        if (currentBestWayForwardEndId < 0) {
+            long stopTime = System.nanoTime();
+            return new RoutingResult(false, Arrays.asList(startNodeIdx, destNodeIdx), Integer.MAX_VALUE, (double) (stopTime - startTime) / 1000000, vertexPoppedOutCount);
+        }
+
+        // The distances at the ends may have been improved after the meeting was found, so the path is measured
+        // with the final distances. It can not be longer than the best meeting.
+        List<Integer> path = forwardSearch.getPath(currentBestWayForwardEndId);
+        List<Integer> backwardPath = backwardSearch.getPath(currentBestWayBackwardEndId);
+        int distance = forwardSearch.distance[currentBestWayForwardEndId] + backwardSearch.distance[currentBestWayBackwardEndId];
+        if (currentBestWayEdgeId < 0) {
+            backwardPath.remove(0);
+        } else {
+            distance += edgeCost[currentBestWayEdgeId];
+        }
+        path.addAll(backwardPath);
+
+        long stopTime = System.nanoTime();
+        return new RoutingResult(true, path, distance, (double) (stopTime - startTime) / 1000000, vertexPoppedOutCount);
+    }
+
+    /**
+     * Called before each query. Subclasses can use this to prepare their potentials.
+     *
+     * @param startNodeIdx The index of the start node
+     * @param destNodeIdx  The index of the destination node
+     */
+    protected void prepareQuery(int startNodeIdx, int destNodeIdx) {
+    }
+
+    /**
+     * @return The edge costs of the current query, fixed before {@link #prepareQuery(int, int)} is called.
+     */
+    protected int[] getEdgeCost() {
+        return edgeCost;
+    }
+
+    /**
+     * The potential the heap key of a node is shifted by, times two. The forward and the backward potential of a
+     * node have to add up to zero, and the potential has to be feasible: the cost of each edge minus the potential
+     * of its start plus the potential of its end must not be negative. May be called from both search threads.
+     *
+     * @param nodeIdx The index of the node
+     * @param forward True for the forward search, false for the backward search
+     * @return twice the potential, always 0 for the plain bidirectional dijkstra
+     */
+    protected int potential(int nodeIdx, boolean forward) {
+        return 0;
+    }
+
+    /**
+     * Remembers a meeting of both searches if it is shorter than the best one found so far.
+     */
+    private synchronized void updateBestWay(int distance, int forwardEndId, int backwardEndId, int edgeId) {
+        if (distance < currentSmallestDistance) {
+            currentSmallestDistance = distance;
+            currentBestWayForwardEndId = forwardEndId;
+            currentBestWayBackwardEndId = backwardEndId;
+            currentBestWayEdgeId = edgeId;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Parallel Bidirectional Dijkstra";
+    }
+
+    /**
+     * One direction of the search. Only the thread running the search writes its fields.
+     */
+    private class Search {
+
+        private final boolean isForward;
+        private Search other;
+
+        //current distance to the node; read by this search only
+        private final int[] distance;
+        //the same distances, read by the other search
+        private final AtomicIntegerArray sharedDistance;
+        //distance plus doubled potential, the heap key
+        private final int[] key;
+        private final int[] nodePotential;
+        //previous node on the way from the start of this search
+        private final int[] previousNode;
+        private final boolean[] settled;
+        private final int[] touchedNodes;
+        private final IntMinHeap vertexHeap;
+        private int numberOfTouchedNodes;
+        private int poppedCount;
+
+        //key of the node settled last, never decreases
+        private volatile int lastSettledKey;
+        private volatile boolean finished;
+
+        private Search(boolean isForward) {
+            this.isForward = isForward;
+            this.distance = new int[Node.getSize()];
+            this.sharedDistance = new AtomicIntegerArray(Node.getSize());
+            this.key = new int[Node.getSize()];
+            this.nodePotential = new int[Node.getSize()];
+            this.previousNode = new int[Node.getSize()];
+            this.settled = new boolean[Node.getSize()];
+            this.touchedNodes = new int[Node.getSize()];
+            this.vertexHeap = new IntMinHeap(key);
+            Arrays.fill(distance, Integer.MAX_VALUE);
+            for (int i = 0; i < Node.getSize(); i++) {
+                sharedDistance.set(i, Integer.MAX_VALUE);
+            }
+        }
+
+        private void resetState() {
+            for (int i = 0; i < numberOfTouchedNodes; i++) {
+                int node = touchedNodes[i];
+                distance[node] = Integer.MAX_VALUE;
+                sharedDistance.set(node, Integer.MAX_VALUE);
+                settled[node] = false;
+            }
+            numberOfTouchedNodes = 0;
+            poppedCount = 0;
+            lastSettledKey = Integer.MIN_VALUE;
+            finished = false;
+            vertexHeap.resetState();
+        }
+
+        private void updateDistance(int node, int newDistance, int fromNode) {
+            if (distance[node] == Integer.MAX_VALUE) {
+                touchedNodes[numberOfTouchedNodes++] = node;
+                nodePotential[node] = potential(node, isForward);
+            }
+            distance[node] = newDistance;
+            sharedDistance.set(node, newDistance);
+            key[node] = 2 * newDistance + nodePotential[node];
+            previousNode[node] = fromNode;
+            vertexHeap.add(node);
+        }
+
+        /**
+         * @return True if no shorter meeting than the best one can be found anymore.
+         */
+        private boolean isDone() {
+            if (vertexHeap.isEmpty() || other.finished) {
+                return true;
+            }
+            int bestDistance = currentSmallestDistance;
+            return bestDistance != Integer.MAX_VALUE
+                    && (long) key[vertexHeap.peek()] + other.lastSettledKey >= 2L * bestDistance;
+        }
+
+        private void run() {
+            try {
+                while (!isDone()) {
+                    int nodeToHandleId = vertexHeap.getNext();
+                    poppedCount++;
+                    settled[nodeToHandleId] = true;
+                    lastSettledKey = key[nodeToHandleId];
+
+                    int otherDistance = other.sharedDistance.get(nodeToHandleId);
+                    if (otherDistance != Integer.MAX_VALUE) {
+                        offerMeeting(distance[nodeToHandleId] + otherDistance, nodeToHandleId, nodeToHandleId, -1);
+                    }
+
+                    for (int neighbourEdgeId = Grid.offset[nodeToHandleId]; neighbourEdgeId < Grid.offset[nodeToHandleId + 1]; ++neighbourEdgeId) {
+                        int destinationVertexId = Edge.getDest(neighbourEdgeId);
+                        int newDistanceOverThisEdgeToDestVertex = distance[nodeToHandleId] + edgeCost[neighbourEdgeId];
+
+                        otherDistance = other.sharedDistance.get(destinationVertexId);
+                        if (otherDistance != Integer.MAX_VALUE) {
+                            offerMeeting(newDistanceOverThisEdgeToDestVertex + otherDistance, nodeToHandleId, destinationVertexId, neighbourEdgeId);
+                        }
+
+                        if (!settled[destinationVertexId] && newDistanceOverThisEdgeToDestVertex < distance[destinationVertexId]) {
+                            updateDistance(destinationVertexId, newDistanceOverThisEdgeToDestVertex, nodeToHandleId);
+                        }
+                    }
+                }
+            } finally {
+                // Lets the other search stop as well
+                finished = true;
+            }
+        }
+
+        private void offerMeeting(int meetingDistance, int ownEndId, int otherEndId, int edgeId) {
+            if (meetingDistance < currentSmallestDistance) {
+                if (isForward) {
+                    updateBestWay(meetingDistance, ownEndId, otherEndId, edgeId);
+                } else {
+                    updateBestWay(meetingDistance, otherEndId, ownEndId, edgeId);
+                }
+            }
+        }
+
+        /**
+         * @return The path from the start of this search to a node, for the backward search in the direction of
+         * the route.
+         */
+        private List<Integer> getPath(int nodeIdx) {
+            List<Integer> path = new ArrayList<>();
+            int currNodeUnderInvestigation = nodeIdx;
+            path.add(currNodeUnderInvestigation);
+            while (previousNode[currNodeUnderInvestigation] != currNodeUnderInvestigation) {
+                currNodeUnderInvestigation = previousNode[currNodeUnderInvestigation];
+                path.add(currNodeUnderInvestigation);
+            }
+            if (isForward) {
+                Collections.reverse(path);
+            }
+            return path;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package de.fmi.searouter.router.symmetricastar;
 
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
 import de.fmi.searouter.dijkstragrid.Edge;
 import de.fmi.searouter.dijkstragrid.Grid;
 import de.fmi.searouter.dijkstragrid.Node;
@@ -151,6 +152,9 @@ public class BiAStarSymmetric implements Router {
     @Override
     public RoutingResult route(int startNodeIdx, int destNodeIdx) {
         long startTime = System.nanoTime();
+
+        // Edge costs including all active penalties, fixed for the whole query
+        int[] edgeCost = EdgeCostOverlay.getCurrentCosts();
         resetState(startNodeIdx, destNodeIdx);
 
         // Counts how many nodes where popped out the heap, meaning that they had the "labeled" status
@@ -181,7 +185,7 @@ public class BiAStarSymmetric implements Router {
 
 
                 if (nodeTouchedBackward[destinationVertexId]) {
-                    int newRealDistanceOverall = currDistanceToNodeForward[nodeToHandleIdForward] + Edge.getDist(neighbourEdgeId) + currDistanceToNodeBackward[destinationVertexId];
+                    int newRealDistanceOverall = currDistanceToNodeForward[nodeToHandleIdForward] + edgeCost[neighbourEdgeId] + currDistanceToNodeBackward[destinationVertexId];
 
                     if (currentSmallestDistance > newRealDistanceOverall) {
                         currentSmallestDistance = newRealDistanceOverall;
@@ -195,7 +199,7 @@ public class BiAStarSymmetric implements Router {
                     }
 
                     // Calculate the distance to the destination vertex using the current edge
-                    int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeForward[nodeToHandleIdForward] + Edge.getDist(neighbourEdgeId);
+                    int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeForward[nodeToHandleIdForward] + edgeCost[neighbourEdgeId];
                     double newDistanceOverThisEdgeToDestVertexAStar = newDistanceOverThisEdgeToDestVertex + distanceToTargetForward[destinationVertexId];
 
                     // If the new calculated distance to the destination vertex is lower as the previously known, update the corresponding data structures
@@ -232,7 +236,7 @@ public class BiAStarSymmetric implements Router {
                 }
 
                 if (nodeTouchedForward[destinationVertexId]) {
-                    int newRealDistanceOverall = currDistanceToNodeBackward[nodeToHandleIdBackward] + Edge.getDist(neighbourEdgeId) + currDistanceToNodeForward[destinationVertexId];
+                    int newRealDistanceOverall = currDistanceToNodeBackward[nodeToHandleIdBackward] + edgeCost[neighbourEdgeId] + currDistanceToNodeForward[destinationVertexId];
                     if (currentSmallestDistance > newRealDistanceOverall) {
                         currentSmallestDistance = newRealDistanceOverall;
                         currentBestWayBackwardEndId = nodeToHandleIdBackward;
@@ -245,7 +249,7 @@ public class BiAStarSymmetric implements Router {
                     }
 
                     // Calculate the distance to the destination vertex using the current edge
-                    int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeBackward[nodeToHandleIdBackward] + Edge.getDist(neighbourEdgeId);
+                    int newDistanceOverThisEdgeToDestVertex = currDistanceToNodeBackward[nodeToHandleIdBackward] + edgeCost[neighbourEdgeId];
                     double newDistanceOverThisEdgeToDestVertexAStar = newDistanceOverThisEdgeToDestVertex + distanceToTargetBackward[destinationVertexId];
 
 
@@ -0,0 +1,148 @@
+package de.fmi.searouter.router.transitnodes;
+
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.router.Router;
+import de.fmi.searouter.router.RoutingResult;
+import de.fmi.searouter.router.bidijkstra.BiDijkstra;
+import de.fmi.searouter.utils.IntMinHeap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Router using {@link TransitNodes}. The distance of a query between two cells is found by table lookups for the
+ * access nodes of start and destination node. The path is then unpacked with small searches that do not expand
+ * transit nodes: from the start node to its access node, from transit node to transit node along the table
+ * distances and from the access node of the destination node to the destination node. Each of these searches
+ * stays within one cell.
+ * <p>
+ * Local queries (start and destination node in the same cell) and queries while penalties are active are answered
+ * by a {@link BiDijkstra}.
+ */
+public class TransitNodeRouter implements Router {
+
+    private final int[] currDistanceToNode;
+    private final int[] previousNode;
+    private final int[] touchedNodes;
+    private final IntMinHeap vertexHeap;
+    private int numberOfTouchedNodes;
+    private int vertexPoppedOutCount;
+
+    public TransitNodeRouter() {
+        this.currDistanceToNode = new int[Node.getSize()];
+        this.previousNode = new int[Node.getSize()];
+        this.touchedNodes = new int[Node.getSize()];
+        Arrays.fill(currDistanceToNode, Integer.MAX_VALUE);
+        this.vertexHeap = new IntMinHeap(currDistanceToNode);
+    }
+
+    @Override
+    public RoutingResult route(int startNodeIdx, int destNodeIdx) {
+        if (EdgeCostOverlay.getCurrentCosts() != Edge.getDistances()) {
+            return new BiDijkstra().route(startNodeIdx, destNodeIdx);
+        }
+        TransitNodes transitNodes = TransitNodes.getInstance();
+        if (transitNodes.isLocalQuery(startNodeIdx, destNodeIdx)) {
+            return new BiDijkstra().route(startNodeIdx, destNodeIdx);
+        }
+
+        long startTime = System.nanoTime();
+        vertexPoppedOutCount = 0;
+
+        int[] accessPair = transitNodes.findBestAccessPair(startNodeIdx, destNodeIdx);
+        if (accessPair == null) {
+            long stopTime = System.nanoTime();
+            return new RoutingResult(false, Arrays.asList(startNodeIdx, destNodeIdx), Integer.MAX_VALUE, (double) (stopTime - startTime) / 1000000, 0);
+        }
+        int startAccessNode = accessPair[0];
+        int destAccessNode = accessPair[1];
+
+        List<Integer> path = searchPath(transitNodes, startNodeIdx, node -> node == startAccessNode);
+
+        // Follow the distance table from transit node to transit node
+        int currentNode = startAccessNode;
+        while (currentNode != destAccessNode) {
+            int fromNode = currentNode;
+            int remainingDistance = transitNodes.getTransitDistance(fromNode, destAccessNode);
+            List<Integer> nextPart = searchPath(transitNodes, fromNode, node -> node != fromNode && transitNodes.isTransitNode(node)
+                    && transitNodes.getTransitDistance(node, destAccessNode) != Integer.MAX_VALUE
+                    && currDistanceToNode[node] + transitNodes.getTransitDistance(node, destAccessNode) == remainingDistance);
+            path.addAll(nextPart.subList(1, nextPart.size()));
+            currentNode = path.get(path.size() - 1);
+        }
+
+        List<Integer> lastPart = searchPath(transitNodes, destNodeIdx, node -> node == destAccessNode);
+        Collections.reverse(lastPart);
+        path.addAll(lastPart.subList(1, lastPart.size()));
+
+        long stopTime = System.nanoTime();
+        return new RoutingResult(true, path, accessPair[2], (double) (stopTime - startTime) / 1000000, vertexPoppedOutCount);
+    }
+
+    /**
+     * Dijkstra search from a node which does not expand any transit node except the start node, until a node
+     * matching the target condition is popped.
+     *
+     * @return The path from the start node to the found target node.
+     */
+    private List<Integer> searchPath(TransitNodes transitNodes, int startNodeIdx, IntPredicate isTarget) {
+        numberOfTouchedNodes = 0;
+        currDistanceToNode[startNodeIdx] = 0;
+        previousNode[startNodeIdx] = -1;
+        touchedNodes[numberOfTouchedNodes++] = startNodeIdx;
+        vertexHeap.add(startNodeIdx);
+
+        int targetNode = -1;
+        while (!vertexHeap.isEmpty()) {
+            int nodeToHandleId = vertexHeap.getNext();
+            vertexPoppedOutCount++;
+
+            if (isTarget.test(nodeToHandleId)) {
+                targetNode = nodeToHandleId;
+                break;
+            }
+            if (nodeToHandleId != startNodeIdx && transitNodes.isTransitNode(nodeToHandleId)) {
+                continue;
+            }
+
+            for (int edge = Grid.offset[nodeToHandleId]; edge < Grid.offset[nodeToHandleId + 1]; edge++) {
+                int destinationVertexId = Edge.getDest(edge);
+                int newDistance = currDistanceToNode[nodeToHandleId] + Edge.getDist(edge);
+                if (newDistance < currDistanceToNode[destinationVertexId]) {
+                    if (currDistanceToNode[destinationVertexId] == Integer.MAX_VALUE) {
+                        touchedNodes[numberOfTouchedNodes++] = destinationVertexId;
+                    }
+                    currDistanceToNode[destinationVertexId] = newDistance;
+                    previousNode[destinationVertexId] = nodeToHandleId;
+                    vertexHeap.add(destinationVertexId);
+                }
+            }
+        }
+
+        if (targetNode < 0) {
+            throw new IllegalStateException("Transit node path from " + startNodeIdx + " can not be unpacked");
+        }
+        List<Integer> path = new ArrayList<>();
+        for (int node = targetNode; node != -1; node = previousNode[node]) {
+            path.add(node);
+        }
+        Collections.reverse(path);
+
+        for (int i = 0; i < numberOfTouchedNodes; i++) {
+            currDistanceToNode[touchedNodes[i]] = Integer.MAX_VALUE;
+        }
+        vertexHeap.resetState();
+        return path;
+    }
+
+    @Override
+    public String getName() {
+        return "Transit Node Routing";
+    }
+}
@@ -0,0 +1,477 @@
+package de.fmi.searouter.router.transitnodes;
+
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.GraphSnapshotHolder;
+import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.partition.GraphPartition;
+import de.fmi.searouter.router.dijkstra.DijkstraRouter;
+import de.fmi.searouter.utils.IntMinHeap;
+import de.fmi.searouter.utils.PreprocessingFiles;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Transit node routing data of the grid graph.
+ * <p>
+ * The transit nodes are taken from the cells of one level of the {@link GraphPartition}: for each edge between two
+ * cells, the end node in the cell with the lower id is a transit node. Every path leaving a cell therefore passes a
+ * transit node. For these nodes a full distance table is calculated (one Dijkstra search per transit node, run in
+ * parallel).
+ * <p>
+ * The access nodes of a node v are the transit nodes which can be reached from v without passing another transit
+ * node, together with the distance of this path. Every access node that can be reached at least as fast over another
+ * (closer) access node and the distance table is dropped, which leaves a few access nodes per node. A transit node
+ * is its own only access node.
+ * <p>
+ * For two nodes in different cells the shortest path leaves the cell of the start node, so the distance is the
+ * minimum of d(s, a) + table(a, b) + d(b, t) over the access nodes a of s and b of t. Queries within one cell are
+ * local and have to be answered by another router, see {@link #isLocalQuery(int, int)}.
+ * <p>
+ * The data is only valid for the plain edge distances of {@link Edge}, not for edge costs changed by penalties.
+ * The data of the current graph is available through {@link #getInstance()}, which loads it from a serialization
+ * file or calculates and stores it if no file for the current graph exists.
+ */
+public final class TransitNodes implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The name of the serialization file which is created for storing the transit node data.
+     */
+    private static final String TRANSIT_NODES_SERIALIZATION_FILE_NAME = "transitnodes.ser";
+
+    /**
+     * The partition depth whose cut edges define the transit nodes. 2^4 = 16 cells of about 45000 nodes each on the
+     * default grid, which gives a few thousand transit nodes and a distance table of about 100 MB.
+     */
+    private static final int TRANSIT_DEPTH = 4;
+
+    private static TransitNodes INSTANCE;
+
+    /**
+     * For each node its cell on the transit depth.
+     */
+    private final int[] cells;
+
+    /**
+     * For each node its index in {@link #transitNodes}, -1 if it is no transit node.
+     */
+    private final int[] transitIndex;
+
+    private final int[] transitNodes;
+
+    /**
+     * The distances between all transit nodes, row by row (index = from * number of transit nodes + to).
+     */
+    private final int[] distanceTable;
+
+    /**
+     * For each node the range of its access nodes in {@link #accessNodes} and {@link #accessDistances}.
+     */
+    private final int[] accessOffset;
+
+    /**
+     * The access nodes (as transit node index) and their distances, sorted by distance for each node.
+     */
+    private final int[] accessNodes;
+    private final int[] accessDistances;
+
+    /**
+     * Checksum of the graph the data was calculated for.
+     */
+    private final long graphChecksum;
+
+    private TransitNodes(int[] cells, int[] transitIndex, int[] transitNodes, int[] distanceTable,
+                         int[] accessOffset, int[] accessNodes, int[] accessDistances) {
+        this.cells = cells;
+        this.transitIndex = transitIndex;
+        this.transitNodes = transitNodes;
+        this.distanceTable = distanceTable;
+        this.accessOffset = accessOffset;
+        this.accessNodes = accessNodes;
+        this.accessDistances = accessDistances;
+        this.graphChecksum = GraphSnapshotHolder.getCurrentChecksum();
+    }
+
+    /**
+     * Returns the transit node data of the current graph. It is read from the serialization file if that file
+     * belongs to the current graph, otherwise it is calculated and the file is (over)written.
+     *
+     * @return The transit node data of the current graph.
+     */
+    public static synchronized TransitNodes getInstance() {
+        long checksum = GraphSnapshotHolder.getCurrentChecksum();
+        if (INSTANCE != null && INSTANCE.graphChecksum == checksum) {
+            return INSTANCE;
+        }
+
+        String fileName = PreprocessingFiles.getPath(TRANSIT_NODES_SERIALIZATION_FILE_NAME);
+        TransitNodes transitNodes = readData(fileName);
+        if (transitNodes == null || transitNodes.graphChecksum != checksum) {
+            System.out.println("Started calculating transit nodes. This might take a while!");
+            transitNodes = calculate(GraphPartition.getInstance());
+            transitNodes.storeData(fileName);
+        }
+
+        INSTANCE = transitNodes;
+        return transitNodes;
+    }
+
+    /**
+     * Calculates the transit nodes, their distance table and the access nodes of the current graph.
+     *
+     * @param partition The partition of the current graph, its cells on depth {@link #TRANSIT_DEPTH} are used.
+     * @return The transit node data.
+     */
+    static TransitNodes calculate(GraphPartition partition) {
+        long startTime = System.nanoTime();
+        int depth = Math.min(TRANSIT_DEPTH, partition.getNumberOfLevels());
+        int numberOfNodes = Node.getSize();
+
+        int[] cells = new int[numberOfNodes];
+        for (int node = 0; node < numberOfNodes; node++) {
+            cells[node] = partition.getCell(depth, node);
+        }
+
+        boolean[] isTransitNode = new boolean[numberOfNodes];
+        for (int node = 0; node < numberOfNodes; node++) {
+            for (int edge = Grid.offset[node]; edge < Grid.offset[node + 1]; edge++) {
+                int dest = Edge.getDest(edge);
+                if (cells[node] < cells[dest]) {
+                    isTransitNode[node] = true;
+                } else if (cells[node] > cells[dest]) {
+                    isTransitNode[dest] = true;
+                }
+            }
+        }
+        int[] transitNodes = IntStream.range(0, numberOfNodes).filter(node -> isTransitNode[node]).toArray();
+        int[] transitIndex = new int[numberOfNodes];
+        Arrays.fill(transitIndex, -1);
+        for (int i = 0; i < transitNodes.length; i++) {
+            transitIndex[transitNodes[i]] = i;
+        }
+        if ((long) transitNodes.length * transitNodes.length > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many transit nodes for the distance table: " + transitNodes.length);
+        }
+
+        int[] distanceTable = calculateDistanceTable(transitNodes);
+        System.out.println("Calculated distance table of " + transitNodes.length + " transit nodes in "
+                + (System.nanoTime() - startTime) / 1000000 + " ms");
+
+        int[][] nodeAccessNodes = new int[numberOfNodes][];
+        int[][] nodeAccessDistances = new int[numberOfNodes][];
+        for (int transitNode : transitNodes) {
+            nodeAccessNodes[transitNode] = new int[]{transitIndex[transitNode]};
+            nodeAccessDistances[transitNode] = new int[]{0};
+        }
+        for (int cell = 0; cell < (1 << depth); cell++) {
+            calculateAccessNodes(cell, cells, transitIndex, distanceTable, transitNodes.length,
+                    nodeAccessNodes, nodeAccessDistances);
+        }
+
+        int[] accessOffset = new int[numberOfNodes + 1];
+        for (int node = 0; node < numberOfNodes; node++) {
+            accessOffset[node + 1] = accessOffset[node] + nodeAccessNodes[node].length;
+        }
+        int[] accessNodes = new int[accessOffset[numberOfNodes]];
+        int[] accessDistances = new int[accessOffset[numberOfNodes]];
+        for (int node = 0; node < numberOfNodes; node++) {
+            System.arraycopy(nodeAccessNodes[node], 0, accessNodes, accessOffset[node], nodeAccessNodes[node].length);
+            System.arraycopy(nodeAccessDistances[node], 0, accessDistances, accessOffset[node], nodeAccessDistances[node].length);
+        }
+
+        System.out.println("Calculated transit nodes (" + transitNodes.length + " transit nodes, "
+                + accessNodes.length / (double) numberOfNodes + " access nodes per node) in "
+                + (System.nanoTime() - startTime) / 1000000 + " ms");
+        return new TransitNodes(cells, transitIndex, transitNodes, distanceTable, accessOffset, accessNodes, accessDistances);
+    }
+
+    /**
+     * Calculates the distances between all transit nodes with one Dijkstra search per transit node.
+     */
+    private static int[] calculateDistanceTable(int[] transitNodes) {
+        int numberOfTransitNodes = transitNodes.length;
+        int[] distanceTable = new int[numberOfTransitNodes * numberOfTransitNodes];
+
+        ThreadLocal<DijkstraRouter> routers = ThreadLocal.withInitial(DijkstraRouter::new);
+        AtomicInteger finished = new AtomicInteger();
+        IntStream.range(0, numberOfTransitNodes).parallel().forEach(i -> {
+            int[] distance = routers.get().routeToAllVertices(transitNodes[i], transitNodes[i]);
+            int row = i * numberOfTransitNodes;
+            for (int j = 0; j < numberOfTransitNodes; j++) {
+                distanceTable[row + j] = distance[transitNodes[j]];
+            }
+
+            int count = finished.incrementAndGet();
+            if (count % 1000 == 0) {
+                System.out.println("Transit nodes: " + count + " of " + numberOfTransitNodes + " table rows done");
+            }
+        });
+        return distanceTable;
+    }
+
+    /**
+     * Calculates the access nodes of all nodes of a cell which are no transit nodes.
+     * <p>
+     * The candidates are the transit nodes in the cell or next to it. From each candidate a search is run which only
+     * expands nodes of the cell which are no transit nodes, this gives the distance of the candidate to all nodes
+     * of the cell over paths without other transit nodes (the graph is symmetric). Then the candidates of each node
+     * are filtered by distance, dropping those that are reached at least as fast over a closer access node.
+     */
+    private static void calculateAccessNodes(int cell, int[] cells, int[] transitIndex, int[] distanceTable,
+                                             int numberOfTransitNodes, int[][] nodeAccessNodes,
+                                             int[][] nodeAccessDistances) {
+        int[] cellNodes = IntStream.range(0, cells.length)
+                .filter(node -> cells[node] == cell && transitIndex[node] < 0).toArray();
+        if (cellNodes.length == 0) {
+            return;
+        }
+        int[] candidates = IntStream.range(0, cells.length)
+                .filter(node -> transitIndex[node] >= 0 && isInOrNextToCell(node, cell, cells)).toArray();
+
+        int[] localIndex = new int[cells.length];
+        for (int i = 0; i < cellNodes.length; i++) {
+            localIndex[cellNodes[i]] = i;
+        }
+
+        // For each candidate and node of the cell the distance between them
+        int numberOfCellNodes = cellNodes.length;
+        int[] candidateDistances = new int[candidates.length * numberOfCellNodes];
+        Arrays.fill(candidateDistances, Integer.MAX_VALUE);
+
+        ThreadLocal<CellSearch> searches = ThreadLocal.withInitial(CellSearch::new);
+        IntStream.range(0, candidates.length).parallel().forEach(i ->
+                searches.get().search(candidates[i], cell, cells, transitIndex, localIndex,
+                        candidateDistances, i * numberOfCellNodes));
+
+        IntStream.range(0, numberOfCellNodes).parallel().forEach(local -> {
+            long[] sortedCandidates = new long[candidates.length];
+            int numberOfReachable = 0;
+            for (int i = 0; i < candidates.length; i++) {
+                int distance = candidateDistances[i * numberOfCellNodes + local];
+                if (distance != Integer.MAX_VALUE) {
+                    sortedCandidates[numberOfReachable++] = ((long) distance << 32) | i;
+                }
+            }
+            Arrays.sort(sortedCandidates, 0, numberOfReachable);
+
+            int[] keptNodes = new int[numberOfReachable];
+            int[] keptDistances = new int[numberOfReachable];
+            int numberOfKept = 0;
+            for (int c = 0; c < numberOfReachable; c++) {
+                int distance = (int) (sortedCandidates[c] >>> 32);
+                int accessNode = transitIndex[candidates[(int) sortedCandidates[c]]];
+                boolean dominated = false;
+                for (int k = 0; k < numberOfKept && !dominated; k++) {
+                    int tableDistance = distanceTable[keptNodes[k] * numberOfTransitNodes + accessNode];
+                    dominated = tableDistance != Integer.MAX_VALUE && (long) keptDistances[k] + tableDistance <= distance;
+                }
+                if (!dominated) {
+                    keptNodes[numberOfKept] = accessNode;
+                    keptDistances[numberOfKept] = distance;
+                    numberOfKept++;
+                }
+            }
+
+            int node = cellNodes[local];
+            nodeAccessNodes[node] = Arrays.copyOf(keptNodes, numberOfKept);
+            nodeAccessDistances[node] = Arrays.copyOf(keptDistances, numberOfKept);
+        });
+    }
+
+    private static boolean isInOrNextToCell(int node, int cell, int[] cells) {
+        if (cells[node] == cell) {
+            return true;
+        }
+        for (int edge = Grid.offset[node]; edge < Grid.offset[node + 1]; edge++) {
+            if (cells[Edge.getDest(edge)] == cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Dijkstra search from a transit node into a cell, only expanding nodes of the cell which are no transit nodes.
+     * One instance per thread.
+     */
+    private static class CellSearch {
+        private final int[] distance;
+        private final int[] touchedNodes;
+        private final IntMinHeap heap;
+
+        CellSearch() {
+            this.distance = new int[Node.getSize()];
+            this.touchedNodes = new int[Node.getSize()];
+            Arrays.fill(distance, Integer.MAX_VALUE);
+            this.heap = new IntMinHeap(distance);
+        }
+
+        void search(int source, int cell, int[] cells, int[] transitIndex, int[] localIndex, int[] result, int resultOffset) {
+            int numberOfTouchedNodes = 0;
+            distance[source] = 0;
+            touchedNodes[numberOfTouchedNodes++] = source;
+            heap.add(source);
+
+            while (!heap.isEmpty()) {
+                int node = heap.getNext();
+                if (node != source) {
+                    result[resultOffset + localIndex[node]] = distance[node];
+                }
+                for (int edge = Grid.offset[node]; edge < Grid.offset[node + 1]; edge++) {
+                    int dest = Edge.getDest(edge);
+                    if (cells[dest] != cell || transitIndex[dest] >= 0) {
+                        continue;
+                    }
+                    int newDistance = distance[node] + Edge.getDist(edge);
+                    if (newDistance < distance[dest]) {
+                        if (distance[dest] == Integer.MAX_VALUE) {
+                            touchedNodes[numberOfTouchedNodes++] = dest;
+                        }
+                        distance[dest] = newDistance;
+                        heap.add(dest);
+                    }
+                }
+            }
+
+            for (int i = 0; i < numberOfTouchedNodes; i++) {
+                distance[touchedNodes[i]] = Integer.MAX_VALUE;
+            }
+            heap.resetState();
+        }
+    }
+
+    /**
+     * Stores the data to a serialization file.
+     */
+    private void storeData(String fileName) {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeObject(this);
+            System.out.println("Transit nodes have been serialized");
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads the data from a serialization file.
+     *
+     * @return The data or null if the file does not exist or can not be read.
+     */
+    private static TransitNodes readData(String fileName) {
+        File file = new File(fileName);
+        if (!file.exists()) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            TransitNodes transitNodes = (TransitNodes) in.readObject();
+            System.out.println("Transit nodes have been deserialized");
+            return transitNodes;
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Locality filter: queries between two nodes of the same cell may not pass any transit node and can not be
+     * answered with the transit nodes.
+     *
+     * @return True if both nodes lie in the same cell.
+     */
+    public boolean isLocalQuery(int startNodeIdx, int destNodeIdx) {
+        return cells[startNodeIdx] == cells[destNodeIdx];
+    }
+
+    /**
+     * Calculates the distance between two nodes in different cells.
+     *
+     * @param startNodeIdx The start node.
+     * @param destNodeIdx  The destination node.
+     * @return The length of the shortest path, {@link Integer#MAX_VALUE} if there is no path.
+     * @throws IllegalArgumentException If the query is local.
+     */
+    public int getDistance(int startNodeIdx, int destNodeIdx) {
+        int[] accessPair = findBestAccessPair(startNodeIdx, destNodeIdx);
+        return accessPair == null ? Integer.MAX_VALUE : accessPair[2];
+    }
+
+    /**
+     * Finds the pair of access nodes of start and destination node with the shortest path over them.
+     *
+     * @return The access node of the start node, the access node of the destination node and the distance, null if
+     * there is no path.
+     * @throws IllegalArgumentException If the query is local.
+     */
+    int[] findBestAccessPair(int startNodeIdx, int destNodeIdx) {
+        if (isLocalQuery(startNodeIdx, destNodeIdx)) {
+            throw new IllegalArgumentException("Local query between " + startNodeIdx + " and " + destNodeIdx);
+        }
+        int numberOfTransitNodes = transitNodes.length;
+        long best = Long.MAX_VALUE;
+        int bestStartAccess = -1;
+        int bestDestAccess = -1;
+        for (int i = accessOffset[startNodeIdx]; i < accessOffset[startNodeIdx + 1]; i++) {
+            int row = accessNodes[i] * numberOfTransitNodes;
+            for (int j = accessOffset[destNodeIdx]; j < accessOffset[destNodeIdx + 1]; j++) {
+                int tableDistance = distanceTable[row + accessNodes[j]];
+                if (tableDistance == Integer.MAX_VALUE) {
+                    continue;
+                }
+                long distance = (long) accessDistances[i] + tableDistance + accessDistances[j];
+                if (distance < best) {
+                    best = distance;
+                    bestStartAccess = accessNodes[i];
+                    bestDestAccess = accessNodes[j];
+                }
+            }
+        }
+        if (bestStartAccess < 0) {
+            return null;
+        }
+        return new int[]{transitNodes[bestStartAccess], transitNodes[bestDestAccess], (int) best};
+    }
+
+    /**
+     * @param node A node id
+     * @return True if the node is a transit node.
+     */
+    public boolean isTransitNode(int node) {
+        return transitIndex[node] >= 0;
+    }
+
+    /**
+     * @param from A transit node
+     * @param to   A transit node
+     * @return The distance between the two transit nodes, {@link Integer#MAX_VALUE} if there is no path.
+     */
+    public int getTransitDistance(int from, int to) {
+        return distanceTable[transitIndex[from] * transitNodes.length + transitIndex[to]];
+    }
+
+    /**
+     * @return The number of transit nodes.
+     */
+    public int getNumberOfTransitNodes() {
+        return transitNodes.length;
+    }
+
+    /**
+     * @param node A node id
+     * @return The number of access nodes of the node.
+     */
+    public int getNumberOfAccessNodes(int node) {
+        return accessOffset[node + 1] - accessOffset[node];
+    }
+
+    /**
+     * @return The checksum of the graph the data belongs to.
+     */
+    public long getGraphChecksum() {
+        return graphChecksum;
+    }
+}
@@ -0,0 +1,189 @@
+package de.fmi.searouter.utils;
+
+import java.util.Arrays;
+
+/**
+ * class used to effeciently manage a priority queue of ids (represented as int instead of Integer objects).
+ * The ids are compared by an int array indexed by id (usually the distance from the start of a search, or a heap
+ * key like distance plus potential), which the owner of the heap updates before calling {@link #add(int)}.
+ * Shared by all searches that keep their distances in a plain int array (node ids as well as local ids, e.g.
+ * the vertices of one cell).
+ */
+public class IntMinHeap {
+    private final int INITIAL_SIZE = 400;
+    private final int SIZE_INCREASE = 200;
+
+    //for each id, the position of it in the heap or -1 if not on the heap
+    private final int[] heapPosition;
+    //the array representing the heap
+    private int[] idHeapArray;
+    private int currentSize;
+    //used when comparing the distances of ids
+    private int[] distance;
+
+    /**
+     * constructor for the heap
+     * @param distance the distance array the ids are compared by, also defines the range of valid ids
+     */
+    public IntMinHeap(int[] distance) {
+        this(distance.length);
+        this.distance = distance;
+    }
+
+    /**
+     * constructor for a heap whose distance array is only set with {@link #resetState(int[])}
+     * @param numberOfIds the range of valid ids
+     */
+    public IntMinHeap(int numberOfIds) {
+        this.heapPosition = new int[numberOfIds];
+        this.idHeapArray = new int[INITIAL_SIZE];
+        Arrays.fill(heapPosition, -1);
+        Arrays.fill(idHeapArray, -1);
+        currentSize = 0;
+    }
+
+    /**
+     * resets the state of the heap and prepares it for a new calculation
+     */
+    public void resetState() {
+        for (int i = 0; i < currentSize; i++) {
+            heapPosition[idHeapArray[i]] = -1;
+            idHeapArray[i] = -1;
+        }
+        currentSize = 0;
+    }
+
+    /**
+     * resets the state of the heap and compares the ids by another distance array from now on
+     * @param distance the distance array, must not be longer than the range of valid ids
+     */
+    public void resetState(int[] distance) {
+        resetState();
+        this.distance = distance;
+    }
+
+    /**
+     * checks if the heap is empty
+     * @return true if no more elements are contained on the heap, else false
+     */
+    public boolean isEmpty() {
+        return (currentSize == 0);
+    }
+
+    /**
+     * gets the id with the lowest distance stored on the heap without removing it.
+     * @return the id with the shortest distance
+     */
+    public int peek() {
+        return idHeapArray[0];
+    }
+
+    /**
+     * @return the smallest distance of all ids on the heap, {@link Integer#MAX_VALUE} if the heap is empty
+     */
+    public int peekDistance() {
+        return currentSize == 0 ? Integer.MAX_VALUE : distance[idHeapArray[0]];
+    }
+
+    /**
+     * gets the id with the lowest distance stored on the heap. Also restores the remaining array to a heap.
+     * @return the id with the shortest distance
+     */
+    public int getNext() {
+        int returnValue = idHeapArray[0];
+        heapPosition[returnValue] = -1;
+
+        currentSize--;
+        if (currentSize > 0) {
+            idHeapArray[0] = idHeapArray[currentSize];
+            heapPosition[idHeapArray[0]] = 0;
+        }
+        idHeapArray[currentSize] = -1;
+        heapifyTopDown(currentSize, 0);
+        return returnValue;
+    }
+
+    /**
+     * adds an id to the heap. if the id is already on the heap, updates its position if necessary
+     * (after its distance was lowered).
+     * @param id the id to add
+     */
+    public void add(int id) {
+        if(heapPosition[id] != -1) {
+            //update, do not add again
+            heapifyBottomUp(heapPosition[id]);
+        } else {
+            if(currentSize == idHeapArray.length) {
+                grow();
+            }
+            idHeapArray[currentSize] = id;
+            heapPosition[id] = currentSize;
+            heapifyBottomUp(currentSize);
+            currentSize++;
+        }
+    }
+
+    /**
+     * restores the heap property of the array after removing the first element.
+     * @param n the length of the array
+     * @param root the position in the array of the root of the subtree to heapify
+     */
+    private void heapifyTopDown(int n, int root) {
+        while (true) {
+            int smallest = root;
+            int leftChild = 2 * root + 1;
+            int rightChild = 2 * root + 2;
+
+            if (leftChild < n && distance[idHeapArray[leftChild]] < distance[idHeapArray[smallest]]) {
+                smallest = leftChild;
+            }
+            if (rightChild < n && distance[idHeapArray[rightChild]] < distance[idHeapArray[smallest]]) {
+                smallest = rightChild;
+            }
+            if (smallest == root) {
+                return;
+            }
+            swap(root, smallest);
+            root = smallest;
+        }
+    }
+
+    /**
+     * restores the heap property of the array after adding another element. also used to update the
+     * position of an id already contained in the array.
+     * @param position the position in the array of the element to check
+     */
+    private void heapifyBottomUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (distance[idHeapArray[position]] >= distance[idHeapArray[parent]]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    /**
+     * swaps two elements within the array. Also updates the heap positions of these elements.
+     * @param i the position of the first element
+     * @param j the position of the second element
+     */
+    private void swap(int i, int j) {
+        int tmp = idHeapArray[i];
+        idHeapArray[i] = idHeapArray[j];
+        idHeapArray[j] = tmp;
+
+        heapPosition[idHeapArray[i]] = i;
+        heapPosition[idHeapArray[j]] = j;
+    }
+
+    /**
+     * increases the size of the heap array.
+     */
+    private void grow() {
+        int oldLen = idHeapArray.length;
+        idHeapArray = Arrays.copyOf(idHeapArray, oldLen + Math.max(SIZE_INCREASE, oldLen / 2));
+        Arrays.fill(idHeapArray, oldLen, idHeapArray.length, -1);
+    }
+}
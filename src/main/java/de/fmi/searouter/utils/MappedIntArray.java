@@ -0,0 +1,63 @@
+package de.fmi.searouter.utils;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only int array backed by a memory mapped region of a file. The data is not loaded into the Java heap but
+ * paged in by the operating system on access, and several processes mapping the same file share the pages.
+ * <p>
+ * A single mapping is limited to 2 GB, so larger arrays are mapped in several segments of {@link #SEGMENT_SIZE}
+ * ints each. The ints have to be stored in big endian byte order (as written by {@link java.io.DataOutputStream}).
+ */
+public class MappedIntArray {
+
+    private static final int SEGMENT_BITS = 28;
+
+    /**
+     * Number of ints per mapped segment (1 GB).
+     */
+    public static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final IntBuffer[] segments;
+    private final long length;
+
+    /**
+     * Maps a part of a file. The mapping stays valid after the channel is closed.
+     *
+     * @param channel  The channel of the file.
+     * @param position The position of the first int in the file in bytes.
+     * @param length   The number of ints.
+     * @throws IOException If the file can not be mapped.
+     */
+    public MappedIntArray(FileChannel channel, long position, long length) throws IOException {
+        this.length = length;
+        int numberOfSegments = (int) ((length + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+        this.segments = new IntBuffer[numberOfSegments];
+        for (int i = 0; i < numberOfSegments; i++) {
+            long start = (long) i << SEGMENT_BITS;
+            long size = Math.min(SEGMENT_SIZE, length - start);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + start * Integer.BYTES, size * Integer.BYTES)
+                    .order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+        }
+    }
+
+    /**
+     * @param index The index of the int.
+     * @return The int at the index.
+     */
+    public int get(long index) {
+        return segments[(int) (index >>> SEGMENT_BITS)].get((int) (index & SEGMENT_MASK));
+    }
+
+    /**
+     * @return The number of ints.
+     */
+    public long length() {
+        return length;
+    }
+}
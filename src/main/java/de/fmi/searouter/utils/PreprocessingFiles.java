@@ -0,0 +1,32 @@
+package de.fmi.searouter.utils;
+
+import java.io.File;
+
+/**
+ * Location of the files in which the routers store the results of their preprocessing (graph partition, arc flags,
+ * hub labels, ...). The files are placed in the working directory, or in the directory given by the system property
+ * {@value #DIRECTORY_PROPERTY}. The property is read every time a file is opened, so tests can point it to a
+ * temporary directory instead of overwriting the files of the real graph.
+ */
+public final class PreprocessingFiles {
+
+    /**
+     * System property naming the directory of the preprocessing files.
+     */
+    public static final String DIRECTORY_PROPERTY = "searouter.preprocessingDirectory";
+
+    private PreprocessingFiles() {
+    }
+
+    /**
+     * @param fileName The name of a preprocessing file.
+     * @return The path of the file in the preprocessing directory.
+     */
+    public static String getPath(String fileName) {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (directory == null || directory.isEmpty()) {
+            return fileName;
+        }
+        return new File(directory, fileName).getPath();
+    }
+}
@@ -0,0 +1,68 @@
+package de.fmi.searouter.dijkstragrid;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests if graphs survive a write/read round trip of the compressed graph format unchanged.
+ */
+class CompressedGraphFileTest {
+
+    private static GraphSnapshot createLattice(int rows, int columns) throws IOException {
+        StringBuilder nodes = new StringBuilder();
+        StringBuilder edges = new StringBuilder();
+        int numberOfEdges = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                nodes.append(row * columns + column).append(' ').append(80.0 - row * 0.36).append(' ')
+                        .append(179.82 - column * 0.18).append('\n');
+                if (column > 0) {
+                    edges.append(row * columns + column).append(' ').append(row * columns + column - 1).append(' ').append(1000 + row).append('\n');
+                    edges.append(row * columns + column - 1).append(' ').append(row * columns + column).append(' ').append(1000 + row).append('\n');
+                    numberOfEdges += 2;
+                }
+                if (row > 0) {
+                    edges.append(row * columns + column).append(' ').append((row - 1) * columns + column).append(" 40030\n");
+                    edges.append((row - 1) * columns + column).append(' ').append(row * columns + column).append(" 40030\n");
+                    numberOfEdges += 2;
+                }
+            }
+        }
+        String fmi = "#\n\n" + rows * columns + "\n" + numberOfEdges + "\n" + nodes + edges;
+        return FmiImporter.importFmi(fmi.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        GraphSnapshot original = createLattice(30, 40);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressedGraphFile.write(original, out);
+        GraphSnapshot decoded = CompressedGraphFile.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(original.getNumberOfNodes(), decoded.getNumberOfNodes());
+        assertEquals(original.getNumberOfEdges(), decoded.getNumberOfEdges());
+        assertArrayEquals(original.getLatitude(), decoded.getLatitude());
+        assertArrayEquals(original.getLongitude(), decoded.getLongitude());
+        assertArrayEquals(original.getOffset(), decoded.getOffset());
+        assertArrayEquals(original.getEdgeDest(), decoded.getEdgeDest());
+        assertArrayEquals(original.getEdgeDist(), decoded.getEdgeDist());
+        assertEquals(original.getChecksum(), decoded.getChecksum());
+    }
+
+    @Test
+    void testCorruptChecksumIsDetected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressedGraphFile.write(createLattice(5, 5), out);
+        byte[] data = out.toByteArray();
+        data[37] ^= 0x01; // flips a bit of the checksum in the header
+
+        assertThrows(IOException.class, () -> CompressedGraphFile.read(new ByteArrayInputStream(data)));
+    }
+}
@@ -0,0 +1,87 @@
+package de.fmi.searouter.dijkstragrid;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests if .fmi files are imported correctly, especially the symmetrization of the edges.
+ */
+class FmiImporterTest {
+
+    private static GraphSnapshot importAndInstall(String content) throws IOException {
+        GraphSnapshot snapshot = FmiImporter.importFmi(content.getBytes(StandardCharsets.US_ASCII));
+        snapshot.install();
+        return snapshot;
+    }
+
+    @Test
+    void testOnlyMissingReverseEdgesAreAdded() throws IOException {
+        // 0 <-> 1 is complete, 0 -> 2 and 1 -> 2 lack their reverse edge
+        GraphSnapshot snapshot = importAndInstall("#\n\n3\n4\n"
+                + "0 10.0 20.0\n1 10.5 20.0\n2 11.0 20.5\n"
+                + "0 1 5\n0 2 7\n1 0 5\n1 2 9\n");
+
+        assertEquals(3, snapshot.getNumberOfNodes());
+        assertEquals(6, snapshot.getNumberOfEdges());
+        assertEquals(7, Edge.getDist(Grid.getEdgeIDByNodeIDs(2, 0)));
+        assertEquals(9, Edge.getDist(Grid.getEdgeIDByNodeIDs(2, 1)));
+        assertEquals(2, Grid.offset[1] - Grid.offset[0]);
+        assertEquals(2, Grid.offset[2] - Grid.offset[1]);
+        assertEquals(2, Grid.offset[3] - Grid.offset[2]);
+        for (int i = 1; i < Edge.getSize(); i++) {
+            assertTrue(Edge.getStart(i - 1) <= Edge.getStart(i));
+        }
+    }
+
+    @Test
+    void testFileIdsCommentsAndLineEndings() throws IOException {
+        importAndInstall("# comment\r\n# another comment\r\n\r\n2\r\n2\r\n"
+                + "1000000 -45.25 170.125\r\n7 1.0E-5 -179.5\r\n"
+                + "7 1000000 12\r\n1000000 7 12\r\n");
+
+        assertEquals(-45.25, Node.getLatitude(0));
+        assertEquals(170.125, Node.getLongitude(0));
+        assertEquals(1.0E-5, Node.getLatitude(1));
+        assertEquals(1, Edge.getDest(Grid.getEdgeIDByNodeIDs(0, 1)));
+        assertEquals(0, Edge.getDest(Grid.getEdgeIDByNodeIDs(1, 0)));
+    }
+
+    @Test
+    void testCommentsInBodyAndDuplicateEdges() throws IOException {
+        // 0 -> 1 is contained twice without a reverse edge, which must be added only once
+        GraphSnapshot snapshot = importAndInstall("#\n\n2\n# nodes\n3\n"
+                + "0 10.0 20.0\n  # between the nodes\n1 10.5 20.0\n"
+                + "# edges\n0 1 5\n0 1 5\n\n# last edge\n1 1 0\n");
+
+        assertEquals(4, snapshot.getNumberOfEdges());
+        assertEquals(10.5, Node.getLatitude(1));
+        assertEquals(2, Grid.offset[2] - Grid.offset[1]);
+        assertEquals(5, Edge.getDist(Grid.getEdgeIDByNodeIDs(1, 0)));
+    }
+
+    @Test
+    void testMappedFileEqualsArray(@TempDir Path directory) throws IOException {
+        // Large enough to be split into several chunks
+        GraphSnapshot expected = TestGrids.installSeaGrid(100, 200, 5);
+        Path file = directory.resolve("grid.fmi");
+        Grid.exportToFmiFile(file.toString());
+
+        GraphSnapshot snapshot = FmiImporter.importFmi(file);
+
+        assertEquals(expected.getNumberOfNodes(), snapshot.getNumberOfNodes());
+        assertEquals(expected.getNumberOfEdges(), snapshot.getNumberOfEdges());
+        assertEquals(expected.getChecksum(), snapshot.getChecksum());
+    }
+
+    @Test
+    void testUnknownNodeIsRejected() {
+        assertThrows(IOException.class, () -> FmiImporter.importFmi(
+                "#\n\n1\n1\n0 1.0 2.0\n0 5 3\n".getBytes(StandardCharsets.US_ASCII)));
+    }
+}
@@ -0,0 +1,134 @@
+package de.fmi.searouter.dijkstragrid;
+
+import de.fmi.searouter.costoverlay.CostPenalty;
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+import de.fmi.searouter.importdata.LatLong;
+import de.fmi.searouter.utils.IntersectionHelper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Small grid graphs for the tests of the routers: a lattice of sea nodes with rectangular islands, connected to
+ * their north, east, south and west neighbors like the grid of the {@link GridCreator}. The edge distances are the
+ * great circle distances rounded up, so the great circle distance is a lower bound for the A* routers.
+ */
+public final class TestGrids {
+
+    private TestGrids() {
+    }
+
+    /**
+     * Creates a lattice of 0.5 degree steps, starting at 60° N 80° W.
+     *
+     * @param rows    The number of latitudes.
+     * @param columns The number of longitudes.
+     * @param seed    The seed for placing the islands.
+     * @return The graph.
+     */
+    public static GraphSnapshot createSeaGrid(int rows, int columns, long seed) throws IOException {
+        Random random = new Random(seed);
+        boolean[] land = new boolean[rows * columns];
+        for (int island = 0; island < Math.max(1, rows * columns / 150); island++) {
+            int firstRow = random.nextInt(rows);
+            int firstColumn = random.nextInt(columns);
+            int height = random.nextInt(Math.max(1, rows / 4)) + 1;
+            int width = random.nextInt(Math.max(1, columns / 8)) + 1;
+            for (int row = firstRow; row < Math.min(rows, firstRow + height); row++) {
+                for (int column = firstColumn; column < Math.min(columns, firstColumn + width); column++) {
+                    land[row * columns + column] = true;
+                }
+            }
+        }
+
+        int[] nodeId = new int[rows * columns];
+        int numberOfNodes = 0;
+        StringBuilder nodes = new StringBuilder();
+        for (int cell = 0; cell < nodeId.length; cell++) {
+            nodeId[cell] = land[cell] ? -1 : numberOfNodes++;
+            if (!land[cell]) {
+                nodes.append(nodeId[cell]).append(' ').append(getLatitude(cell / columns)).append(' ')
+                        .append(getLongitude(cell % columns)).append('\n');
+            }
+        }
+
+        StringBuilder edges = new StringBuilder();
+        int numberOfEdges = 0;
+        int[][] directions = {{-1, 0}, {0, 1}, {1, 0}, {0, -1}};
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (land[row * columns + column]) {
+                    continue;
+                }
+                for (int[] direction : directions) {
+                    int neighborRow = row + direction[0];
+                    int neighborColumn = column + direction[1];
+                    if (neighborRow < 0 || neighborRow >= rows || neighborColumn < 0 || neighborColumn >= columns
+                            || land[neighborRow * columns + neighborColumn]) {
+                        continue;
+                    }
+                    double distance = IntersectionHelper.getDistance(getLatitude(row), getLongitude(column),
+                            getLatitude(neighborRow), getLongitude(neighborColumn));
+                    edges.append(nodeId[row * columns + column]).append(' ')
+                            .append(nodeId[neighborRow * columns + neighborColumn]).append(' ')
+                            .append((int) Math.ceil(distance)).append('\n');
+                    numberOfEdges++;
+                }
+            }
+        }
+
+        String fmi = "#\n\n" + numberOfNodes + "\n" + numberOfEdges + "\n" + nodes + edges;
+        return FmiImporter.importFmi(fmi.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Creates a lattice (see {@link #createSeaGrid(int, int, long)}) and makes it the current graph.
+     */
+    public static GraphSnapshot installSeaGrid(int rows, int columns, long seed) throws IOException {
+        GraphSnapshot snapshot = createSeaGrid(rows, columns, seed);
+        GraphSnapshotHolder.swap(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Creates a penalty for the edges within a square.
+     *
+     * @param id        The id of the penalty.
+     * @param latitude  The latitude of the center of the square.
+     * @param longitude The longitude of the center of the square.
+     * @param size      Half the side length of the square in degrees.
+     * @param factor    The factor for the costs of the edges.
+     * @param addition  The cost added to the edges.
+     * @return The penalty.
+     */
+    public static CostPenalty createPenalty(String id, double latitude, double longitude, double size, double factor, int addition) {
+        List<LatLong> polygon = new ArrayList<>();
+        double[][] corners = {{-size, -size}, {-size, size}, {size, size}, {size, -size}};
+        for (double[] corner : corners) {
+            LatLong point = new LatLong();
+            point.setLatitude(latitude + corner[0]);
+            point.setLongitude(longitude + corner[1]);
+            polygon.add(point);
+        }
+        return new CostPenalty(id, polygon, factor, addition);
+    }
+
+    /**
+     * Adds a penalty "storm" to the current costs, which triples the costs of the edges within three degrees of
+     * 52° N 65° W (inside the sea grids of at least 30 by 60 nodes) and adds 1000 to them.
+     */
+    public static void addStormPenalty() {
+        EdgeCostOverlay.addPenalty(createPenalty("storm", 52, -65, 3, 3, 1000));
+    }
+
+    private static double getLatitude(int row) {
+        return 60.0 - row * 0.5;
+    }
+
+    private static double getLongitude(int column) {
+        return -80.0 + column * 0.5;
+    }
+}
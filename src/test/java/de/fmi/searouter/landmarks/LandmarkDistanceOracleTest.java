@@ -0,0 +1,81 @@
+package de.fmi.searouter.landmarks;
+
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.dijkstragrid.TestGrids;
+import de.fmi.searouter.router.RouterTests;
+import de.fmi.searouter.router.RoutingResult;
+import de.fmi.searouter.router.dijkstra.DijkstraRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests if the bounds of the landmark distance oracle enclose the distances of the dijkstra, and if the batch
+ * variant returns the same bounds as single queries.
+ */
+class LandmarkDistanceOracleTest {
+
+    private static final int NUMBER_OF_PAIRS = 300;
+
+    @AfterEach
+    void clearPenalties() {
+        EdgeCostOverlay.clearPenalties();
+    }
+
+    /**
+     * Compares the bounds of random pairs with the distances of the dijkstra for the current edge costs.
+     */
+    private static void assertBoundsEncloseDistances(long seed) {
+        DijkstraRouter dijkstra = new DijkstraRouter();
+        Random random = new Random(seed);
+        int[] startNodes = new int[NUMBER_OF_PAIRS];
+        int[] destinationNodes = new int[NUMBER_OF_PAIRS];
+        for (int i = 0; i < NUMBER_OF_PAIRS; i++) {
+            startNodes[i] = random.nextInt(Node.getSize());
+            destinationNodes[i] = random.nextInt(Node.getSize());
+        }
+
+        DistanceBounds[] batchBounds = LandmarkDistanceOracle.getBounds(startNodes, destinationNodes);
+        for (int i = 0; i < NUMBER_OF_PAIRS; i++) {
+            String pair = "from " + startNodes[i] + " to " + destinationNodes[i];
+            DistanceBounds bounds = LandmarkDistanceOracle.getBounds(startNodes[i], destinationNodes[i]);
+            assertEquals(bounds.isReachable(), batchBounds[i].isReachable(), pair);
+            assertEquals(bounds.getLowerBound(), batchBounds[i].getLowerBound(), pair);
+            assertEquals(bounds.getUpperBound(), batchBounds[i].getUpperBound(), pair);
+            assertEquals(bounds.isPenalized(), batchBounds[i].isPenalized(), pair);
+
+            RoutingResult result = dijkstra.route(startNodes[i], destinationNodes[i]);
+            if (!result.isRouteFound()) {
+                continue;
+            }
+            assertTrue(bounds.isReachable(), pair);
+            assertTrue(bounds.getLowerBound() <= result.getOverallDistance(), pair);
+            if (bounds.getUpperBound() != DistanceBounds.UNKNOWN) {
+                assertTrue(result.getOverallDistance() <= bounds.getUpperBound(), pair);
+            }
+        }
+    }
+
+    @Test
+    void testBoundsEncloseDistances() throws IOException {
+        TestGrids.installSeaGrid(30, 60, 111);
+        RouterTests.installLandmarks(16, 1);
+
+        assertBoundsEncloseDistances(2);
+    }
+
+    @Test
+    void testBoundsEncloseDistancesWithPenalty() throws IOException {
+        TestGrids.installSeaGrid(30, 60, 112);
+        RouterTests.installLandmarks(16, 3);
+
+        TestGrids.addStormPenalty();
+        assertTrue(LandmarkDistanceOracle.getBounds(0, Node.getSize() - 1).isPenalized());
+        assertBoundsEncloseDistances(4);
+    }
+}
@@ -0,0 +1,57 @@
+package de.fmi.searouter.landmarks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests if landmark files of the previous serialization format are converted into landmark files.
+ */
+class LandmarkFileTest {
+
+    private static final int[][] DISTANCES = {{0, 3, 7, 12}, {5, 2, 0, 9}};
+    private static final int[] LANDMARK_NODE_IDS = {0, 2};
+
+    private static String writeSerializedFile(Path directory) throws IOException {
+        Path serFile = directory.resolve("landmarks_random_mode");
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(serFile.toFile()))) {
+            out.writeObject(new LandmarkSerializer(DISTANCES, LANDMARK_NODE_IDS));
+        }
+        return serFile.toString();
+    }
+
+    @Test
+    void testConvertSerializedFile(@TempDir Path directory) throws IOException {
+        String serFileName = writeSerializedFile(directory);
+        String fileName = serFileName + LandmarkFile.FILE_EXTENSION;
+
+        assertTrue(LandmarkFile.convertSerializedFile(serFileName, fileName, 42, 4));
+
+        LandmarkFile landmarkFile = LandmarkFile.load(fileName);
+        assertEquals(42, landmarkFile.getGraphChecksum());
+        assertArrayEquals(LANDMARK_NODE_IDS, landmarkFile.getLandmarkNodeIDs());
+        for (int landmark = 0; landmark < DISTANCES.length; landmark++) {
+            for (int node = 0; node < DISTANCES[landmark].length; node++) {
+                assertEquals(DISTANCES[landmark][node], landmarkFile.getDistances().get(landmark, node));
+            }
+        }
+        assertThrows(IOException.class, () -> LandmarkFile.load(serFileName));
+    }
+
+    @Test
+    void testSerializedFileOfOtherGraphIsIgnored(@TempDir Path directory) throws IOException {
+        String serFileName = writeSerializedFile(directory);
+        String fileName = serFileName + LandmarkFile.FILE_EXTENSION;
+
+        assertFalse(LandmarkFile.convertSerializedFile(serFileName, fileName, 42, 5));
+        assertFalse(Files.exists(Path.of(fileName)));
+        assertTrue(Files.exists(Path.of(serFileName)));
+    }
+}
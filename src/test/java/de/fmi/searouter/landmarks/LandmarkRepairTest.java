@@ -0,0 +1,94 @@
+package de.fmi.searouter.landmarks;
+
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+import de.fmi.searouter.dijkstragrid.Edge;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.dijkstragrid.TestGrids;
+import de.fmi.searouter.router.deltastepping.DeltaSteppingSearch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests if repaired landmark distances equal the distances calculated from scratch for the new edge costs.
+ */
+class LandmarkRepairTest {
+
+    private static final int NUMBER_OF_LANDMARKS = 8;
+
+    private int[] landmarkNodeIDs;
+
+    private LandmarkDistances createLandmarks(long seed) throws IOException {
+        TestGrids.installSeaGrid(40, 80, seed);
+        Random random = new Random(seed);
+        landmarkNodeIDs = new int[NUMBER_OF_LANDMARKS];
+        int[][] distances = new int[NUMBER_OF_LANDMARKS][];
+        for (int landmark = 0; landmark < NUMBER_OF_LANDMARKS; landmark++) {
+            landmarkNodeIDs[landmark] = random.nextInt(Node.getSize());
+            distances[landmark] = new DeltaSteppingSearch().routeToAllVertices(landmarkNodeIDs[landmark]);
+        }
+        return LandmarkDistances.of(distances);
+    }
+
+    /**
+     * Repairs the distances for the current edge costs and compares every row with a search from scratch.
+     *
+     * @return The repaired distances.
+     */
+    private LandmarkDistances repairAndCompare(LandmarkDistances distances, int[] oldCosts) {
+        int[] newCosts = EdgeCostOverlay.getCurrentCosts();
+        LandmarkDistances repaired = LandmarkRepair.repair(distances, oldCosts, newCosts);
+        for (int landmark = 0; landmark < NUMBER_OF_LANDMARKS; landmark++) {
+            int[] expected = new DeltaSteppingSearch(newCosts).routeToAllVertices(landmarkNodeIDs[landmark]);
+            for (int node = 0; node < expected.length; node++) {
+                assertEquals(expected[node], repaired.get(landmark, node), "landmark " + landmark + ", node " + node);
+            }
+        }
+        return repaired;
+    }
+
+    @AfterEach
+    void clearPenalties() {
+        EdgeCostOverlay.clearPenalties();
+    }
+
+    @Test
+    void testChainedPenaltyAdditionsAndRemovals() throws IOException {
+        LandmarkDistances distances = createLandmarks(11);
+        int[] costs = Edge.getDistances();
+
+        Random random = new Random(3);
+        for (int step = 0; step < 10; step++) {
+            if (step % 3 == 2) {
+                EdgeCostOverlay.removePenalty("penalty" + (step - 2));
+            } else {
+                EdgeCostOverlay.addPenalty(TestGrids.createPenalty("penalty" + step, 60 - random.nextDouble() * 20,
+                        -80 + random.nextDouble() * 40, 1 + random.nextDouble() * 3, 1 + random.nextDouble() * 4,
+                        random.nextInt(50000)));
+            }
+            distances = repairAndCompare(distances, costs);
+            costs = EdgeCostOverlay.getCurrentCosts();
+        }
+
+        EdgeCostOverlay.clearPenalties();
+        repairAndCompare(distances, costs);
+    }
+
+    @Test
+    void testClosureAndReopening() throws IOException {
+        LandmarkDistances distances = createLandmarks(12);
+        int[] costs = Edge.getDistances();
+
+        // A closed strait: the edges get the maximum cost, so routes go around it
+        EdgeCostOverlay.addPenalty(TestGrids.createPenalty("closure", 50, -60, 5, 1, Integer.MAX_VALUE / 2));
+        distances = repairAndCompare(distances, costs);
+        costs = EdgeCostOverlay.getCurrentCosts();
+
+        EdgeCostOverlay.removePenalty("closure");
+        repairAndCompare(distances, costs);
+    }
+}
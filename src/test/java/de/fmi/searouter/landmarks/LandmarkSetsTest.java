@@ -0,0 +1,41 @@
+package de.fmi.searouter.landmarks;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests if the number of active landmarks is read from the landmark configuration.
+ */
+class LandmarkSetsTest {
+
+    @TempDir
+    Path directory;
+
+    private String writeConfiguration(String content) throws IOException {
+        Path file = directory.resolve(LandmarkSets.CONFIGURATION_FILE_NAME);
+        Files.writeString(file, content);
+        return file.toString();
+    }
+
+    @AfterEach
+    void restoreDefaults() throws IOException {
+        LandmarkSets.loadConfiguration(writeConfiguration("activeLandmarks=5\n"));
+    }
+
+    @Test
+    void testActiveLandmarks() throws IOException {
+        LandmarkSets.loadConfiguration(writeConfiguration("# written by the LandmarkTuner\ndefaultSet=EQUAL_SPHERE\nactiveLandmarks=8\n"));
+        assertEquals(8, LandmarkSets.getActiveLandmarks());
+        assertEquals(LandmarkDistributionMode.EQUAL_SPHERE, LandmarkSets.getDefaultMode());
+
+        assertThrows(IllegalArgumentException.class, () -> LandmarkSets.loadConfiguration(writeConfiguration("activeLandmarks=0\n")));
+        assertEquals(8, LandmarkSets.getActiveLandmarks());
+    }
+}
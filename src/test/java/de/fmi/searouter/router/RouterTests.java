@@ -0,0 +1,80 @@
+package de.fmi.searouter.router;
+
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+import de.fmi.searouter.dijkstragrid.Grid;
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.landmarks.Landmark;
+import de.fmi.searouter.router.dijkstra.DijkstraRouter;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks for the tests of the routers: every router has to find routes as short as the ones of the
+ * {@link DijkstraRouter} on the current graph.
+ */
+public final class RouterTests {
+
+    private RouterTests() {
+    }
+
+    /**
+     * Routes between random node pairs of the current graph and compares each result with the {@link DijkstraRouter}:
+     * both have to agree whether a route exists and on its distance, and the path of the router has to lead from
+     * the start to the destination over edges whose current costs add up to the distance.
+     *
+     * @param router        The router to test.
+     * @param numberOfPairs The number of random start and destination pairs.
+     * @param seed          The seed for choosing the pairs.
+     */
+    public static void assertSameDistancesAsDijkstra(Router router, int numberOfPairs, long seed) {
+        DijkstraRouter dijkstra = new DijkstraRouter();
+        Random random = new Random(seed);
+        for (int i = 0; i < numberOfPairs; i++) {
+            int start = random.nextInt(Node.getSize());
+            int dest = random.nextInt(Node.getSize());
+            RoutingResult expected = dijkstra.route(start, dest);
+            RoutingResult result = router.route(start, dest);
+
+            String pair = router.getName() + " from " + start + " to " + dest;
+            assertEquals(expected.isRouteFound(), result.isRouteFound(), pair);
+            if (!expected.isRouteFound()) {
+                continue;
+            }
+            assertEquals(expected.getOverallDistance(), result.getOverallDistance(), pair);
+            assertPathCost(result.getPath(), start, dest, result.getOverallDistance(), pair);
+        }
+    }
+
+    /**
+     * Places landmarks on random nodes of the current graph and makes them the landmarks of the ALT routers.
+     *
+     * @param numberOfLandmarks The number of landmarks.
+     * @param seed              The seed for choosing the landmark nodes.
+     */
+    public static void installLandmarks(int numberOfLandmarks, long seed) {
+        Random random = new Random(seed);
+        int[] landmarkNodeIDs = new int[numberOfLandmarks];
+        int[][] distances = new int[numberOfLandmarks][];
+        for (int landmark = 0; landmark < numberOfLandmarks; landmark++) {
+            landmarkNodeIDs[landmark] = random.nextInt(Node.getSize());
+            distances[landmark] = new DijkstraRouter().routeToAllVertices(landmarkNodeIDs[landmark], landmarkNodeIDs[landmark]);
+        }
+        Landmark.setLandmarks(distances, landmarkNodeIDs);
+    }
+
+    private static void assertPathCost(List<Integer> path, int start, int dest, int distance, String pair) {
+        int[] edgeCost = EdgeCostOverlay.getCurrentCosts();
+        assertEquals(start, path.get(0), pair);
+        assertEquals(dest, path.get(path.size() - 1), pair);
+        long cost = 0;
+        for (int i = 1; i < path.size(); i++) {
+            int edge = Grid.getEdgeIDByNodeIDs(path.get(i - 1), path.get(i));
+            assertTrue(edge >= 0, pair + ": no edge from " + path.get(i - 1) + " to " + path.get(i));
+            cost += edgeCost[edge];
+        }
+        assertEquals(distance, cost, pair);
+    }
+}
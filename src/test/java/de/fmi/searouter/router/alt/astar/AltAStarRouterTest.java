@@ -0,0 +1,26 @@
+package de.fmi.searouter.router.alt.astar;
+
+import de.fmi.searouter.dijkstragrid.TestGrids;
+import de.fmi.searouter.router.RouterTests;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+/**
+ * Tests if the ALT A* finds routes as short as the dijkstra, with adaptive and with static landmark activation.
+ */
+class AltAStarRouterTest {
+
+    @Test
+    void testSameDistancesAsDijkstra() throws IOException {
+        TestGrids.installSeaGrid(30, 60, 101);
+        RouterTests.installLandmarks(16, 1);
+
+        AltAStarRouter adaptiveRouter = new AltAStarRouter();
+        RouterTests.assertSameDistancesAsDijkstra(adaptiveRouter, 200, 2);
+
+        AltAStarRouter staticRouter = new AltAStarRouter();
+        staticRouter.setAdaptiveLandmarkActivation(false);
+        RouterTests.assertSameDistancesAsDijkstra(staticRouter, 200, 3);
+    }
+}
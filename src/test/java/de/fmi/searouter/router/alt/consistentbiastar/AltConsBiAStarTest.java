@@ -0,0 +1,27 @@
+package de.fmi.searouter.router.alt.consistentbiastar;
+
+import de.fmi.searouter.dijkstragrid.TestGrids;
+import de.fmi.searouter.router.RouterTests;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+/**
+ * Tests if the consistent bidirectional ALT A* finds routes as short as the dijkstra, with adaptive and with static
+ * landmark activation.
+ */
+class AltConsBiAStarTest {
+
+    @Test
+    void testSameDistancesAsDijkstra() throws IOException {
+        TestGrids.installSeaGrid(30, 60, 103);
+        RouterTests.installLandmarks(16, 1);
+
+        AltConsBiAStar adaptiveRouter = new AltConsBiAStar();
+        RouterTests.assertSameDistancesAsDijkstra(adaptiveRouter, 200, 2);
+
+        AltConsBiAStar staticRouter = new AltConsBiAStar();
+        staticRouter.setAdaptiveLandmarkActivation(false);
+        RouterTests.assertSameDistancesAsDijkstra(staticRouter, 200, 3);
+    }
+}
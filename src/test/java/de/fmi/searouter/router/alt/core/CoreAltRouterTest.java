@@ -0,0 +1,27 @@
+package de.fmi.searouter.router.alt.core;
+
+import de.fmi.searouter.dijkstragrid.TestGrids;
+import de.fmi.searouter.landmarks.Landmark;
+import de.fmi.searouter.router.RouterTests;
+import de.fmi.searouter.utils.TempPreprocessingDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests if the Core-ALT router finds routes as short as the dijkstra without the landmark table of the full graph.
+ */
+@ExtendWith(TempPreprocessingDirectory.class)
+class CoreAltRouterTest {
+
+    @Test
+    void testSameDistancesAsDijkstra() throws IOException {
+        TestGrids.installSeaGrid(30, 60, 41);
+        assertNull(Landmark.getLandmarkSet());
+
+        RouterTests.assertSameDistancesAsDijkstra(new CoreAltRouter(), 200, 1);
+    }
+}
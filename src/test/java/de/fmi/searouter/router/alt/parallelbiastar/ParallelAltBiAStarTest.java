@@ -0,0 +1,21 @@
+package de.fmi.searouter.router.alt.parallelbiastar;
+
+import de.fmi.searouter.dijkstragrid.TestGrids;
+import de.fmi.searouter.router.RouterTests;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+/**
+ * Tests if the parallel ALT router finds routes as short as the dijkstra.
+ */
+class ParallelAltBiAStarTest {
+
+    @Test
+    void testSameDistancesAsDijkstra() throws IOException {
+        TestGrids.installSeaGrid(30, 60, 42);
+        RouterTests.installLandmarks(8, 1);
+
+        RouterTests.assertSameDistancesAsDijkstra(new ParallelAltBiAStar(), 200, 2);
+    }
+}
@@ -0,0 +1,53 @@
+package de.fmi.searouter.router.alt.reach;
+
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.dijkstragrid.TestGrids;
+import de.fmi.searouter.reach.ReachBounds;
+import de.fmi.searouter.router.RouterTests;
+import de.fmi.searouter.router.alt.consistentbiastar.AltConsBiAStar;
+import de.fmi.searouter.utils.TempPreprocessingDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests if the REAL router finds routes as short as the dijkstra and if the reach pruning reduces the search space.
+ */
+@ExtendWith(TempPreprocessingDirectory.class)
+class ReachAltRouterTest {
+
+    @Test
+    void testSameDistancesAsDijkstra() throws IOException {
+        TestGrids.installSeaGrid(30, 60, 31);
+        RouterTests.installLandmarks(8, 1);
+
+        RouterTests.assertSameDistancesAsDijkstra(new ReachAltRouter(), 200, 2);
+    }
+
+    @Test
+    void testPruningReducesSettledNodes() throws IOException {
+        TestGrids.installSeaGrid(30, 60, 32);
+        RouterTests.installLandmarks(8, 3);
+
+        ReachBounds reachBounds = ReachBounds.getInstance();
+        assertTrue(reachBounds.getReachLimit() > 0);
+
+        ReachAltRouter reachRouter = new ReachAltRouter();
+        AltConsBiAStar altRouter = new AltConsBiAStar();
+        Random random = new Random(4);
+        long settledWithReach = 0;
+        long settledWithoutReach = 0;
+        for (int i = 0; i < 100; i++) {
+            int start = random.nextInt(Node.getSize());
+            int dest = random.nextInt(Node.getSize());
+            settledWithReach += reachRouter.route(start, dest).getAmountOfNodesPoppedOutOfHeap();
+            settledWithoutReach += altRouter.route(start, dest).getAmountOfNodesPoppedOutOfHeap();
+        }
+        assertTrue(settledWithReach < settledWithoutReach, settledWithReach + " nodes settled with reach pruning, "
+                + settledWithoutReach + " without");
+    }
+}
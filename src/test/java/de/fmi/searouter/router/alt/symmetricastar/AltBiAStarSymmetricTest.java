@@ -0,0 +1,27 @@
+package de.fmi.searouter.router.alt.symmetricastar;
+
+import de.fmi.searouter.dijkstragrid.TestGrids;
+import de.fmi.searouter.router.RouterTests;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+/**
+ * Tests if the symmetric bidirectional ALT A* finds routes as short as the dijkstra, with adaptive and with static
+ * landmark activation.
+ */
+class AltBiAStarSymmetricTest {
+
+    @Test
+    void testSameDistancesAsDijkstra() throws IOException {
+        TestGrids.installSeaGrid(30, 60, 102);
+        RouterTests.installLandmarks(16, 1);
+
+        AltBiAStarSymmetric adaptiveRouter = new AltBiAStarSymmetric();
+        RouterTests.assertSameDistancesAsDijkstra(adaptiveRouter, 200, 2);
+
+        AltBiAStarSymmetric staticRouter = new AltBiAStarSymmetric();
+        staticRouter.setAdaptiveLandmarkActivation(false);
+        RouterTests.assertSameDistancesAsDijkstra(staticRouter, 200, 3);
+    }
+}
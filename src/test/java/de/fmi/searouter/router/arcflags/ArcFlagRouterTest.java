@@ -0,0 +1,24 @@
+package de.fmi.searouter.router.arcflags;
+
+import de.fmi.searouter.dijkstragrid.TestGrids;
+import de.fmi.searouter.router.RouterTests;
+import de.fmi.searouter.utils.TempPreprocessingDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+
+/**
+ * Tests if the arc flag routers find routes as short as the dijkstra.
+ */
+@ExtendWith(TempPreprocessingDirectory.class)
+class ArcFlagRouterTest {
+
+    @Test
+    void testSameDistancesAsDijkstra() throws IOException {
+        TestGrids.installSeaGrid(30, 60, 21);
+
+        RouterTests.assertSameDistancesAsDijkstra(new ArcFlagRouter(), 200, 1);
+        RouterTests.assertSameDistancesAsDijkstra(new ArcFlagBiDijkstra(), 200, 2);
+    }
+}
@@ -0,0 +1,44 @@
+package de.fmi.searouter.router.crp;
+
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+import de.fmi.searouter.dijkstragrid.TestGrids;
+import de.fmi.searouter.router.RouterTests;
+import de.fmi.searouter.utils.TempPreprocessingDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+
+/**
+ * Tests if the CRP router finds routes as short as the dijkstra, also after the overlay was customized for
+ * penalties.
+ */
+@ExtendWith(TempPreprocessingDirectory.class)
+class CRPRouterTest {
+
+    @AfterEach
+    void clearPenalties() {
+        EdgeCostOverlay.clearPenalties();
+    }
+
+    @Test
+    void testSameDistancesAsDijkstra() throws IOException {
+        TestGrids.installSeaGrid(30, 60, 51);
+
+        RouterTests.assertSameDistancesAsDijkstra(new CRPRouter(), 200, 1);
+    }
+
+    @Test
+    void testSameDistancesAsDijkstraWithPenalty() throws IOException {
+        TestGrids.installSeaGrid(30, 60, 52);
+        CRPRouter router = new CRPRouter();
+        RouterTests.assertSameDistancesAsDijkstra(router, 50, 2);
+
+        TestGrids.addStormPenalty();
+        RouterTests.assertSameDistancesAsDijkstra(router, 200, 3);
+
+        EdgeCostOverlay.clearPenalties();
+        RouterTests.assertSameDistancesAsDijkstra(router, 100, 4);
+    }
+}
@@ -0,0 +1,31 @@
+package de.fmi.searouter.router.deltastepping;
+
+import de.fmi.searouter.dijkstragrid.Node;
+import de.fmi.searouter.dijkstragrid.TestGrids;
+import de.fmi.searouter.router.dijkstra.DijkstraRouter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests if the delta-stepping search calculates the same distances to all nodes as the dijkstra.
+ */
+class DeltaSteppingSearchTest {
+
+    @Test
+    void testSameDistancesAsDijkstra() throws IOException {
+        // Large enough for phases which are relaxed in parallel
+        TestGrids.installSeaGrid(100, 200, 91);
+
+        DeltaSteppingSearch search = new DeltaSteppingSearch();
+        DijkstraRouter dijkstra = new DijkstraRouter();
+        Random random = new Random(1);
+        for (int i = 0; i < 10; i++) {
+            int start = random.nextInt(Node.getSize());
+            assertArrayEquals(dijkstra.routeToAllVertices(start, start), search.routeToAllVertices(start), "start " + start);
+        }
+    }
+}
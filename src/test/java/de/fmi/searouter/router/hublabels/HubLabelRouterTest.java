@@ -0,0 +1,23 @@
+package de.fmi.searouter.router.hublabels;
+
+import de.fmi.searouter.dijkstragrid.TestGrids;
+import de.fmi.searouter.router.RouterTests;
+import de.fmi.searouter.utils.TempPreprocessingDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+
+/**
+ * Tests if the hub label router finds routes as short as the dijkstra.
+ */
+@ExtendWith(TempPreprocessingDirectory.class)
+class HubLabelRouterTest {
+
+    @Test
+    void testSameDistancesAsDijkstra() throws IOException {
+        TestGrids.installSeaGrid(30, 60, 61);
+
+        RouterTests.assertSameDistancesAsDijkstra(new HubLabelRouter(), 300, 1);
+    }
+}
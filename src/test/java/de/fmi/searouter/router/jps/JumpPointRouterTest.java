@@ -0,0 +1,35 @@
+package de.fmi.searouter.router.jps;
+
+import de.fmi.searouter.costoverlay.EdgeCostOverlay;
+import de.fmi.searouter.dijkstragrid.TestGrids;
+import de.fmi.searouter.router.RouterTests;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+/**
+ * Tests if the jump point search finds routes as short as the dijkstra, also with penalties.
+ */
+class JumpPointRouterTest {
+
+    @AfterEach
+    void clearPenalties() {
+        EdgeCostOverlay.clearPenalties();
+    }
+
+    @Test
+    void testSameDistancesAsDijkstra() throws IOException {
+        TestGrids.installSeaGrid(30, 60, 81);
+
+        RouterTests.assertSameDistancesAsDijkstra(new JumpPointRouter(), 300, 1);
+    }
+
+    @Test
+    void testSameDistancesAsDijkstraWithPenalty() throws IOException {
+        TestGrids.installSeaGrid(30, 60, 82);
+        TestGrids.addStormPenalty();
+
+        RouterTests.assertSameDistancesAsDijkstra(new JumpPointRouter(), 300, 2);
+    }
+}
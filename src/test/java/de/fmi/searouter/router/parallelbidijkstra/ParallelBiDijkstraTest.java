@@ -0,0 +1,21 @@
+package de.fmi.searouter.router.parallelbidijkstra;
+
+import de.fmi.searouter.dijkstragrid.TestGrids;
+import de.fmi.searouter.router.RouterTests;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+/**
+ * Tests if the parallel bidirectional routers find routes as short as the dijkstra.
+ */
+class ParallelBiDijkstraTest {
+
+    @Test
+    void testSameDistancesAsDijkstra() throws IOException {
+        TestGrids.installSeaGrid(30, 60, 41);
+
+        RouterTests.assertSameDistancesAsDijkstra(new ParallelBiDijkstra(), 200, 1);
+        RouterTests.assertSameDistancesAsDijkstra(new ParallelBiAStarConsistent(), 200, 2);
+    }
+}
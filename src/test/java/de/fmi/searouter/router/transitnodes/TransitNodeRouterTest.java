@@ -0,0 +1,23 @@
+package de.fmi.searouter.router.transitnodes;
+
+import de.fmi.searouter.dijkstragrid.TestGrids;
+import de.fmi.searouter.router.RouterTests;
+import de.fmi.searouter.utils.TempPreprocessingDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+
+/**
+ * Tests if the transit node router finds routes as short as the dijkstra.
+ */
+@ExtendWith(TempPreprocessingDirectory.class)
+class TransitNodeRouterTest {
+
+    @Test
+    void testSameDistancesAsDijkstra() throws IOException {
+        TestGrids.installSeaGrid(30, 60, 71);
+
+        RouterTests.assertSameDistancesAsDijkstra(new TransitNodeRouter(), 300, 1);
+    }
+}
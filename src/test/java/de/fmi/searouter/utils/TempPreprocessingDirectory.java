@@ -0,0 +1,39 @@
+package de.fmi.searouter.utils;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Extension for tests of routers with preprocessing files: points {@link PreprocessingFiles} to a new temporary
+ * directory before each test and deletes the directory afterwards, so the tests neither leave files in the working
+ * directory nor overwrite the files of the real graph.
+ */
+public class TempPreprocessingDirectory implements BeforeEachCallback, AfterEachCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(TempPreprocessingDirectory.class);
+
+    @Override
+    public void beforeEach(ExtensionContext context) throws IOException {
+        Path directory = Files.createTempDirectory("searouter-preprocessing");
+        context.getStore(NAMESPACE).put(context.getUniqueId(), directory);
+        System.setProperty(PreprocessingFiles.DIRECTORY_PROPERTY, directory.toString());
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) throws IOException {
+        System.clearProperty(PreprocessingFiles.DIRECTORY_PROPERTY);
+        Path directory = context.getStore(NAMESPACE).remove(context.getUniqueId(), Path.class);
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}